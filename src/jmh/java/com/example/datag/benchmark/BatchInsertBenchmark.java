@@ -0,0 +1,66 @@
+package com.example.datag.benchmark;
+
+import com.example.datag.importer.TableBatchWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量插入吞吐量（行/秒），目标为MySQL兼容模式的内存H2
+ * 用于比较不同批次大小；绝对值与真实MySQL不同，只用于相对比较
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchInsertBenchmark {
+
+    private static final int ROWS = 10_000;
+    private static final int COLUMNS = 10;
+    private static final String TABLE = "bench_insert";
+
+    @Param({"100", "1000", "5000"})
+    public int batchSize;
+
+    private JdbcTemplate jdbcTemplate;
+    private TableBatchWriter writer;
+    private List<Object[]> rows;
+
+    @Setup
+    public void setup() {
+        jdbcTemplate = BenchData.h2("insert" + batchSize);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS `" + TABLE + "`");
+        writer = new TableBatchWriter(jdbcTemplate, TABLE, BenchData.columns(COLUMNS));
+        writer.ensureTableExists();
+        rows = BenchData.intRows(ROWS, COLUMNS);
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() {
+        jdbcTemplate.execute("TRUNCATE TABLE `" + TABLE + "`");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void insertRows() {
+        for (int from = 0; from < ROWS; from += batchSize) {
+            writer.writeBatch(rows.subList(from, Math.min(ROWS, from + batchSize)));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.datag.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试数据生成器
+ * 所有数据由固定种子生成，同样的参数每次得到同样的数据，结果可以与基线对比
+ */
+public final class BenchData {
+
+    public static final long SEED = 20240601L;
+
+    private BenchData() {
+    }
+
+    /**
+     * 列名 c1..cN
+     */
+    public static List<String> columns(int count) {
+        List<String> columns = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            columns.add("c" + i);
+        }
+        return columns;
+    }
+
+    /**
+     * 生成CSV数据行（不含表头）
+     * @param quoted 是否给每个字段加引号，并在部分字段中包含逗号和转义的引号
+     */
+    public static List<String> csvLines(int rows, int columns, boolean quoted) {
+        Random random = new Random(SEED);
+        List<String> lines = new ArrayList<>(rows);
+        StringBuilder line = new StringBuilder();
+        for (int r = 0; r < rows; r++) {
+            line.setLength(0);
+            for (int c = 0; c < columns; c++) {
+                if (c > 0) {
+                    line.append(',');
+                }
+                int value = random.nextInt(1_000_000);
+                if (!quoted) {
+                    line.append(value);
+                } else if (random.nextInt(10) == 0) {
+                    line.append("\"").append(value).append(", \"\"x\"\"\"");
+                } else {
+                    line.append('"').append(value).append('"');
+                }
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * 生成带表头的整数CSV文件内容
+     */
+    public static byte[] csvFile(int rows, int columns) {
+        StringBuilder content = new StringBuilder(String.join(",", columns(columns))).append('\n');
+        for (String line : csvLines(rows, columns, false)) {
+            content.append(line).append('\n');
+        }
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 生成整数数据行，用于批量插入
+     */
+    public static List<Object[]> intRows(int rows, int columns) {
+        Random random = new Random(SEED);
+        List<Object[]> result = new ArrayList<>(rows);
+        for (int r = 0; r < rows; r++) {
+            Object[] row = new Object[columns];
+            for (int c = 0; c < columns; c++) {
+                row[c] = random.nextInt(1_000_000);
+            }
+            result.add(row);
+        }
+        return result;
+    }
+
+    /**
+     * 内存H2数据库（MySQL兼容模式），每个名称对应一个独立的库
+     */
+    public static JdbcTemplate h2(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        dataSource.setDriverClassName("org.h2.Driver");
+        return new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * 创建并填充宽表：整数、小数、字符串和时间列交替
+     */
+    public static void createWideTable(JdbcTemplate jdbcTemplate, String tableName, int rows, int columns) {
+        StringBuilder ddl = new StringBuilder("CREATE TABLE `").append(tableName).append("` (id INT PRIMARY KEY");
+        StringBuilder insert = new StringBuilder("INSERT INTO `").append(tableName).append("` VALUES (?");
+        for (int c = 1; c <= columns; c++) {
+            ddl.append(", c").append(c).append(' ').append(wideColumnType(c));
+            insert.append(", ?");
+        }
+        jdbcTemplate.execute(ddl.append(")").toString());
+
+        Random random = new Random(SEED);
+        List<Object[]> batch = new ArrayList<>();
+        for (int r = 1; r <= rows; r++) {
+            Object[] row = new Object[columns + 1];
+            row[0] = r;
+            for (int c = 1; c <= columns; c++) {
+                switch (c % 4) {
+                    case 0:
+                        row[c] = random.nextInt(1_000_000);
+                        break;
+                    case 1:
+                        row[c] = random.nextDouble() * 1000;
+                        break;
+                    case 2:
+                        row[c] = "value-" + random.nextInt(100_000);
+                        break;
+                    default:
+                        row[c] = new java.sql.Timestamp(1_700_000_000_000L + random.nextInt(1_000_000_000));
+                        break;
+                }
+            }
+            batch.add(row);
+            if (batch.size() == 1000) {
+                jdbcTemplate.batchUpdate(insert + ")", batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(insert + ")", batch);
+        }
+    }
+
+    private static String wideColumnType(int column) {
+        switch (column % 4) {
+            case 0:
+                return "INT";
+            case 1:
+                return "DOUBLE";
+            case 2:
+                return "VARCHAR(64)";
+            default:
+                return "TIMESTAMP";
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.datag.benchmark;
+
+import com.example.datag.importer.CsvLineParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV行解析吞吐量（行/秒）
+ * 覆盖无引号的纯数字行和带引号、含逗号及转义引号的行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvParseBenchmark {
+
+    private static final int LINES = 1000;
+
+    @Param({"10", "50"})
+    public int columns;
+
+    @Param({"false", "true"})
+    public boolean quoted;
+
+    private List<String> lines;
+
+    @Setup
+    public void setup() {
+        lines = BenchData.csvLines(LINES, columns, quoted);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void parseLine(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(CsvLineParser.parse(line));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.datag.benchmark;
+
+import com.example.datag.entity.DataLineage;
+import com.example.datag.entity.DataSet;
+import com.example.datag.repository.DataLineageRepository;
+import com.example.datag.service.DataSetService;
+import com.example.datag.service.impl.DataLineageServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 血缘图构建耗时（微秒/次）
+ * 仓库和数据集服务用内存中的桩实现代替，只测量图遍历和JSON生成本身
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineageGraphBenchmark {
+
+    /** 数据集个数，每个数据集平均有两条上游血缘 */
+    @Param({"100", "1000"})
+    public int nodes;
+
+    private DataLineageServiceImpl lineageService;
+
+    @Setup
+    public void setup() {
+        Map<Long, List<DataLineage>> bySource = new HashMap<>();
+        Map<Long, List<DataLineage>> byTarget = new HashMap<>();
+        Map<Long, DataSet> dataSets = new HashMap<>();
+        Random random = new Random(BenchData.SEED);
+        long lineageId = 1;
+        for (long node = 1; node <= nodes; node++) {
+            dataSets.put(node, DataSet.builder().id(node).name("dataset_" + node).build());
+            // 只连接到编号更小的节点，生成无环图
+            for (int i = 0; i < 2 && node > 1; i++) {
+                long source = 1 + random.nextInt((int) node - 1);
+                DataLineage lineage = DataLineage.builder()
+                        .id(lineageId++)
+                        .sourceDataSetId(source)
+                        .targetDataSetId(node)
+                        .transformationType("CLEAN")
+                        .build();
+                bySource.computeIfAbsent(source, k -> new ArrayList<>()).add(lineage);
+                byTarget.computeIfAbsent(node, k -> new ArrayList<>()).add(lineage);
+            }
+        }
+
+        DataLineageRepository repository = stub(DataLineageRepository.class, (method, args) -> {
+            switch (method) {
+                case "findBySourceDataSetId":
+                    return bySource.getOrDefault((Long) args[0], Collections.emptyList());
+                case "findByTargetDataSetId":
+                    return byTarget.getOrDefault((Long) args[0], Collections.emptyList());
+                default:
+                    throw new UnsupportedOperationException(method);
+            }
+        });
+        DataSetService dataSetService = stub(DataSetService.class, (method, args) -> {
+            if ("getDataSetById".equals(method)) {
+                return dataSets.get((Long) args[0]);
+            }
+            throw new UnsupportedOperationException(method);
+        });
+        lineageService = new DataLineageServiceImpl(repository, dataSetService, null, null);
+    }
+
+    @Benchmark
+    public String generateLineageGraph() {
+        // 从中间节点开始，图是连通的，会遍历到全部节点
+        return lineageService.generateLineageGraph((long) nodes / 2);
+    }
+
+    private interface StubHandler {
+        Object invoke(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, StubHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.invoke(method.getName(), args));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.datag.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 宽表查询和JSON序列化耗时（毫秒/次）
+ * 模拟表数据接口：queryForList 读取整页数据，再由Jackson序列化为响应体
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuerySerializationBenchmark {
+
+    private static final String TABLE = "bench_wide";
+
+    @Param({"20", "100"})
+    public int columns;
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    private JdbcTemplate jdbcTemplate;
+    private ObjectMapper objectMapper;
+    private String sql;
+    private List<Map<String, Object>> result;
+
+    @Setup
+    public void setup() {
+        jdbcTemplate = BenchData.h2("wide" + columns + "_" + rows);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS `" + TABLE + "`");
+        BenchData.createWideTable(jdbcTemplate, TABLE, rows, columns);
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        sql = "SELECT * FROM `" + TABLE + "`";
+        result = jdbcTemplate.queryForList(sql);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> queryForList() {
+        return jdbcTemplate.queryForList(sql);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(result);
+    }
+
+    @Benchmark
+    public byte[] queryAndSerialize() throws Exception {
+        return objectMapper.writeValueAsBytes(jdbcTemplate.queryForList(sql));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.datag.benchmark;
+
+import com.example.datag.importer.ColumnProfiler;
+import com.example.datag.importer.CsvImportEngine;
+import com.example.datag.importer.RejectSink;
+import com.example.datag.importer.StreamLineSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV导入引擎的读行、解析和绑定吞吐量（行/秒），不写数据库
+ * 与批量插入基准的差值即为数据库写入的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowBindingBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"10", "50"})
+    public int columns;
+
+    @Param({"false", "true"})
+    public boolean profiled;
+
+    private byte[] content;
+    private List<String> headers;
+
+    @Setup
+    public void setup() {
+        content = BenchData.csvFile(ROWS, columns);
+        headers = BenchData.columns(columns);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long bindRows(Blackhole blackhole) throws IOException {
+        CsvImportEngine engine = new CsvImportEngine(1000, RejectSink.countingOnly(), 1, 0, 0);
+        if (profiled) {
+            engine.setProfiler(new ColumnProfiler(headers));
+        }
+        try (StreamLineSource source = new StreamLineSource(new ByteArrayInputStream(content), 0)) {
+            source.readLine();
+            return engine.run(source, headers, 1, (rows, endOffset, endLine) -> blackhole.consume(rows), () -> false);
+        }
+    }
+}
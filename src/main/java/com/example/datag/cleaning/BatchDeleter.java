@@ -0,0 +1,84 @@
+package com.example.datag.cleaning;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按主键分批删除
+ * 待删除的主键攒够一批后在一个短事务中删除，每批提交后暂停一段时间，
+ * 避免长事务长时间持有行锁、撑大undo日志并拖慢从库复制
+ *
+ * 调用方应按主键顺序添加，相邻主键落在相同或相邻的索引页上，删除时加锁范围最小
+ *
+ * 主键是先查询、后删除的，中间行可能被修改。指定删除条件时，DELETE在按主键删除的同时重新判断条件，
+ * 期间被改为不该删除的行会保留
+ */
+public class BatchDeleter {
+
+    /**
+     * IN列表的最大长度，Oracle不允许超过1000个
+     */
+    private static final int MAX_IN_LIST = 1000;
+
+    private final CleaningTable table;
+    private final int batchSize;
+    private final Throttle throttle;
+    private final String guard;
+    private final List<Object> pending = new ArrayList<>();
+
+    private long deleted;
+    private long batches;
+
+    public BatchDeleter(CleaningTable table, int batchSize, long pauseMillis) {
+        this(table, batchSize, pauseMillis, null);
+    }
+
+    /**
+     * @param guard 删除条件（已处理过列名引号），只删除条件为真的行；为null时按主键直接删除
+     */
+    public BatchDeleter(CleaningTable table, int batchSize, long pauseMillis, String guard) {
+        this.table = table;
+        this.batchSize = Math.max(1, Math.min(batchSize, MAX_IN_LIST));
+        this.throttle = new Throttle(pauseMillis);
+        this.guard = guard;
+    }
+
+    /**
+     * 添加一个待删除的主键，攒够一批时立即删除
+     */
+    public void add(Object key) {
+        pending.add(key);
+        if (pending.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * 删除已攒下的主键
+     */
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM " + table.quotedName() + " WHERE " + table.quote(table.getKeyColumn())
+                + " IN (" + String.join(", ", Collections.nCopies(pending.size(), "?")) + ")"
+                + (guard != null ? " AND (" + guard + ")" : "");
+        Object[] keys = pending.toArray();
+        Integer count = table.getTarget().getTransactionTemplate()
+                .execute(status -> table.getJdbcTemplate().update(sql, keys));
+        deleted += count == null ? 0 : count;
+        batches++;
+        pending.clear();
+        CleaningContext.batchCommitted(count == null ? 0 : count);
+        throttle.pause();
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+}
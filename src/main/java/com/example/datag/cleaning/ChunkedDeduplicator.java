@@ -0,0 +1,61 @@
+package com.example.datag.cleaning;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 原地分批去重
+ * 用ROW_NUMBER()按去重字段分组、组内按主键排序，每组保留主键最小的一行，
+ * 只把多出来的行的主键和该组保留行的主键按主键顺序流式读出，交给DuplicateDeleter复核后分批删除
+ *
+ * 与复制到临时表再整表回写相比，不需要额外的磁盘空间，只改动重复行，
+ * 每个事务只锁住一批行和各自保留的行，表在去重过程中可以正常读写：
+ * 查询之后保留的行被删除或改了去重字段时，复核不通过，这一组的其余行不会被删除
+ *
+ * 需要数据库支持窗口函数且表有单列主键
+ */
+public class ChunkedDeduplicator {
+
+    public static final String METHOD = "WINDOW";
+
+    private final int batchSize;
+    private final long pauseMillis;
+
+    public ChunkedDeduplicator(int batchSize, long pauseMillis) {
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    /**
+     * 执行去重
+     * @param table 待去重的表
+     * @param fields 去重字段，值都相同的行视为重复
+     */
+    public DedupResult run(CleaningTable table, List<String> fields) {
+        long start = System.currentTimeMillis();
+        String key = table.quote(table.getKeyColumn());
+        List<String> columns = fields.stream().map(table::column).collect(Collectors.toList());
+        String partition = columns.stream()
+                .map(table::quote)
+                .collect(Collectors.joining(", "));
+        // 多余行通常只占很小比例，外层排序只对它们排序
+        String sql = "SELECT d.k, d.kept FROM (SELECT " + key + " AS k, ROW_NUMBER() OVER (PARTITION BY "
+                + partition + " ORDER BY " + key + ") AS rn, MIN(" + key + ") OVER (PARTITION BY " + partition
+                + ") AS kept FROM " + table.quotedName() + ") d WHERE d.rn > 1 ORDER BY d.k";
+
+        // 读取使用单独的连接，删除在其他连接的短事务中执行；
+        // 查询在返回第一行之前已算完窗口函数，读取过程中删除不影响结果
+        DuplicateDeleter deleter = new DuplicateDeleter(table, columns, batchSize, pauseMillis);
+        table.streamingTemplate(batchSize).query(sql, rs -> {
+            deleter.add(rs.getObject(1), rs.getObject(2));
+        });
+        deleter.flush();
+
+        DedupResult result = new DedupResult();
+        result.setMethod(METHOD);
+        result.setDeleted(deleter.getDeleted());
+        result.setBatches(deleter.getBatches());
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.datag.cleaning;
+
+/**
+ * 清洗操作被取消
+ * 在一批提交之后抛出，已提交的批次不会回滚
+ */
+public class CleaningCancelledException extends RuntimeException {
+
+    public CleaningCancelledException(String message) {
+        super(message);
+    }
+}
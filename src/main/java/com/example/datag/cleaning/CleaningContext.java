@@ -0,0 +1,106 @@
+package com.example.datag.cleaning;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+/**
+ * 当前线程上运行的清洗操作的上下文
+ * 后台清洗任务在执行前绑定上下文，各清洗引擎每提交一批（BatchDeleter和MissingValueFiller的每个事务）
+ * 都调用batchCommitted累计进度并检查取消标志，不需要逐个引擎传递回调
+ *
+ * 取消是协作式的：已提交的批次保留，当前批次提交后抛出CleaningCancelledException。
+ * 去重、过滤和填充重复执行的结果相同，取消后重新执行即可；写时复制模式下取消时工作表被删除，原表不变
+ *
+ * 并行清洗时工作线程通过attach绑定调用线程的上下文，进度累计到同一个上下文
+ *
+ * 没有绑定上下文的线程（同步接口）不受影响
+ */
+public final class CleaningContext {
+
+    private static final ThreadLocal<CleaningContext> CURRENT = new ThreadLocal<>();
+
+    private final BooleanSupplier cancelled;
+    private final LongConsumer progress;
+    private long rows;
+    private long batches;
+
+    private CleaningContext(BooleanSupplier cancelled, LongConsumer progress) {
+        this.cancelled = cancelled;
+        this.progress = progress;
+    }
+
+    /**
+     * 在当前线程上绑定上下文，执行结束后必须调用close()
+     * @param cancelled 取消标志
+     * @param progress 每提交一批调用一次，参数为累计处理的行数
+     */
+    public static CleaningContext open(BooleanSupplier cancelled, LongConsumer progress) {
+        CleaningContext context = new CleaningContext(cancelled, progress);
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * 解除当前线程的上下文
+     */
+    public void close() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 当前线程绑定的上下文，没有时返回null
+     */
+    static CleaningContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在其他线程（并行清洗的工作线程）上绑定同一个上下文，结束后调用detach()
+     */
+    void attach() {
+        CURRENT.set(this);
+    }
+
+    /**
+     * 解除工作线程上的上下文
+     */
+    void detach() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 当前线程上的操作是否已被取消
+     */
+    public static boolean isCancelled() {
+        CleaningContext context = CURRENT.get();
+        return context != null && context.cancelled.getAsBoolean();
+    }
+
+    /**
+     * 一批提交后调用：累计进度，已取消时抛出异常
+     * @param batchRows 这一批删除或修改的行数（填充为单元格数）
+     */
+    static void batchCommitted(long batchRows) {
+        CleaningContext context = CURRENT.get();
+        if (context == null) {
+            return;
+        }
+        synchronized (context) {
+            context.rows += batchRows;
+            context.batches++;
+            context.progress.accept(context.rows);
+        }
+        if (context.cancelled.getAsBoolean()) {
+            throw new CleaningCancelledException("清洗操作已取消，已提交 " + context.getBatches() + " 批共 "
+                    + context.getRows() + " 行");
+        }
+    }
+
+    public synchronized long getRows() {
+        return rows;
+    }
+
+    public synchronized long getBatches() {
+        return batches;
+    }
+}
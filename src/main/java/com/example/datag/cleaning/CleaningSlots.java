@@ -0,0 +1,50 @@
+package com.example.datag.cleaning;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 清洗操作的并发名额
+ * 后台清洗任务和同步清洗接口共用同一组名额，个数为datag.cleaning.worker-threads：
+ * 同步接口在请求线程上执行，不占后台线程池，不计入名额时并发请求可以绕过上限同时清洗多张大表
+ *
+ * 后台任务等待空闲名额（等待期间可以取消），同步接口没有空闲名额时立即拒绝
+ */
+public class CleaningSlots {
+
+    private final int permits;
+    private final Semaphore semaphore;
+
+    public CleaningSlots(int permits) {
+        this.permits = Math.max(1, permits);
+        this.semaphore = new Semaphore(this.permits, true);
+    }
+
+    /**
+     * 尝试占用一个名额
+     * @param timeoutMillis 最长等待时间，0表示不等待
+     * @return 是否占用成功
+     */
+    public boolean tryAcquire(long timeoutMillis) {
+        try {
+            return semaphore.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待清洗名额时被中断", e);
+        }
+    }
+
+    /**
+     * 归还名额
+     */
+    public void release() {
+        semaphore.release();
+    }
+
+    /**
+     * 名额总数
+     */
+    public int getPermits() {
+        return permits;
+    }
+}
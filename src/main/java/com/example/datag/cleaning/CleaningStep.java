@@ -0,0 +1,151 @@
+package com.example.datag.cleaning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 带参数的清洗步骤
+ * 文本格式为"步骤名"或"步骤名:参数"，参数中的列表用逗号或分号分隔：
+ * - deduplicate:email;phone  按指定字段去重，省略时按所有非主键字段去重
+ * - filter:amount > 0        保留满足条件的记录，条件不能省略
+ * - fillmissing:median       按策略填充缺失值，省略时用平均值
+ * - format:trim;upper@code   按规则格式化（规则格式见FormatRule），省略时用日期和数值格式化
+ * - outlier:iqr=1.5;cap@amount  按规则处理异常值（规则格式见OutlierRule），省略时按四分位距截断所有数值列
+ * - neardedup:0.8;merge@name   按规则处理近似重复行（规则格式见NearDuplicateRule），省略时只写入复核表
+ */
+public class CleaningStep {
+
+    public enum Type {
+        DEDUPLICATE("deduplicate"),
+        FILTER("filter"),
+        FILL_MISSING("fillmissing"),
+        FORMAT("format"),
+        OUTLIER("outlier"),
+        NEAR_DEDUPLICATE("neardedup");
+
+        private final String name;
+
+        Type(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final Type type;
+    private final String condition;
+    private final List<String> fields;
+    private final FillStrategy strategy;
+
+    private CleaningStep(Type type, String condition, List<String> fields, FillStrategy strategy) {
+        this.type = type;
+        this.condition = condition;
+        this.fields = fields;
+        this.strategy = strategy;
+    }
+
+    /**
+     * 解析步骤文本
+     * 只按第一个冒号拆分步骤名和参数，过滤条件中可以包含冒号
+     */
+    public static CleaningStep parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new RuntimeException("清洗步骤不能为空");
+        }
+        int colon = text.indexOf(':');
+        String name = (colon < 0 ? text : text.substring(0, colon)).trim().toLowerCase();
+        String parameter = colon < 0 ? "" : text.substring(colon + 1).trim();
+
+        Type type = Arrays.stream(Type.values())
+                .filter(t -> t.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("未知的清洗步骤: " + text));
+        switch (type) {
+            case FILTER:
+                if (parameter.isEmpty()) {
+                    throw new RuntimeException("过滤步骤缺少条件，格式为 filter:条件");
+                }
+                return new CleaningStep(type, parameter, List.of(), null);
+            case FILL_MISSING:
+                return new CleaningStep(type, null, List.of(),
+                        FillStrategy.fromName(parameter.isEmpty() ? FillStrategy.MEAN.getName() : parameter));
+            case FORMAT:
+                return new CleaningStep(type, null,
+                        parameter.isEmpty() ? List.of("date_format", "number_format") : splitList(parameter), null);
+            case OUTLIER:
+                return new CleaningStep(type, OutlierRule.parse(parameter).toString(), List.of(), null);
+            case NEAR_DEDUPLICATE:
+                return new CleaningStep(type, NearDuplicateRule.parse(parameter).toString(), List.of(), null);
+            default:
+                return new CleaningStep(type, null, splitList(parameter), null);
+        }
+    }
+
+    private static List<String> splitList(String parameter) {
+        List<String> items = new ArrayList<>();
+        for (String item : parameter.split("[,;]")) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+
+    /**
+     * 使用指定的字段（去重字段为空时由调用方补上默认字段）
+     */
+    public CleaningStep withFields(List<String> fields) {
+        return new CleaningStep(type, condition, fields, strategy);
+    }
+
+    /**
+     * 能否编译进合并的INSERT ... SELECT
+     * 过滤总是可以；去重需要窗口函数；填充只支持能用一个常量COALESCE的平均值和零值，
+     * 中位数、众数需要额外流式扫描，前向和后向填充依赖相邻行；格式化在原表上执行
+     */
+    public boolean isFusible(CleaningTable table) {
+        switch (type) {
+            case FILTER:
+                return true;
+            case DEDUPLICATE:
+                return table.supportsWindowFunctions();
+            case FILL_MISSING:
+                return strategy == FillStrategy.MEAN || strategy == FillStrategy.ZERO;
+            default:
+                return false;
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getCondition() {
+        return condition;
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public FillStrategy getStrategy() {
+        return strategy;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case FILTER:
+            case OUTLIER:
+            case NEAR_DEDUPLICATE:
+                return type.name + ":" + condition;
+            case FILL_MISSING:
+                return type.name + ":" + strategy.getName();
+            default:
+                return fields.isEmpty() ? type.name : type.name + ":" + String.join(";", fields);
+        }
+    }
+}
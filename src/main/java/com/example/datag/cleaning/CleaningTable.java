@@ -0,0 +1,326 @@
+package com.example.datag.cleaning;
+
+import com.example.datag.importer.ImportTarget;
+import com.example.datag.importer.SqlDialect;
+import com.example.datag.importer.TableSchema;
+import lombok.Getter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Types;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 待清洗的数据表
+ * 包含表所在的库、表的真实名称、列和主键，表结构来自TableSchema（JDBC元数据），不依赖具体数据库的系统表
+ *
+ * 分批清洗按主键顺序推进，要求表有单列主键；没有单列主键的表只能走整表处理的方式
+ */
+@Getter
+public class CleaningTable {
+
+    private final ImportTarget target;
+    private final TableSchema schema;
+    private final String tableName;
+    private final List<String> columns;
+    private final Set<String> numericColumns;
+    private final Set<String> integralColumns;
+    private final Set<String> textColumns;
+    private final List<String> primaryKey;
+    private final String databaseProduct;
+    private final int databaseMajorVersion;
+
+    private CleaningTable(ImportTarget target, TableSchema schema) {
+        this.target = target;
+        this.schema = schema;
+        this.tableName = schema.getTableName();
+        this.columns = schema.getColumnNames();
+        this.numericColumns = new HashSet<>();
+        this.integralColumns = new HashSet<>();
+        this.textColumns = new HashSet<>();
+        for (TableSchema.Column column : schema.getColumns()) {
+            if (isNumeric(column.getSqlType())) {
+                numericColumns.add(column.getName());
+            }
+            if (isIntegral(column.getSqlType(), column.getDecimalDigits())) {
+                integralColumns.add(column.getName());
+            }
+            if (isText(column.getSqlType())) {
+                textColumns.add(column.getName());
+            }
+        }
+        this.primaryKey = schema.getPrimaryKey();
+        this.databaseProduct = schema.getDatabaseProduct();
+        this.databaseMajorVersion = schema.getDatabaseMajorVersion();
+    }
+
+    /**
+     * 读取表结构
+     * 表名先按原样查找，找不到时再按大写和小写查找（Oracle默认大写，PostgreSQL默认小写）
+     * 每次都查询JDBC元数据，服务中应通过SchemaCatalogService使用缓存的表结构
+     */
+    public static CleaningTable resolve(ImportTarget target, String tableName) {
+        TableSchema schema = TableSchema.read(target.getJdbcTemplate(), tableName);
+        if (schema == null) {
+            throw new RuntimeException("表不存在: " + tableName);
+        }
+        return of(target, schema);
+    }
+
+    /**
+     * 用已读取（或缓存）的表结构创建
+     */
+    public static CleaningTable of(ImportTarget target, TableSchema schema) {
+        return new CleaningTable(target, schema);
+    }
+
+    private static boolean isNumeric(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isText(int sqlType) {
+        switch (sqlType) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 是否为整数类型，Oracle的NUMBER(19)报告为没有小数位的NUMERIC
+     */
+    private static boolean isIntegral(int sqlType, int decimalDigits) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return true;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return decimalDigits == 0;
+            default:
+                return false;
+        }
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return target.getJdbcTemplate();
+    }
+
+    public SqlDialect getDialect() {
+        return target.getDialect();
+    }
+
+    /**
+     * 引用后的表名
+     */
+    public String quotedName() {
+        return getDialect().quote(tableName);
+    }
+
+    /**
+     * 引用标识符
+     */
+    public String quote(String column) {
+        return getDialect().quote(column);
+    }
+
+    /**
+     * 是否有单列主键
+     */
+    public boolean hasSingleColumnKey() {
+        return primaryKey.size() == 1;
+    }
+
+    /**
+     * 单列主键的列名
+     */
+    public String getKeyColumn() {
+        if (!hasSingleColumnKey()) {
+            throw new RuntimeException("表 " + tableName + " 没有单列主键");
+        }
+        return primaryKey.get(0);
+    }
+
+    /**
+     * 列是否为数值类型
+     */
+    public boolean isNumeric(String column) {
+        return numericColumns.contains(column);
+    }
+
+    /**
+     * 列是否为整数类型
+     */
+    public boolean isIntegral(String column) {
+        return integralColumns.contains(column);
+    }
+
+    /**
+     * 列是否为字符串类型（MySQL的TEXT报告为LONGVARCHAR）
+     */
+    public boolean isText(String column) {
+        return textColumns.contains(column);
+    }
+
+    /**
+     * 单列主键是否为整数类型，按主键分段和把主键写入溢出文件时需要
+     */
+    public boolean hasIntegralKey() {
+        return hasSingleColumnKey() && integralColumns.contains(primaryKey.get(0));
+    }
+
+    /**
+     * 查询整数主键的最小值和最大值
+     * @return {最小主键, 最大主键}，表为空时返回null
+     */
+    public long[] keyRange() {
+        String key = quote(getKeyColumn());
+        return getJdbcTemplate().query("SELECT MIN(" + key + "), MAX(" + key + ") FROM " + quotedName(),
+                rs -> {
+                    rs.next();
+                    return rs.getObject(1) != null ? new long[]{rs.getLong(1), rs.getLong(2)} : null;
+                });
+    }
+
+    /**
+     * 从数据库的统计信息读取表的近似行数，不扫描表
+     * MySQL取information_schema.TABLES.TABLE_ROWS（InnoDB为抽样估计），PostgreSQL取pg_class.reltuples，
+     * Oracle取USER_TABLES.NUM_ROWS，后两者在收集统计信息（ANALYZE）之后才有值
+     * @return 近似行数，没有统计信息或查询失败时返回null
+     */
+    public Long estimatedRowCount() {
+        String sql;
+        switch (getDialect()) {
+            case MYSQL:
+                sql = "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() "
+                        + "AND TABLE_NAME = ?";
+                break;
+            case POSTGRESQL:
+                // 从未分析过的表reltuples为-1（PostgreSQL 14之前为0，与空表无法区分，按没有统计信息处理）
+                sql = "SELECT CASE WHEN c.reltuples > 0 THEN c.reltuples END FROM pg_class c "
+                        + "JOIN pg_namespace n ON n.oid = c.relnamespace "
+                        + "WHERE c.relname = ? AND n.nspname = current_schema()";
+                break;
+            default:
+                sql = "SELECT NUM_ROWS FROM USER_TABLES WHERE TABLE_NAME = ?";
+                break;
+        }
+        try {
+            List<Number> rows = getJdbcTemplate().query(sql, (rs, i) -> (Number) rs.getObject(1), tableName);
+            return rows.isEmpty() || rows.get(0) == null ? null : Math.max(0, Math.round(rows.get(0).doubleValue()));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 表中是否有该列（忽略大小写）
+     */
+    public boolean hasColumn(String name) {
+        return columns.stream().anyMatch(column -> column.equalsIgnoreCase(name));
+    }
+
+    /**
+     * 将用户传入的字段名对应到表中的真实列名（忽略大小写）
+     */
+    public String column(String name) {
+        for (String column : columns) {
+            if (column.equalsIgnoreCase(name)) {
+                return column;
+            }
+        }
+        throw new RuntimeException("字段不存在于表 " + tableName + " 中: " + name);
+    }
+
+    /**
+     * 是否有索引的前几列恰好是给定的列（顺序不限）
+     * 有这样的索引时，按这些列统计不同值只需扫描索引，不需要回表
+     */
+    public boolean hasIndexLeadingWith(Collection<String> indexColumns) {
+        Set<String> wanted = new HashSet<>(indexColumns);
+        for (List<String> ordered : schema.getIndexes().values()) {
+            if (ordered.size() >= wanted.size()
+                    && new HashSet<>(ordered.subList(0, wanted.size())).equals(wanted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否支持窗口函数
+     * MySQL从8.0开始支持，MariaDB从10.2开始支持，PostgreSQL和Oracle均支持
+     */
+    public boolean supportsWindowFunctions() {
+        String product = databaseProduct == null ? "" : databaseProduct.toLowerCase();
+        if (product.contains("mariadb")) {
+            return databaseMajorVersion >= 10;
+        }
+        if (isMySql()) {
+            return databaseMajorVersion >= 8;
+        }
+        return true;
+    }
+
+    /**
+     * 是否为MySQL或MariaDB，按数据库产品名判断而不是按方言，兼容模式的其他数据库不算
+     */
+    public boolean isMySql() {
+        String product = databaseProduct == null ? "" : databaseProduct.toLowerCase();
+        return product.contains("mysql") || product.contains("mariadb");
+    }
+
+    /**
+     * 在应用内按值比较（计算行指纹）时读取该列的表达式
+     * MySQL字符串列的相等由排序规则决定：_ci排序规则不区分大小写，PAD SPACE排序规则忽略末尾空格，
+     * 'Abc'、'abc'和'abc '在GROUP BY和窗口函数中是同一个值，但原值的字节不同。
+     * 这类列改为读取WEIGHT_STRING()，即排序规则下的比较键，比较键相同当且仅当数据库认为两个值相等；
+     * 其他列和其他数据库读取原值
+     */
+    public String comparisonExpression(String column) {
+        if (isMySql() && isText(column)) {
+            return "WEIGHT_STRING(" + quote(column) + ")";
+        }
+        return quote(column);
+    }
+
+    /**
+     * 流式读取用的JdbcTemplate
+     * MySQL驱动默认把整个结果集读入内存，fetchSize为Integer.MIN_VALUE时才逐行读取；
+     * PostgreSQL驱动只在关闭自动提交时按fetchSize分批取数，其他数据库的读取在关闭自动提交的单独连接上执行
+     * （见StreamingDataSource），不加入写入的事务
+     */
+    public JdbcTemplate streamingTemplate(int fetchSize) {
+        if (isMySql()) {
+            JdbcTemplate template = new JdbcTemplate(getJdbcTemplate().getDataSource());
+            template.setFetchSize(Integer.MIN_VALUE);
+            return template;
+        }
+        JdbcTemplate template = new JdbcTemplate(new StreamingDataSource(getJdbcTemplate().getDataSource()));
+        template.setFetchSize(fetchSize);
+        return template;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.datag.cleaning;
+
+import lombok.Data;
+
+/**
+ * 去重的统计结果
+ */
+@Data
+public class DedupResult {
+    private String method; // 去重方式
+    private long deleted; // 删除的重复行数
+    private long batches; // 删除分成的事务数
+    private long elapsedMillis; // 耗时（毫秒）
+}
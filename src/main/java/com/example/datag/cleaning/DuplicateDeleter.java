@@ -0,0 +1,174 @@
+package com.example.datag.cleaning;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 复核后分批删除重复行
+ * 去重引擎先找出重复行和该组保留的行（主键最小的一行），再交给本类删除。
+ * 找出重复行和删除之间隔着一次全表扫描，期间保留的行可能被删除或修改，
+ * 不复核就删除会让这一组一行都不剩
+ *
+ * 每批在一个事务中：先按主键锁定读取（FOR UPDATE）这批行和各自保留的行，
+ * 保留的行仍存在、且去重字段与待删除的行仍相等时才删除，然后提交。
+ * 加锁读取和删除在同一事务中，复核之后行不会再被修改；只按主键读取，不需要去重字段上的索引。
+ * 按指纹找出的重复行在这里按原值比较，指纹碰撞的行也不会被误删
+ */
+public class DuplicateDeleter {
+
+    /**
+     * 每批的行数上限，复核时IN列表包含待删除的行和保留的行，Oracle不允许超过1000个
+     */
+    private static final int MAX_BATCH = 500;
+
+    private final CleaningTable table;
+    private final int batchSize;
+    private final Throttle throttle;
+    private final String selectSql;
+    private final int fieldCount;
+    private final List<Object> keys = new ArrayList<>();
+    private final List<Object> keptKeys = new ArrayList<>();
+
+    private long deleted;
+    private long batches;
+    private long skipped;
+
+    /**
+     * @param fields 去重字段（真实列名），按CleaningTable.comparisonExpression读取比较
+     */
+    public DuplicateDeleter(CleaningTable table, List<String> fields, int batchSize, long pauseMillis) {
+        this.table = table;
+        this.batchSize = Math.max(1, Math.min(batchSize, MAX_BATCH));
+        this.throttle = new Throttle(pauseMillis);
+        this.fieldCount = fields.size();
+        this.selectSql = "SELECT " + table.quote(table.getKeyColumn()) + ", "
+                + fields.stream().map(table::comparisonExpression).collect(Collectors.joining(", "))
+                + " FROM " + table.quotedName() + " WHERE " + table.quote(table.getKeyColumn()) + " IN (";
+    }
+
+    /**
+     * 添加一个待删除的行，攒够一批时立即复核并删除
+     * @param key 待删除行的主键
+     * @param keptKey 同组保留的行的主键
+     */
+    public void add(Object key, Object keptKey) {
+        keys.add(key);
+        keptKeys.add(keptKey);
+        if (keys.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * 复核并删除已攒下的行
+     */
+    public void flush() {
+        if (keys.isEmpty()) {
+            return;
+        }
+        Integer count = table.getTarget().getTransactionTemplate().execute(status -> {
+            List<Object> verified = verify();
+            if (verified.isEmpty()) {
+                return 0;
+            }
+            String sql = "DELETE FROM " + table.quotedName() + " WHERE " + table.quote(table.getKeyColumn())
+                    + " IN (" + String.join(", ", Collections.nCopies(verified.size(), "?")) + ")";
+            return table.getJdbcTemplate().update(sql, verified.toArray());
+        });
+        int committed = count == null ? 0 : count;
+        deleted += committed;
+        batches++;
+        keys.clear();
+        keptKeys.clear();
+        CleaningContext.batchCommitted(committed);
+        throttle.pause();
+    }
+
+    /**
+     * 锁定读取这批行和保留的行，返回仍是重复行的主键
+     */
+    private List<Object> verify() {
+        Set<Object> wanted = new LinkedHashSet<>(keys);
+        wanted.addAll(keptKeys);
+        String sql = selectSql + String.join(", ", Collections.nCopies(wanted.size(), "?")) + ") FOR UPDATE";
+        Map<Object, Object[]> current = new HashMap<>();
+        List<Object> order = new ArrayList<>(wanted);
+        table.getJdbcTemplate().query(sql, (RowCallbackHandler) rs -> {
+            Object[] values = new Object[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                values[i] = rs.getObject(i + 2);
+            }
+            current.put(normalizeKey(rs.getObject(1), order), values);
+        }, order.toArray());
+
+        List<Object> verified = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            Object[] row = current.get(keys.get(i));
+            Object[] kept = current.get(keptKeys.get(i));
+            if (row != null && kept != null && sameValues(row, kept)) {
+                verified.add(keys.get(i));
+            } else {
+                skipped++;
+            }
+        }
+        return verified;
+    }
+
+    /**
+     * 驱动返回的主键类型可能与调用方传入的不同（如Integer和Long），按传入的主键归一
+     */
+    private static Object normalizeKey(Object key, List<Object> wanted) {
+        if (key instanceof Number && !wanted.isEmpty() && wanted.get(0) instanceof Long) {
+            return ((Number) key).longValue();
+        }
+        return key;
+    }
+
+    /**
+     * 去重字段是否都相等，NULL与NULL视为相等（与GROUP BY和PARTITION BY的分组一致）
+     */
+    static boolean sameValues(Object[] a, Object[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (!sameValue(a[i], b[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameValue(Object a, Object b) {
+        if (a instanceof byte[] && b instanceof byte[]) {
+            return Arrays.equals((byte[]) a, (byte[]) b);
+        }
+        if (a instanceof BigDecimal && b instanceof BigDecimal) {
+            return ((BigDecimal) a).compareTo((BigDecimal) b) == 0;
+        }
+        return Objects.equals(a, b);
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * 复核时发现已不是重复行而保留的行数
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+}
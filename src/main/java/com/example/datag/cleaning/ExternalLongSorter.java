@@ -0,0 +1,138 @@
+package com.example.datag.cleaning;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.LongConsumer;
+
+/**
+ * 外部排序的long序列
+ * 数值先放在固定大小的数组中，数组满时排序后写入溢出文件；
+ * 读取时对内存中的部分和所有溢出文件做多路归并，按升序输出
+ *
+ * 用于按主键顺序删除在归并阶段才发现的重复行，重复行再多也只占用固定内存
+ */
+public class ExternalLongSorter implements Closeable {
+
+    private final Path spillDir;
+    private final long[] buffer;
+    private final List<Path> runs = new ArrayList<>();
+    private int size;
+    private long count;
+
+    /**
+     * @param spillDir 溢出文件目录
+     * @param memoryBytes 内存预算（字节）
+     */
+    public ExternalLongSorter(Path spillDir, long memoryBytes) {
+        this.spillDir = spillDir;
+        this.buffer = new long[(int) Math.max(1024, Math.min(memoryBytes / 8, Integer.MAX_VALUE - 8))];
+    }
+
+    public void add(long value) throws IOException {
+        if (size == buffer.length) {
+            spill();
+        }
+        buffer[size++] = value;
+        count++;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * 按升序输出全部数值
+     */
+    public void forEachSorted(LongConsumer consumer) throws IOException {
+        Arrays.sort(buffer, 0, size);
+        PriorityQueue<RunReader> queue = new PriorityQueue<>();
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            int index = 0;
+            while (index < size || !queue.isEmpty()) {
+                if (queue.isEmpty() || (index < size && buffer[index] <= queue.peek().current)) {
+                    consumer.accept(buffer[index++]);
+                } else {
+                    RunReader reader = queue.poll();
+                    consumer.accept(reader.current);
+                    if (reader.advance()) {
+                        queue.add(reader);
+                    }
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private void spill() throws IOException {
+        Arrays.sort(buffer, 0, size);
+        Path run = Files.createTempFile(spillDir, "keys-", ".run");
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+            for (int i = 0; i < size; i++) {
+                out.writeLong(buffer[i]);
+            }
+        }
+        size = 0;
+    }
+
+    /**
+     * 删除溢出文件
+     */
+    @Override
+    public void close() throws IOException {
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+    }
+
+    private static class RunReader implements Comparable<RunReader>, Closeable {
+        private final DataInputStream in;
+        private long current;
+
+        RunReader(Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+        }
+
+        boolean advance() throws IOException {
+            try {
+                current = in.readLong();
+                return true;
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            return Long.compare(current, other.current);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.datag.cleaning;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 外部排序的long二元组序列
+ * 与ExternalLongSorter相同：二元组先放在固定大小的数组中，数组满时排序后写入溢出文件；
+ * 读取时对内存中的部分和所有溢出文件做多路归并，按(第一个值, 第二个值)升序输出
+ *
+ * 用于近似去重中按LSH桶归并主键、按主键对合并候选对，以及流式哈希去重中按主键排序待删除的行和保留行，
+ * 数据再多也只占用固定内存
+ */
+public class ExternalPairSorter implements Closeable {
+
+    /**
+     * 二元组消费者
+     */
+    @FunctionalInterface
+    public interface PairConsumer {
+        void accept(long first, long second);
+    }
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final Path spillDir;
+    private final long[] firsts;
+    private final long[] seconds;
+    private final List<Path> runs = new ArrayList<>();
+    private int size;
+    private long count;
+
+    /**
+     * @param spillDir 溢出文件目录
+     * @param memoryBytes 内存预算（字节）
+     */
+    public ExternalPairSorter(Path spillDir, long memoryBytes) {
+        this.spillDir = spillDir;
+        int capacity = (int) Math.max(1024, Math.min(memoryBytes / 16, Integer.MAX_VALUE - 8));
+        this.firsts = new long[capacity];
+        this.seconds = new long[capacity];
+    }
+
+    public void add(long first, long second) throws IOException {
+        if (size == firsts.length) {
+            spill();
+        }
+        firsts[size] = first;
+        seconds[size] = second;
+        size++;
+        count++;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * 按升序输出全部二元组
+     */
+    public void forEachSorted(PairConsumer consumer) throws IOException {
+        sort(0, size - 1);
+        PriorityQueue<RunReader> queue = new PriorityQueue<>();
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            int index = 0;
+            while (index < size || !queue.isEmpty()) {
+                if (queue.isEmpty() || (index < size
+                        && compare(firsts[index], seconds[index], queue.peek().first, queue.peek().second) <= 0)) {
+                    consumer.accept(firsts[index], seconds[index]);
+                    index++;
+                } else {
+                    RunReader reader = queue.poll();
+                    consumer.accept(reader.first, reader.second);
+                    if (reader.advance()) {
+                        queue.add(reader);
+                    }
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private void spill() throws IOException {
+        sort(0, size - 1);
+        Path run = Files.createTempFile(spillDir, "pairs-", ".run");
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+            for (int i = 0; i < size; i++) {
+                out.writeLong(firsts[i]);
+                out.writeLong(seconds[i]);
+            }
+        }
+        size = 0;
+    }
+
+    private static int compare(long first, long second, long otherFirst, long otherSecond) {
+        int result = Long.compare(first, otherFirst);
+        return result != 0 ? result : Long.compare(second, otherSecond);
+    }
+
+    /**
+     * 两个数组同步的快速排序，取首、中、尾三个元素的中位数作为基准，已排序的输入也不会退化
+     */
+    private void sort(int low, int high) {
+        while (high - low > INSERTION_SORT_THRESHOLD) {
+            int middle = (low + high) >>> 1;
+            if (less(middle, low)) {
+                swap(middle, low);
+            }
+            if (less(high, low)) {
+                swap(high, low);
+            }
+            if (less(high, middle)) {
+                swap(high, middle);
+            }
+            long pivotFirst = firsts[middle];
+            long pivotSecond = seconds[middle];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(firsts[i], seconds[i], pivotFirst, pivotSecond) < 0) {
+                    i++;
+                }
+                while (compare(firsts[j], seconds[j], pivotFirst, pivotSecond) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            // 先递归较短的一侧，递归深度不超过log n
+            if (j - low < high - i) {
+                sort(low, j);
+                low = i;
+            } else {
+                sort(i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && less(j, j - 1); j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private boolean less(int a, int b) {
+        return compare(firsts[a], seconds[a], firsts[b], seconds[b]) < 0;
+    }
+
+    private void swap(int a, int b) {
+        long first = firsts[a];
+        long second = seconds[a];
+        firsts[a] = firsts[b];
+        seconds[a] = seconds[b];
+        firsts[b] = first;
+        seconds[b] = second;
+    }
+
+    /**
+     * 删除溢出文件
+     */
+    @Override
+    public void close() throws IOException {
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+    }
+
+    private static class RunReader implements Comparable<RunReader>, Closeable {
+        private final DataInputStream in;
+        private long first;
+        private long second;
+
+        RunReader(Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+        }
+
+        boolean advance() throws IOException {
+            try {
+                first = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            second = in.readLong();
+            return true;
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            return compare(first, second, other.first, other.second);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
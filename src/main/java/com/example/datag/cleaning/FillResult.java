@@ -0,0 +1,26 @@
+package com.example.datag.cleaning;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 缺失值填充的统计结果
+ */
+@Data
+public class FillResult {
+    private String strategy; // 填充策略
+    private Map<String, Object> fillValues = new LinkedHashMap<>(); // 各列的填充值
+    private Map<String, Long> filledCells = new LinkedHashMap<>(); // 各列实际填充的单元格数
+    private Map<String, String> skipped = new LinkedHashMap<>(); // 跳过的列及原因
+    private long chunks; // 更新分成的事务数
+    private long elapsedMillis; // 耗时（毫秒）
+
+    /**
+     * 所有列填充的单元格总数
+     */
+    public long totalFilled() {
+        return filledCells.values().stream().mapToLong(Long::longValue).sum();
+    }
+}
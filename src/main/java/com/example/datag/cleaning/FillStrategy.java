@@ -0,0 +1,42 @@
+package com.example.datag.cleaning;
+
+/**
+ * 缺失值填充策略
+ */
+public enum FillStrategy {
+    MEAN("mean"),
+    MEDIAN("median"),
+    MODE("mode"),
+    ZERO("zero"),
+    FORWARD_FILL("forward_fill"),
+    BACKWARD_FILL("backward_fill");
+
+    private final String name;
+
+    FillStrategy(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 按名称（忽略大小写）查找策略
+     */
+    public static FillStrategy fromName(String name) {
+        for (FillStrategy strategy : values()) {
+            if (strategy.name.equalsIgnoreCase(name == null ? "" : name.trim())) {
+                return strategy;
+            }
+        }
+        throw new RuntimeException("无效的填充策略: " + name);
+    }
+
+    /**
+     * 是否只适用于数值列
+     */
+    public boolean requiresNumeric() {
+        return this == MEAN || this == MEDIAN || this == ZERO;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.datag.cleaning;
+
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 过滤条件处理
+ * 用户输入的过滤条件中的字段名不一定加了引号，按表的真实列名和目标库的引号风格补上，
+ * 使列名与关键字冲突或大小写敏感的库（Oracle、PostgreSQL）也能正确执行
+ */
+public final class FilterConditions {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("\\b([a-zA-Z_][a-zA-Z0-9_]*)\\b");
+
+    private static final Set<String> KEYWORDS = Set.of(
+            "select", "from", "where", "and", "or", "not", "in", "like", "between",
+            "is", "null", "true", "false", "as", "order", "by", "group", "having",
+            "count", "sum", "avg", "max", "min", "distinct", "case", "when", "then",
+            "else", "end", "if", "exists", "all", "any", "some", "union", "join",
+            "inner", "left", "right", "outer", "on", "limit", "offset", "top"
+    );
+
+    private FilterConditions() {
+    }
+
+    /**
+     * 为条件中的列名加上引号
+     * 已经包含引号的条件视为用户手动处理过，原样返回；字符串字面量中的内容不做替换
+     */
+    public static String quoteColumns(String condition, CleaningTable table) {
+        if (condition == null || condition.trim().isEmpty()) {
+            return condition;
+        }
+        String trimmed = condition.trim();
+        if (trimmed.contains("`") || trimmed.contains("\"")) {
+            return trimmed;
+        }
+
+        StringBuilder result = new StringBuilder();
+        // 按单引号切分，奇数段是字符串字面量
+        String[] parts = trimmed.split("'", -1);
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                result.append('\'');
+            }
+            result.append(i % 2 == 1 ? parts[i] : quoteSegment(parts[i], table));
+        }
+        return result.toString();
+    }
+
+    private static String quoteSegment(String segment, CleaningTable table) {
+        Matcher matcher = IDENTIFIER.matcher(segment);
+        StringBuilder result = new StringBuilder();
+        while (matcher.find()) {
+            String word = matcher.group(1);
+            String replacement = word;
+            if (!isSqlKeyword(word) && table.hasColumn(word)) {
+                replacement = table.quote(table.column(word));
+            }
+            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    /**
+     * 检查是否是SQL关键字
+     */
+    public static boolean isSqlKeyword(String word) {
+        return KEYWORDS.contains(word.toLowerCase());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.datag.cleaning;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 分批过滤删除
+ * 按主键区间遍历表，每段先读出段内不满足保留条件的行的主键，再在短事务中按主键删除，
+ * 每个事务最多删除batchSize行。每段完成后报告检查点（已处理到的主键）并节流。
+ * 删除语句带上同样的条件（WHERE 主键 IN (...) AND NOT (...)），读出主键之后被修改为满足保留条件的行不会被删除
+ *
+ * 与一条DELETE ... WHERE NOT (...)相比，不会产生持续数小时的大事务，undo日志和从库延迟都受控制；
+ * 删除按主键进行是幂等的，从检查点之后重新执行不会多删或漏删
+ *
+ * 需要表有整数类型的单列主键
+ */
+public class FilterDeleteExecutor {
+
+    /**
+     * 进度回调，每段提交后调用
+     */
+    public interface ProgressListener {
+        /**
+         * @param checkpointKey 已处理完的最大主键
+         * @param scanned 本段扫描的行数
+         * @param deleted 本段删除的行数
+         */
+        void onRange(long checkpointKey, long scanned, long deleted);
+    }
+
+    private final int batchSize;
+    private final Throttle throttle;
+    private final BooleanSupplier cancelled;
+
+    public FilterDeleteExecutor(int batchSize, Throttle throttle, BooleanSupplier cancelled) {
+        this.batchSize = batchSize;
+        this.throttle = throttle.stopWhen(cancelled);
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * 删除主键在[fromKey, toKey]之间、不满足保留条件的行
+     * @param table 待过滤的表
+     * @param keepCondition 保留条件（已处理过列名引号），条件结果为NULL的行保留
+     * @return 全部处理完返回true，被取消返回false
+     */
+    public boolean run(CleaningTable table, String keepCondition, long fromKey, long toKey,
+                       ProgressListener listener) {
+        if (!table.hasIntegralKey()) {
+            throw new RuntimeException("表 " + table.getTableName() + " 没有整数类型的单列主键，无法分批删除");
+        }
+        String key = table.quote(table.getKeyColumn());
+        // CASE WHEN NOT (...)：条件为NULL时走ELSE，与DELETE ... WHERE NOT (...)的语义一致
+        String sql = "SELECT " + key + ", CASE WHEN NOT (" + keepCondition + ") THEN 1 ELSE 0 END FROM "
+                + table.quotedName() + " WHERE " + key + " BETWEEN ? AND ?";
+
+        KeyRangeWalker walker = new KeyRangeWalker(fromKey, toKey, batchSize);
+        while (walker.next()) {
+            if (cancelled.getAsBoolean()) {
+                return false;
+            }
+            List<Long> doomed = new ArrayList<>();
+            long[] scanned = {0};
+            table.getJdbcTemplate().query(sql, (RowCallbackHandler) rs -> {
+                scanned[0]++;
+                if (rs.getInt(2) == 1) {
+                    doomed.add(rs.getLong(1));
+                }
+            }, walker.getLower(), walker.getUpper());
+
+            BatchDeleter deleter = new BatchDeleter(table, batchSize, 0, "NOT (" + keepCondition + ")");
+            doomed.forEach(deleter::add);
+            deleter.flush();
+
+            walker.record(scanned[0]);
+            listener.onRange(walker.getUpper(), scanned[0], deleter.getDeleted());
+            throttle.pause(deleter.getDeleted());
+        }
+        return true;
+    }
+}
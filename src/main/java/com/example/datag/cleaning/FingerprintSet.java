@@ -0,0 +1,211 @@
+package com.example.datag.cleaning;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 堆外的行指纹集合
+ * 开放寻址（线性探测）哈希表，每个槽位24字节：指纹高64位、低64位和该行的主键。
+ * 槽位放在堆外的直接内存中，内存占用固定为创建时的预算，不产生对象也不增加GC负担
+ *
+ * 全零指纹用来表示空槽位，真实的全零指纹改为低位为1（碰撞概率不变）。
+ * 装填到75%后视为已满，调用方应把内容按指纹排序写入溢出文件后清空
+ */
+public class FingerprintSet {
+
+    private static final int SLOT_LONGS = 3;
+    private static final int SLOT_BYTES = SLOT_LONGS * 8;
+    private static final double MAX_LOAD = 0.75;
+
+    private final LongBuffer slots;
+    private final int capacity;
+    private final int mask;
+    private final int maxSize;
+    private int size;
+
+    /**
+     * @param memoryBytes 内存预算（字节），槽位数取不超过预算的最大2的幂
+     */
+    public FingerprintSet(long memoryBytes) {
+        long maxSlots = Math.min(memoryBytes / SLOT_BYTES, Integer.MAX_VALUE / SLOT_BYTES);
+        if (maxSlots < 16) {
+            throw new IllegalArgumentException("去重内存预算过小: " + memoryBytes);
+        }
+        this.capacity = Integer.highestOneBit((int) maxSlots);
+        this.mask = capacity - 1;
+        this.maxSize = (int) (capacity * MAX_LOAD);
+        this.slots = ByteBuffer.allocateDirect(capacity * SLOT_BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    /**
+     * 添加指纹
+     * @return 指纹是新的返回true，已存在返回false
+     */
+    public boolean add(long high, long low, long key) {
+        if (high == 0 && low == 0) {
+            low = 1;
+        }
+        int slot = (int) (high ^ (high >>> 32)) & mask;
+        while (true) {
+            int base = slot * SLOT_LONGS;
+            long h = slots.get(base);
+            long l = slots.get(base + 1);
+            if (h == 0 && l == 0) {
+                slots.put(base, high);
+                slots.put(base + 1, low);
+                slots.put(base + 2, key);
+                size++;
+                return true;
+            }
+            if (h == high && l == low) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * 查找指纹对应的主键（先加入该指纹的行的主键）
+     * @return 主键，指纹不存在时返回null
+     */
+    public Long keyOf(long high, long low) {
+        if (high == 0 && low == 0) {
+            low = 1;
+        }
+        int slot = (int) (high ^ (high >>> 32)) & mask;
+        while (true) {
+            int base = slot * SLOT_LONGS;
+            long h = slots.get(base);
+            long l = slots.get(base + 1);
+            if (h == 0 && l == 0) {
+                return null;
+            }
+            if (h == high && l == low) {
+                return slots.get(base + 2);
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public boolean isFull() {
+        return size >= maxSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 把全部指纹按(高位, 低位)有符号升序写入文件，然后清空集合
+     * 先把非空槽位压缩到数组前部，再原地排序，不额外占用内存
+     */
+    public void spill(Path file) throws IOException {
+        int count = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int base = slot * SLOT_LONGS;
+            if (slots.get(base) != 0 || slots.get(base + 1) != 0) {
+                if (slot != count) {
+                    int target = count * SLOT_LONGS;
+                    for (int i = 0; i < SLOT_LONGS; i++) {
+                        slots.put(target + i, slots.get(base + i));
+                    }
+                }
+                count++;
+            }
+        }
+        sort(0, count - 1);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            for (int i = 0; i < count; i++) {
+                int base = i * SLOT_LONGS;
+                out.writeLong(slots.get(base));
+                out.writeLong(slots.get(base + 1));
+                out.writeLong(slots.get(base + 2));
+            }
+        }
+        clear();
+    }
+
+    public void clear() {
+        for (int i = 0; i < capacity * SLOT_LONGS; i++) {
+            slots.put(i, 0L);
+        }
+        size = 0;
+    }
+
+    /**
+     * 按指纹比较两条记录
+     */
+    static int compare(long high1, long low1, long high2, long low2) {
+        int c = Long.compare(high1, high2);
+        return c != 0 ? c : Long.compare(low1, low2);
+    }
+
+    private int compareRecords(int a, int b) {
+        return compare(slots.get(a * SLOT_LONGS), slots.get(a * SLOT_LONGS + 1),
+                slots.get(b * SLOT_LONGS), slots.get(b * SLOT_LONGS + 1));
+    }
+
+    private void swap(int a, int b) {
+        int baseA = a * SLOT_LONGS;
+        int baseB = b * SLOT_LONGS;
+        for (int i = 0; i < SLOT_LONGS; i++) {
+            long tmp = slots.get(baseA + i);
+            slots.put(baseA + i, slots.get(baseB + i));
+            slots.put(baseB + i, tmp);
+        }
+    }
+
+    /**
+     * 原地快速排序，总是先递归较短的一段，递归深度不超过log(n)
+     */
+    private void sort(int from, int to) {
+        while (to - from > 16) {
+            int mid = (from + to) >>> 1;
+            if (compareRecords(mid, from) < 0) {
+                swap(mid, from);
+            }
+            if (compareRecords(to, from) < 0) {
+                swap(to, from);
+            }
+            if (compareRecords(to, mid) < 0) {
+                swap(to, mid);
+            }
+            // 三数取中后基准放到to-1
+            swap(mid, to - 1);
+            int pivot = to - 1;
+            int i = from;
+            int j = to - 1;
+            while (true) {
+                while (compareRecords(++i, pivot) < 0) {
+                }
+                while (compareRecords(--j, pivot) > 0) {
+                }
+                if (i >= j) {
+                    break;
+                }
+                swap(i, j);
+            }
+            swap(i, to - 1);
+            if (i - from < to - i) {
+                sort(from, i - 1);
+                from = i + 1;
+            } else {
+                sort(i + 1, to);
+                to = i - 1;
+            }
+        }
+        // 小区间用插入排序
+        for (int i = from + 1; i <= to; i++) {
+            for (int j = i; j > from && compareRecords(j, j - 1) < 0; j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+}
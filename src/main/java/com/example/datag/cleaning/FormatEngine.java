@@ -0,0 +1,214 @@
+package com.example.datag.cleaning;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * 格式化引擎
+ * 每列按规则出现的顺序组成一条转换链，整条链都能写成SQL表达式的列在数据库中按主键区间分段UPDATE，
+ * 其余的列在应用内按主键顺序流式读出，用预先编译的转换函数逐行计算，值有变化的行分批回写
+ *
+ * 两种方式都跳过值没有变化的行：SQL方式在WHERE中比较新旧值（MySQL按二进制比较，大小写和尾部空格的变化也能发现），
+ * 应用内方式只回写有变化的行。重复执行时没有行需要更新，中途取消后重新执行即可
+ *
+ * 应用内方式需要表有单列主键，用于回写时定位行
+ *
+ * 设置了并行执行器时，SQL方式按主键直方图分区，各分区在不同连接上同时执行
+ */
+public class FormatEngine {
+
+    private final int batchSize;
+    private final long pauseMillis;
+    private ParallelRangeExecutor parallel;
+
+    public FormatEngine(int batchSize, long pauseMillis) {
+        this.batchSize = Math.max(1, batchSize);
+        this.pauseMillis = pauseMillis;
+    }
+
+    /**
+     * 设置并行执行器，SQL方式的分段更新按主键区间并行执行
+     */
+    public FormatEngine parallel(ParallelRangeExecutor parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * 按规则格式化表
+     * @param rules 格式化规则，按顺序作用于每一列
+     */
+    public FormatResult format(CleaningTable table, List<FormatRule> rules) {
+        long start = System.currentTimeMillis();
+        FormatResult result = new FormatResult();
+
+        Map<String, List<FormatRule>> chains = new LinkedHashMap<>();
+        for (FormatRule rule : rules) {
+            for (String column : rule.targetColumns(table)) {
+                chains.computeIfAbsent(column, c -> new ArrayList<>()).add(rule);
+            }
+        }
+        if (chains.isEmpty()) {
+            throw new RuntimeException("表 " + table.getTableName() + " 中没有适用这些格式化规则的字段");
+        }
+
+        Map<String, String> sqlColumns = new LinkedHashMap<>();
+        Map<String, List<FormatRule>> jvmColumns = new LinkedHashMap<>();
+        chains.forEach((column, chain) -> {
+            if (chain.stream().allMatch(FormatRule::isSqlExpressible)) {
+                String expression = table.quote(column);
+                for (FormatRule rule : chain) {
+                    expression = rule.sqlExpression(expression);
+                }
+                sqlColumns.put(column, expression);
+            } else if (!table.hasSingleColumnKey()) {
+                result.getSkipped().put(column, "表没有单列主键，无法逐行回写 " + chain);
+            } else {
+                jvmColumns.put(column, chain);
+            }
+        });
+
+        if (!sqlColumns.isEmpty()) {
+            result.getSqlColumns().putAll(sqlColumns);
+            applySql(table, sqlColumns, result);
+        }
+        if (!jvmColumns.isEmpty()) {
+            jvmColumns.forEach((column, chain) -> result.getJvmColumns().put(column, chain.toString()));
+            applyInJvm(table, jvmColumns, result);
+        }
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 在数据库中格式化，有整数主键时按主键区间分段，每段一个事务；设置了并行执行器时各分区并行分段
+     */
+    private void applySql(CleaningTable table, Map<String, String> expressions, FormatResult result) {
+        String assignments = expressions.entrySet().stream()
+                .map(e -> table.quote(e.getKey()) + " = " + e.getValue())
+                .collect(Collectors.joining(", "));
+        String changed = expressions.entrySet().stream()
+                .map(e -> table.isText(e.getKey())
+                        ? table.getDialect().textDiffers(table.quote(e.getKey()), e.getValue())
+                        : table.quote(e.getKey()) + " <> " + e.getValue())
+                .collect(Collectors.joining(" OR "));
+
+        long[] keyRange = table.hasIntegralKey() ? table.keyRange() : null;
+        if (keyRange == null) {
+            String sql = "UPDATE " + table.quotedName() + " SET " + assignments + " WHERE " + changed;
+            Integer updated = table.getTarget().getTransactionTemplate()
+                    .execute(status -> table.getJdbcTemplate().update(sql));
+            recordChunk(result, updated == null ? 0 : updated);
+            return;
+        }
+
+        String range = table.quote(table.getKeyColumn()) + " BETWEEN ? AND ?";
+        String countSql = "SELECT COUNT(*) FROM " + table.quotedName() + " WHERE " + range;
+        String updateSql = "UPDATE " + table.quotedName() + " SET " + assignments
+                + " WHERE " + range + " AND (" + changed + ")";
+        if (parallel != null) {
+            parallel.execute(table, keyRange[0], keyRange[1],
+                    (lower, upper) -> applySqlRange(table, countSql, updateSql, lower, upper, result));
+        } else {
+            applySqlRange(table, countSql, updateSql, keyRange[0], keyRange[1], result);
+        }
+    }
+
+    /**
+     * 在主键区间[minKey, maxKey]内分段更新
+     */
+    private void applySqlRange(CleaningTable table, String countSql, String updateSql, long minKey, long maxKey,
+                               FormatResult result) {
+        Throttle throttle = new Throttle(pauseMillis);
+        KeyRangeWalker walker = new KeyRangeWalker(minKey, maxKey, batchSize);
+        while (walker.next()) {
+            long lower = walker.getLower();
+            long upper = walker.getUpper();
+            long[] counts = table.getTarget().getTransactionTemplate().execute(status -> {
+                JdbcTemplate jdbcTemplate = table.getJdbcTemplate();
+                Long rows = jdbcTemplate.queryForObject(countSql, Long.class, lower, upper);
+                int updated = rows != null && rows > 0 ? jdbcTemplate.update(updateSql, lower, upper) : 0;
+                return new long[]{rows != null ? rows : 0, updated};
+            });
+            walker.record(counts[0]);
+            if (counts[1] > 0) {
+                recordChunk(result, counts[1]);
+                throttle.pause(counts[1]);
+            }
+        }
+    }
+
+    /**
+     * 在应用内逐行格式化，只回写值有变化的行
+     */
+    private void applyInJvm(CleaningTable table, Map<String, List<FormatRule>> chains, FormatResult result) {
+        List<String> columns = new ArrayList<>(chains.keySet());
+        List<UnaryOperator<Object>> functions = new ArrayList<>();
+        for (List<FormatRule> chain : chains.values()) {
+            List<UnaryOperator<Object>> steps = chain.stream().map(FormatRule::compile).collect(Collectors.toList());
+            functions.add(value -> {
+                Object current = value;
+                for (UnaryOperator<Object> step : steps) {
+                    current = step.apply(current);
+                }
+                return current;
+            });
+        }
+
+        String key = table.quote(table.getKeyColumn());
+        String sql = "SELECT " + key + ", " + columns.stream().map(table::quote).collect(Collectors.joining(", "))
+                + " FROM " + table.quotedName() + " ORDER BY " + key;
+        String updateSql = "UPDATE " + table.quotedName() + " SET "
+                + columns.stream().map(c -> table.quote(c) + " = ?").collect(Collectors.joining(", "))
+                + " WHERE " + key + " = ?";
+
+        List<Object[]> batch = new ArrayList<>();
+        Throttle throttle = new Throttle(pauseMillis);
+        table.streamingTemplate(batchSize).query(sql, rs -> {
+            Object[] params = new Object[columns.size() + 1];
+            boolean changed = false;
+            for (int i = 0; i < columns.size(); i++) {
+                Object value = rs.getObject(i + 2);
+                Object formatted = functions.get(i).apply(value);
+                params[i] = formatted;
+                changed |= !Objects.equals(value, formatted);
+            }
+            if (changed) {
+                params[columns.size()] = rs.getObject(1);
+                batch.add(params);
+                if (batch.size() >= batchSize) {
+                    writeBatch(table, updateSql, batch, result);
+                    throttle.pause();
+                }
+            }
+        });
+        writeBatch(table, updateSql, batch, result);
+    }
+
+    private void writeBatch(CleaningTable table, String updateSql, List<Object[]> batch, FormatResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        table.getTarget().getTransactionTemplate()
+                .execute(status -> table.getJdbcTemplate().batchUpdate(updateSql, batch));
+        int rows = batch.size();
+        batch.clear();
+        recordChunk(result, rows);
+    }
+
+    private void recordChunk(FormatResult result, long rows) {
+        // 并行执行时多个线程同时累计
+        synchronized (result) {
+            result.setUpdatedRows(result.getUpdatedRows() + rows);
+            result.setChunks(result.getChunks() + 1);
+        }
+        CleaningContext.batchCommitted(rows);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.datag.cleaning;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 格式化的统计结果
+ */
+@Data
+public class FormatResult {
+    private Map<String, String> sqlColumns = new LinkedHashMap<>(); // 在数据库中格式化的列及其SQL表达式
+    private Map<String, String> jvmColumns = new LinkedHashMap<>(); // 在应用内逐行格式化的列及其规则
+    private Map<String, String> skipped = new LinkedHashMap<>(); // 跳过的列及原因
+    private long updatedRows; // 值有变化而被更新的行数（两种方式分别计数）
+    private long chunks; // 更新分成的事务数
+    private long elapsedMillis; // 耗时（毫秒）
+}
@@ -0,0 +1,279 @@
+package com.example.datag.cleaning;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+/**
+ * 格式化规则
+ * 文本格式为"规则名[=参数][@字段1|字段2]"，省略字段时作用于所有适用的非主键列：
+ * - trim                         去掉字符串首尾空白
+ * - upper / lower                字符串转大写 / 小写
+ * - date_format[=yyyy-MM-dd]     把字符串列中能识别的日期统一为指定格式，无法识别的值不变
+ * - number_format[=2]            非整数的数值列四舍五入到指定小数位
+ * - replace=正则=>替换文本        字符串按Java正则替换，替换文本中可以用$1引用分组
+ *
+ * 去空白、大小写和数值舍入可以写成SQL表达式在数据库中执行；日期识别和正则替换在应用内逐行执行，
+ * 保证正则语法和替换结果与数据库无关
+ */
+public class FormatRule {
+
+    public enum Type {
+        TRIM("trim"),
+        UPPER("upper"),
+        LOWER("lower"),
+        DATE_FORMAT("date_format"),
+        NUMBER_FORMAT("number_format"),
+        REPLACE("replace");
+
+        private final String name;
+
+        Type(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final Pattern EDGE_SPACES = Pattern.compile("^ +| +$");
+    private static final Pattern COLUMN_LIST = Pattern.compile("@([A-Za-z0-9_]+(\\|[A-Za-z0-9_]+)*)$");
+
+    /**
+     * 能识别的日期格式，只包含年份在前的格式，避免把01/02/2024这类日月顺序不确定的值改错。
+     * 按STRICT解析，2023-02-31这类不存在的日期视为无法识别、原样保留，而不是被调整为月末
+     * （STRICT下yyyy是纪元年，必须用uuuu表示年份）
+     */
+    private static final List<DateTimeFormatter> DATE_INPUTS = List.of(
+            strict("uuuu-M-d[ H:m[:s]]"),
+            strict("uuuu/M/d[ H:m[:s]]"),
+            strict("uuuu.M.d[ H:m[:s]]"),
+            strict("uuuu-M-d'T'H:m[:s]"),
+            strict("uuuuMMdd"),
+            strict("uuuu年M月d日"));
+
+    private final Type type;
+    private final String argument;
+    private final List<String> columns;
+    private final String text;
+
+    private FormatRule(Type type, String argument, List<String> columns, String text) {
+        this.type = type;
+        this.argument = argument;
+        this.columns = columns;
+        this.text = text;
+    }
+
+    /**
+     * 解析规则文本，参数不合法时抛出异常
+     */
+    public static FormatRule parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new RuntimeException("格式化规则不能为空");
+        }
+        String rule = text.trim();
+        List<String> columns = List.of();
+        Matcher matcher = COLUMN_LIST.matcher(rule);
+        if (matcher.find()) {
+            columns = Arrays.asList(matcher.group(1).split("\\|"));
+            rule = rule.substring(0, matcher.start()).trim();
+        }
+        int equals = rule.indexOf('=');
+        String name = (equals < 0 ? rule : rule.substring(0, equals)).trim().toLowerCase();
+        String argument = equals < 0 ? "" : rule.substring(equals + 1);
+
+        Type type = Arrays.stream(Type.values())
+                .filter(t -> t.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("未知的格式化规则: " + text));
+        switch (type) {
+            case DATE_FORMAT:
+                argument = argument.isEmpty() ? "yyyy-MM-dd" : argument;
+                try {
+                    DateTimeFormatter.ofPattern(argument);
+                } catch (IllegalArgumentException e) {
+                    throw new RuntimeException("日期格式无效: " + argument);
+                }
+                break;
+            case NUMBER_FORMAT:
+                argument = argument.isEmpty() ? "2" : argument.trim();
+                if (!argument.matches("\\d{1,2}")) {
+                    throw new RuntimeException("小数位数无效: " + argument);
+                }
+                break;
+            case REPLACE:
+                int arrow = argument.indexOf("=>");
+                if (arrow <= 0) {
+                    throw new RuntimeException("正则替换规则格式为 replace=正则=>替换文本: " + text);
+                }
+                try {
+                    Pattern.compile(argument.substring(0, arrow));
+                } catch (PatternSyntaxException e) {
+                    throw new RuntimeException("正则表达式无效: " + e.getDescription());
+                }
+                checkReplacement(argument.substring(0, arrow), argument.substring(arrow + 2));
+                break;
+            default:
+                break;
+        }
+        return new FormatRule(type, argument, columns, text.trim());
+    }
+
+    /**
+     * 规则作用的列：指定了字段时为这些字段（必须是适用的类型），否则为所有适用的非主键列
+     */
+    public List<String> targetColumns(CleaningTable table) {
+        if (columns.isEmpty()) {
+            return table.getColumns().stream()
+                    .filter(c -> !table.getPrimaryKey().contains(c) && appliesTo(table, c))
+                    .collect(Collectors.toList());
+        }
+        List<String> targets = new ArrayList<>();
+        for (String name : columns) {
+            String column = table.column(name);
+            if (!appliesTo(table, column)) {
+                throw new RuntimeException("格式化规则 " + text + " 不适用于字段 " + column + " 的类型");
+            }
+            targets.add(column);
+        }
+        return targets;
+    }
+
+    private boolean appliesTo(CleaningTable table, String column) {
+        if (type == Type.NUMBER_FORMAT) {
+            return table.isNumeric(column) && !table.isIntegral(column);
+        }
+        return table.isText(column);
+    }
+
+    /**
+     * 能否写成SQL表达式
+     */
+    public boolean isSqlExpressible() {
+        return type == Type.TRIM || type == Type.UPPER || type == Type.LOWER || type == Type.NUMBER_FORMAT;
+    }
+
+    /**
+     * 对表达式应用规则的SQL表达式，只用各数据库都支持的标准函数
+     */
+    public String sqlExpression(String expression) {
+        switch (type) {
+            case TRIM:
+                return "TRIM(" + expression + ")";
+            case UPPER:
+                return "UPPER(" + expression + ")";
+            case LOWER:
+                return "LOWER(" + expression + ")";
+            case NUMBER_FORMAT:
+                return "ROUND(" + expression + ", " + argument + ")";
+            default:
+                throw new RuntimeException("格式化规则不能写成SQL表达式: " + text);
+        }
+    }
+
+    /**
+     * 编译为逐值转换的函数，空值原样返回
+     * 正则和日期格式只编译一次，对每行调用时不再解析规则
+     */
+    public UnaryOperator<Object> compile() {
+        switch (type) {
+            case TRIM:
+                // 与SQL的TRIM一致，只去掉首尾的空格
+                return text(s -> EDGE_SPACES.matcher(s).replaceAll(""));
+            case UPPER:
+                return text(s -> s.toUpperCase(Locale.ROOT));
+            case LOWER:
+                return text(s -> s.toLowerCase(Locale.ROOT));
+            case NUMBER_FORMAT:
+                int scale = Integer.parseInt(argument);
+                return value -> value instanceof Number
+                        ? new BigDecimal(value.toString()).setScale(scale, RoundingMode.HALF_UP) : value;
+            case DATE_FORMAT:
+                DateTimeFormatter output = DateTimeFormatter.ofPattern(argument);
+                return text(s -> normalizeDate(s, output));
+            case REPLACE:
+                int arrow = argument.indexOf("=>");
+                Pattern pattern = Pattern.compile(argument.substring(0, arrow));
+                String replacement = argument.substring(arrow + 2);
+                return text(s -> pattern.matcher(s).replaceAll(replacement));
+            default:
+                throw new RuntimeException("未知的格式化规则: " + text);
+        }
+    }
+
+    /**
+     * 检查替换文本，引用了不存在的分组（如只有一个分组时的$2、未定义的${name}）或末尾有单独的$或反斜杠时抛出异常
+     * 把正则包成(?:正则)?，分组编号和名称不变，且一定能匹配空字符串，用它做一次替换即可让Matcher校验替换文本，
+     * 否则这类错误要到逐行执行时才出现
+     */
+    private static void checkReplacement(String regex, String replacement) {
+        Pattern probe;
+        try {
+            probe = Pattern.compile("(?:" + regex + ")?");
+        } catch (PatternSyntaxException e) {
+            // 包装后无法编译（如正则以注释结尾），不做预检
+            return;
+        }
+        try {
+            probe.matcher("").replaceAll(replacement);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new RuntimeException("替换文本无效: " + e.getMessage());
+        }
+    }
+
+    private static DateTimeFormatter strict(String pattern) {
+        return DateTimeFormatter.ofPattern(pattern).withResolverStyle(ResolverStyle.STRICT);
+    }
+
+    private static UnaryOperator<Object> text(UnaryOperator<String> function) {
+        return value -> value instanceof String ? function.apply((String) value) : value;
+    }
+
+    /**
+     * 识别日期并按输出格式重写，无法识别时原样返回
+     */
+    private static String normalizeDate(String value, DateTimeFormatter output) {
+        String trimmed = value.trim();
+        for (DateTimeFormatter input : DATE_INPUTS) {
+            TemporalAccessor parsed;
+            try {
+                parsed = input.parse(trimmed);
+            } catch (DateTimeParseException e) {
+                continue;
+            }
+            LocalDateTime dateTime = parsed.isSupported(ChronoField.HOUR_OF_DAY)
+                    ? LocalDateTime.from(parsed) : LocalDate.from(parsed).atStartOfDay();
+            try {
+                return output.format(dateTime);
+            } catch (RuntimeException e) {
+                return value;
+            }
+        }
+        return value;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.datag.cleaning;
+
+import com.example.datag.importer.SqlDialect;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 合并执行的清洗流程
+ * 把连续的过滤、去重和常量填充步骤编译成一条INSERT ... SELECT，写入按原表结构新建的工作表，再由TableSwap换表
+ *
+ * 每个步骤是包住上一步的一层子查询，并增加一个标记列dg_keep_i表示该行在这一步后是否保留：
+ * - 过滤：上一步保留且条件不为假（条件为NULL的行保留，与原地过滤一致）
+ * - 去重：上一步保留，且在(上一步标记, 去重字段)分区内按主键排第一，被前面步骤删掉的行不参与去重
+ * - 填充：标记不变，列改为COALESCE(列, 常量)
+ * 只有最后一步标记为1的行写入新表。对最外层子查询做一次COUNT(*)和各标记列的SUM，
+ * 就得到流程前的行数和每一步之后的行数，不需要每步前后各扫一遍整表
+ *
+ * 填充常量（平均值）按上一步保留的行计算，与逐步执行的结果一致，每个填充步骤多一次聚合查询
+ *
+ * 填充常量的查询、计数和INSERT ... SELECT分别对原表求值一次，三者在同一个事务中看到同一份数据：
+ * PostgreSQL用REPEATABLE READ、Oracle用SERIALIZABLE，事务内的查询共用一个快照；
+ * MySQL的INSERT ... SELECT是加锁的当前读而不是快照读，因此最内层对原表的读取加共享锁（LOCK IN SHARE MODE），
+ * 第一个查询锁住原表的行后，其他会话在事务结束前不能修改，之后的查询和INSERT读到的与它相同。
+ * 计数与写入工作表的行数一致，执行期间写入原表的数据要么等待流程结束，要么全部不进入工作表
+ */
+public class FusedPipeline {
+
+    private static final String KEEP = "dg_keep_";
+
+    private final CleaningTable table;
+    private final List<CleaningStep> steps;
+    private final List<String> fillColumns;
+
+    /**
+     * @param steps 可以合并的步骤（见CleaningStep.isFusible）
+     * @param fillColumns 填充步骤考虑的字段，非数值列和主键列会被跳过
+     */
+    public FusedPipeline(CleaningTable table, List<CleaningStep> steps, List<String> fillColumns) {
+        this.table = table;
+        this.steps = steps;
+        this.fillColumns = fillColumns;
+    }
+
+    /**
+     * 把步骤列表分成阶段：连续两个以上可合并的步骤为一个合并阶段，其余每个步骤单独一个阶段
+     * 单个步骤合并执行没有好处，原地执行还能分批提交
+     */
+    public static List<List<CleaningStep>> plan(CleaningTable table, List<CleaningStep> steps) {
+        List<List<CleaningStep>> stages = new ArrayList<>();
+        List<CleaningStep> run = new ArrayList<>();
+        for (CleaningStep step : steps) {
+            if (step.isFusible(table)) {
+                run.add(step);
+                continue;
+            }
+            flushRun(stages, run);
+            stages.add(List.of(step));
+        }
+        flushRun(stages, run);
+        return stages;
+    }
+
+    private static void flushRun(List<List<CleaningStep>> stages, List<CleaningStep> run) {
+        if (run.size() > 1) {
+            stages.add(new ArrayList<>(run));
+        } else {
+            run.forEach(step -> stages.add(List.of(step)));
+        }
+        run.clear();
+    }
+
+    /**
+     * 执行合并的步骤，结果写入工作表
+     * @param working 按原表结构新建的空表（见TableSwap.createWorkingTable）
+     * @return 每个步骤的结果，最后一步之后的行数就是写入工作表的行数
+     */
+    public List<StepOutcome> run(CleaningTable working) {
+        return snapshotTransaction().execute(status -> runInSnapshot(working));
+    }
+
+    /**
+     * 快照事务：Oracle不支持REPEATABLE READ，SERIALIZABLE同样在整个事务中使用开始时的快照
+     */
+    private TransactionTemplate snapshotTransaction() {
+        TransactionTemplate template = new TransactionTemplate(
+                table.getTarget().getTransactionTemplate().getTransactionManager());
+        template.setIsolationLevel(table.getDialect() == SqlDialect.ORACLE
+                ? TransactionDefinition.ISOLATION_SERIALIZABLE : TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        return template;
+    }
+
+    private List<StepOutcome> runInSnapshot(CleaningTable working) {
+        JdbcTemplate jdbcTemplate = table.getJdbcTemplate();
+        List<String> columns = table.getColumns();
+
+        // 逐层编译，填充步骤先按上一层的保留行算出常量
+        List<StepOutcome> outcomes = new ArrayList<>();
+        String stage = "SELECT " + columns.stream().map(table::quote).collect(Collectors.joining(", "))
+                + ", 1 AS " + KEEP + 0 + " FROM " + table.quotedName()
+                + (table.isMySql() ? " LOCK IN SHARE MODE" : "");
+        for (int i = 1; i <= steps.size(); i++) {
+            CleaningStep step = steps.get(i - 1);
+            StepOutcome outcome = new StepOutcome();
+            outcome.setStep(step.toString());
+            outcome.setMode(StepOutcome.MODE_FUSED);
+            outcomes.add(outcome);
+
+            Map<String, String> expressions = new LinkedHashMap<>();
+            columns.forEach(c -> expressions.put(c, table.quote(c)));
+            String previous = KEEP + (i - 1);
+            String flag;
+            switch (step.getType()) {
+                case FILTER:
+                    // 只有条件明确为假时才去掉，条件为NULL的行保留，与DELETE ... WHERE NOT (...)的语义一致
+                    flag = "CASE WHEN NOT ("
+                            + FilterConditions.quoteColumns(step.getCondition(), table) + ") THEN 0 ELSE " + previous + " END";
+                    break;
+                case DEDUPLICATE:
+                    flag = "CASE WHEN " + previous + " = 1 AND " + rowNumber(step, previous) + " = 1 THEN 1 ELSE 0 END";
+                    break;
+                case FILL_MISSING:
+                    Map<String, BigDecimal> values = fillValues(stage, previous, step.getStrategy(), outcome);
+                    values.forEach((c, v) -> expressions.put(c,
+                            "COALESCE(" + table.quote(c) + ", " + v.toPlainString() + ") AS " + table.quote(c)));
+                    flag = previous;
+                    break;
+                default:
+                    throw new RuntimeException("清洗步骤不能合并执行: " + step);
+            }
+            List<String> select = new ArrayList<>(expressions.values());
+            for (int k = 0; k < i; k++) {
+                select.add(KEEP + k);
+            }
+            select.add(flag + " AS " + KEEP + i);
+            stage = "SELECT " + String.join(", ", select) + " FROM (" + stage + ") s" + i;
+        }
+
+        // 一次计数得到流程前和每一步之后的行数
+        List<String> counts = new ArrayList<>();
+        counts.add("COUNT(*)");
+        for (int i = 1; i <= steps.size(); i++) {
+            counts.add("SUM(" + KEEP + i + ")");
+        }
+        long[] rows = jdbcTemplate.query("SELECT " + String.join(", ", counts) + " FROM (" + stage + ") c",
+                (ResultSetExtractor<long[]>) rs -> {
+                    rs.next();
+                    long[] r = new long[steps.size() + 1];
+                    for (int i = 0; i < r.length; i++) {
+                        r[i] = rs.getLong(i + 1);
+                    }
+                    return r;
+                });
+        for (int i = 0; i < outcomes.size(); i++) {
+            outcomes.get(i).setRowsBefore(rows[i]);
+            outcomes.get(i).setRowsAfter(rows[i + 1]);
+        }
+
+        // 保留的行写入工作表，由调用方校验后换表
+        String names = columns.stream().map(table::quote).collect(Collectors.joining(", "));
+        jdbcTemplate.update("INSERT INTO " + working.quotedName() + " (" + names + ") SELECT " + names
+                + " FROM (" + stage + ") f WHERE " + KEEP + steps.size() + " = 1");
+        return outcomes;
+    }
+
+    /**
+     * 去重步骤的行号：在上一步保留的行中按去重字段分区，主键最小的行排第一
+     */
+    private String rowNumber(CleaningStep step, String previous) {
+        List<String> partition = new ArrayList<>();
+        partition.add(previous);
+        for (String field : step.getFields()) {
+            if (!table.hasColumn(field)) {
+                throw new RuntimeException("去重字段不存在于数据集中: " + field);
+            }
+            partition.add(table.quote(table.column(field)));
+        }
+        // 没有单列主键时保留哪一行不确定，按去重字段排序只是为了满足ROW_NUMBER的语法要求
+        String order = table.hasSingleColumnKey() ? table.quote(table.getKeyColumn())
+                : String.join(", ", partition.subList(1, partition.size()));
+        return "ROW_NUMBER() OVER (PARTITION BY " + String.join(", ", partition) + " ORDER BY " + order + ")";
+    }
+
+    /**
+     * 按上一步保留的行计算填充常量，同时统计要填充的单元格数
+     * 按平均值填充时，没有非空值的列不填充
+     */
+    private Map<String, BigDecimal> fillValues(String stage, String previous, FillStrategy strategy,
+                                               StepOutcome outcome) {
+        List<String> candidates = fillColumns.stream()
+                .filter(table::hasColumn)
+                .map(table::column)
+                .filter(c -> !table.getPrimaryKey().contains(c) && table.isNumeric(c))
+                .distinct()
+                .collect(Collectors.toList());
+        Map<String, BigDecimal> values = new LinkedHashMap<>();
+        outcome.setFilledCells(0L);
+        if (candidates.isEmpty()) {
+            return values;
+        }
+        List<String> aggregates = new ArrayList<>();
+        for (String column : candidates) {
+            String quoted = table.quote(column);
+            aggregates.add("AVG(CASE WHEN " + previous + " = 1 THEN " + quoted + " END)");
+            aggregates.add("SUM(CASE WHEN " + previous + " = 1 AND " + quoted + " IS NULL THEN 1 ELSE 0 END)");
+        }
+        table.getJdbcTemplate().query("SELECT " + String.join(", ", aggregates) + " FROM (" + stage + ") a",
+                (ResultSetExtractor<Void>) rs -> {
+                    rs.next();
+                    long filled = 0;
+                    for (int i = 0; i < candidates.size(); i++) {
+                        String column = candidates.get(i);
+                        BigDecimal average = rs.getBigDecimal(2 * i + 1);
+                        long missing = rs.getLong(2 * i + 2);
+                        if (missing == 0 || (average == null && strategy != FillStrategy.ZERO)) {
+                            continue;
+                        }
+                        BigDecimal value = strategy == FillStrategy.ZERO ? BigDecimal.ZERO
+                                : table.isIntegral(column) ? average.setScale(0, RoundingMode.HALF_UP) : average;
+                        values.put(column, value);
+                        filled += missing;
+                    }
+                    outcome.setFilledCells(filled);
+                    return null;
+                });
+        return values;
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.datag.cleaning;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 应用内流式哈希去重
+ * 用于不支持窗口函数的数据库（如MySQL 5.7）。按主键顺序流式读取主键和去重字段，
+ * 计算128位行指纹放入堆外的FingerprintSet，指纹已存在的行就是重复行，
+ * 它的主键和同指纹保留行的主键交给DuplicateDeleter，删除前按原值复核。
+ * 按主键顺序读取保证每组重复行中保留主键最小的一行。
+ * 指纹按字节比较，而MySQL按列的排序规则判断相等（_ci不区分大小写，PAD SPACE忽略末尾空格），
+ * 因此字符串字段读取的是排序规则下的比较键（见CleaningTable.comparisonExpression），
+ * 分组与窗口函数方式一致，删除的行也相同
+ *
+ * 内存占用固定：指纹集合装满时按指纹排序写入溢出文件并清空，继续读取。
+ * 读完后多路归并所有溢出文件，同一指纹出现在多个文件中时保留最早文件中的行（主键更小），
+ * 其余行的（主键, 保留行主键）经外部排序后按主键顺序删除
+ *
+ * 指纹是在长时间的流式读取（可能还有溢出和归并）中取得的，删除时行可能已被修改或删除，
+ * 也可能是指纹碰撞。DuplicateDeleter每批在一个事务中按主键锁定读取待删除的行和保留的行，
+ * 去重字段仍相等时才删除，不会删掉没有留下副本的行
+ *
+ * 需要表有整数类型的单列主键
+ */
+public class HashDeduplicator {
+
+    public static final String METHOD = "HASH";
+
+    private final int batchSize;
+    private final long pauseMillis;
+    private final long memoryBytes;
+    private final Path spillDir;
+
+    /**
+     * @param memoryBytes 内存预算（字节），四分之三给指纹集合，其余给待删除主键的排序缓冲
+     * @param spillDir 溢出文件目录
+     */
+    public HashDeduplicator(int batchSize, long pauseMillis, long memoryBytes, Path spillDir) {
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+        this.memoryBytes = memoryBytes;
+        this.spillDir = spillDir;
+    }
+
+    /**
+     * 执行去重
+     * @param table 待去重的表
+     * @param fields 去重字段，值都相同的行视为重复
+     */
+    public DedupResult run(CleaningTable table, List<String> fields) {
+        if (!table.hasIntegralKey()) {
+            throw new RuntimeException("表 " + table.getTableName() + " 没有整数类型的单列主键，无法流式去重");
+        }
+        long start = System.currentTimeMillis();
+        String key = table.quote(table.getKeyColumn());
+        List<String> columns = fields.stream().map(table::column).collect(Collectors.toList());
+        String sql = "SELECT " + key + ", "
+                + columns.stream().map(table::comparisonExpression).collect(Collectors.joining(", "))
+                + " FROM " + table.quotedName() + " ORDER BY " + key;
+
+        Path workDir;
+        try {
+            Files.createDirectories(spillDir);
+            workDir = Files.createTempDirectory(spillDir, "dedup-");
+        } catch (IOException e) {
+            throw new RuntimeException("创建去重溢出目录失败: " + e.getMessage(), e);
+        }
+
+        DuplicateDeleter deleter = new DuplicateDeleter(table, columns, batchSize, pauseMillis);
+        try {
+            FingerprintSet fingerprints = new FingerprintSet(memoryBytes / 4 * 3);
+            RowFingerprint fingerprint = new RowFingerprint();
+            Object[] values = new Object[fields.size()];
+            List<Path> runs = new ArrayList<>();
+
+            // 同一批指纹内发现的重复行主键是递增的，直接删除
+            table.streamingTemplate(batchSize).query(sql, rs -> {
+                long rowKey = rs.getLong(1);
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = rs.getObject(i + 2);
+                }
+                fingerprint.compute(values);
+                if (!fingerprints.add(fingerprint.getHigh(), fingerprint.getLow(), rowKey)) {
+                    deleter.add(rowKey, fingerprints.keyOf(fingerprint.getHigh(), fingerprint.getLow()));
+                } else if (fingerprints.isFull()) {
+                    runs.add(spill(fingerprints, workDir, runs.size()));
+                }
+            });
+            deleter.flush();
+
+            if (!runs.isEmpty()) {
+                if (fingerprints.size() > 0) {
+                    runs.add(spill(fingerprints, workDir, runs.size()));
+                }
+                try (ExternalPairSorter surplus = new ExternalPairSorter(workDir, memoryBytes / 4)) {
+                    mergeRuns(runs, surplus);
+                    surplus.forEachSorted(deleter::add);
+                }
+                deleter.flush();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("去重溢出文件读写失败: " + e.getMessage(), e);
+        } finally {
+            deleteRecursively(workDir);
+        }
+
+        DedupResult result = new DedupResult();
+        result.setMethod(METHOD);
+        result.setDeleted(deleter.getDeleted());
+        result.setBatches(deleter.getBatches());
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private Path spill(FingerprintSet fingerprints, Path workDir, int index) {
+        Path run = workDir.resolve(String.format("fingerprints-%05d.run", index));
+        try {
+            fingerprints.spill(run);
+        } catch (IOException e) {
+            throw new RuntimeException("写入去重溢出文件失败: " + e.getMessage(), e);
+        }
+        return run;
+    }
+
+    /**
+     * 多路归并溢出文件，找出跨文件的重复行
+     * 同一指纹按文件顺序出队，第一个出队的是主键最小的行，保留；之后出队的行以(主键, 保留行主键)加入待删除
+     */
+    static void mergeRuns(List<Path> runs, ExternalPairSorter surplus) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Comparator
+                .comparingLong((RunReader r) -> r.high)
+                .thenComparingLong(r -> r.low)
+                .thenComparingInt(r -> r.index));
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            for (int i = 0; i < runs.size(); i++) {
+                RunReader reader = new RunReader(runs.get(i), i);
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            boolean first = true;
+            long lastHigh = 0;
+            long lastLow = 0;
+            long keptKey = 0;
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                if (!first && reader.high == lastHigh && reader.low == lastLow) {
+                    surplus.add(reader.key, keptKey);
+                } else {
+                    first = false;
+                    keptKey = reader.key;
+                    lastHigh = reader.high;
+                    lastLow = reader.low;
+                }
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // 临时文件删除失败不影响去重结果
+        }
+    }
+
+    /**
+     * 溢出文件读取器，记录为(指纹高位, 指纹低位, 主键)，按指纹升序
+     */
+    private static class RunReader implements Closeable {
+        private final DataInputStream in;
+        private final int index;
+        private long high;
+        private long low;
+        private long key;
+
+        RunReader(Path file, int index) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+            this.index = index;
+        }
+
+        boolean advance() throws IOException {
+            try {
+                high = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            low = in.readLong();
+            key = in.readLong();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
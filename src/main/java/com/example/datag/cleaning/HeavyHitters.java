@@ -0,0 +1,106 @@
+package com.example.datag.cleaning;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 高频值草图（Space-Saving）
+ * 最多跟踪capacity个值的计数。新值到来且计数器已满时，替换当前计数最小的值，
+ * 新值的计数从被替换值的计数加1开始。出现次数超过n/capacity的值一定会被保留，
+ * 计数的高估不超过被替换时的最小计数
+ *
+ * 计数器放在按计数排序的最小堆中，替换和计数加1都是O(log capacity)
+ */
+public class HeavyHitters {
+
+    private final int capacity;
+    private final Object[] values;
+    private final long[] counts;
+    private final Map<Object, Integer> positions = new HashMap<>();
+    private int size;
+
+    public HeavyHitters(int capacity) {
+        this.capacity = capacity;
+        this.values = new Object[capacity];
+        this.counts = new long[capacity];
+    }
+
+    public void update(Object value) {
+        Integer position = positions.get(value);
+        if (position != null) {
+            counts[position]++;
+            siftDown(position);
+            return;
+        }
+        if (size < capacity) {
+            values[size] = value;
+            counts[size] = 1;
+            positions.put(value, size);
+            siftUp(size++);
+            return;
+        }
+        // 替换计数最小的值（堆顶）
+        positions.remove(values[0]);
+        values[0] = value;
+        counts[0]++;
+        positions.put(value, 0);
+        siftDown(0);
+    }
+
+    /**
+     * 出现次数最多的值
+     * @return 没有数据时返回null
+     */
+    public Object mostFrequent() {
+        Object best = null;
+        long bestCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (counts[i] > bestCount) {
+                best = values[i];
+                bestCount = counts[i];
+            }
+        }
+        return best;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (counts[parent] <= counts[i]) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        Object value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+        long count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+        positions.put(values[a], a);
+        positions.put(values[b], b);
+    }
+}
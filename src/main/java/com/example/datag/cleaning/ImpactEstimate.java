@@ -0,0 +1,40 @@
+package com.example.datag.cleaning;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 清洗操作的试运行结果
+ * 估计操作会影响的行数及其置信区间，以及按历史吞吐量估计的耗时，不修改任何数据
+ */
+@Data
+public class ImpactEstimate {
+    public static final String METHOD_EXACT = "EXACT"; // 全表精确统计（小表）
+    public static final String METHOD_SAMPLE = "SAMPLE"; // 主键区间随机抽样
+    public static final String METHOD_INDEX = "INDEX"; // 去重字段上有索引，按索引精确统计
+    public static final String METHOD_SKETCH = "SKETCH"; // 流式扫描，HyperLogLog估计不同值个数
+
+    private String operation; // 清洗操作
+    private String method; // 估计方法
+    private long totalRows; // 表的记录数
+    private boolean totalRowsApproximate; // 表的记录数是否为近似值（取自统计信息或按主键密度推算）
+    private long sampledRows; // 实际统计的行数
+    private long affectedRows; // 估计受影响的行数（删除或被填充的行）
+    private long affectedRowsLower; // 置信区间下限
+    private long affectedRowsUpper; // 置信区间上限
+    private double confidenceLevel; // 置信水平，精确统计时区间上下限等于估计值
+    private Map<String, Long> affectedCells = new LinkedHashMap<>(); // 填充：每列估计要填充的单元格数
+    private Double throughputRowsPerSecond; // 历史清洗吞吐量（扫描行/秒），没有记录时为空
+    private int historyRuns; // 计算吞吐量所用的历史执行次数
+    private Long estimatedSeconds; // 估计耗时（秒），没有历史记录时为空
+    private String note; // 说明
+
+    /**
+     * 受影响行数占总行数的比例
+     */
+    public double getAffectedRatio() {
+        return totalRows > 0 ? (double) affectedRows / totalRows : 0;
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.datag.cleaning;
+
+import com.example.datag.importer.HyperLogLog;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * 清洗影响估计（试运行）
+ * 只读查询，不修改数据，估计过滤、填充和去重会影响多少行
+ *
+ * 过滤和填充按主键区间抽样：在[最小主键, 最大主键]内随机取若干个起点，每个起点取一段主键区间，
+ * 每段一条带主键范围条件的聚合查询，走主键索引，代价与抽样行数成正比，与表大小无关。
+ * 总行数不做COUNT(*)：取数据库统计信息中的近似行数（见CleaningTable.estimatedRowCount），
+ * 没有统计信息时按抽样段的主键密度推算，结果中标记为近似值。
+ * 各段的受影响行数与行数之比用比率估计，按段间方差给出95%置信区间；
+ * 样本中一行都没有命中（或全部命中）时区间退化为一点，改用"三分之一规则"给出上限（下限）
+ *
+ * 去重影响的是"重复的行数 = 总行数 - 不同值个数"，抽样无法无偏估计不同值个数，
+ * 去重字段上有索引时按索引精确统计，否则流式扫描一遍去重字段，用HyperLogLog估计不同值个数
+ *
+ * 行数不超过抽样行数的小表（按统计信息或主键区间判断），以及没有整数主键无法按区间抽样的表，直接全表精确统计
+ */
+public class ImpactEstimator {
+
+    private static final double Z = 1.96;
+    private static final double CONFIDENCE = 0.95;
+    // 精度12的HyperLogLog的相对标准误差 1.04 / sqrt(4096)
+    private static final double SKETCH_ERROR = 1.04 / 64;
+
+    private final int sampleRows;
+    private final int sampleBlocks;
+
+    /**
+     * @param sampleRows 期望抽样的总行数
+     * @param sampleBlocks 抽样的主键区间段数，段数越多估计越稳定，查询次数也越多
+     */
+    public ImpactEstimator(int sampleRows, int sampleBlocks) {
+        this.sampleRows = Math.max(1, sampleRows);
+        this.sampleBlocks = Math.max(2, sampleBlocks);
+    }
+
+    /**
+     * 估计过滤会删除的行数（不满足保留条件的行，条件结果为NULL的行保留）
+     * @param keepCondition 保留条件（已处理过列名引号）
+     */
+    public ImpactEstimate estimateFilter(CleaningTable table, String keepCondition) {
+        Counts counts = count(table, List.of("CASE WHEN NOT (" + keepCondition + ") THEN 1 ELSE 0 END"));
+        ImpactEstimate estimate = counts.toEstimate(0);
+        estimate.setOperation("过滤: " + keepCondition);
+        return estimate;
+    }
+
+    /**
+     * 估计填充会修改的行数和每列的单元格数
+     * 估计的是含空值的行，没有非空值可计算填充值的列、前向填充时开头的空值等实际不会被填充，结果偏向上限
+     * @param columns 待填充的列，主键列和策略不支持的列会被跳过
+     */
+    public ImpactEstimate estimateFill(CleaningTable table, List<String> columns, FillStrategy strategy) {
+        List<String> candidates = columns.stream()
+                .map(table::column)
+                .filter(c -> !table.getPrimaryKey().contains(c))
+                .filter(c -> !strategy.requiresNumeric() || table.isNumeric(c))
+                .distinct()
+                .collect(Collectors.toList());
+        if (candidates.isEmpty()) {
+            throw new RuntimeException("没有可以按" + strategy.getName() + "填充的字段");
+        }
+        List<String> indicators = new ArrayList<>();
+        indicators.add("CASE WHEN " + candidates.stream().map(c -> table.quote(c) + " IS NULL")
+                .collect(Collectors.joining(" OR ")) + " THEN 1 ELSE 0 END");
+        candidates.forEach(c -> indicators.add("CASE WHEN " + table.quote(c) + " IS NULL THEN 1 ELSE 0 END"));
+
+        Counts counts = count(table, indicators);
+        ImpactEstimate estimate = counts.toEstimate(0);
+        estimate.setOperation("填充: " + strategy.getName());
+        for (int i = 0; i < candidates.size(); i++) {
+            estimate.getAffectedCells().put(candidates.get(i), counts.estimate(i + 1));
+        }
+        return estimate;
+    }
+
+    /**
+     * 估计去重会删除的行数
+     * @param fields 去重字段
+     */
+    public ImpactEstimate estimateDuplicates(CleaningTable table, List<String> fields) {
+        List<String> columns = fields.stream().map(table::column).distinct().collect(Collectors.toList());
+        String names = columns.stream().map(table::quote).collect(Collectors.joining(", "));
+        Long estimatedRows = table.estimatedRowCount();
+        boolean small = estimatedRows != null && estimatedRows <= sampleRows;
+
+        ImpactEstimate estimate = new ImpactEstimate();
+        estimate.setOperation("去重: " + String.join(", ", fields));
+        estimate.setConfidenceLevel(CONFIDENCE);
+
+        boolean indexed = !small && table.hasIndexLeadingWith(columns);
+        if (small || indexed) {
+            // 一次分组同时得到总行数和不同值个数，GROUP BY与去重一样把NULL视为相同的值
+            String sql = "SELECT COALESCE(SUM(c), 0), COUNT(*) FROM (SELECT COUNT(*) AS c FROM "
+                    + table.quotedName() + " GROUP BY " + names + ") d";
+            long[] counts = table.getJdbcTemplate().query(sql, rs -> {
+                rs.next();
+                return new long[]{rs.getLong(1), rs.getLong(2)};
+            });
+            long total = counts[0];
+            long duplicates = total - counts[1];
+            estimate.setTotalRows(total);
+            estimate.setMethod(indexed ? ImpactEstimate.METHOD_INDEX : ImpactEstimate.METHOD_EXACT);
+            estimate.setSampledRows(total);
+            setExact(estimate, duplicates);
+            estimate.setNote(indexed ? "去重字段上有索引，按索引精确统计" : "表的行数不超过抽样行数，已全表精确统计");
+            return estimate;
+        }
+
+        HyperLogLog sketch = new HyperLogLog();
+        RowFingerprint fingerprint = new RowFingerprint();
+        Object[] values = new Object[columns.size()];
+        long[] scanned = {0};
+        // 与去重一样按排序规则下的比较键计数
+        String keys = columns.stream().map(table::comparisonExpression).collect(Collectors.joining(", "));
+        table.streamingTemplate(1000).query("SELECT " + keys + " FROM " + table.quotedName(), rs -> {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rs.getObject(i + 1);
+            }
+            fingerprint.compute(values);
+            sketch.add(fingerprint.getHigh() ^ fingerprint.getLow());
+            scanned[0]++;
+        });
+        // 扫描期间表可能有增删，以扫描到的行数为准
+        long rows = scanned[0];
+        long distinct = Math.min(rows, sketch.estimate());
+        long margin = (long) Math.ceil(Z * SKETCH_ERROR * distinct);
+        estimate.setMethod(ImpactEstimate.METHOD_SKETCH);
+        estimate.setTotalRows(rows);
+        estimate.setSampledRows(rows);
+        estimate.setAffectedRows(rows - distinct);
+        estimate.setAffectedRowsLower(Math.max(0, rows - distinct - margin));
+        estimate.setAffectedRowsUpper(Math.min(Math.max(0, rows - 1), rows - distinct + margin));
+        estimate.setNote("去重字段上没有索引，已流式扫描去重字段并估计不同值个数，相对误差约"
+                + String.format("%.1f%%", SKETCH_ERROR * 100) + "（以不同值个数计）；"
+                + "在去重字段上建立索引可得到精确结果");
+        return estimate;
+    }
+
+    private static void setExact(ImpactEstimate estimate, long affected) {
+        estimate.setAffectedRows(affected);
+        estimate.setAffectedRowsLower(affected);
+        estimate.setAffectedRowsUpper(affected);
+    }
+
+    /**
+     * 统计每个指示表达式（每行取0或1）之和，小表或没有整数主键的表精确统计，其余按主键区间抽样
+     */
+    private Counts count(CleaningTable table, List<String> indicators) {
+        String select = "SELECT COUNT(*), " + indicators.stream().map(e -> "SUM(" + e + ")")
+                .collect(Collectors.joining(", ")) + " FROM " + table.quotedName();
+        ResultSetExtractor<long[]> extractor = rs -> {
+            rs.next();
+            long[] row = new long[indicators.size() + 1];
+            for (int i = 0; i < row.length; i++) {
+                // 空表时SUM为NULL，getLong返回0
+                row[i] = rs.getLong(i + 1);
+            }
+            return row;
+        };
+
+        if (!table.hasIntegralKey()) {
+            return Counts.exact(table.getJdbcTemplate().query(select, extractor),
+                    "表没有整数类型的单列主键，无法按区间抽样，已全表精确统计");
+        }
+        Long estimatedRows = table.estimatedRowCount();
+        long[] keyRange = estimatedRows == null || estimatedRows > sampleRows ? table.keyRange() : null;
+        // 主键唯一，主键区间不超过抽样行数时行数也不超过
+        if (keyRange == null || keyRange[1] - keyRange[0] + 1 <= sampleRows) {
+            return Counts.exact(table.getJdbcTemplate().query(select, extractor),
+                    "表的行数不超过抽样行数，已全表精确统计");
+        }
+
+        // 段宽按平均主键密度算，使每段大约sampleRows / sampleBlocks行；没有统计信息时先按主键连续计算
+        long range = keyRange[1] - keyRange[0] + 1;
+        long assumedRows = estimatedRows != null ? Math.max(1, Math.min(estimatedRows, range)) : range;
+        long width = Math.min(range,
+                Math.max(1, (long) Math.ceil((double) range * sampleRows / sampleBlocks / assumedRows)));
+        String blockSql = select + " WHERE " + table.quote(table.getKeyColumn()) + " BETWEEN ? AND ?";
+        List<long[]> blocks = new ArrayList<>();
+        for (int i = 0; i < sampleBlocks; i++) {
+            long start = keyRange[0] + ThreadLocalRandom.current().nextLong(Math.max(1, range - width + 1));
+            blocks.add(table.getJdbcTemplate().query(blockSql, extractor, start, start + width - 1));
+        }
+        long sampled = blocks.stream().mapToLong(b -> b[0]).sum();
+        if (sampled == 0) {
+            // 主键分布极不均匀，抽到的都是空段
+            return Counts.exact(table.getJdbcTemplate().query(select, extractor),
+                    "主键区间抽样没有取到数据，已全表精确统计");
+        }
+        // 没有统计信息时按抽样段的主键密度推算总行数
+        long total = estimatedRows != null ? estimatedRows
+                : Math.round((double) sampled * range / ((double) width * blocks.size()));
+        return new Counts(Math.max(total, sampled), sampled, blocks, estimatedRows != null
+                ? "总行数取自数据库统计信息，为近似值" : "总行数按抽样段的主键密度推算，为近似值");
+    }
+
+    /**
+     * 指示表达式的计数结果
+     */
+    private static class Counts {
+        private final long total;
+        private final long sampled;
+        private final List<long[]> blocks; // 每段 {行数, 表达式1之和, 表达式2之和, ...}，精确统计时只有一段
+        private final String note;
+        private final String totalNote; // 抽样时总行数的来源
+
+        Counts(long total, long sampled, List<long[]> blocks, String totalNote) {
+            this.total = total;
+            this.sampled = sampled;
+            this.blocks = blocks;
+            this.note = null;
+            this.totalNote = totalNote;
+        }
+
+        private Counts(long[] row, String note) {
+            this.total = row[0];
+            this.sampled = row[0];
+            this.blocks = List.of(row);
+            this.note = note;
+            this.totalNote = null;
+        }
+
+        static Counts exact(long[] row, String note) {
+            return new Counts(row, note);
+        }
+
+        boolean isExact() {
+            return note != null;
+        }
+
+        long sum(int indicator) {
+            return blocks.stream().mapToLong(b -> b[indicator + 1]).sum();
+        }
+
+        long estimate(int indicator) {
+            return isExact() ? sum(indicator) : Math.round((double) sum(indicator) / sampled * total);
+        }
+
+        /**
+         * 按第indicator个表达式生成估计结果
+         */
+        ImpactEstimate toEstimate(int indicator) {
+            ImpactEstimate estimate = new ImpactEstimate();
+            estimate.setTotalRows(total);
+            estimate.setSampledRows(sampled);
+            estimate.setConfidenceLevel(CONFIDENCE);
+            long hits = sum(indicator);
+            if (isExact()) {
+                estimate.setMethod(ImpactEstimate.METHOD_EXACT);
+                setExact(estimate, hits);
+                estimate.setNote(note);
+                return estimate;
+            }
+
+            // 比率估计 p = Σy / Σm，方差按段间残差 (y_i - p·m_i) 计算
+            double ratio = (double) hits / sampled;
+            double meanRows = (double) sampled / blocks.size();
+            double squares = 0;
+            for (long[] block : blocks) {
+                double residual = block[indicator + 1] - ratio * block[0];
+                squares += residual * residual;
+            }
+            double standardError = Math.sqrt(squares / (blocks.size() - 1) / blocks.size()) / meanRows;
+            double lower = ratio - Z * standardError;
+            double upper = ratio + Z * standardError;
+            if (hits == 0) {
+                upper = 3.0 / sampled;
+            } else if (hits == sampled) {
+                lower = 1 - 3.0 / sampled;
+            }
+            estimate.setMethod(ImpactEstimate.METHOD_SAMPLE);
+            estimate.setAffectedRows(Math.round(ratio * total));
+            estimate.setAffectedRowsLower(Math.max(0, (long) Math.floor(lower * total)));
+            estimate.setAffectedRowsUpper(Math.min(total, (long) Math.ceil(upper * total)));
+            estimate.setTotalRowsApproximate(true);
+            estimate.setNote("按主键区间抽样 " + blocks.size() + " 段共 " + sampled + " 行估计；" + totalNote);
+            return estimate;
+        }
+    }
+}
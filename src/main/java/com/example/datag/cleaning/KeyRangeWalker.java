@@ -0,0 +1,74 @@
+package com.example.datag.cleaning;
+
+/**
+ * 按主键区间分段遍历整数主键
+ * 每段是闭区间[lower, upper]，按段内实际行数调整下一段的宽度，使每段大约有目标行数：
+ * 自增主键连续时每段宽度约等于目标行数；主键稀疏时段宽自动放大，不会产生大量空段
+ *
+ * 只依赖主键上的范围条件，各数据库通用，按主键索引定位，不需要OFFSET
+ */
+public class KeyRangeWalker {
+
+    private final long maxKey;
+    private final int targetRows;
+    private long width;
+    private long lower;
+    private long upper;
+    private long nextLower;
+    private boolean done;
+
+    /**
+     * @param minKey 最小主键
+     * @param maxKey 最大主键
+     * @param targetRows 每段的目标行数
+     */
+    public KeyRangeWalker(long minKey, long maxKey, int targetRows) {
+        this.maxKey = maxKey;
+        this.targetRows = Math.max(1, targetRows);
+        this.width = this.targetRows;
+        this.nextLower = minKey;
+        this.done = minKey > maxKey;
+    }
+
+    /**
+     * 移动到下一段
+     * @return 没有剩余区间时返回false
+     */
+    public boolean next() {
+        if (done) {
+            return false;
+        }
+        lower = nextLower;
+        // 防止lower + width溢出
+        upper = maxKey - lower < width ? maxKey : lower + width - 1;
+        if (upper == maxKey) {
+            done = true;
+        } else {
+            nextLower = upper + 1;
+        }
+        return true;
+    }
+
+    /**
+     * 报告当前段的实际行数，用于调整下一段的宽度
+     * 每次最多放大8倍、最少缩小到八分之一，避免一段偶然的空洞让段宽失控
+     */
+    public void record(long rows) {
+        long scaled;
+        if (rows <= 0) {
+            scaled = width * 8;
+        } else {
+            double factor = Math.max(0.125, Math.min(8.0, (double) targetRows / rows));
+            scaled = (long) (width * factor);
+        }
+        width = Math.max(1, Math.min(scaled, Long.MAX_VALUE / 16));
+    }
+
+    public long getLower() {
+        return lower;
+    }
+
+    public long getUpper() {
+        return upper;
+    }
+}
@@ -0,0 +1,479 @@
+package com.example.datag.cleaning;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 多列缺失值填充
+ * 一次聚合扫描算出所有列的空值数和统计值，再用一条
+ * UPDATE ... SET a = COALESCE(a, ?), b = COALESCE(b, ?) 按主键区间分段更新，
+ * 每段一个短事务，所有列在同一遍中填充，每行最多改写一次
+ *
+ * 与逐列先COUNT、再AVG、再整表UPDATE相比，N列的表从3N条语句、N次整表改写减少为一次扫描加一遍分段更新
+ *
+ * 中位数和众数无法用聚合函数通用地算出，在聚合扫描之后再流式读一遍所有待填充列：
+ * 非空值不超过exactLimit的列精确计算，更多时分别用分位数草图和高频值草图估计，内存与数据量无关。
+ * 前向和后向填充按主键正序或倒序流式读取，记住每列最近的非空值，需要填充的行按主键分批写回
+ *
+ * 没有整数类型单列主键的表无法分段，整表一次更新；没有单列主键的表无法确定行的先后，不支持前向和后向填充
+ *
+ * 设置了并行执行器时，常量填充的分段更新按主键直方图分区，各分区在不同连接上同时执行
+ */
+public class MissingValueFiller {
+
+    /**
+     * 分位数草图的精度参数
+     */
+    private static final int QUANTILE_SKETCH_K = 400;
+
+    /**
+     * 高频值草图跟踪的值个数
+     */
+    private static final int HEAVY_HITTERS_CAPACITY = 1000;
+
+    private final int batchSize;
+    private final long pauseMillis;
+    private final long exactLimit;
+    private ParallelRangeExecutor parallel;
+
+    /**
+     * @param exactLimit 非空值不超过该数量时精确计算中位数和众数
+     */
+    public MissingValueFiller(int batchSize, long pauseMillis, long exactLimit) {
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+        this.exactLimit = exactLimit;
+    }
+
+    /**
+     * 设置并行执行器，常量填充的分段更新按主键区间并行执行
+     */
+    public MissingValueFiller parallel(ParallelRangeExecutor parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * 填充缺失值
+     * @param table 待填充的表
+     * @param columns 待填充的列，主键列会被跳过
+     * @param strategy 填充策略
+     */
+    public FillResult fill(CleaningTable table, List<String> columns, FillStrategy strategy) {
+        long start = System.currentTimeMillis();
+        FillResult result = new FillResult();
+        result.setStrategy(strategy.getName());
+
+        List<String> candidates = new ArrayList<>();
+        for (String name : columns) {
+            String column = table.column(name);
+            if (table.getPrimaryKey().contains(column)) {
+                continue;
+            }
+            if (strategy.requiresNumeric() && !table.isNumeric(column)) {
+                result.getSkipped().put(column, "字段类型不支持" + strategy.getName() + "填充");
+                continue;
+            }
+            candidates.add(column);
+        }
+
+        if (strategy == FillStrategy.FORWARD_FILL || strategy == FillStrategy.BACKWARD_FILL) {
+            if (!table.hasSingleColumnKey()) {
+                candidates.forEach(c -> result.getSkipped().put(c, "表没有单列主键，无法确定行的先后顺序"));
+            } else if (!candidates.isEmpty()) {
+                carryFill(table, candidates, strategy == FillStrategy.BACKWARD_FILL, result);
+            }
+        } else if (!candidates.isEmpty()) {
+            TableScan scan = scan(table, candidates, strategy == FillStrategy.MEAN);
+            List<String> missingColumns = candidates.stream()
+                    .filter(c -> scan.nulls.get(c) > 0)
+                    .collect(Collectors.toList());
+            if (strategy == FillStrategy.MEDIAN || strategy == FillStrategy.MODE) {
+                summarize(table, missingColumns, strategy, scan);
+            }
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (String column : missingColumns) {
+                Object value = fillValue(table, column, strategy, scan);
+                if (value == null) {
+                    result.getSkipped().put(column, "没有非空值可用于计算填充值");
+                } else {
+                    values.put(column, value);
+                }
+            }
+            result.setFillValues(values);
+            if (!values.isEmpty()) {
+                applyConstants(table, values, scan, result);
+            }
+        }
+
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private Object fillValue(CleaningTable table, String column, FillStrategy strategy, TableScan scan) {
+        switch (strategy) {
+            case MEAN:
+                BigDecimal average = scan.averages.get(column);
+                if (average == null) {
+                    return null;
+                }
+                // 整数列四舍五入
+                return table.isIntegral(column) ? average.setScale(0, RoundingMode.HALF_UP) : average;
+            case MEDIAN:
+                Double median = (Double) scan.summaries.get(column);
+                if (median == null) {
+                    return null;
+                }
+                return table.isIntegral(column) ? BigDecimal.valueOf(median).setScale(0, RoundingMode.HALF_UP)
+                        : BigDecimal.valueOf(median);
+            case MODE:
+                Object mode = scan.summaries.get(column);
+                return mode instanceof ByteBuffer ? ((ByteBuffer) mode).array() : mode;
+            case ZERO:
+                return 0;
+            default:
+                throw new UnsupportedOperationException("不支持的填充策略: " + strategy.getName());
+        }
+    }
+
+    /**
+     * 一次扫描读出总行数、主键范围，以及每列的空值数和平均值
+     */
+    private TableScan scan(CleaningTable table, List<String> columns, boolean withAverage) {
+        boolean ranged = table.hasIntegralKey();
+        List<String> aggregates = new ArrayList<>();
+        aggregates.add("COUNT(*)");
+        if (ranged) {
+            String key = table.quote(table.getKeyColumn());
+            aggregates.add("MIN(" + key + ")");
+            aggregates.add("MAX(" + key + ")");
+        }
+        for (String column : columns) {
+            aggregates.add("COUNT(*) - COUNT(" + table.quote(column) + ")");
+            if (withAverage) {
+                aggregates.add("AVG(" + table.quote(column) + ")");
+            }
+        }
+        String sql = "SELECT " + String.join(", ", aggregates) + " FROM " + table.quotedName();
+
+        return table.getJdbcTemplate().query(sql, (ResultSetExtractor<TableScan>) rs -> {
+            rs.next();
+            TableScan scan = new TableScan();
+            int index = 1;
+            scan.rows = rs.getLong(index++);
+            if (ranged) {
+                scan.minKey = rs.getLong(index++);
+                scan.maxKey = rs.getLong(index++);
+            }
+            for (String column : columns) {
+                scan.nulls.put(column, rs.getLong(index++));
+                if (withAverage) {
+                    scan.averages.put(column, rs.getBigDecimal(index++));
+                }
+            }
+            return scan;
+        });
+    }
+
+    /**
+     * 流式读一遍所有待填充列，计算中位数或众数
+     * 结果放入scan.summaries，没有非空值的列没有结果
+     */
+    private void summarize(CleaningTable table, List<String> columns, FillStrategy strategy, TableScan scan) {
+        if (columns.isEmpty()) {
+            return;
+        }
+        boolean median = strategy == FillStrategy.MEDIAN;
+        ColumnSummary[] summaries = new ColumnSummary[columns.size()];
+        for (int i = 0; i < summaries.length; i++) {
+            boolean exact = scan.rows - scan.nulls.get(columns.get(i)) <= exactLimit;
+            summaries[i] = median ? new MedianSummary(exact) : new ModeSummary(exact);
+        }
+        String sql = "SELECT " + columns.stream().map(table::quote).collect(Collectors.joining(", "))
+                + " FROM " + table.quotedName();
+        table.streamingTemplate(batchSize).query(sql, rs -> {
+            for (int i = 0; i < summaries.length; i++) {
+                Object value = rs.getObject(i + 1);
+                if (value != null) {
+                    summaries[i].add(value);
+                }
+            }
+        });
+        for (int i = 0; i < summaries.length; i++) {
+            Object result = summaries[i].result();
+            if (result != null) {
+                scan.summaries.put(columns.get(i), result);
+            }
+        }
+    }
+
+    /**
+     * 前向或后向填充
+     * 按主键顺序流式读取，记住每列最近的非空值；某行有列为空且已有非空值可用时，
+     * 生成一条按主键的COALESCE更新，攒够一批在一个事务中批量执行
+     *
+     * @param backward 为true时按主键倒序读取，用后面最近的非空值填充
+     */
+    private void carryFill(CleaningTable table, List<String> columns, boolean backward, FillResult result) {
+        String key = table.quote(table.getKeyColumn());
+        String sql = "SELECT " + key + ", " + columns.stream().map(table::quote).collect(Collectors.joining(", "))
+                + " FROM " + table.quotedName() + " ORDER BY " + key + (backward ? " DESC" : "");
+        String updateSql = "UPDATE " + table.quotedName() + " SET "
+                + columns.stream().map(c -> table.quote(c) + " = COALESCE(" + table.quote(c) + ", ?)")
+                        .collect(Collectors.joining(", "))
+                + " WHERE " + key + " = ?";
+
+        Object[] carry = new Object[columns.size()];
+        long[] filled = new long[columns.size()];
+        List<Object[]> batch = new ArrayList<>();
+        Throttle throttle = new Throttle(pauseMillis);
+        table.streamingTemplate(batchSize).query(sql, rs -> {
+            Object[] params = new Object[columns.size() + 1];
+            boolean fill = false;
+            for (int i = 0; i < carry.length; i++) {
+                Object value = rs.getObject(i + 2);
+                if (value != null) {
+                    carry[i] = value;
+                } else if (carry[i] != null) {
+                    params[i] = carry[i];
+                    filled[i]++;
+                    fill = true;
+                }
+            }
+            if (fill) {
+                params[carry.length] = rs.getObject(1);
+                batch.add(params);
+                if (batch.size() >= batchSize) {
+                    writeBatch(table, updateSql, batch, result);
+                    throttle.pause();
+                }
+            }
+        });
+        writeBatch(table, updateSql, batch, result);
+
+        for (int i = 0; i < columns.size(); i++) {
+            if (filled[i] > 0) {
+                result.getFilledCells().put(columns.get(i), filled[i]);
+            } else {
+                result.getSkipped().put(columns.get(i), "没有可用于填充的相邻非空值");
+            }
+        }
+    }
+
+    private void writeBatch(CleaningTable table, String updateSql, List<Object[]> batch, FillResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        table.getTarget().getTransactionTemplate()
+                .execute(status -> table.getJdbcTemplate().batchUpdate(updateSql, batch));
+        int rows = batch.size();
+        batch.clear();
+        result.setChunks(result.getChunks() + 1);
+        CleaningContext.batchCommitted(rows);
+    }
+
+    /**
+     * 按主键区间分段，用COALESCE一次填充所有列
+     * 每段在同一个事务中先统计各列空值数再更新，统计结果就是该段实际填充的单元格数
+     */
+    private void applyConstants(CleaningTable table, Map<String, Object> values, TableScan scan, FillResult result) {
+        List<String> columns = new ArrayList<>(values.keySet());
+        boolean ranged = table.hasIntegralKey();
+        String range = ranged ? table.quote(table.getKeyColumn()) + " BETWEEN ? AND ?" : null;
+
+        String countSql = "SELECT COUNT(*), "
+                + columns.stream().map(c -> "COUNT(*) - COUNT(" + table.quote(c) + ")").collect(Collectors.joining(", "))
+                + " FROM " + table.quotedName() + (ranged ? " WHERE " + range : "");
+        String anyMissing = columns.stream().map(c -> table.quote(c) + " IS NULL").collect(Collectors.joining(" OR "));
+        String updateSql = "UPDATE " + table.quotedName() + " SET "
+                + columns.stream().map(c -> table.quote(c) + " = COALESCE(" + table.quote(c) + ", ?)")
+                        .collect(Collectors.joining(", "))
+                + " WHERE " + (ranged ? range + " AND " : "") + "(" + anyMissing + ")";
+
+        columns.forEach(c -> result.getFilledCells().put(c, 0L));
+        if (!ranged) {
+            applyChunk(table, columns, values, countSql, updateSql, new Object[0], result);
+            return;
+        }
+        if (parallel != null) {
+            parallel.execute(table, scan.minKey, scan.maxKey, (lower, upper) ->
+                    applyRange(table, columns, values, countSql, updateSql, lower, upper, result));
+        } else {
+            applyRange(table, columns, values, countSql, updateSql, scan.minKey, scan.maxKey, result);
+        }
+    }
+
+    /**
+     * 在主键区间[minKey, maxKey]内分段更新
+     */
+    private void applyRange(CleaningTable table, List<String> columns, Map<String, Object> values,
+                            String countSql, String updateSql, long minKey, long maxKey, FillResult result) {
+        Throttle throttle = new Throttle(pauseMillis);
+        KeyRangeWalker walker = new KeyRangeWalker(minKey, maxKey, batchSize);
+        while (walker.next()) {
+            Object[] bounds = {walker.getLower(), walker.getUpper()};
+            long[] counts = applyChunk(table, columns, values, countSql, updateSql, bounds, result);
+            walker.record(counts[0]);
+            if (counts[1] > 0) {
+                throttle.pause();
+            }
+        }
+    }
+
+    /**
+     * 处理一段
+     * @return [段内行数, 段内填充的单元格数]
+     */
+    private long[] applyChunk(CleaningTable table, List<String> columns, Map<String, Object> values,
+                              String countSql, String updateSql, Object[] bounds, FillResult result) {
+        JdbcTemplate jdbcTemplate = table.getJdbcTemplate();
+        long[] counts = table.getTarget().getTransactionTemplate().execute(status -> {
+            long[] missing = jdbcTemplate.query(countSql, (ResultSetExtractor<long[]>) rs -> {
+                rs.next();
+                long[] c = new long[columns.size() + 1];
+                for (int i = 0; i < c.length; i++) {
+                    c[i] = rs.getLong(i + 1);
+                }
+                return c;
+            }, bounds);
+            long cells = 0;
+            for (int i = 1; i < missing.length; i++) {
+                cells += missing[i];
+            }
+            if (cells > 0) {
+                List<Object> params = new ArrayList<>(values.values());
+                for (Object bound : bounds) {
+                    params.add(bound);
+                }
+                jdbcTemplate.update(updateSql, params.toArray());
+            }
+            return missing;
+        });
+        long cells = 0;
+        // 并行执行时多个线程同时累计
+        synchronized (result) {
+            for (int i = 0; i < columns.size(); i++) {
+                result.getFilledCells().merge(columns.get(i), counts[i + 1], Long::sum);
+                cells += counts[i + 1];
+            }
+            result.setChunks(result.getChunks() + 1);
+        }
+        CleaningContext.batchCommitted(cells);
+        return new long[]{counts[0], cells};
+    }
+
+    /**
+     * 聚合扫描的结果
+     */
+    private static class TableScan {
+        private long rows;
+        private long minKey;
+        private long maxKey;
+        private final Map<String, Long> nulls = new HashMap<>();
+        private final Map<String, BigDecimal> averages = new HashMap<>();
+        private final Map<String, Object> summaries = new HashMap<>();
+    }
+
+    /**
+     * 单列的流式汇总
+     */
+    private interface ColumnSummary {
+        void add(Object value);
+
+        Object result();
+    }
+
+    /**
+     * 中位数：值较少时保存全部值精确计算，否则用分位数草图
+     */
+    private static class MedianSummary implements ColumnSummary {
+        private final QuantileSketch sketch;
+        private double[] values;
+        private int size;
+
+        MedianSummary(boolean exact) {
+            this.sketch = exact ? null : new QuantileSketch(QUANTILE_SKETCH_K);
+            this.values = exact ? new double[1024] : null;
+        }
+
+        @Override
+        public void add(Object value) {
+            double number = ((Number) value).doubleValue();
+            if (sketch != null) {
+                sketch.update(number);
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = number;
+        }
+
+        @Override
+        public Object result() {
+            if (sketch != null) {
+                return sketch.count() == 0 ? null : sketch.quantile(0.5);
+            }
+            if (size == 0) {
+                return null;
+            }
+            Arrays.sort(values, 0, size);
+            return size % 2 == 1 ? values[size / 2] : (values[size / 2 - 1] + values[size / 2]) / 2;
+        }
+    }
+
+    /**
+     * 众数：值较少时精确计数，否则用高频值草图
+     * 小数去掉末尾的0，二进制值按内容比较
+     */
+    private static class ModeSummary implements ColumnSummary {
+        private final HeavyHitters sketch;
+        private final Map<Object, long[]> counts;
+
+        ModeSummary(boolean exact) {
+            this.sketch = exact ? null : new HeavyHitters(HEAVY_HITTERS_CAPACITY);
+            this.counts = exact ? new LinkedHashMap<>() : null;
+        }
+
+        @Override
+        public void add(Object value) {
+            if (value instanceof BigDecimal) {
+                value = ((BigDecimal) value).stripTrailingZeros();
+            } else if (value instanceof byte[]) {
+                value = ByteBuffer.wrap((byte[]) value);
+            }
+            if (sketch != null) {
+                sketch.update(value);
+            } else {
+                counts.computeIfAbsent(value, v -> new long[1])[0]++;
+            }
+        }
+
+        @Override
+        public Object result() {
+            if (sketch != null) {
+                return sketch.mostFrequent();
+            }
+            Object best = null;
+            long bestCount = 0;
+            for (Map.Entry<Object, long[]> entry : counts.entrySet()) {
+                if (entry.getValue()[0] > bestCount) {
+                    best = entry.getKey();
+                    bestCount = entry.getValue()[0];
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,641 @@
+package com.example.datag.cleaning;
+
+import com.example.datag.importer.JsonColumnType;
+import com.example.datag.importer.SqlDialect;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 近似去重（MinHash + LSH）
+ * 比较字段的值转小写、合并空白后按字符3-gram切分，两行3-gram集合的Jaccard相似度不低于阈值时视为近似重复
+ *
+ * 1. 签名：按主键区间流式扫描（设置了并行执行器时各分区并行），每行计算64个MinHash值，
+ *    分成b段、每段r个值，每段的值合成一个桶号，(桶号, 主键)写入外部排序器
+ * 2. 候选对：按桶号归并，同一个桶中的行两两成为候选对；桶过大时只与桶中前几行和前一行配对，
+ *    候选对数与行数近似成正比，不会因为大量相同的值退化成平方级
+ * 3. 打分：候选对经外部排序去重后分批读取原值，计算精确的Jaccard相似度，
+ *    不低于阈值的对用并查集合并成簇，每个簇以主键最小的行为代表
+ * 4. 输出：复核方式写入复核表（簇代表主键, 行主键, 相似度），原表不变；
+ *    合并方式保留每个簇主键最小的行（与精确去重一致），其余行按主键顺序分批删除。
+ *    并查集是单链接聚类，A~B、B~C相似时A和C在同一个簇中，但A和C本身可能远低于阈值，
+ *    因此删除前每批重新读取原值，只删除与簇代表的相似度仍不低于阈值的行；
+ *    与代表不够相似、检测后被修改或代表已被删除的行保留
+ *
+ * r按阈值选取：b段r个值时，相似度为s的两行成为候选对的概率是1 - (1 - s^r)^b，
+ * 取使曲线拐点(1/b)^(1/r)低于阈值0.1的最大r，阈值附近的对几乎都能成为候选对，又不会产生过多的候选对
+ *
+ * 签名和候选对都经外部排序落盘，内存只与排序缓冲有关；并查集只包含属于某个簇的行。
+ * 需要表有整数类型的单列主键
+ */
+public class NearDuplicateDetector {
+
+    /**
+     * 每行的MinHash个数
+     */
+    private static final int SIGNATURE_SIZE = 64;
+
+    /**
+     * 桶中与所有行两两配对的行数，之后的行只与这些行和前一行配对
+     */
+    private static final int BUCKET_FULL_PAIRS = 16;
+
+    /**
+     * 按主键读取原值时IN列表的最大长度，Oracle不允许超过1000个
+     */
+    private static final int MAX_IN_LIST = 1000;
+
+    /**
+     * 多个字段的值之间的分隔符，不与正常文本组成相同的3-gram
+     */
+    private static final char FIELD_SEPARATOR = '\u0001';
+
+    private static final long[] HASH_MULTIPLIERS = new long[SIGNATURE_SIZE];
+    private static final long[] HASH_OFFSETS = new long[SIGNATURE_SIZE];
+
+    static {
+        // 固定种子，同一行每次得到相同的签名
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            HASH_MULTIPLIERS[i] = mix(seed) | 1;
+            seed += 0x9E3779B97F4A7C15L;
+            HASH_OFFSETS[i] = mix(seed);
+        }
+    }
+
+    private final int batchSize;
+    private final long pauseMillis;
+    private final long memoryBytes;
+    private final Path spillDir;
+    private ParallelRangeExecutor parallel;
+
+    /**
+     * @param memoryBytes 内存预算（字节），签名和候选对的外部排序各用一半
+     * @param spillDir 溢出文件目录
+     */
+    public NearDuplicateDetector(int batchSize, long pauseMillis, long memoryBytes, Path spillDir) {
+        this.batchSize = Math.max(1, batchSize);
+        this.pauseMillis = pauseMillis;
+        this.memoryBytes = memoryBytes;
+        this.spillDir = spillDir;
+    }
+
+    /**
+     * 设置并行执行器，签名扫描按主键区间并行执行
+     */
+    public NearDuplicateDetector parallel(ParallelRangeExecutor parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * 复核表名，如 customers__near_dups，后缀大小写跟随原表名
+     */
+    public static String reviewTableName(String tableName) {
+        return tableName + (tableName.equals(tableName.toUpperCase()) ? "__NEAR_DUPS" : "__near_dups");
+    }
+
+    /**
+     * 按规则检测近似重复行并处理
+     * 复核方式下写入的复核表以table的表名命名，调用方应传入原表而不是工作表
+     */
+    public NearDuplicateResult apply(CleaningTable table, NearDuplicateRule rule) {
+        if (!table.hasIntegralKey()) {
+            throw new RuntimeException("表 " + table.getTableName() + " 没有整数类型的单列主键，无法做近似去重");
+        }
+        List<String> columns = rule.targetColumns(table);
+        if (columns.isEmpty()) {
+            throw new RuntimeException("表 " + table.getTableName() + " 中没有可做近似去重的字符串字段");
+        }
+        long start = System.currentTimeMillis();
+        int rowsPerBand = rowsPerBand(rule.getThreshold());
+        int bands = SIGNATURE_SIZE / rowsPerBand;
+        NearDuplicateResult result = new NearDuplicateResult();
+        result.setRule(rule.toString());
+        result.setBands(bands);
+        result.setRowsPerBand(rowsPerBand);
+
+        Path workDir;
+        try {
+            Files.createDirectories(spillDir);
+            workDir = Files.createTempDirectory(spillDir, "neardup-");
+        } catch (IOException e) {
+            throw new RuntimeException("创建近似去重溢出目录失败: " + e.getMessage(), e);
+        }
+        try (ExternalPairSorter buckets = new ExternalPairSorter(workDir, memoryBytes / 2);
+             ExternalPairSorter candidates = new ExternalPairSorter(workDir, memoryBytes / 2)) {
+            signatures(table, columns, bands, rowsPerBand, buckets, result);
+            pairCandidates(buckets, candidates);
+            Clusters clusters = score(table, columns, rule.getThreshold(), candidates, result);
+            result.setClusteredRows(clusters.parent.size());
+            if (rule.getAction() == NearDuplicateRule.Action.MERGE) {
+                merge(table, columns, rule.getThreshold(), clusters, workDir, result);
+            } else {
+                review(table, rule, clusters, workDir, result);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("近似去重溢出文件读写失败: " + e.getMessage(), e);
+        } finally {
+            deleteRecursively(workDir);
+        }
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 每段的MinHash个数
+     */
+    static int rowsPerBand(double threshold) {
+        double target = Math.max(0.05, threshold - 0.1);
+        int best = 1;
+        for (int r = 1; r <= SIGNATURE_SIZE; r++) {
+            int b = SIGNATURE_SIZE / r;
+            if (Math.pow(1.0 / b, 1.0 / r) <= target) {
+                best = r;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 第一遍：流式计算签名，(桶号, 主键)写入排序器
+     * 分区重试会重复写入同一行的桶号，重复的(桶号, 主键)在配对时跳过，不影响结果
+     */
+    private void signatures(CleaningTable table, List<String> columns, int bands, int rowsPerBand,
+                            ExternalPairSorter buckets, NearDuplicateResult result) {
+        String key = table.quote(table.getKeyColumn());
+        String sql = "SELECT " + key + ", " + columns.stream().map(table::quote).collect(Collectors.joining(", "))
+                + " FROM " + table.quotedName() + " WHERE " + key + " BETWEEN ? AND ?";
+        long[] keyRange = table.keyRange();
+        if (keyRange == null) {
+            return;
+        }
+        ParallelRangeExecutor.RangeTask task = (lower, upper) -> {
+            long[] signature = new long[SIGNATURE_SIZE];
+            long[] bandKeys = new long[bands];
+            Shingles shingles = new Shingles();
+            long[] rows = new long[2];
+            RowCallbackHandler handler = rs -> {
+                String text = normalizedText(rs, columns.size());
+                if (++rows[0] % batchSize == 0 && CleaningContext.isCancelled()) {
+                    throw new CleaningCancelledException("近似去重已取消，数据未改动");
+                }
+                if (text == null) {
+                    return;
+                }
+                shingles.compute(text);
+                minHash(shingles, signature);
+                for (int band = 0; band < bands; band++) {
+                    long h = mix(band + 1);
+                    for (int i = band * rowsPerBand; i < (band + 1) * rowsPerBand; i++) {
+                        h = mix(h ^ signature[i]);
+                    }
+                    bandKeys[band] = h;
+                }
+                long rowKey = rs.getLong(1);
+                try {
+                    synchronized (buckets) {
+                        for (long bandKey : bandKeys) {
+                            buckets.add(bandKey, rowKey);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException("写入近似去重溢出文件失败: " + e.getMessage(), e);
+                }
+                rows[1]++;
+            };
+            table.streamingTemplate(batchSize).query(sql, handler, lower, upper);
+            synchronized (result) {
+                result.setScannedRows(result.getScannedRows() + rows[1]);
+            }
+        };
+        if (parallel != null) {
+            parallel.execute(table, keyRange[0], keyRange[1], task);
+        } else {
+            task.run(keyRange[0], keyRange[1]);
+        }
+    }
+
+    /**
+     * 第二遍：按桶号归并，同一个桶中的行配成候选对(较小主键, 较大主键)
+     */
+    private static void pairCandidates(ExternalPairSorter buckets, ExternalPairSorter candidates) throws IOException {
+        long[] members = new long[BUCKET_FULL_PAIRS];
+        long[] state = new long[4]; // 当前桶号, 桶中行数, 前一行主键, 是否已有桶
+        buckets.forEachSorted((bandKey, rowKey) -> {
+            if (state[3] == 0 || bandKey != state[0]) {
+                state[0] = bandKey;
+                state[1] = 0;
+                state[3] = 1;
+            } else if (rowKey == state[2]) {
+                return;
+            }
+            int count = (int) Math.min(state[1], BUCKET_FULL_PAIRS);
+            try {
+                for (int i = 0; i < count; i++) {
+                    candidates.add(members[i], rowKey);
+                }
+                if (state[1] > BUCKET_FULL_PAIRS) {
+                    candidates.add(state[2], rowKey);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("写入近似去重溢出文件失败: " + e.getMessage(), e);
+            }
+            if (state[1] < BUCKET_FULL_PAIRS) {
+                members[(int) state[1]] = rowKey;
+            }
+            state[1]++;
+            state[2] = rowKey;
+        });
+    }
+
+    /**
+     * 第三遍：候选对去重后分批读取原值计算相似度，不低于阈值的对合并到同一个簇
+     */
+    private Clusters score(CleaningTable table, List<String> columns, double threshold,
+                           ExternalPairSorter candidates, NearDuplicateResult result) throws IOException {
+        Clusters clusters = new Clusters();
+        int pairBatch = Math.max(batchSize, MAX_IN_LIST);
+        long[] firsts = new long[pairBatch];
+        long[] seconds = new long[pairBatch];
+        int[] size = new int[1];
+        long[] last = {Long.MIN_VALUE, Long.MIN_VALUE};
+        candidates.forEachSorted((first, second) -> {
+            if (first == last[0] && second == last[1]) {
+                return;
+            }
+            last[0] = first;
+            last[1] = second;
+            firsts[size[0]] = first;
+            seconds[size[0]] = second;
+            if (++size[0] == pairBatch) {
+                scoreBatch(table, columns, threshold, firsts, seconds, size[0], clusters, result);
+                size[0] = 0;
+            }
+        });
+        if (size[0] > 0) {
+            scoreBatch(table, columns, threshold, firsts, seconds, size[0], clusters, result);
+        }
+        return clusters;
+    }
+
+    private void scoreBatch(CleaningTable table, List<String> columns, double threshold, long[] firsts,
+                            long[] seconds, int size, Clusters clusters, NearDuplicateResult result) {
+        if (CleaningContext.isCancelled()) {
+            throw new CleaningCancelledException("近似去重已取消，数据未改动");
+        }
+        Set<Long> keys = new LinkedHashSet<>();
+        for (int i = 0; i < size; i++) {
+            keys.add(firsts[i]);
+            keys.add(seconds[i]);
+        }
+        Map<Long, long[]> shingleSets = loadShingles(table, columns, new ArrayList<>(keys));
+        for (int i = 0; i < size; i++) {
+            long[] a = shingleSets.get(firsts[i]);
+            long[] b = shingleSets.get(seconds[i]);
+            // 计算签名之后被删除或改空的行不参与
+            if (a == null || b == null) {
+                continue;
+            }
+            double similarity = jaccard(a, b);
+            if (similarity >= threshold) {
+                clusters.union(firsts[i], seconds[i], similarity);
+                result.setMatchedPairs(result.getMatchedPairs() + 1);
+            }
+        }
+        result.setCandidatePairs(result.getCandidatePairs() + size);
+    }
+
+    /**
+     * 按主键读取原值并切分成排好序的3-gram集合
+     */
+    private static Map<Long, long[]> loadShingles(CleaningTable table, List<String> columns, List<Long> keys) {
+        String select = "SELECT " + table.quote(table.getKeyColumn()) + ", "
+                + columns.stream().map(table::quote).collect(Collectors.joining(", "))
+                + " FROM " + table.quotedName() + " WHERE " + table.quote(table.getKeyColumn()) + " IN (";
+        Map<Long, long[]> shingleSets = new HashMap<>();
+        Shingles shingles = new Shingles();
+        for (int from = 0; from < keys.size(); from += MAX_IN_LIST) {
+            List<Long> chunk = keys.subList(from, Math.min(keys.size(), from + MAX_IN_LIST));
+            String sql = select + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            table.getJdbcTemplate().query(sql, (RowCallbackHandler) rs -> {
+                String text = normalizedText(rs, columns.size());
+                if (text != null) {
+                    shingles.compute(text);
+                    shingleSets.put(rs.getLong(1), shingles.distinctSorted());
+                }
+            }, chunk.toArray());
+        }
+        return shingleSets;
+    }
+
+    /**
+     * 合并方式：删除每个簇中除主键最小的行以外的行，按主键顺序分批删除
+     * 每批删除前重新读取这批行和各自簇代表的原值，与代表的相似度不低于阈值的行才删除，
+     * 读取和删除之间只隔一次查询，打分之后被修改的行按修改后的值判断
+     */
+    private void merge(CleaningTable table, List<String> columns, double threshold, Clusters clusters,
+                       Path workDir, NearDuplicateResult result) throws IOException {
+        BatchDeleter deleter = new BatchDeleter(table, batchSize, pauseMillis);
+        int verifyBatch = Math.min(batchSize, MAX_IN_LIST);
+        Set<Long> roots = new HashSet<>();
+        try (ExternalPairSorter surplus = new ExternalPairSorter(workDir, memoryBytes / 2)) {
+            for (Long key : clusters.parent.keySet()) {
+                long root = clusters.find(key);
+                roots.add(root);
+                if (root != key) {
+                    surplus.add(key, root);
+                }
+            }
+            long[] keys = new long[verifyBatch];
+            long[] keyRoots = new long[verifyBatch];
+            int[] size = new int[1];
+            surplus.forEachSorted((key, root) -> {
+                keys[size[0]] = key;
+                keyRoots[size[0]] = root;
+                if (++size[0] == verifyBatch) {
+                    deleteVerified(table, columns, threshold, keys, keyRoots, size[0], deleter, result);
+                    size[0] = 0;
+                }
+            });
+            deleteVerified(table, columns, threshold, keys, keyRoots, size[0], deleter, result);
+        }
+        result.setClusters(roots.size());
+        result.setDeleted(deleter.getDeleted());
+        result.setBatches(deleter.getBatches());
+    }
+
+    /**
+     * 重新计算一批行与簇代表的相似度，仍不低于阈值的行立即删除
+     */
+    private static void deleteVerified(CleaningTable table, List<String> columns, double threshold, long[] keys,
+                                       long[] roots, int size, BatchDeleter deleter, NearDuplicateResult result) {
+        if (size == 0) {
+            return;
+        }
+        if (CleaningContext.isCancelled()) {
+            throw new CleaningCancelledException("近似去重已取消，已删除 " + deleter.getDeleted() + " 行");
+        }
+        Set<Long> wanted = new LinkedHashSet<>();
+        for (int i = 0; i < size; i++) {
+            wanted.add(keys[i]);
+            wanted.add(roots[i]);
+        }
+        Map<Long, long[]> shingleSets = loadShingles(table, columns, new ArrayList<>(wanted));
+        for (int i = 0; i < size; i++) {
+            long[] row = shingleSets.get(keys[i]);
+            long[] root = shingleSets.get(roots[i]);
+            if (row != null && root != null && jaccard(row, root) >= threshold) {
+                deleter.add(keys[i]);
+            } else {
+                result.setKeptRows(result.getKeptRows() + 1);
+            }
+        }
+        deleter.flush();
+    }
+
+    /**
+     * 复核方式：按(簇代表主键, 行主键)顺序写入复核表，每批一个事务；上次的复核结果被替换
+     */
+    private void review(CleaningTable table, NearDuplicateRule rule, Clusters clusters, Path workDir,
+                        NearDuplicateResult result) throws IOException {
+        String reviewTable = prepareReviewTable(table);
+        result.setReviewTable(reviewTable);
+        String sql = "INSERT INTO " + table.quote(reviewTable) + " ("
+                + Stream.of("cluster_key", "row_key", "similarity", "rule_text", "detected_at")
+                .map(table::quote).collect(Collectors.joining(", ")) + ") VALUES (?, ?, ?, ?, ?)";
+        Timestamp detectedAt = new Timestamp(System.currentTimeMillis());
+        String ruleText = rule.toString();
+        Throttle throttle = new Throttle(pauseMillis);
+        List<Object[]> batch = new ArrayList<>();
+        long[] last = {Long.MIN_VALUE};
+        try (ExternalPairSorter members = new ExternalPairSorter(workDir, memoryBytes / 2)) {
+            for (Long key : clusters.parent.keySet()) {
+                members.add(clusters.find(key), key);
+            }
+            members.forEachSorted((root, key) -> {
+                if (root != last[0]) {
+                    last[0] = root;
+                    result.setClusters(result.getClusters() + 1);
+                }
+                batch.add(new Object[]{root, key, clusters.similarity.get(key), ruleText, detectedAt});
+                if (batch.size() >= batchSize) {
+                    insertBatch(table, sql, batch, throttle, result);
+                }
+            });
+        }
+        insertBatch(table, sql, batch, throttle, result);
+    }
+
+    private static void insertBatch(CleaningTable table, String sql, List<Object[]> batch, Throttle throttle,
+                                    NearDuplicateResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        table.getTarget().getTransactionTemplate().executeWithoutResult(status ->
+                table.getJdbcTemplate().batchUpdate(sql, batch));
+        result.setBatches(result.getBatches() + 1);
+        CleaningContext.batchCommitted(batch.size());
+        throttle.pause(batch.size());
+        batch.clear();
+    }
+
+    /**
+     * 准备复核表：不存在时新建；已存在时清空，重新检测的结果替换旧结果
+     */
+    private static String prepareReviewTable(CleaningTable table) {
+        String reviewTable = reviewTableName(table.getTableName());
+        JdbcTemplate jdbcTemplate = table.getJdbcTemplate();
+        if (SqlDialect.tableExists(jdbcTemplate, reviewTable)) {
+            jdbcTemplate.update("DELETE FROM " + table.quote(reviewTable));
+            return reviewTable;
+        }
+        Map<String, JsonColumnType> definition = new LinkedHashMap<>();
+        definition.put("cluster_key", JsonColumnType.BIGINT);
+        definition.put("row_key", JsonColumnType.BIGINT);
+        definition.put("similarity", JsonColumnType.DOUBLE);
+        definition.put("rule_text", JsonColumnType.STRING);
+        definition.put("detected_at", JsonColumnType.DATETIME);
+        jdbcTemplate.execute(table.getDialect().createTableSql(reviewTable, definition));
+        return reviewTable;
+    }
+
+    /**
+     * 读取当前行比较字段的值，转小写、合并空白后用分隔符连接；所有字段都为空时返回null
+     */
+    private static String normalizedText(ResultSet rs, int columnCount) throws SQLException {
+        StringBuilder text = new StringBuilder();
+        boolean empty = true;
+        for (int i = 0; i < columnCount; i++) {
+            String value = rs.getString(i + 2);
+            String normalized = value == null ? ""
+                    : value.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+            if (!normalized.isEmpty()) {
+                empty = false;
+            }
+            if (i > 0) {
+                text.append(FIELD_SEPARATOR);
+            }
+            text.append(normalized);
+        }
+        return empty ? null : text.toString();
+    }
+
+    /**
+     * 计算MinHash签名：第i个值是所有3-gram经第i个哈希函数映射后的最小值
+     */
+    private static void minHash(Shingles shingles, long[] signature) {
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (int s = 0; s < shingles.size; s++) {
+            long shingle = shingles.values[s];
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                long h = HASH_MULTIPLIERS[i] * shingle + HASH_OFFSETS[i];
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+    }
+
+    /**
+     * 两个排好序的集合的Jaccard相似度
+     */
+    private static double jaccard(long[] a, long[] b) {
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) common / (a.length + b.length - common);
+    }
+
+    /**
+     * SplitMix64的混合函数，是64位整数上的一一映射
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // 临时文件删除失败不影响近似去重结果
+        }
+    }
+
+    /**
+     * 文本的字符3-gram，每个3-gram的三个字符拼成一个long再混合，不同的3-gram不会得到相同的值；
+     * 不足3个字符的文本整体作为一个3-gram。数组重复使用，扫描时不为每行分配
+     */
+    private static class Shingles {
+        private long[] values = new long[256];
+        private int size;
+
+        void compute(String text) {
+            size = 0;
+            if (text.length() < 3) {
+                long packed = (long) text.length() << 48;
+                for (int i = 0; i < text.length(); i++) {
+                    packed |= (long) text.charAt(i) << (16 * i);
+                }
+                append(mix(packed));
+                return;
+            }
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                long packed = 3L << 48 | (long) text.charAt(i) << 32 | (long) text.charAt(i + 1) << 16
+                        | text.charAt(i + 2);
+                append(mix(packed));
+            }
+        }
+
+        private void append(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] distinctSorted() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, distinct);
+        }
+    }
+
+    /**
+     * 并查集，根总是簇中主键最小的行；同时记录每行与簇中其他行的最高相似度
+     */
+    static class Clusters {
+        private final Map<Long, Long> parent = new HashMap<>();
+        private final Map<Long, Double> similarity = new HashMap<>();
+
+        long find(long key) {
+            long root = key;
+            Long next;
+            while ((next = parent.get(root)) != null && next != root) {
+                root = next;
+            }
+            // 路径压缩
+            long current = key;
+            while (current != root) {
+                long following = parent.get(current);
+                parent.put(current, root);
+                current = following;
+            }
+            return root;
+        }
+
+        void union(long a, long b, double score) {
+            parent.putIfAbsent(a, a);
+            parent.putIfAbsent(b, b);
+            similarity.merge(a, score, Math::max);
+            similarity.merge(b, score, Math::max);
+            long rootA = find(a);
+            long rootB = find(b);
+            if (rootA < rootB) {
+                parent.put(rootB, rootA);
+            } else if (rootB < rootA) {
+                parent.put(rootA, rootB);
+            }
+        }
+    }
+}
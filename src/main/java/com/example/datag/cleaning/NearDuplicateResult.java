@@ -0,0 +1,23 @@
+package com.example.datag.cleaning;
+
+import lombok.Data;
+
+/**
+ * 近似去重的统计结果
+ */
+@Data
+public class NearDuplicateResult {
+    private String rule; // 规则文本
+    private int bands; // LSH分段数
+    private int rowsPerBand; // 每段的MinHash个数
+    private long scannedRows; // 参与比较的行数（所有比较字段都为空的行不参与）
+    private long candidatePairs; // LSH桶中产生的候选对数（去重后）
+    private long matchedPairs; // 相似度不低于阈值的候选对数
+    private long clusters; // 近似重复的簇数
+    private long clusteredRows; // 属于某个簇的行数
+    private String reviewTable; // 复核方式下的复核表名
+    private long deleted; // 合并方式下删除的行数
+    private long keptRows; // 合并方式下在簇中但与簇代表的相似度低于阈值（或检测后被修改、删除）而保留的行数
+    private long batches; // 写入复核表或删除分成的事务数
+    private long elapsedMillis; // 耗时（毫秒）
+}
@@ -0,0 +1,143 @@
+package com.example.datag.cleaning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 近似去重规则
+ * 文本格式为"相似度阈值[;处理方式][@字段1|字段2]"，省略字段时比较所有非主键字符串列：
+ * - 相似度阈值为0~1之间的小数，默认0.8，两行字符3-gram集合的Jaccard相似度不低于阈值时视为近似重复
+ * - review         只把近似重复的簇写入复核表（原表名加__near_dups），原表不变（默认）
+ * - merge          每个簇保留主键最小的一行，删除其余行
+ *
+ * 例如 0.85;review@name|address、0.9;merge
+ */
+public class NearDuplicateRule {
+
+    public enum Action {
+        REVIEW("review"),
+        MERGE("merge");
+
+        private final String name;
+
+        Action(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static final double DEFAULT_THRESHOLD = 0.8;
+
+    private static final Pattern COLUMN_LIST = Pattern.compile("@([A-Za-z0-9_]+(\\|[A-Za-z0-9_]+)*)$");
+
+    private final double threshold;
+    private final Action action;
+    private final List<String> columns;
+
+    private NearDuplicateRule(double threshold, Action action, List<String> columns) {
+        this.threshold = threshold;
+        this.action = action;
+        this.columns = columns;
+    }
+
+    /**
+     * 按参数创建规则
+     * @param threshold 相似度阈值，为空时用0.8
+     * @param action 处理方式，为空时只复核
+     * @param columns 比较的字段，为空时比较所有非主键字符串列
+     */
+    public static NearDuplicateRule of(Double threshold, String action, List<String> columns) {
+        double t = threshold == null ? DEFAULT_THRESHOLD : threshold;
+        if (!(t > 0 && t <= 1)) {
+            throw new RuntimeException("相似度阈值必须在0到1之间: " + threshold);
+        }
+        Action a = action == null || action.trim().isEmpty() ? Action.REVIEW : Arrays.stream(Action.values())
+                .filter(x -> x.name.equalsIgnoreCase(action.trim()))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("未知的近似去重处理方式: " + action));
+        return new NearDuplicateRule(t, a, columns == null ? List.of() : List.copyOf(columns));
+    }
+
+    /**
+     * 解析规则文本，参数不合法时抛出异常
+     */
+    public static NearDuplicateRule parse(String text) {
+        String rule = text == null ? "" : text.trim();
+        List<String> columns = List.of();
+        Matcher matcher = COLUMN_LIST.matcher(rule);
+        if (matcher.find()) {
+            columns = Arrays.asList(matcher.group(1).split("\\|"));
+            rule = rule.substring(0, matcher.start()).trim();
+        }
+        Double threshold = null;
+        String action = null;
+        for (String part : rule.split("[,;]")) {
+            String item = part.trim();
+            if (item.isEmpty()) {
+                continue;
+            }
+            if (Character.isDigit(item.charAt(0)) || item.charAt(0) == '.') {
+                if (threshold != null) {
+                    throw new RuntimeException("近似去重规则格式为 阈值[;处理方式][@字段1|字段2]: " + text);
+                }
+                try {
+                    threshold = Double.parseDouble(item);
+                } catch (NumberFormatException e) {
+                    throw new RuntimeException("相似度阈值无效: " + item);
+                }
+            } else if (action == null) {
+                action = item;
+            } else {
+                throw new RuntimeException("近似去重规则格式为 阈值[;处理方式][@字段1|字段2]: " + text);
+            }
+        }
+        return of(threshold, action, columns);
+    }
+
+    /**
+     * 比较的列：指定了字段时为这些字段（必须是字符串列），否则为所有非主键字符串列
+     */
+    public List<String> targetColumns(CleaningTable table) {
+        if (columns.isEmpty()) {
+            return table.getColumns().stream()
+                    .filter(c -> !table.getPrimaryKey().contains(c) && table.isText(c))
+                    .collect(Collectors.toList());
+        }
+        List<String> targets = new ArrayList<>();
+        for (String name : columns) {
+            String column = table.column(name);
+            if (!table.isText(column)) {
+                throw new RuntimeException("字段 " + column + " 不是字符串类型，无法做近似去重");
+            }
+            if (!targets.contains(column)) {
+                targets.add(column);
+            }
+        }
+        return targets;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public String toString() {
+        String text = threshold + ";" + action.name;
+        return columns.isEmpty() ? text : text + "@" + String.join("|", columns);
+    }
+}
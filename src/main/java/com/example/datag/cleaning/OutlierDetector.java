@@ -0,0 +1,420 @@
+package com.example.datag.cleaning;
+
+import com.example.datag.importer.JsonColumnType;
+import com.example.datag.importer.SqlDialect;
+import com.example.datag.importer.TableSchema;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 异常值检测与处理
+ * 第一遍按主键区间流式扫描待处理的列，每列维护非空值个数、平均值、平方差累计和分位数草图，
+ * 设置了并行执行器时各分区在不同连接上同时扫描，分区完成后把统计值和草图合并到全表；
+ * 列的值不会整体读入内存，内存只与列数和草图大小有关
+ *
+ * 第二遍按统计值算出的上下界处理，全部在数据库中执行，只涉及含异常值的行：
+ * - 截断：UPDATE ... SET a = CASE WHEN a < 下界 THEN 下界 WHEN a > 上界 THEN 上界 ELSE a END
+ * - 删除：DELETE含异常值的行
+ * - 标记：INSERT INTO 标记表 ... SELECT 主键, 字段名, 原值 ...，原表不变
+ * 有整数主键时按主键区间分段，每段一个事务，设置了并行执行器时各分区并行；没有整数主键时整表一次执行。
+ * 每段都可以重复执行（截断和删除后不再有界外的值，标记前先删除本段已有的标记），分区重试不会重复处理
+ *
+ * 整数列的上下界向内取整，DECIMAL列按列的小数位向内取整，截断后的值仍在界内且能存入原列
+ */
+public class OutlierDetector {
+
+    /**
+     * 分位数草图的精度参数
+     */
+    private static final int QUANTILE_SKETCH_K = 400;
+
+    private final int batchSize;
+    private final long pauseMillis;
+    private ParallelRangeExecutor parallel;
+
+    public OutlierDetector(int batchSize, long pauseMillis) {
+        this.batchSize = Math.max(1, batchSize);
+        this.pauseMillis = pauseMillis;
+    }
+
+    /**
+     * 设置并行执行器，统计扫描和分段处理按主键区间并行执行
+     */
+    public OutlierDetector parallel(ParallelRangeExecutor parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * 标记表名，如 orders__outliers，后缀大小写跟随原表名
+     */
+    public static String flagTableName(String tableName) {
+        return tableName + (tableName.equals(tableName.toUpperCase()) ? "__OUTLIERS" : "__outliers");
+    }
+
+    /**
+     * 按规则检测并处理异常值
+     * 标记方式下写入的标记表以table的表名命名，调用方应传入原表而不是工作表
+     */
+    public OutlierResult apply(CleaningTable table, OutlierRule rule) {
+        long start = System.currentTimeMillis();
+        OutlierResult result = new OutlierResult();
+        result.setRule(rule.toString());
+
+        List<String> columns = rule.targetColumns(table);
+        if (columns.isEmpty()) {
+            throw new RuntimeException("表 " + table.getTableName() + " 中没有可判定异常值的数值字段");
+        }
+        if (rule.getAction() == OutlierRule.Action.FLAG && !table.hasSingleColumnKey()) {
+            throw new RuntimeException("表 " + table.getTableName() + " 没有单列主键，标记表无法定位异常值所在的行");
+        }
+
+        long[] keyRange = table.hasIntegralKey() ? table.keyRange() : null;
+        ColumnStats[] stats = scan(table, columns, keyRange);
+        result.setScanMillis(System.currentTimeMillis() - start);
+
+        Map<String, BigDecimal[]> bounds = new LinkedHashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            String column = columns.get(i);
+            BigDecimal[] bound = bounds(table, column, rule, stats[i], result);
+            if (bound != null) {
+                bounds.put(column, bound);
+            }
+        }
+        if (!bounds.isEmpty()) {
+            process(table, rule, bounds, keyRange, result);
+        }
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 一遍扫描统计所有列，有整数主键时按主键区间分区（可并行），各分区的统计在分区成功后才合并，重试不会重复计入
+     */
+    private ColumnStats[] scan(CleaningTable table, List<String> columns, long[] keyRange) {
+        ColumnStats[] total = newStats(columns.size());
+        String select = "SELECT " + columns.stream().map(table::quote).collect(Collectors.joining(", "))
+                + " FROM " + table.quotedName();
+        if (keyRange == null) {
+            scanRows(table, select, total);
+            return total;
+        }
+        String sql = select + " WHERE " + table.quote(table.getKeyColumn()) + " BETWEEN ? AND ?";
+        ParallelRangeExecutor.RangeTask task = (lower, upper) -> {
+            ColumnStats[] partial = newStats(columns.size());
+            scanRows(table, sql, partial, lower, upper);
+            synchronized (total) {
+                for (int i = 0; i < total.length; i++) {
+                    total[i].merge(partial[i]);
+                }
+            }
+        };
+        if (parallel != null) {
+            parallel.execute(table, keyRange[0], keyRange[1], task);
+        } else {
+            task.run(keyRange[0], keyRange[1]);
+        }
+        return total;
+    }
+
+    private void scanRows(CleaningTable table, String sql, ColumnStats[] stats, Object... args) {
+        long[] rows = new long[1];
+        RowCallbackHandler handler = rs -> {
+            for (int i = 0; i < stats.length; i++) {
+                double value = rs.getDouble(i + 1);
+                if (!rs.wasNull()) {
+                    stats[i].update(value);
+                }
+            }
+            if (++rows[0] % batchSize == 0 && CleaningContext.isCancelled()) {
+                throw new CleaningCancelledException("异常值统计已取消，数据未改动");
+            }
+        };
+        table.streamingTemplate(batchSize).query(sql, handler, args);
+    }
+
+    private static ColumnStats[] newStats(int size) {
+        ColumnStats[] stats = new ColumnStats[size];
+        for (int i = 0; i < size; i++) {
+            stats[i] = new ColumnStats();
+        }
+        return stats;
+    }
+
+    /**
+     * 按统计值和规则计算列的上下界
+     * @return {下界, 上界}，无法判定时记入跳过的列并返回null
+     */
+    private BigDecimal[] bounds(CleaningTable table, String column, OutlierRule rule, ColumnStats stats,
+                                OutlierResult result) {
+        if (stats.count == 0) {
+            result.getSkipped().put(column, "没有非空值");
+            return null;
+        }
+        OutlierResult.ColumnBounds described = new OutlierResult.ColumnBounds();
+        described.setCount(stats.count);
+        described.setMean(stats.mean);
+        described.setStddev(Math.sqrt(stats.m2 / stats.count));
+        described.setQ1(stats.sketch.quantile(0.25));
+        described.setMedian(stats.sketch.quantile(0.5));
+        described.setQ3(stats.sketch.quantile(0.75));
+
+        double lower;
+        double upper;
+        if (rule.getMethod() == OutlierRule.Method.IQR) {
+            double iqr = described.getQ3() - described.getQ1();
+            if (!(iqr > 0)) {
+                result.getSkipped().put(column, "四分位距为0，无法判定异常值");
+                return null;
+            }
+            lower = described.getQ1() - rule.getThreshold() * iqr;
+            upper = described.getQ3() + rule.getThreshold() * iqr;
+        } else {
+            if (!(described.getStddev() > 0)) {
+                result.getSkipped().put(column, "标准差为0，无法判定异常值");
+                return null;
+            }
+            lower = described.getMean() - rule.getThreshold() * described.getStddev();
+            upper = described.getMean() + rule.getThreshold() * described.getStddev();
+        }
+        if (!Double.isFinite(lower) || !Double.isFinite(upper)) {
+            result.getSkipped().put(column, "上下界超出数值范围");
+            return null;
+        }
+
+        // 整数和DECIMAL列向内取整：界外的值取整后仍在界外，截断写入的值不需要数据库再舍入
+        BigDecimal lowerBound = BigDecimal.valueOf(lower);
+        BigDecimal upperBound = BigDecimal.valueOf(upper);
+        int scale = exactScale(table, column);
+        if (scale >= 0) {
+            lowerBound = lowerBound.setScale(scale, RoundingMode.CEILING);
+            upperBound = upperBound.setScale(scale, RoundingMode.FLOOR);
+        }
+        if (lowerBound.compareTo(upperBound) > 0) {
+            result.getSkipped().put(column, "上下界取整后没有可保留的值");
+            return null;
+        }
+        described.setLower(lowerBound);
+        described.setUpper(upperBound);
+        result.getBounds().put(column, described);
+        return new BigDecimal[]{lowerBound, upperBound};
+    }
+
+    /**
+     * 精确数值列的小数位，整数列为0；浮点列和小数位未知的列返回-1
+     */
+    private static int exactScale(CleaningTable table, String column) {
+        if (table.isIntegral(column)) {
+            return 0;
+        }
+        TableSchema.Column definition = table.getSchema().findColumn(column);
+        if (definition != null && (definition.getSqlType() == Types.DECIMAL
+                || definition.getSqlType() == Types.NUMERIC) && definition.getDecimalDigits() > 0) {
+            return definition.getDecimalDigits();
+        }
+        return -1;
+    }
+
+    /**
+     * 按处理方式生成语句并执行，语句中的主键区间条件由scope占位
+     */
+    private void process(CleaningTable table, OutlierRule rule, Map<String, BigDecimal[]> bounds, long[] keyRange,
+                         OutlierResult result) {
+        String scope = keyRange != null ? table.quote(table.getKeyColumn()) + " BETWEEN ? AND ?" : null;
+        Map<String, String> outside = new LinkedHashMap<>();
+        bounds.forEach((column, bound) -> outside.put(column, "(" + table.quote(column) + " < "
+                + bound[0].toPlainString() + " OR " + table.quote(column) + " > " + bound[1].toPlainString() + ")"));
+        String anyOutside = String.join(" OR ", outside.values());
+
+        List<String> statements = new ArrayList<>();
+        // 每条语句影响的行数计入哪一列：截断和删除为空字符串（计入行数），标记为INSERT对应的列，null不计数
+        List<String> statementColumns = new ArrayList<>();
+        switch (rule.getAction()) {
+            case CAP:
+                statements.add("UPDATE " + table.quotedName() + " SET " + bounds.entrySet().stream()
+                        .map(e -> {
+                            String column = table.quote(e.getKey());
+                            String lower = e.getValue()[0].toPlainString();
+                            String upper = e.getValue()[1].toPlainString();
+                            return column + " = CASE WHEN " + column + " < " + lower + " THEN " + lower
+                                    + " WHEN " + column + " > " + upper + " THEN " + upper + " ELSE " + column + " END";
+                        })
+                        .collect(Collectors.joining(", "))
+                        + where(scope, anyOutside));
+                statementColumns.add("");
+                break;
+            case REMOVE:
+                statements.add("DELETE FROM " + table.quotedName() + where(scope, anyOutside));
+                statementColumns.add("");
+                break;
+            default:
+                String flagTable = prepareFlagTable(table, new ArrayList<>(bounds.keySet()));
+                result.setFlagTable(flagTable);
+                String quotedFlagTable = table.quote(flagTable);
+                String insertColumns = List.of("row_key", "column_name", "original_value", "lower_bound",
+                        "upper_bound", "rule_text", "flagged_at").stream().map(table::quote)
+                        .collect(Collectors.joining(", "));
+                bounds.forEach((column, bound) -> {
+                    if (scope != null) {
+                        // 分区重试时先删除本段已写入的标记
+                        statements.add("DELETE FROM " + quotedFlagTable + " WHERE " + table.quote("column_name")
+                                + " = " + literal(column) + " AND " + table.quote("row_key") + " BETWEEN ? AND ?");
+                        statementColumns.add(null);
+                    }
+                    statements.add("INSERT INTO " + quotedFlagTable + " (" + insertColumns + ") SELECT "
+                            + table.quote(table.getKeyColumn()) + ", " + literal(column) + ", " + table.quote(column)
+                            + ", " + bound[0].toPlainString() + ", " + bound[1].toPlainString() + ", "
+                            + literal(rule.toString()) + ", CURRENT_TIMESTAMP FROM " + table.quotedName()
+                            + where(scope, outside.get(column)));
+                    statementColumns.add(column);
+                });
+                break;
+        }
+
+        if (keyRange == null) {
+            table.getTarget().getTransactionTemplate().executeWithoutResult(status ->
+                    recordChunk(result, execute(table, statements, statementColumns, new Object[0])));
+            return;
+        }
+        String countSql = "SELECT COUNT(*) FROM " + table.quotedName() + " WHERE " + scope;
+        ParallelRangeExecutor.RangeTask task = (lower, upper) ->
+                processRange(table, countSql, statements, statementColumns, lower, upper, result);
+        if (parallel != null) {
+            parallel.execute(table, keyRange[0], keyRange[1], task);
+        } else {
+            task.run(keyRange[0], keyRange[1]);
+        }
+    }
+
+    private static String where(String scope, String condition) {
+        return scope != null ? " WHERE " + scope + " AND (" + condition + ")" : " WHERE " + condition;
+    }
+
+    /**
+     * 字符串常量，单引号转义
+     */
+    private static String literal(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    /**
+     * 在主键区间[minKey, maxKey]内分段执行，每段一个事务
+     */
+    private void processRange(CleaningTable table, String countSql, List<String> statements,
+                              List<String> statementColumns, long minKey, long maxKey, OutlierResult result) {
+        Throttle throttle = new Throttle(pauseMillis);
+        KeyRangeWalker walker = new KeyRangeWalker(minKey, maxKey, batchSize);
+        while (walker.next()) {
+            Object[] range = {walker.getLower(), walker.getUpper()};
+            long[] rows = new long[1];
+            Map<String, Long> affected = table.getTarget().getTransactionTemplate().execute(status -> {
+                Long count = table.getJdbcTemplate().queryForObject(countSql, Long.class, range);
+                rows[0] = count != null ? count : 0;
+                return rows[0] > 0 ? execute(table, statements, statementColumns, range) : Map.of();
+            });
+            walker.record(rows[0]);
+            long changed = recordChunk(result, affected);
+            if (changed > 0) {
+                throttle.pause(changed);
+            }
+        }
+    }
+
+    /**
+     * 执行一段的所有语句
+     * @return 各列写入的标记数，截断和删除方式下键为空字符串、值为行数
+     */
+    private static Map<String, Long> execute(CleaningTable table, List<String> statements,
+                                             List<String> statementColumns, Object[] range) {
+        JdbcTemplate jdbcTemplate = table.getJdbcTemplate();
+        Map<String, Long> affected = new LinkedHashMap<>();
+        for (int i = 0; i < statements.size(); i++) {
+            int rows = jdbcTemplate.update(statements.get(i), range);
+            String column = statementColumns.get(i);
+            if (column != null) {
+                affected.merge(column, (long) rows, Long::sum);
+            }
+        }
+        return affected;
+    }
+
+    private long recordChunk(OutlierResult result, Map<String, Long> affected) {
+        long rows = affected.values().stream().mapToLong(Long::longValue).sum();
+        // 并行执行时多个线程同时累计
+        synchronized (result) {
+            affected.forEach((column, count) -> {
+                if (!column.isEmpty()) {
+                    result.getFlaggedCells().merge(column, count, Long::sum);
+                }
+            });
+            result.setAffectedRows(result.getAffectedRows() + rows);
+            result.setChunks(result.getChunks() + 1);
+        }
+        CleaningContext.batchCommitted(rows);
+        return rows;
+    }
+
+    /**
+     * 准备标记表：不存在时新建；已存在时删除这些列上次的标记，重新标记的结果替换旧结果
+     */
+    private static String prepareFlagTable(CleaningTable table, List<String> columns) {
+        String flagTable = flagTableName(table.getTableName());
+        JdbcTemplate jdbcTemplate = table.getJdbcTemplate();
+        if (SqlDialect.tableExists(jdbcTemplate, flagTable)) {
+            jdbcTemplate.update("DELETE FROM " + table.quote(flagTable) + " WHERE " + table.quote("column_name")
+                    + " IN (" + columns.stream().map(c -> "?").collect(Collectors.joining(", ")) + ")",
+                    columns.toArray());
+            return flagTable;
+        }
+        Map<String, JsonColumnType> definition = new LinkedHashMap<>();
+        definition.put("row_key", table.hasIntegralKey() ? JsonColumnType.BIGINT : JsonColumnType.STRING);
+        definition.put("column_name", JsonColumnType.STRING);
+        definition.put("original_value", JsonColumnType.DOUBLE);
+        definition.put("lower_bound", JsonColumnType.DOUBLE);
+        definition.put("upper_bound", JsonColumnType.DOUBLE);
+        definition.put("rule_text", JsonColumnType.STRING);
+        definition.put("flagged_at", JsonColumnType.DATETIME);
+        jdbcTemplate.execute(table.getDialect().createTableSql(flagTable, definition));
+        return flagTable;
+    }
+
+    /**
+     * 单列的流式统计
+     * 平均值和平方差累计按Welford方法逐个更新，两个分区的统计按Chan的公式合并，避免大数相减的精度损失
+     */
+    private static class ColumnStats {
+        private long count;
+        private double mean;
+        private double m2;
+        private final QuantileSketch sketch = new QuantileSketch(QUANTILE_SKETCH_K);
+
+        void update(double value) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+            sketch.update(value);
+        }
+
+        void merge(ColumnStats other) {
+            if (other.count == 0) {
+                return;
+            }
+            long merged = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / merged;
+            m2 += other.m2 + delta * delta * ((double) count * other.count / merged);
+            count = merged;
+            sketch.merge(other.sketch);
+        }
+    }
+}
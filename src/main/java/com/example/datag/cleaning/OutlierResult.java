@@ -0,0 +1,38 @@
+package com.example.datag.cleaning;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 异常值处理的统计结果
+ */
+@Data
+public class OutlierResult {
+    private String rule; // 规则文本
+    private Map<String, ColumnBounds> bounds = new LinkedHashMap<>(); // 各列的统计值和上下界
+    private Map<String, Long> flaggedCells = new LinkedHashMap<>(); // 标记方式下各列写入标记表的异常值个数
+    private Map<String, String> skipped = new LinkedHashMap<>(); // 跳过的列及原因
+    private String flagTable; // 标记方式下的标记表名
+    private long affectedRows; // 截断或删除的行数，标记方式下为标记的异常值个数
+    private long chunks; // 处理分成的事务数
+    private long scanMillis; // 统计扫描耗时（毫秒）
+    private long elapsedMillis; // 总耗时（毫秒）
+
+    /**
+     * 单列的统计值和判定出的上下界
+     */
+    @Data
+    public static class ColumnBounds {
+        private long count; // 非空值个数
+        private double mean; // 平均值
+        private double stddev; // 总体标准差
+        private double q1; // 第一四分位数（草图估计）
+        private double median; // 中位数（草图估计）
+        private double q3; // 第三四分位数（草图估计）
+        private BigDecimal lower; // 下界，小于下界的值为异常值
+        private BigDecimal upper; // 上界，大于上界的值为异常值
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.datag.cleaning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 异常值规则
+ * 文本格式为"判定方法[=阈值][;处理方式][@字段1|字段2]"，省略字段时作用于所有非主键数值列：
+ * - iqr[=1.5]      四分位距法，小于 Q1 - k*IQR 或大于 Q3 + k*IQR 的值为异常值
+ * - zscore[=3]     标准分数法，与平均值的距离超过z个标准差的值为异常值
+ *
+ * 处理方式：
+ * - cap            把异常值截断到上下界（默认）
+ * - flag           原表不变，异常值所在行的主键、字段和原值写入标记表（原表名加__outliers）
+ * - remove         删除含异常值的行
+ *
+ * 例如 iqr=3;flag@amount|price、zscore=2.5;cap
+ */
+public class OutlierRule {
+
+    public enum Method {
+        IQR("iqr", 1.5),
+        ZSCORE("zscore", 3);
+
+        private final String name;
+        private final double defaultThreshold;
+
+        Method(String name, double defaultThreshold) {
+            this.name = name;
+            this.defaultThreshold = defaultThreshold;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public enum Action {
+        CAP("cap"),
+        FLAG("flag"),
+        REMOVE("remove");
+
+        private final String name;
+
+        Action(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final Pattern COLUMN_LIST = Pattern.compile("@([A-Za-z0-9_]+(\\|[A-Za-z0-9_]+)*)$");
+
+    private final Method method;
+    private final double threshold;
+    private final Action action;
+    private final List<String> columns;
+
+    private OutlierRule(Method method, double threshold, Action action, List<String> columns) {
+        this.method = method;
+        this.threshold = threshold;
+        this.action = action;
+        this.columns = columns;
+    }
+
+    /**
+     * 按参数创建规则
+     * @param method 判定方法，为空时用iqr
+     * @param threshold 阈值，为空时用方法的默认值
+     * @param action 处理方式，为空时截断
+     * @param columns 字段，为空时作用于所有非主键数值列
+     */
+    public static OutlierRule of(String method, Double threshold, String action, List<String> columns) {
+        Method m = method == null || method.trim().isEmpty() ? Method.IQR
+                : find(Method.values(), method, Method::getName, "未知的异常值判定方法: " + method);
+        Action a = action == null || action.trim().isEmpty() ? Action.CAP
+                : find(Action.values(), action, Action::getName, "未知的异常值处理方式: " + action);
+        double t = threshold == null ? m.defaultThreshold : threshold;
+        if (!(t > 0) || Double.isInfinite(t)) {
+            throw new RuntimeException("异常值阈值必须是正数: " + threshold);
+        }
+        return new OutlierRule(m, t, a, columns == null ? List.of() : List.copyOf(columns));
+    }
+
+    /**
+     * 解析规则文本，参数不合法时抛出异常
+     */
+    public static OutlierRule parse(String text) {
+        String rule = text == null ? "" : text.trim();
+        List<String> columns = List.of();
+        Matcher matcher = COLUMN_LIST.matcher(rule);
+        if (matcher.find()) {
+            columns = Arrays.asList(matcher.group(1).split("\\|"));
+            rule = rule.substring(0, matcher.start()).trim();
+        }
+        String method = null;
+        Double threshold = null;
+        String action = null;
+        for (String part : rule.split("[,;]")) {
+            String item = part.trim();
+            if (item.isEmpty()) {
+                continue;
+            }
+            int equals = item.indexOf('=');
+            String name = (equals < 0 ? item : item.substring(0, equals)).trim();
+            if (Arrays.stream(Action.values()).anyMatch(x -> x.name.equalsIgnoreCase(name)) && equals < 0) {
+                action = name;
+            } else if (method == null) {
+                method = name;
+                if (equals >= 0) {
+                    try {
+                        threshold = Double.parseDouble(item.substring(equals + 1).trim());
+                    } catch (NumberFormatException e) {
+                        throw new RuntimeException("异常值阈值无效: " + item);
+                    }
+                }
+            } else {
+                throw new RuntimeException("异常值规则格式为 方法[=阈值][;处理方式][@字段1|字段2]: " + text);
+            }
+        }
+        return of(method, threshold, action, columns);
+    }
+
+    private static <T> T find(T[] values, String name, Function<T, String> nameOf, String error) {
+        return Arrays.stream(values)
+                .filter(v -> nameOf.apply(v).equalsIgnoreCase(name.trim()))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException(error));
+    }
+
+    /**
+     * 规则作用的列：指定了字段时为这些字段（必须是数值列），否则为所有非主键数值列
+     */
+    public List<String> targetColumns(CleaningTable table) {
+        if (columns.isEmpty()) {
+            return table.getColumns().stream()
+                    .filter(c -> !table.getPrimaryKey().contains(c) && table.isNumeric(c))
+                    .collect(Collectors.toList());
+        }
+        List<String> targets = new ArrayList<>();
+        for (String name : columns) {
+            String column = table.column(name);
+            if (!table.isNumeric(column)) {
+                throw new RuntimeException("字段 " + column + " 不是数值类型，无法判定异常值");
+            }
+            if (!targets.contains(column)) {
+                targets.add(column);
+            }
+        }
+        return targets;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public String toString() {
+        String text = method.name + "=" + (threshold == Math.rint(threshold) ? String.valueOf((long) threshold)
+                : String.valueOf(threshold)) + ";" + action.name;
+        return columns.isEmpty() ? text : text + "@" + String.join("|", columns);
+    }
+}
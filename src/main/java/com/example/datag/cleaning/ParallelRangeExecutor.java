@@ -0,0 +1,251 @@
+package com.example.datag.cleaning;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按主键区间并行执行清洗
+ * 把[最小主键, 最大主键]切成若干分区，多个线程各自从连接池取连接，每次领取一个分区执行，
+ * 数据库的多个核同时处理不同的主键区间。工作线程来自共用的有界线程池（CleaningConfig.cleaningRangeExecutor），
+ * 线程池忙时工作线程排队，不会因为并发的清洗操作无限制地创建线程
+ *
+ * 分区边界按主键直方图确定：一次聚合查询统计主键在等宽桶中的行数，行数过多的桶在桶内再细分，
+ * 再把相邻的桶合并成行数相近的分区，主键有大段空洞时也不会把大部分行分到同一个分区；分区数是线程数的几倍，先做完的线程继续领取剩余分区
+ *
+ * 分区失败时只重试该分区，其他分区不受影响；重试用尽后其余分区照常完成，最后报告失败的分区。
+ * 分区任务必须可以重复执行（格式化和填充只改动值有变化的行），重试不会重复修改
+ */
+public class ParallelRangeExecutor {
+
+    /**
+     * 每个线程平均分到的分区数
+     */
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    /**
+     * 直方图每个分区对应的桶数
+     */
+    private static final int BUCKETS_PER_PARTITION = 16;
+
+    /**
+     * 直方图的最大细分层数
+     */
+    private static final int MAX_REFINEMENTS = 3;
+
+    private static final long RETRY_BACKOFF_MILLIS = 1000;
+
+    /**
+     * 一个主键区间上的任务
+     */
+    @FunctionalInterface
+    public interface RangeTask {
+        /**
+         * 处理闭区间[lower, upper]内的行
+         */
+        void run(long lower, long upper);
+    }
+
+    private final int parallelism;
+    private final int retries;
+    private final AsyncTaskExecutor executor;
+
+    /**
+     * @param parallelism 并行度，不超过表所在连接池的最大连接数
+     * @param retries 每个分区失败后的重试次数
+     * @param executor 执行分区的共用线程池
+     */
+    public ParallelRangeExecutor(int parallelism, int retries, AsyncTaskExecutor executor) {
+        this.parallelism = Math.max(1, parallelism);
+        this.retries = Math.max(0, retries);
+        this.executor = executor;
+    }
+
+    /**
+     * 表上实际可用的并行度：不超过连接池的最大连接数，没有整数主键时为1
+     */
+    public int parallelismFor(CleaningTable table) {
+        if (!table.hasIntegralKey()) {
+            return 1;
+        }
+        if (table.getJdbcTemplate().getDataSource() instanceof HikariDataSource) {
+            HikariDataSource pool = (HikariDataSource) table.getJdbcTemplate().getDataSource();
+            return Math.max(1, Math.min(parallelism, pool.getMaximumPoolSize()));
+        }
+        return parallelism;
+    }
+
+    /**
+     * 在[minKey, maxKey]上并行执行任务
+     * 调用线程上绑定的清洗上下文传给各工作线程，进度累计到同一个上下文，取消时各线程在当前批次提交后停止
+     */
+    public void execute(CleaningTable table, long minKey, long maxKey, RangeTask task) {
+        int threads = parallelismFor(table);
+        // maxKey - minKey溢出时也按单线程执行
+        if (threads <= 1 || minKey >= maxKey || maxKey - minKey < 0) {
+            task.run(minKey, maxKey);
+            return;
+        }
+
+        ConcurrentLinkedQueue<long[]> partitions = new ConcurrentLinkedQueue<>(
+                partition(table, minKey, maxKey, threads * PARTITIONS_PER_THREAD));
+        List<String> failures = new ArrayList<>();
+        AtomicBoolean stopped = new AtomicBoolean();
+        CleaningContext context = CleaningContext.current();
+        List<Future<Void>> workers = new ArrayList<>();
+        try {
+            for (int i = 0; i < Math.min(threads, partitions.size()); i++) {
+                workers.add(executor.submitCompletable(() -> {
+                    if (context != null) {
+                        context.attach();
+                    }
+                    try {
+                        long[] range;
+                        while (!stopped.get() && (range = partitions.poll()) != null) {
+                            String failure = runWithRetry(task, range);
+                            if (failure != null) {
+                                synchronized (failures) {
+                                    failures.add(failure);
+                                }
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        // 取消或中断：通知其他线程不再领取新的分区
+                        stopped.set(true);
+                        throw e;
+                    } finally {
+                        if (context != null) {
+                            context.detach();
+                        }
+                    }
+                }));
+            }
+            RuntimeException error = null;
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    if (error == null && e.getCause() instanceof RuntimeException) {
+                        error = (RuntimeException) e.getCause();
+                    } else if (error == null) {
+                        error = new RuntimeException(e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stopped.set(true);
+                    throw new RuntimeException("并行清洗被中断", e);
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        } finally {
+            // 出错或被中断时其余工作线程做完手上的分区后不再领取，排队中还没开始的直接取消
+            stopped.set(true);
+            workers.forEach(worker -> worker.cancel(false));
+        }
+        if (!failures.isEmpty()) {
+            throw new RuntimeException(failures.size() + " 个主键区间重试 " + retries + " 次后仍然失败，"
+                    + "其余区间已完成，重新执行即可只处理剩余的行: " + String.join("; ", failures));
+        }
+    }
+
+    /**
+     * 执行一个分区，失败时重试
+     * @return 重试用尽后的失败信息，成功时返回null
+     */
+    private String runWithRetry(RangeTask task, long[] range) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                task.run(range[0], range[1]);
+                return null;
+            } catch (CleaningCancelledException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                if (attempt >= retries || CleaningContext.isCancelled()) {
+                    return "[" + range[0] + ", " + range[1] + "]: " + e.getMessage();
+                }
+                System.err.println("主键区间 [" + range[0] + ", " + range[1] + "] 第 " + (attempt + 1)
+                        + " 次执行失败，稍后重试: " + e.getMessage());
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MILLIS * (attempt + 1));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("并行清洗被中断", interrupted);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按主键直方图把[minKey, maxKey]切成行数相近的分区
+     * 行数超过一个分区的桶（主键集中在很窄的区间里）在桶内再统计一次直方图，最多细分MAX_REFINEMENTS层
+     */
+    List<long[]> partition(CleaningTable table, long minKey, long maxKey, int count) {
+        List<long[]> buckets = new ArrayList<>();
+        histogram(table, minKey, maxKey, count * BUCKETS_PER_PARTITION, buckets);
+        long total = buckets.stream().mapToLong(b -> b[2]).sum();
+        long target = Math.max(1, (total + count - 1) / count);
+        for (int depth = 0; depth < MAX_REFINEMENTS; depth++) {
+            List<long[]> refined = new ArrayList<>();
+            boolean split = false;
+            for (long[] bucket : buckets) {
+                if (bucket[2] > target && bucket[1] > bucket[0]) {
+                    int parts = (int) Math.min(count, (bucket[2] + target - 1) / target);
+                    histogram(table, bucket[0], bucket[1], parts * BUCKETS_PER_PARTITION, refined);
+                    split = true;
+                } else {
+                    refined.add(bucket);
+                }
+            }
+            buckets = refined;
+            if (!split) {
+                break;
+            }
+        }
+
+        // 相邻的桶合并到行数达到目标为止，分区首尾相接，覆盖整个区间
+        List<long[]> partitions = new ArrayList<>();
+        long lower = minKey;
+        long accumulated = 0;
+        for (long[] bucket : buckets) {
+            accumulated += bucket[2];
+            if (accumulated >= target && bucket[1] < maxKey) {
+                partitions.add(new long[]{lower, bucket[1]});
+                lower = bucket[1] + 1;
+                accumulated = 0;
+            }
+        }
+        partitions.add(new long[]{lower, maxKey});
+        return partitions;
+    }
+
+    /**
+     * 统计[lower, upper]内主键在等宽桶中的行数，非空的桶按顺序加入out，每个桶为{下界, 上界, 行数}
+     * 桶号用整数除法计算，FLOOR和算术运算各数据库通用
+     */
+    private void histogram(CleaningTable table, long lower, long upper, int buckets, List<long[]> out) {
+        long span = upper - lower;
+        int size = (int) Math.min(buckets, span + 1);
+        long width = span / size + 1;
+        String key = table.quote(table.getKeyColumn());
+        String bucket = "FLOOR((" + key + " - (" + lower + ")) / " + width + ")";
+        long[] rows = new long[size];
+        table.getJdbcTemplate().query("SELECT " + bucket + ", COUNT(*) FROM " + table.quotedName()
+                + " WHERE " + key + " BETWEEN ? AND ? GROUP BY " + bucket, rs -> {
+            int index = (int) Math.min(size - 1, Math.max(0, rs.getLong(1)));
+            rows[index] += rs.getLong(2);
+        }, lower, upper);
+        for (int i = 0; i < size; i++) {
+            if (rows[i] > 0) {
+                out.add(new long[]{lower + i * width, Math.min(upper, lower + (i + 1) * width - 1), rows[i]});
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.datag.cleaning;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 清洗流程的执行结果
+ */
+@Data
+public class PipelineResult {
+    private int stages; // 实际执行的阶段数（合并的步骤算一个阶段）
+    private List<StepOutcome> steps = new ArrayList<>(); // 每个步骤的结果
+    private long elapsedMillis; // 耗时（毫秒）
+}
@@ -0,0 +1,167 @@
+package com.example.datag.cleaning;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 行指纹
+ * 把一行中去重字段的值编码为字节序列，再计算128位MurmurHash3（x64变体）
+ * 128位指纹在百亿行内发生碰撞的概率可以忽略，比较指纹即可判断行是否重复，不需要保存原值
+ *
+ * 每个值编码为类型标记、长度和内容，空值只有标记，保证("a", "bc")和("ab", "c")、空值和空字符串的编码不同。
+ * 同一列的值由JDBC驱动返回相同的Java类型，按字符串形式编码即可；小数去掉末尾的0，1.50与1.5视为相同。
+ * 字符串按字节比较，不了解数据库的排序规则；需要与数据库的相等判断一致时，
+ * 调用方应读取排序规则下的比较键而不是原值（见CleaningTable.comparisonExpression）
+ *
+ * 实例会复用内部缓冲区，不是线程安全的
+ */
+public class RowFingerprint {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private byte[] buffer = new byte[256];
+    private int length;
+
+    private long high;
+    private long low;
+
+    /**
+     * 计算一行的指纹，结果通过getHigh()和getLow()读取
+     */
+    public void compute(Object[] values) {
+        length = 0;
+        for (Object value : values) {
+            append(value);
+        }
+        hash(buffer, length);
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    private void append(Object value) {
+        if (value == null) {
+            ensure(1);
+            buffer[length++] = 0;
+            return;
+        }
+        byte tag;
+        byte[] bytes;
+        if (value instanceof byte[]) {
+            tag = 2;
+            bytes = (byte[]) value;
+        } else if (value instanceof BigDecimal) {
+            tag = 1;
+            BigDecimal decimal = (BigDecimal) value;
+            bytes = (decimal.signum() == 0 ? "0" : decimal.stripTrailingZeros().toPlainString())
+                    .getBytes(StandardCharsets.UTF_8);
+        } else {
+            tag = 1;
+            bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        ensure(5 + bytes.length);
+        buffer[length++] = tag;
+        buffer[length++] = (byte) (bytes.length >>> 24);
+        buffer[length++] = (byte) (bytes.length >>> 16);
+        buffer[length++] = (byte) (bytes.length >>> 8);
+        buffer[length++] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    /**
+     * MurmurHash3_x64_128，种子为0
+     */
+    private void hash(byte[] data, int len) {
+        long h1 = 0;
+        long h2 = 0;
+        int blocks = len / 16;
+        for (int i = 0; i < blocks; i++) {
+            long k1 = getLong(data, i * 16);
+            long k2 = getLong(data, i * 16 + 8);
+
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        // 剩余不足16字节的部分
+        int tail = blocks * 16;
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = len - tail - 1; i >= 8; i--) {
+            k2 ^= (data[tail + i] & 0xffL) << ((i - 8) * 8);
+        }
+        if (len - tail > 8) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+        }
+        for (int i = Math.min(len - tail, 8) - 1; i >= 0; i--) {
+            k1 ^= (data[tail + i] & 0xffL) << (i * 8);
+        }
+        if (len - tail > 0) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+        }
+
+        h1 ^= len;
+        h2 ^= len;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+        high = h1;
+        low = h2;
+    }
+
+    private static long getLong(byte[] data, int offset) {
+        return (data[offset] & 0xffL)
+                | (data[offset + 1] & 0xffL) << 8
+                | (data[offset + 2] & 0xffL) << 16
+                | (data[offset + 3] & 0xffL) << 24
+                | (data[offset + 4] & 0xffL) << 32
+                | (data[offset + 5] & 0xffL) << 40
+                | (data[offset + 6] & 0xffL) << 48
+                | (data[offset + 7] & 0xffL) << 56;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.datag.cleaning;
+
+import lombok.Data;
+
+/**
+ * 单个清洗步骤的执行结果
+ */
+@Data
+public class StepOutcome {
+    public static final String MODE_FUSED = "FUSED";
+    public static final String MODE_IN_PLACE = "IN_PLACE";
+
+    private String step; // 步骤文本
+    private String mode; // 执行方式：FUSED（合并为一条INSERT ... SELECT）或IN_PLACE（在原表上执行）
+    private Long rowsBefore; // 步骤前的行数，未知时为空
+    private Long rowsAfter; // 步骤后的行数，未知时为空
+    private Long filledCells; // 填充步骤填充的单元格数
+
+    /**
+     * 步骤增减的行数（删除为负数）
+     */
+    public Long getRowDelta() {
+        return rowsBefore != null && rowsAfter != null ? rowsAfter - rowsBefore : null;
+    }
+}
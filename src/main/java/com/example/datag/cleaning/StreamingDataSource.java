@@ -0,0 +1,61 @@
+package com.example.datag.cleaning;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 流式读取用的数据源
+ * PostgreSQL驱动只在关闭自动提交时才按fetchSize分批取数，自动提交模式下把整个结果集读入内存。
+ * 从这里取得的连接关闭了自动提交，归还前回滚（只读，不留下事务）并恢复原来的自动提交设置
+ *
+ * 它与目标库的连接池是不同的DataSource对象，Spring的事务同步按DataSource区分，
+ * 流式读取不会加入清洗引擎分批写入的事务，读和写始终在不同的连接上
+ */
+class StreamingDataSource extends DelegatingDataSource {
+
+    StreamingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return withoutAutoCommit(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return withoutAutoCommit(super.getConnection(username, password));
+    }
+
+    private static Connection withoutAutoCommit(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        try {
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return (Connection) Proxy.newProxyInstance(StreamingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        try {
+                            connection.rollback();
+                            connection.setAutoCommit(autoCommit);
+                        } finally {
+                            connection.close();
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
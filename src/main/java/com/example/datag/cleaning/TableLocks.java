@@ -0,0 +1,87 @@
+package com.example.datag.cleaning;
+
+import com.example.datag.importer.ImportTarget;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 数据表的清洗锁
+ * 同一张表同一时刻只允许一个清洗操作修改，两个操作同时分批删除或换表会互相覆盖结果
+ *
+ * 锁按(数据源ID, 表名)区分，可重入：清洗流程持有锁时调用的单步清洗不会被自己挡住。
+ * 持锁期间同时借用表所在的连接池，数据源配置变化时连接池不会在清洗中途关闭。
+ * 锁只在当前服务实例内有效，多实例部署时后台任务另外按任务表中未结束的任务互斥
+ */
+public class TableLocks {
+
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+    private final Map<String, String> holders = new ConcurrentHashMap<>();
+
+    /**
+     * 表的锁标识
+     */
+    public static String key(Long dataSourceId, String tableName) {
+        return (dataSourceId != null ? dataSourceId : "default") + ":" + tableName.toLowerCase();
+    }
+
+    public static String key(CleaningTable table) {
+        return key(table.getTarget().getDataSourceId(), table.getTableName());
+    }
+
+    /**
+     * 尝试加锁
+     * @param holder 持有者说明，加锁失败时告知其他调用方表正在被谁修改
+     * @param timeoutMillis 最长等待时间，0表示不等待
+     * @return 是否加锁成功
+     */
+    public boolean tryLock(String key, String holder, long timeoutMillis) {
+        ReentrantLock lock = locks.computeIfAbsent(key, k -> new ReentrantLock());
+        boolean acquired;
+        try {
+            acquired = lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待表锁时被中断", e);
+        }
+        if (acquired && lock.getHoldCount() == 1) {
+            holders.put(key, holder);
+        }
+        return acquired;
+    }
+
+    /**
+     * 释放当前线程持有的锁
+     */
+    public void unlock(String key) {
+        ReentrantLock lock = locks.get(key);
+        if (lock == null || !lock.isHeldByCurrentThread()) {
+            return;
+        }
+        if (lock.getHoldCount() == 1) {
+            holders.remove(key);
+        }
+        lock.unlock();
+    }
+
+    /**
+     * 持有表锁执行操作，表正在被其他操作修改时立即失败
+     */
+    @SuppressWarnings("try") // lease只用于在持锁期间借用连接池，不在代码块中引用
+    public <T> T withLock(CleaningTable table, String holder, Supplier<T> action) {
+        String key = key(table);
+        if (!tryLock(key, holder, 0)) {
+            throw new RuntimeException("表 " + table.getTableName() + " 正在被其他清洗操作修改（"
+                    + holders.getOrDefault(key, "未知") + "），请稍后重试");
+        }
+        // 借用连接池：清洗期间数据源配置变化时，旧连接池等清洗结束后才关闭
+        try (ImportTarget.Lease lease = table.getTarget().lease()) {
+            return action.get();
+        } finally {
+            unlock(key);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.datag.cleaning;
+
+import com.example.datag.importer.SqlDialect;
+
+import java.util.stream.Collectors;
+
+/**
+ * 换表式清洗
+ * 清洗结果先写入按原表结构新建的工作表（表名加__new后缀），校验后用改名把工作表换成原表，
+ * 清洗过程中读原表的查询看到的始终是完整的旧数据，清洗失败时只需删除工作表
+ *
+ * 派生表名的后缀大小写跟随原表名，Oracle中全大写的表名派生出的也是全大写表名
+ */
+public final class TableSwap {
+
+    private TableSwap() {
+    }
+
+    /**
+     * 工作表名
+     */
+    public static String workingName(String tableName) {
+        return tableName + suffix(tableName, "__new");
+    }
+
+    /**
+     * 换下来后即删除的旧表名
+     */
+    public static String retiredName(String tableName) {
+        return tableName + suffix(tableName, "__old");
+    }
+
+    /**
+     * 保留的历史版本表名，如 orders__v3
+     */
+    public static String versionName(String tableName, int version) {
+        return tableName + suffix(tableName, "__v") + version;
+    }
+
+    private static String suffix(String tableName, String suffix) {
+        return tableName.equals(tableName.toUpperCase()) ? suffix.toUpperCase() : suffix;
+    }
+
+    /**
+     * 新建工作表
+     * 上次执行中断留下的同名工作表先删除（原表仍在，说明它没有被换上去）
+     * @param copyRows 为true时复制原表的全部数据，在工作表上原地清洗；为false时建空表，由调用方写入
+     * @return 工作表
+     */
+    public static CleaningTable createWorkingTable(CleaningTable table, boolean copyRows) {
+        String workingName = workingName(table.getTableName());
+        dropIfExists(table, workingName);
+        table.getDialect().copyTableStructureSql(workingName, table.getTableName(), table.getPrimaryKey())
+                .forEach(table.getJdbcTemplate()::execute);
+        if (copyRows) {
+            String names = table.getColumns().stream().map(table::quote).collect(Collectors.joining(", "));
+            table.getJdbcTemplate().update("INSERT INTO " + table.quote(workingName) + " (" + names + ") SELECT "
+                    + names + " FROM " + table.quotedName());
+        }
+        return CleaningTable.resolve(table.getTarget(), workingName);
+    }
+
+    /**
+     * 统计表的行数，用于换表前校验
+     */
+    public static long countRows(CleaningTable table) {
+        Long rows = table.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM " + table.quotedName(), Long.class);
+        return rows != null ? rows : 0;
+    }
+
+    /**
+     * 校验工作表行数后换表，原表改名为retired
+     * 校验不通过时抛出异常，原表和工作表都不改动，由调用方决定是否删除工作表
+     *
+     * Oracle的两次改名各自隐式提交，事务不能让它们一起生效：第一次改名成功、第二次失败时原表名不存在，
+     * 数据在retired中。换表失败后检查这种情况，把retired改回原表名，原表和工作表恢复到换表之前
+     */
+    public static void swap(CleaningTable table, CleaningTable working, long expectedRows, String retired) {
+        long actualRows = countRows(working);
+        if (actualRows != expectedRows) {
+            throw new RuntimeException("清洗结果行数校验失败，预期 " + expectedRows + " 行，实际 " + actualRows
+                    + " 行，原表未改动");
+        }
+        if (SqlDialect.tableExists(table.getJdbcTemplate(), retired)) {
+            throw new RuntimeException("表 " + retired + " 已存在，无法换表");
+        }
+        try {
+            table.getTarget().getTransactionTemplate().executeWithoutResult(status ->
+                    table.getDialect().swapTablesSql(table.getTableName(), working.getTableName(), retired)
+                            .forEach(table.getJdbcTemplate()::execute));
+        } catch (RuntimeException e) {
+            restoreAfterFailedSwap(table, retired, e);
+            throw e;
+        }
+    }
+
+    /**
+     * 换表失败后，原表已改名而工作表没有换上时把原表改回原名
+     */
+    private static void restoreAfterFailedSwap(CleaningTable table, String retired, RuntimeException failure) {
+        try {
+            if (!SqlDialect.tableExists(table.getJdbcTemplate(), table.getTableName())
+                    && SqlDialect.tableExists(table.getJdbcTemplate(), retired)) {
+                table.getJdbcTemplate().execute(table.getDialect().renameTableSql(retired, table.getTableName()));
+            }
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+            throw new RuntimeException("换表失败，且无法把原表改回原名，原表数据在 " + retired
+                    + " 中，请手动改名: " + failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * 删除表（存在时）
+     */
+    public static void dropIfExists(CleaningTable table, String name) {
+        if (SqlDialect.tableExists(table.getJdbcTemplate(), name)) {
+            table.getJdbcTemplate().execute("DROP TABLE " + table.quote(name));
+        }
+    }
+}
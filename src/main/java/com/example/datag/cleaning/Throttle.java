@@ -0,0 +1,112 @@
+package com.example.datag.cleaning;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * 分批清洗的节流
+ * 每批提交后暂停，给线上读写和主从复制留出余量，支持三种方式，可以同时使用：
+ * 1. 固定暂停：每批提交后暂停固定的毫秒数
+ * 2. 限速：按累计处理的行数计算应耗费的时间，处理过快时暂停补足，使平均速度不超过每秒最大行数
+ * 3. 复制延迟：每批提交后查询从库延迟，超过上限时每秒检查一次，直到延迟回落
+ */
+public class Throttle {
+
+    private static final long LAG_CHECK_INTERVAL_MILLIS = 1000;
+
+    private final long pauseMillis;
+    private final long maxRowsPerSecond;
+    private final LongSupplier replicaLag;
+    private final long maxReplicaLagSeconds;
+    private final long startNanos = System.nanoTime();
+    private BooleanSupplier stopCondition = () -> false;
+    private long rows;
+
+    public Throttle(long pauseMillis) {
+        this(pauseMillis, 0, null, 0);
+    }
+
+    /**
+     * @param pauseMillis 每批提交后固定暂停的毫秒数
+     * @param maxRowsPerSecond 每秒最多处理的行数，0表示不限速
+     * @param replicaLag 查询从库延迟（秒）的方法，返回负数表示未知；为空时不检查
+     * @param maxReplicaLagSeconds 允许的最大从库延迟（秒）
+     */
+    public Throttle(long pauseMillis, long maxRowsPerSecond, LongSupplier replicaLag, long maxReplicaLagSeconds) {
+        this.pauseMillis = pauseMillis;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.replicaLag = replicaLag;
+        this.maxReplicaLagSeconds = maxReplicaLagSeconds;
+    }
+
+    /**
+     * 用SQL查询从库延迟
+     * @param jdbcTemplate 执行查询的连接
+     * @param sql 返回延迟秒数的查询，为空时返回null（不检查复制延迟）
+     * @return 延迟查询方法，查询失败或结果为NULL时返回-1
+     */
+    public static LongSupplier replicaLagQuery(JdbcTemplate jdbcTemplate, String sql) {
+        if (sql == null || sql.trim().isEmpty()) {
+            return null;
+        }
+        return () -> {
+            try {
+                Number lag = jdbcTemplate.queryForObject(sql, Number.class);
+                return lag != null ? lag.longValue() : -1;
+            } catch (Exception e) {
+                return -1;
+            }
+        };
+    }
+
+    /**
+     * 设置停止条件，等待从库追上时条件成立则立即返回，用于及时响应取消
+     */
+    public Throttle stopWhen(BooleanSupplier stopCondition) {
+        this.stopCondition = stopCondition;
+        return this;
+    }
+
+    /**
+     * 一批提交后调用
+     */
+    public void pause() {
+        pause(0);
+    }
+
+    /**
+     * 一批提交后调用
+     * @param batchRows 这一批处理的行数，用于限速
+     */
+    public void pause(long batchRows) {
+        rows += batchRows;
+        long sleepMillis = pauseMillis;
+        if (maxRowsPerSecond > 0) {
+            long expectedMillis = rows * 1000 / maxRowsPerSecond;
+            long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            sleepMillis = Math.max(sleepMillis, expectedMillis - elapsedMillis);
+        }
+        sleep(sleepMillis);
+
+        if (replicaLag != null) {
+            while (!stopCondition.getAsBoolean() && !CleaningContext.isCancelled()
+                    && replicaLag.getAsLong() > maxReplicaLagSeconds) {
+                sleep(LAG_CHECK_INTERVAL_MILLIS);
+            }
+        }
+    }
+
+    private void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("分批清洗被中断", e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.datag.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 表结构缓存配置
+ */
+@Configuration
+@EnableConfigurationProperties(CatalogProperties.class)
+public class CatalogConfig {
+}
@@ -0,0 +1,18 @@
+package com.example.datag.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 表结构缓存配置
+ * 对应application.properties中datag.catalog前缀的配置项
+ */
+@Data
+@ConfigurationProperties(prefix = "datag.catalog")
+public class CatalogProperties {
+    /**
+     * 表结构和表名列表的缓存时长（秒），过期后下次使用时重新读取；0表示不缓存。
+     * 平台自己执行的建表、换表、删表会立即使缓存失效，这个时长只影响在平台之外修改的表结构
+     */
+    private long ttlSeconds = 300;
+}
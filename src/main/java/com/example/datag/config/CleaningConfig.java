@@ -0,0 +1,56 @@
+package com.example.datag.config;
+
+import com.example.datag.cleaning.CleaningSlots;
+import com.example.datag.cleaning.TableLocks;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * 数据清洗配置
+ * 提供后台清洗任务使用的线程池、后台任务与同步接口共用的并发名额（个数即同时运行的清洗操作数上限）、
+ * 按主键区间并行清洗共用的线程池和表锁，并启用历史版本的定时清理
+ */
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(CleaningProperties.class)
+public class CleaningConfig {
+
+    @Bean(name = "cleaningTaskExecutor")
+    public ThreadPoolTaskExecutor cleaningTaskExecutor(CleaningProperties cleaningProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(cleaningProperties.getWorkerThreads());
+        executor.setMaxPoolSize(cleaningProperties.getWorkerThreads());
+        executor.setQueueCapacity(cleaningProperties.getQueueCapacity());
+        executor.setThreadNamePrefix("cleaning-job-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 按主键区间并行清洗的工作线程，所有清洗操作共用，不再每次执行时新建线程池
+     * 线程数有上限，分区任务超出时排队等待空闲线程
+     */
+    @Bean(name = "cleaningRangeExecutor")
+    public ThreadPoolTaskExecutor cleaningRangeExecutor(CleaningProperties cleaningProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(cleaningProperties.rangeThreads());
+        executor.setMaxPoolSize(cleaningProperties.rangeThreads());
+        executor.setThreadNamePrefix("cleaning-range-");
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean
+    public CleaningSlots cleaningSlots(CleaningProperties cleaningProperties) {
+        return new CleaningSlots(cleaningProperties.getWorkerThreads());
+    }
+
+    @Bean
+    public TableLocks cleaningTableLocks() {
+        return new TableLocks();
+    }
+}
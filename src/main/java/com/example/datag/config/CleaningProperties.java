@@ -0,0 +1,139 @@
+package com.example.datag.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 数据清洗配置
+ * 对应application.properties中datag.cleaning前缀的配置项
+ */
+@Data
+@ConfigurationProperties(prefix = "datag.cleaning")
+public class CleaningProperties {
+    /**
+     * 每个事务最多删除或更新的行数，事务越短持有行锁的时间越短
+     */
+    private int batchSize = 1000;
+
+    /**
+     * 每批提交后暂停的毫秒数，给线上读写和主从复制留出余量
+     */
+    private long pauseMillis = 20;
+
+    /**
+     * 不支持窗口函数时在应用内去重的内存预算（字节），超出后把行指纹写入溢出文件
+     */
+    private long hashMemoryBytes = 64L * 1024 * 1024;
+
+    /**
+     * 去重溢出文件目录
+     */
+    private String spillDir = System.getProperty("java.io.tmpdir") + "/datag-cleaning";
+
+    /**
+     * 非空值不超过该数量时精确计算中位数和众数，更多时使用草图估计
+     */
+    private long exactStatisticsLimit = 100000;
+
+    /**
+     * 分批删除时每秒最多删除的行数，0表示不限速
+     */
+    private long maxRowsPerSecond = 0;
+
+    /**
+     * 查询从库延迟（秒）的SQL，在目标库上执行，返回单个数值；为空时不检查复制延迟。
+     * 例如使用pt-heartbeat时：SELECT TIMESTAMPDIFF(SECOND, MAX(ts), UTC_TIMESTAMP()) FROM heartbeat
+     */
+    private String replicaLagQuery;
+
+    /**
+     * 允许的最大从库延迟（秒），超过后暂停清洗直到延迟回落
+     */
+    private long maxReplicaLagSeconds = 10;
+
+    /**
+     * 同时运行的清洗操作数，后台任务和同步清洗接口合计不超过该值
+     */
+    private int workerThreads = 2;
+
+    /**
+     * 同步清洗接口允许的最大表行数（按统计信息估计），超过时拒绝并提示提交后台任务；0表示不限制
+     */
+    private long syncMaxRows = 100000;
+
+    /**
+     * 等待执行的清洗任务队列长度
+     */
+    private int queueCapacity = 100;
+
+    /**
+     * 是否写时复制：清洗在原表的副本上执行，校验行数后换表，原表保留为历史版本
+     */
+    private boolean copyOnWrite = false;
+
+    /**
+     * 每个数据集保留的历史版本数
+     */
+    private int keepVersions = 3;
+
+    /**
+     * 历史版本的最长保留时长（小时），0表示只按数量清理
+     */
+    private long versionRetentionHours = 0;
+
+    /**
+     * 清理过期版本的间隔（毫秒）
+     */
+    private long versionCleanupIntervalMillis = 600000;
+
+    /**
+     * 试运行时抽样的总行数，行数不超过该值的表直接全表统计
+     */
+    private int dryRunSampleRows = 10000;
+
+    /**
+     * 试运行时抽样的主键区间段数
+     */
+    private int dryRunSampleBlocks = 100;
+
+    /**
+     * 按主键区间并行清洗的线程数（默认库和未单独配置的数据源），1表示不并行。
+     * 每个线程占用一个连接，实际并行度不超过数据源连接池的最大连接数
+     */
+    private int parallelism = 1;
+
+    /**
+     * 按数据源ID单独配置的并行度，例如 datag.cleaning.data-source-parallelism.3=4
+     */
+    private Map<Long, Integer> dataSourceParallelism = new HashMap<>();
+
+    /**
+     * 并行清洗时每个主键区间失败后的重试次数
+     */
+    private int rangeRetries = 2;
+
+    /**
+     * 数据源的并行度，dataSourceId为空表示默认库
+     */
+    public int parallelismFor(Long dataSourceId) {
+        Integer configured = dataSourceId != null ? dataSourceParallelism.get(dataSourceId) : null;
+        return Math.max(1, configured != null ? configured : parallelism);
+    }
+
+    /**
+     * 并行清洗共用线程池的线程数：最大的并行度乘以同时运行的后台任务数，
+     * 同时运行的任务各自都能达到配置的并行度
+     */
+    public int rangeThreads() {
+        int maxParallelism = Math.max(1, parallelism);
+        for (Integer configured : dataSourceParallelism.values()) {
+            if (configured != null) {
+                maxParallelism = Math.max(maxParallelism, configured);
+            }
+        }
+        return maxParallelism * Math.max(1, workerThreads);
+    }
+}
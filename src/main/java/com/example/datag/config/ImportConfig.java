@@ -0,0 +1,26 @@
+package com.example.datag.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * 数据导入配置
+ * 提供后台导入任务使用的线程池
+ */
+@Configuration
+@EnableConfigurationProperties(ImportProperties.class)
+public class ImportConfig {
+
+    @Bean(name = "importTaskExecutor")
+    public ThreadPoolTaskExecutor importTaskExecutor(ImportProperties importProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(importProperties.getWorkerThreads());
+        executor.setMaxPoolSize(importProperties.getWorkerThreads());
+        executor.setQueueCapacity(importProperties.getQueueCapacity());
+        executor.setThreadNamePrefix("import-job-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.datag.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 数据导入配置
+ * 对应application.properties中datag.import前缀的配置项
+ */
+@Data
+@ConfigurationProperties(prefix = "datag.import")
+public class ImportProperties {
+    /**
+     * 上传文件的服务端暂存目录，后台导入任务从这里读取文件并支持断点恢复
+     */
+    private String stagingDir = System.getProperty("java.io.tmpdir") + "/datag-imports";
+
+    /**
+     * 每批写入的行数，每批提交后记录一次检查点
+     */
+    private int batchSize = 1000;
+
+    /**
+     * 服务端文件达到该大小（字节）时使用内存映射读取
+     */
+    private long mmapThreshold = 8L * 1024 * 1024;
+
+    /**
+     * 同时运行的导入任务数
+     */
+    private int workerThreads = 2;
+
+    /**
+     * 等待执行的导入任务队列长度
+     */
+    private int queueCapacity = 100;
+
+    /**
+     * 允许的最大错误行比例（0~1），超过后停止导入；设为1表示不限制
+     */
+    private double maxErrorRatio = 0.1;
+
+    /**
+     * 已读取的数据行数达到该值后才检查错误行比例，避免前几行出错就停止
+     */
+    private long errorRatioMinRows = 1000;
+
+    /**
+     * 错误行写文件队列的容量，写文件跟不上时导入线程等待
+     */
+    private int rejectQueueCapacity = 10000;
+
+    /**
+     * JSON和Excel导入时用于推断表结构的样本记录数
+     */
+    private int schemaSampleSize = 1000;
+
+    /**
+     * NDJSON导入的最大并行线程数
+     */
+    private int jsonParallelism = 4;
+
+    /**
+     * 合并导入的目标表没有与键列一致的唯一索引时，允许在内存中建立键哈希表的最大行数（每行约100字节），
+     * 超过时拒绝合并导入
+     */
+    private long mergeMaxIndexedRows = 2_000_000;
+
+    /**
+     * 上传文件的大小上限，同时作为multipart上传的上限（spring.servlet.multipart.max-file-size引用该值）
+     */
+    private DataSize maxUploadSize = DataSize.ofGigabytes(20);
+
+    /**
+     * 数据源连接配置变化后，旧连接池在借用者全部归还后还要保留的秒数。
+     * 预览、统计、血缘提取等短时查询直接使用缓存的连接池而不借用，宽限期内它们仍可在旧连接池上完成
+     */
+    private long retiredPoolGraceSeconds = 300;
+}
@@ -0,0 +1,219 @@
+package com.example.datag.controller;
+
+import com.example.datag.cleaning.NearDuplicateRule;
+import com.example.datag.cleaning.OutlierRule;
+import com.example.datag.dto.CleaningPipelineRequest;
+import com.example.datag.entity.CleaningJob;
+import com.example.datag.service.CleaningJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 清洗任务控制器
+ * 提交后台清洗任务，查询进度，以及取消和恢复任务
+ *
+ * 做了什么：
+ * - 提交分批过滤任务，按主键区间分批删除不满足条件的记录
+ * - 提交去重、填充、格式化和清洗流程任务，请求立即返回任务ID
+ * - 提供任务进度查询（检查点、已扫描和已删除行数、速度、预计剩余时间）
+ * - 支持取消运行中的任务，以及恢复失败或已取消的任务（原表上分批过滤的任务从检查点继续）
+ *
+ * 为什么需要：
+ * - 大表上的单条DELETE会长时间持有锁、产生大事务并导致从库延迟
+ * - 同步接口处理大表时会超过负载均衡的超时时间，而清洗仍在后台运行并持有锁
+ * - 清洗中途失败时无需从头开始
+ */
+@RestController
+@RequestMapping("/api/cleaning-jobs")
+@RequiredArgsConstructor
+public class CleaningJobController {
+
+    private final CleaningJobService cleaningJobService;
+
+    /**
+     * 获取所有清洗任务
+     * GET /api/cleaning-jobs
+     */
+    @GetMapping
+    public ResponseEntity<List<CleaningJob>> getAllJobs() {
+        return ResponseEntity.ok(cleaningJobService.getAllJobs());
+    }
+
+    /**
+     * 查询清洗任务进度
+     * GET /api/cleaning-jobs/{id}
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<CleaningJob> getJobById(@PathVariable Long id) {
+        CleaningJob job = cleaningJobService.getJobById(id);
+        if (job != null) {
+            return ResponseEntity.ok(job);
+        }
+        return ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 提交分批过滤任务
+     * POST /api/cleaning-jobs/filter
+     */
+    @PostMapping("/filter")
+    public ResponseEntity<Map<String, Object>> submitFilterJob(
+            @RequestParam Long dataSetId,
+            @RequestParam String filterCondition) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            CleaningJob job = cleaningJobService.submitFilterJob(dataSetId, filterCondition);
+            response.put("success", true);
+            response.put("message", "过滤任务已提交，主键范围 " + job.getMinKey() + " - " + job.getMaxKey());
+            response.put("job", job);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 提交去重任务
+     * POST /api/cleaning-jobs/deduplicate
+     */
+    @PostMapping("/deduplicate")
+    public ResponseEntity<Map<String, Object>> submitDeduplicateJob(
+            @RequestParam Long dataSetId,
+            @RequestParam List<String> duplicateFields) {
+        return submitted(() -> cleaningJobService.submitDeduplicateJob(dataSetId, duplicateFields), "去重任务已提交");
+    }
+
+    /**
+     * 提交缺失值填充任务
+     * POST /api/cleaning-jobs/fill-missing
+     */
+    @PostMapping("/fill-missing")
+    public ResponseEntity<Map<String, Object>> submitFillJob(
+            @RequestParam Long dataSetId,
+            @RequestParam(defaultValue = "mean") String fillStrategy) {
+        return submitted(() -> cleaningJobService.submitFillJob(dataSetId, fillStrategy), "填充任务已提交");
+    }
+
+    /**
+     * 提交格式化任务
+     * POST /api/cleaning-jobs/format
+     */
+    @PostMapping("/format")
+    public ResponseEntity<Map<String, Object>> submitFormatJob(
+            @RequestParam Long dataSetId,
+            @RequestParam List<String> formatRules) {
+        return submitted(() -> cleaningJobService.submitFormatJob(dataSetId, formatRules), "格式化任务已提交");
+    }
+
+    /**
+     * 提交异常值处理任务
+     * POST /api/cleaning-jobs/outliers
+     */
+    @PostMapping("/outliers")
+    public ResponseEntity<Map<String, Object>> submitOutlierJob(
+            @RequestParam Long dataSetId,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(defaultValue = "iqr") String method,
+            @RequestParam(required = false) Double threshold,
+            @RequestParam(defaultValue = "cap") String action) {
+        return submitted(() -> cleaningJobService.submitOutlierJob(dataSetId,
+                OutlierRule.of(method, threshold, action, fields).toString()), "异常值处理任务已提交");
+    }
+
+    /**
+     * 提交近似去重任务
+     * POST /api/cleaning-jobs/near-duplicates
+     */
+    @PostMapping("/near-duplicates")
+    public ResponseEntity<Map<String, Object>> submitNearDedupJob(
+            @RequestParam Long dataSetId,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) Double threshold,
+            @RequestParam(defaultValue = "review") String action) {
+        return submitted(() -> cleaningJobService.submitNearDedupJob(dataSetId,
+                NearDuplicateRule.of(threshold, action, fields).toString()), "近似去重任务已提交");
+    }
+
+    /**
+     * 提交清洗流程任务
+     * POST /api/cleaning-jobs/pipeline
+     *
+     * 请求体示例：
+     * {"dataSetId": 1, "steps": ["filter:amount > 0", "deduplicate:email", "fillmissing:mean"]}
+     * 带targetTable时清洗结果写入新表并登记为新数据集，源数据集不变
+     */
+    @PostMapping("/pipeline")
+    public ResponseEntity<Map<String, Object>> submitPipelineJob(@RequestBody CleaningPipelineRequest request) {
+        if (request.getTargetTable() != null) {
+            return submitted(() -> cleaningJobService.submitCleanIntoJob(request.getDataSetId(), request.getSteps(),
+                    request.getTargetTable(), request.getTargetName()), "清洗到新数据集任务已提交");
+        }
+        return submitted(() -> cleaningJobService.submitPipelineJob(request.getDataSetId(), request.getSteps()),
+                "清洗流程任务已提交");
+    }
+
+    private ResponseEntity<Map<String, Object>> submitted(Supplier<CleaningJob> submit, String message) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            CleaningJob job = submit.get();
+            response.put("success", true);
+            response.put("message", message + "，任务ID " + job.getId());
+            response.put("job", job);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 取消清洗任务
+     * POST /api/cleaning-jobs/{id}/cancel
+     */
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelJob(@PathVariable Long id) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            CleaningJob job = cleaningJobService.cancelJob(id);
+            response.put("success", true);
+            response.put("message", "已请求取消，当前批次提交后停止");
+            response.put("job", job);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 恢复清洗任务，有检查点的过滤任务从检查点之后继续，其他任务重新执行
+     * POST /api/cleaning-jobs/{id}/resume
+     */
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<Map<String, Object>> resumeJob(@PathVariable Long id) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            CleaningJob job = cleaningJobService.resumeJob(id);
+            response.put("success", true);
+            response.put("message", job.getCheckpointKey() != null
+                    ? "任务已恢复，从主键 " + job.getCheckpointKey() + " 之后继续"
+                    : "任务已恢复，从头开始执行");
+            response.put("job", job);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+}
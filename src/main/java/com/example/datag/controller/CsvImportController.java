@@ -1,11 +1,16 @@
 package com.example.datag.controller;
 
-import com.example.datag.service.CsvImportService;
+import com.example.datag.entity.ImportJob;
+import com.example.datag.importer.Compression;
+import com.example.datag.importer.CsvLineParser;
+import com.example.datag.importer.StreamLineSource;
+import com.example.datag.service.ImportJobService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,23 +24,29 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class CsvImportController {
 
-    private final CsvImportService csvImportService;
+    private final ImportJobService importJobService;
 
     /**
-     * 上传CSV文件并导入到数据库表
+     * 上传CSV文件并提交后台导入任务
      * POST /api/data-sets/import-csv
      *
+     * 文件保存到服务端后立即返回任务ID，通过 GET /api/import-jobs/{id} 查询进度
+     *
      * 请求格式: multipart/form-data
      * 参数:
-     * - file: CSV文件（必填）
+     * - file: CSV文件（必填），支持gzip/zstd压缩文件和包含多个CSV文件的zip压缩包
      * - tableName: 目标数据库表名（必填）
-     * - dataSourceId: 数据源ID（可选）
+     * - dataSourceId: 目标数据源ID（可选，为空时导入到平台默认库；合并导入只支持MySQL数据源）
+     * - maxErrorRatio: 允许的最大错误行比例（可选，0~1），超过后任务停止
+     * - keyColumns: 合并键列（可选，逗号分隔），指定后按键列合并：新增的行插入，变化的行更新，相同的行不写入
      */
     @PostMapping("/import-csv")
     public ResponseEntity<Map<String, Object>> importCsv(
             @RequestParam("file") MultipartFile file,
             @RequestParam("tableName") String tableName,
-            @RequestParam(value = "dataSourceId", required = false) Long dataSourceId) {
+            @RequestParam(value = "dataSourceId", required = false) Long dataSourceId,
+            @RequestParam(value = "maxErrorRatio", required = false) Double maxErrorRatio,
+            @RequestParam(value = "keyColumns", required = false) String keyColumns) {
         
         Map<String, Object> response = new HashMap<>();
         
@@ -49,9 +60,9 @@ public class CsvImportController {
             
             // 验证文件类型
             String originalFilename = file.getOriginalFilename();
-            if (originalFilename == null || !originalFilename.toLowerCase().endsWith(".csv")) {
+            if (Compression.fromFileName(originalFilename) == null) {
                 response.put("success", false);
-                response.put("error", "请上传CSV文件");
+                response.put("error", "请上传CSV文件（支持 .csv、.csv.gz、.zip、.zst 压缩格式）");
                 return ResponseEntity.badRequest().body(response);
             }
             
@@ -62,20 +73,25 @@ public class CsvImportController {
                 return ResponseEntity.badRequest().body(response);
             }
             
-            // 导入CSV
-            byte[] fileContent = file.getBytes();
-            int rowCount = csvImportService.importCsvFromBytes(fileContent, tableName);
+            // 提交后台导入任务，立即返回任务ID
+            ImportJob job;
+            try (InputStream content = file.getInputStream()) {
+                job = importJobService.submitCsvImport(content, originalFilename, tableName, dataSourceId,
+                        maxErrorRatio, keyColumns != null ? CsvLineParser.parse(keyColumns) : null);
+            }
             
             response.put("success", true);
-            response.put("message", "导入成功");
-            response.put("rowCount", rowCount);
+            response.put("message", "导入任务已提交");
+            response.put("jobId", job.getId());
+            response.put("status", job.getStatus());
+            response.put("importMode", job.getImportMode());
             response.put("tableName", tableName);
             response.put("fileName", originalFilename);
             if (dataSourceId != null) {
                 response.put("dataSourceId", dataSourceId);
             }
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.accepted().body(response);
             
         } catch (Exception e) {
             response.put("success", false);
@@ -102,39 +118,41 @@ public class CsvImportController {
                 return ResponseEntity.badRequest().body(response);
             }
             
-            // 读取文件内容
-            String content = new String(file.getBytes(), java.nio.charset.StandardCharsets.UTF_8);
-            String[] lines = content.split("\n");
-            
-            if (lines.length == 0) {
-                response.put("success", false);
-                response.put("error", "CSV文件为空");
-                return ResponseEntity.badRequest().body(response);
-            }
-            
-            // 解析表头
-            List<String> headers = parseCsvLine(lines[0]);
-            
-            // 解析数据行
-            List<Map<String, String>> data = new java.util.ArrayList<>();
-            int maxRows = Math.min(rows + 1, lines.length);
-            for (int i = 1; i < maxRows; i++) {
-                if (lines[i].trim().isEmpty()) {
-                    continue;
+            // 流式读取：只解析表头和请求的行数，剩余部分只统计行数
+            try (StreamLineSource source = new StreamLineSource(file.getInputStream(), 0)) {
+                String headerLine = source.readLine();
+                if (headerLine == null) {
+                    response.put("success", false);
+                    response.put("error", "CSV文件为空");
+                    return ResponseEntity.badRequest().body(response);
                 }
-                List<String> values = parseCsvLine(lines[i]);
-                Map<String, String> row = new java.util.LinkedHashMap<>();
-                for (int j = 0; j < headers.size() && j < values.size(); j++) {
-                    row.put(headers.get(j), values.get(j));
+                
+                // 解析表头
+                List<String> headers = parseCsvLine(headerLine);
+                
+                // 解析数据行
+                List<Map<String, String>> data = new java.util.ArrayList<>();
+                int totalRows = 0;
+                String line;
+                while ((line = source.readLine()) != null) {
+                    totalRows++;
+                    if (data.size() >= rows || line.trim().isEmpty()) {
+                        continue;
+                    }
+                    List<String> values = parseCsvLine(line);
+                    Map<String, String> row = new java.util.LinkedHashMap<>();
+                    for (int j = 0; j < headers.size() && j < values.size(); j++) {
+                        row.put(headers.get(j), values.get(j));
+                    }
+                    data.add(row);
                 }
-                data.add(row);
+                
+                response.put("success", true);
+                response.put("headers", headers);
+                response.put("data", data);
+                response.put("totalRows", totalRows);
             }
             
-            response.put("success", true);
-            response.put("headers", headers);
-            response.put("data", data);
-            response.put("totalRows", lines.length - 1);
-            
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
@@ -155,15 +173,6 @@ public class CsvImportController {
      * 解析CSV行
      */
     private List<String> parseCsvLine(String line) {
-        List<String> result = new java.util.ArrayList<>();
-        if (line == null || line.trim().isEmpty()) {
-            return result;
-        }
-        String[] parts = line.split(",");
-        for (String part : parts) {
-            result.add(part.trim());
-        }
-        return result;
+        return CsvLineParser.parse(line);
     }
 }
-
@@ -1,11 +1,22 @@
 package com.example.datag.controller;
 
+import com.example.datag.cleaning.ImpactEstimate;
+import com.example.datag.cleaning.NearDuplicateRule;
+import com.example.datag.cleaning.OutlierRule;
+import com.example.datag.cleaning.PipelineResult;
+import com.example.datag.dto.CleaningPipelineRequest;
 import com.example.datag.entity.DataSet;
+import com.example.datag.entity.TableVersion;
+import com.example.datag.service.CleaningJobService;
 import com.example.datag.service.DataCleaningService;
+import com.example.datag.service.TableVersionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * 数据清洗控制器
@@ -23,6 +34,14 @@ import java.util.List;
  * - 提高数据质量
  * - 为数据分析提供可靠的数据基础
  * - 自动化数据预处理流程
+ *
+ * 这里的清洗接口在请求线程上同步执行，适合小表；大表请通过 /api/cleaning-jobs 提交后台任务。
+ * 同步接口与后台任务共用表锁，表正在被其他清洗操作修改时立即返回错误；
+ * 同步接口与后台任务共用并发上限（datag.cleaning.worker-threads），没有空闲名额时立即返回错误，
+ * 表的估计行数超过datag.cleaning.sync-max-rows时拒绝并提示提交后台任务
+ *
+ * 各清洗接口都可以传targetTable（和可选的targetName）：清洗结果写入新表并登记为新数据集，
+ * 源数据集不变，并自动记录源数据集到新数据集的血缘关系
  */
 @RestController
 @RequestMapping("/api/data-cleaning")
@@ -30,6 +49,8 @@ import java.util.List;
 public class DataCleaningController {
 
     private final DataCleaningService dataCleaningService;
+    private final CleaningJobService cleaningJobService;
+    private final TableVersionService tableVersionService;
 
     /**
      * 去重清洗
@@ -46,8 +67,13 @@ public class DataCleaningController {
     @PostMapping("/deduplicate")
     public ResponseEntity<DataSet> removeDuplicates(
             @RequestParam Long dataSetId,
-            @RequestParam List<String> duplicateFields) {
-        DataSet cleanedDataSet = dataCleaningService.removeDuplicates(dataSetId, duplicateFields);
+            @RequestParam List<String> duplicateFields,
+            @RequestParam(required = false) String targetTable,
+            @RequestParam(required = false) String targetName) {
+        DataSet cleanedDataSet = cleaningJobService.runSynchronously(dataSetId, () -> targetTable != null
+                ? dataCleaningService.cleanIntoNewDataSet(dataSetId,
+                        List.of("deduplicate:" + String.join(";", duplicateFields)), targetTable, targetName)
+                : dataCleaningService.removeDuplicates(dataSetId, duplicateFields));
         return ResponseEntity.ok(cleanedDataSet);
     }
 
@@ -66,8 +92,13 @@ public class DataCleaningController {
     @PostMapping("/filter")
     public ResponseEntity<DataSet> filterData(
             @RequestParam Long dataSetId,
-            @RequestParam String filterCondition) {
-        DataSet filteredDataSet = dataCleaningService.filterData(dataSetId, filterCondition);
+            @RequestParam String filterCondition,
+            @RequestParam(required = false) String targetTable,
+            @RequestParam(required = false) String targetName) {
+        DataSet filteredDataSet = cleaningJobService.runSynchronously(dataSetId, () -> targetTable != null
+                ? dataCleaningService.cleanIntoNewDataSet(dataSetId, List.of("filter:" + filterCondition),
+                        targetTable, targetName)
+                : dataCleaningService.filterData(dataSetId, filterCondition));
         return ResponseEntity.ok(filteredDataSet);
     }
 
@@ -86,11 +117,74 @@ public class DataCleaningController {
     @PostMapping("/fill-missing")
     public ResponseEntity<DataSet> fillMissingValues(
             @RequestParam Long dataSetId,
-            @RequestParam(defaultValue = "mean") String fillStrategy) {
-        DataSet filledDataSet = dataCleaningService.fillMissingValues(dataSetId, fillStrategy);
+            @RequestParam(defaultValue = "mean") String fillStrategy,
+            @RequestParam(required = false) String targetTable,
+            @RequestParam(required = false) String targetName) {
+        DataSet filledDataSet = cleaningJobService.runSynchronously(dataSetId, () -> targetTable != null
+                ? dataCleaningService.cleanIntoNewDataSet(dataSetId, List.of("fillmissing:" + fillStrategy),
+                        targetTable, targetName)
+                : dataCleaningService.fillMissingValues(dataSetId, fillStrategy));
         return ResponseEntity.ok(filledDataSet);
     }
 
+    /**
+     * 去重试运行
+     * POST /api/data-cleaning/deduplicate/dry-run
+     *
+     * 做了什么：
+     * - 不修改数据，估计去重会删除的行数及95%置信区间
+     * - 按同类清洗的历史吞吐量估计耗时
+     */
+    @PostMapping("/deduplicate/dry-run")
+    public ResponseEntity<Map<String, Object>> estimateDuplicates(
+            @RequestParam Long dataSetId,
+            @RequestParam List<String> duplicateFields) {
+        return estimateResponse(() -> dataCleaningService.estimateDuplicates(dataSetId, duplicateFields));
+    }
+
+    /**
+     * 过滤试运行
+     * POST /api/data-cleaning/filter/dry-run
+     *
+     * 做了什么：
+     * - 不修改数据，按主键区间抽样估计过滤会删除的行数及95%置信区间
+     * - 按同类清洗的历史吞吐量估计耗时
+     */
+    @PostMapping("/filter/dry-run")
+    public ResponseEntity<Map<String, Object>> estimateFilter(
+            @RequestParam Long dataSetId,
+            @RequestParam String filterCondition) {
+        return estimateResponse(() -> dataCleaningService.estimateFilter(dataSetId, filterCondition));
+    }
+
+    /**
+     * 填充试运行
+     * POST /api/data-cleaning/fill-missing/dry-run
+     *
+     * 做了什么：
+     * - 不修改数据，估计含空值的行数和每列要填充的单元格数
+     * - 按同类清洗的历史吞吐量估计耗时
+     */
+    @PostMapping("/fill-missing/dry-run")
+    public ResponseEntity<Map<String, Object>> estimateFill(
+            @RequestParam Long dataSetId,
+            @RequestParam(defaultValue = "mean") String fillStrategy) {
+        return estimateResponse(() -> dataCleaningService.estimateFill(dataSetId, fillStrategy));
+    }
+
+    private ResponseEntity<Map<String, Object>> estimateResponse(Supplier<ImpactEstimate> estimator) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("estimate", estimator.get());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
     /**
      * 数据格式化
      * POST /api/data-cleaning/format
@@ -106,11 +200,74 @@ public class DataCleaningController {
     @PostMapping("/format")
     public ResponseEntity<DataSet> formatData(
             @RequestParam Long dataSetId,
-            @RequestParam List<String> formatRules) {
-        DataSet formattedDataSet = dataCleaningService.formatData(dataSetId, formatRules);
+            @RequestParam List<String> formatRules,
+            @RequestParam(required = false) String targetTable,
+            @RequestParam(required = false) String targetName) {
+        DataSet formattedDataSet = cleaningJobService.runSynchronously(dataSetId, () -> targetTable != null
+                ? dataCleaningService.cleanIntoNewDataSet(dataSetId,
+                        List.of("format:" + String.join(";", formatRules)), targetTable, targetName)
+                : dataCleaningService.formatData(dataSetId, formatRules));
         return ResponseEntity.ok(formattedDataSet);
     }
 
+    /**
+     * 异常值处理
+     * POST /api/data-cleaning/outliers
+     *
+     * 做了什么：
+     * - 按四分位距（iqr，默认k=1.5）或标准分数（zscore，默认3）判定数值列中的异常值
+     * - 截断到上下界（cap）、删除所在行（remove），或写入标记表（flag，原表不变）
+     * - 省略字段时处理所有非主键数值列
+     *
+     * 为什么需要：
+     * - 录入错误和极端值会拉偏图表和统计结果
+     */
+    @PostMapping("/outliers")
+    public ResponseEntity<DataSet> treatOutliers(
+            @RequestParam Long dataSetId,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(defaultValue = "iqr") String method,
+            @RequestParam(required = false) Double threshold,
+            @RequestParam(defaultValue = "cap") String action,
+            @RequestParam(required = false) String targetTable,
+            @RequestParam(required = false) String targetName) {
+        String rule = OutlierRule.of(method, threshold, action, fields).toString();
+        DataSet treatedDataSet = cleaningJobService.runSynchronously(dataSetId, () -> targetTable != null
+                ? dataCleaningService.cleanIntoNewDataSet(dataSetId, List.of("outlier:" + rule),
+                        targetTable, targetName)
+                : dataCleaningService.treatOutliers(dataSetId, rule));
+        return ResponseEntity.ok(treatedDataSet);
+    }
+
+    /**
+     * 近似去重
+     * POST /api/data-cleaning/near-duplicates
+     *
+     * 做了什么：
+     * - 比较字符串字段的字符3-gram，Jaccard相似度不低于阈值（默认0.8）的行聚成一个簇
+     * - 复核方式（review）把簇写入复核表（原表名加__near_dups），原表不变
+     * - 合并方式（merge）每个簇保留主键最小的一行，删除其余行
+     * - 省略字段时比较所有非主键字符串列
+     *
+     * 为什么需要：
+     * - 大小写、空格、错别字不同的同一条记录，精确去重找不出来
+     */
+    @PostMapping("/near-duplicates")
+    public ResponseEntity<DataSet> removeNearDuplicates(
+            @RequestParam Long dataSetId,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) Double threshold,
+            @RequestParam(defaultValue = "review") String action,
+            @RequestParam(required = false) String targetTable,
+            @RequestParam(required = false) String targetName) {
+        String rule = NearDuplicateRule.of(threshold, action, fields).toString();
+        DataSet cleanedDataSet = cleaningJobService.runSynchronously(dataSetId, () -> targetTable != null
+                ? dataCleaningService.cleanIntoNewDataSet(dataSetId, List.of("neardedup:" + rule),
+                        targetTable, targetName)
+                : dataCleaningService.removeNearDuplicates(dataSetId, rule));
+        return ResponseEntity.ok(cleanedDataSet);
+    }
+
     /**
      * 执行完整数据清洗流程
      * POST /api/data-cleaning/process
@@ -126,11 +283,88 @@ public class DataCleaningController {
     @PostMapping("/process")
     public ResponseEntity<DataSet> executeCleaningProcess(
             @RequestParam Long dataSetId,
-            @RequestParam List<String> cleaningSteps) {
-        DataSet processedDataSet = dataCleaningService.executeCleaningProcess(dataSetId, cleaningSteps);
+            @RequestParam List<String> cleaningSteps,
+            @RequestParam(required = false) String targetTable,
+            @RequestParam(required = false) String targetName) {
+        DataSet processedDataSet = cleaningJobService.runSynchronously(dataSetId, () -> targetTable != null
+                ? dataCleaningService.cleanIntoNewDataSet(dataSetId, cleaningSteps, targetTable, targetName)
+                : dataCleaningService.executeCleaningProcess(dataSetId, cleaningSteps));
         return ResponseEntity.ok(processedDataSet);
     }
 
+    /**
+     * 执行带参数的清洗流程
+     * POST /api/data-cleaning/pipeline
+     *
+     * 做了什么：
+     * - 按顺序执行带参数的清洗步骤，连续的过滤、去重和常量填充合并为一次整表改写
+     * - 返回每一步的执行方式和增减的行数
+     *
+     * 请求体示例：
+     * {"dataSetId": 1, "steps": ["filter:amount > 0", "deduplicate:email", "fillmissing:mean"]}
+     * 带targetTable时结果写入新表并登记为新数据集，返回新数据集：
+     * {"dataSetId": 1, "steps": ["filter:amount > 0"], "targetTable": "orders_clean", "targetName": "订单（已清洗）"}
+     */
+    @PostMapping("/pipeline")
+    public ResponseEntity<Map<String, Object>> runCleaningPipeline(@RequestBody CleaningPipelineRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            if (request.getTargetTable() != null) {
+                DataSet target = cleaningJobService.runSynchronously(request.getDataSetId(),
+                        () -> dataCleaningService.cleanIntoNewDataSet(request.getDataSetId(), request.getSteps(),
+                                request.getTargetTable(), request.getTargetName()));
+                response.put("success", true);
+                response.put("dataSet", target);
+                return ResponseEntity.ok(response);
+            }
+            PipelineResult result = cleaningJobService.runSynchronously(request.getDataSetId(),
+                    () -> dataCleaningService.runCleaningPipeline(request.getDataSetId(), request.getSteps()));
+            response.put("success", true);
+            response.put("result", result);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 获取数据集的历史版本
+     * GET /api/data-cleaning/versions?dataSetId=1
+     *
+     * 做了什么：
+     * - 列出写时复制清洗换下的历史版本表及其记录数和状态
+     */
+    @GetMapping("/versions")
+    public ResponseEntity<List<TableVersion>> getVersions(@RequestParam Long dataSetId) {
+        return ResponseEntity.ok(tableVersionService.getVersions(dataSetId));
+    }
+
+    /**
+     * 回滚到历史版本
+     * POST /api/data-cleaning/versions/{id}/rollback
+     *
+     * 做了什么：
+     * - 用一次换名把历史版本换回当前表
+     * - 回滚前的当前表保留为新版本，可以再回滚回去
+     */
+    @PostMapping("/versions/{id}/rollback")
+    public ResponseEntity<Map<String, Object>> rollback(@PathVariable Long id) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            TableVersion archived = tableVersionService.rollback(id);
+            response.put("success", true);
+            response.put("message", "已回滚，回滚前的数据保留为版本 " + archived.getVersion());
+            response.put("version", archived);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
     /**
      * 根据数据集location字段对应的本地数据表去重
      * POST /api/data-cleaning/deduplicate-by-location
@@ -153,7 +387,8 @@ public class DataCleaningController {
     public ResponseEntity<DataSet> removeDuplicatesByLocation(
             @RequestParam Long dataSetId,
             @RequestParam List<String> duplicateFields) {
-        DataSet cleanedDataSet = dataCleaningService.removeDuplicatesByLocation(dataSetId, duplicateFields);
+        DataSet cleanedDataSet = cleaningJobService.runSynchronously(dataSetId,
+                () -> dataCleaningService.removeDuplicatesByLocation(dataSetId, duplicateFields));
         return ResponseEntity.ok(cleanedDataSet);
     }
 }
@@ -2,6 +2,7 @@ package com.example.datag.controller;
 
 import com.example.datag.dto.DataSourceRequest;
 import com.example.datag.entity.DataSource;
+import com.example.datag.service.DataSourceConnectionService;
 import com.example.datag.service.DataSourceService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -31,6 +32,7 @@ import java.util.List;
 public class DataSourceController {
 
     private final DataSourceService dataSourceService;
+    private final DataSourceConnectionService dataSourceConnectionService;
 
     /**
      * 创建数据源
@@ -141,6 +143,8 @@ public class DataSourceController {
     @PutMapping("/{id}")
     public ResponseEntity<DataSource> updateDataSource(@PathVariable Long id, @RequestBody DataSourceRequest request) {
         DataSource dataSource = dataSourceService.updateDataSource(id, request);
+        // 连接配置可能已变化，下次使用时重建连接池
+        dataSourceConnectionService.evict(id);
         if (dataSource != null) {
             return ResponseEntity.ok(dataSource);
         }
@@ -162,6 +166,7 @@ public class DataSourceController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteDataSource(@PathVariable Long id) {
         dataSourceService.deleteDataSource(id);
+        dataSourceConnectionService.evict(id);
         return ResponseEntity.noContent().build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.example.datag.controller;
+
+import com.example.datag.entity.ImportJob;
+import com.example.datag.service.ImportJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Excel导入控制器
+ * 提供XLSX文件的上传和导入功能
+ */
+@RestController
+@RequestMapping("/api/data-sets")
+@RequiredArgsConstructor
+public class ExcelImportController {
+
+    private final ImportJobService importJobService;
+
+    /**
+     * 上传Excel文件并提交后台导入任务
+     * POST /api/data-sets/import-excel
+     *
+     * 工作表第一行为表头，列类型从单元格类型推断（整数、小数、日期、布尔、文本）
+     * 通过 GET /api/import-jobs/{id} 查询进度
+     *
+     * 请求格式: multipart/form-data
+     * 参数:
+     * - file: Excel文件（必填），只支持 .xlsx 格式，大小上限为datag.import.max-upload-size（默认20GB）
+     * - tableName: 目标数据库表名（必填）
+     * - sheetName: 工作表名称（可选，为空时导入第一个工作表）
+     * - dataSourceId: 目标数据源ID（可选，为空时导入到平台默认库）
+     * - maxErrorRatio: 允许的最大错误行比例（可选，0~1），超过后任务停止
+     */
+    @PostMapping("/import-excel")
+    public ResponseEntity<Map<String, Object>> importExcel(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("tableName") String tableName,
+            @RequestParam(value = "sheetName", required = false) String sheetName,
+            @RequestParam(value = "dataSourceId", required = false) Long dataSourceId,
+            @RequestParam(value = "maxErrorRatio", required = false) Double maxErrorRatio) {
+
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            if (file.isEmpty()) {
+                response.put("success", false);
+                response.put("error", "文件为空");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            // 验证表名（防止SQL注入）
+            if (tableName == null || !tableName.matches("^[a-zA-Z0-9_]+$")) {
+                response.put("success", false);
+                response.put("error", "表名包含非法字符，只允许字母、数字和下划线");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            String originalFilename = file.getOriginalFilename();
+            ImportJob job;
+            try (InputStream content = file.getInputStream()) {
+                job = importJobService.submitXlsxImport(content, originalFilename, tableName, dataSourceId,
+                        maxErrorRatio, sheetName);
+            }
+
+            response.put("success", true);
+            response.put("message", "导入任务已提交");
+            response.put("jobId", job.getId());
+            response.put("status", job.getStatus());
+            response.put("tableName", tableName);
+            response.put("fileName", originalFilename);
+            if (sheetName != null) {
+                response.put("sheetName", sheetName);
+            }
+            if (dataSourceId != null) {
+                response.put("dataSourceId", dataSourceId);
+            }
+
+            return ResponseEntity.accepted().body(response);
+
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.datag.controller;
+
+import com.example.datag.entity.ImportJob;
+import com.example.datag.service.ImportJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 导入任务控制器
+ * 查询后台导入任务的进度，以及取消和恢复任务
+ *
+ * 做了什么：
+ * - 提供导入任务的进度查询（已处理字节数、行数、吞吐量、预计剩余时间）
+ * - 支持取消运行中的任务
+ * - 支持从最后一个检查点恢复失败或已取消的任务
+ * - 提供错误行文件下载（gzip压缩的CSV，包含行号、错误类型和原因）
+ *
+ * 为什么需要：
+ * - 大文件导入耗时较长，不能阻塞HTTP请求
+ * - 导入中途失败时无需从头开始
+ */
+@RestController
+@RequestMapping("/api/import-jobs")
+@RequiredArgsConstructor
+public class ImportJobController {
+
+    private final ImportJobService importJobService;
+
+    /**
+     * 获取所有导入任务
+     * GET /api/import-jobs
+     */
+    @GetMapping
+    public ResponseEntity<List<ImportJob>> getAllJobs() {
+        return ResponseEntity.ok(importJobService.getAllJobs());
+    }
+
+    /**
+     * 查询导入任务进度
+     * GET /api/import-jobs/{id}
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportJob> getJobById(@PathVariable Long id) {
+        ImportJob job = importJobService.getJobById(id);
+        if (job != null) {
+            return ResponseEntity.ok(job);
+        }
+        return ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 取消导入任务
+     * POST /api/import-jobs/{id}/cancel
+     */
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelJob(@PathVariable Long id) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            ImportJob job = importJobService.cancelJob(id);
+            response.put("success", true);
+            response.put("message", "已请求取消，当前批次提交后停止");
+            response.put("job", job);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 从最后一个检查点恢复导入任务
+     * POST /api/import-jobs/{id}/resume
+     */
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<Map<String, Object>> resumeJob(@PathVariable Long id) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            ImportJob job = importJobService.resumeJob(id);
+            response.put("success", true);
+            response.put("message", "任务已恢复，从第 " + job.getCommittedLine() + " 行之后继续导入");
+            response.put("job", job);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 下载导入任务的错误行文件
+     * GET /api/import-jobs/{id}/rejects
+     */
+    @GetMapping("/{id}/rejects")
+    public ResponseEntity<Resource> downloadRejects(@PathVariable Long id) {
+        ImportJob job = importJobService.getJobById(id);
+        if (job == null || job.getRejectPath() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Path rejectFile = Paths.get(job.getRejectPath());
+        if (!Files.exists(rejectFile)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + rejectFile.getFileName() + "\"")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(new FileSystemResource(rejectFile));
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.datag.controller;
+
+import com.example.datag.entity.ImportJob;
+import com.example.datag.service.ImportJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JSON导入控制器
+ * 提供NDJSON和JSON数组文件的上传和导入功能
+ */
+@RestController
+@RequestMapping("/api/data-sets")
+@RequiredArgsConstructor
+public class JsonImportController {
+
+    private final ImportJobService importJobService;
+
+    /**
+     * 上传JSON文件并提交后台导入任务
+     * POST /api/data-sets/import-json
+     *
+     * 表结构从文件开头的记录推断，嵌套对象展开为以下划线连接的列，数组保存为JSON文本
+     * 通过 GET /api/import-jobs/{id} 查询进度
+     *
+     * 请求格式: multipart/form-data
+     * 参数:
+     * - file: JSON文件（必填），每行一条记录的 .ndjson/.jsonl 文件或对象数组 .json 文件，
+     *   大小上限为datag.import.max-upload-size（默认20GB）
+     * - tableName: 目标数据库表名（必填）
+     * - dataSourceId: 目标数据源ID（可选，为空时导入到平台默认库）
+     * - maxErrorRatio: 允许的最大错误记录比例（可选，0~1），超过后任务停止
+     */
+    @PostMapping("/import-json")
+    public ResponseEntity<Map<String, Object>> importJson(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("tableName") String tableName,
+            @RequestParam(value = "dataSourceId", required = false) Long dataSourceId,
+            @RequestParam(value = "maxErrorRatio", required = false) Double maxErrorRatio) {
+
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            if (file.isEmpty()) {
+                response.put("success", false);
+                response.put("error", "文件为空");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            // 验证表名（防止SQL注入）
+            if (tableName == null || !tableName.matches("^[a-zA-Z0-9_]+$")) {
+                response.put("success", false);
+                response.put("error", "表名包含非法字符，只允许字母、数字和下划线");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            String originalFilename = file.getOriginalFilename();
+            ImportJob job;
+            try (InputStream content = file.getInputStream()) {
+                job = importJobService.submitJsonImport(content, originalFilename, tableName, dataSourceId,
+                        maxErrorRatio);
+            }
+
+            response.put("success", true);
+            response.put("message", "导入任务已提交");
+            response.put("jobId", job.getId());
+            response.put("status", job.getStatus());
+            response.put("tableName", tableName);
+            response.put("fileName", originalFilename);
+            if (dataSourceId != null) {
+                response.put("dataSourceId", dataSourceId);
+            }
+
+            return ResponseEntity.accepted().body(response);
+
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+}
@@ -3,15 +3,19 @@ package com.example.datag.controller;
 import com.example.datag.entity.Chart;
 import com.example.datag.entity.Dashboard;
 import com.example.datag.entity.DataSource;
+import com.example.datag.importer.TableSchema;
 import com.example.datag.service.DataSourceConnectionService;
 import com.example.datag.service.DataSourceService;
+import com.example.datag.service.SchemaCatalogService;
 import com.example.datag.service.VisualizationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Base64;
@@ -32,6 +36,7 @@ public class VisualizationController {
     private final VisualizationService visualizationService;
     private final DataSourceService dataSourceService;
     private final DataSourceConnectionService dataSourceConnectionService;
+    private final SchemaCatalogService schemaCatalogService;
 
     // ============ 图表相关API ============
     
@@ -180,13 +185,8 @@ public class VisualizationController {
                 return ResponseEntity.notFound().build();
             }
             
-            JdbcTemplate jdbcTemplate = dataSourceConnectionService.createJdbcTemplate(dataSourceId);
-            // 查询MySQL数据库中的所有表
-            String sql = "SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = DATABASE()";
-            List<Map<String, Object>> tables = jdbcTemplate.queryForList(sql);
-            List<String> tableNames = tables.stream()
-                .map(row -> (String) row.get("TABLE_NAME"))
-                .toList();
+            // 数据库中的所有表，来自表结构缓存
+            List<String> tableNames = schemaCatalogService.listTables(dataSourceId);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -205,9 +205,19 @@ public class VisualizationController {
             @PathVariable Long dataSourceId,
             @PathVariable String tableName) {
         try {
-            JdbcTemplate jdbcTemplate = dataSourceConnectionService.createJdbcTemplate(dataSourceId);
-            String sql = "DESCRIBE `" + tableName + "`";
-            List<Map<String, Object>> structure = jdbcTemplate.queryForList(sql);
+            // 字段结构来自表结构缓存，返回格式与MySQL的DESCRIBE相同
+            TableSchema schema = schemaCatalogService.requireTable(dataSourceId, tableName);
+            List<Map<String, Object>> structure = new ArrayList<>();
+            for (TableSchema.Column column : schema.getColumns()) {
+                Map<String, Object> field = new LinkedHashMap<>();
+                field.put("Field", column.getName());
+                field.put("Type", column.getFullTypeName());
+                field.put("Null", column.isNullable() ? "YES" : "NO");
+                field.put("Key", schema.getPrimaryKey().contains(column.getName()) ? "PRI" : "");
+                field.put("Default", column.getDefaultValue());
+                field.put("Extra", column.isAutoIncrement() ? "auto_increment" : "");
+                structure.add(field);
+            }
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -0,0 +1,38 @@
+package com.example.datag.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 清洗流程请求DTO
+ * 步骤放在JSON数组中，过滤条件里的逗号不会被当作参数分隔符
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CleaningPipelineRequest {
+    /**
+     * 数据集ID
+     */
+    private Long dataSetId;
+
+    /**
+     * 清洗步骤，格式为"步骤名"或"步骤名:参数"，如 "filter:status IN (1, 2)"、"deduplicate:email;phone"
+     */
+    private List<String> steps;
+
+    /**
+     * 目标表名，不为空时清洗结果写入新表并登记为新数据集，源数据集不变
+     */
+    private String targetTable;
+
+    /**
+     * 新数据集名称，为空时使用目标表名
+     */
+    private String targetName;
+}
@@ -0,0 +1,124 @@
+package com.example.datag.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * 清洗任务实体类
+ * 记录后台清洗任务的状态、进度和检查点
+ *
+ * 过滤任务按主键区间推进，每段提交后记录已处理到的主键，
+ * 任务失败或被取消后可以从检查点之后继续；其他任务没有检查点，恢复时重新执行（结果与执行一次相同）
+ */
+@Entity
+@Table(name = "cleaning_jobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CleaningJob {
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    public static final String OPERATION_FILTER = "FILTER";
+    public static final String OPERATION_DEDUPLICATE = "DEDUPLICATE";
+    public static final String OPERATION_FILL_MISSING = "FILL_MISSING";
+    public static final String OPERATION_FORMAT = "FORMAT";
+    public static final String OPERATION_OUTLIER = "OUTLIER";
+    public static final String OPERATION_NEAR_DEDUPLICATE = "NEAR_DEDUPLICATE";
+    public static final String OPERATION_PIPELINE = "PIPELINE";
+    public static final String OPERATION_CLEAN_INTO = "CLEAN_INTO";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // 任务唯一标识
+
+    @Column(name = "data_set_id", nullable = false)
+    private Long dataSetId; // 清洗的数据集ID
+
+    @Column(nullable = false)
+    private String operation; // 清洗操作：FILTER、DEDUPLICATE、FILL_MISSING、FORMAT、OUTLIER、NEAR_DEDUPLICATE、PIPELINE、CLEAN_INTO
+
+    @Column(length = 4000)
+    private String parameters; // 操作参数，如过滤条件；多个参数（去重字段、格式化规则、流程步骤）每行一个
+
+    @Column(name = "data_source_id")
+    private Long dataSourceId; // 表所在的数据源ID，为空表示平台默认库
+
+    @Column(name = "table_name")
+    private String tableName; // 清洗的数据表名，同一张表同一时刻只运行一个任务
+
+    @Column(name = "target_table")
+    private String targetTable; // 清洗到新数据集时的目标表名
+
+    @Column(name = "target_name")
+    private String targetName; // 清洗到新数据集时的新数据集名称
+
+    @Column(name = "target_data_set_id")
+    private Long targetDataSetId; // 清洗生成的新数据集ID
+
+    @Column(nullable = false)
+    private String status; // 任务状态：PENDING、RUNNING、COMPLETED、FAILED、CANCELLED
+
+    @Column(name = "min_key")
+    private Long minKey; // 提交任务时表的最小主键
+
+    @Column(name = "max_key")
+    private Long maxKey; // 提交任务时表的最大主键，之后新增的行不在本任务范围内
+
+    @Column(name = "checkpoint_key")
+    private Long checkpointKey; // 检查点：已处理完的最大主键
+
+    @Column(name = "rows_scanned")
+    private Long rowsScanned; // 已扫描的行数
+
+    @Column(name = "rows_affected")
+    private Long rowsAffected; // 已删除或修改的行数（填充任务为已填充的单元格数）
+
+    @Column(name = "progress_percent")
+    private Double progressPercent; // 按主键范围估算的完成百分比
+
+    @Column(name = "rows_per_second")
+    private Double rowsPerSecond; // 当前速度（行/秒），过滤任务按扫描的行数，其他任务按删除或修改的行数
+
+    @Column(name = "eta_seconds")
+    private Long etaSeconds; // 预计剩余时间（秒）
+
+    @Column(length = 2000)
+    private String summary; // 执行结果摘要，如清洗流程每一步的行数变化
+
+    @Column(name = "error_message", length = 2000)
+    private String errorMessage; // 失败原因
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt; // 最近一次开始运行时间
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt; // 结束时间
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt; // 创建时间
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt; // 更新时间
+
+    // 在创建前设置时间戳
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    // 在更新前设置时间戳
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
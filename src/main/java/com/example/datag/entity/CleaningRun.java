@@ -0,0 +1,61 @@
+package com.example.datag.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * 清洗执行记录实体类
+ * 每次清洗成功后记录扫描的行数和耗时，试运行时按历史吞吐量估计耗时
+ */
+@Entity
+@Table(name = "cleaning_runs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CleaningRun {
+    public static final String OPERATION_DEDUPLICATE = "DEDUPLICATE";
+    public static final String OPERATION_FILTER = "FILTER";
+    public static final String OPERATION_FILL_MISSING = "FILL_MISSING";
+    public static final String OPERATION_FORMAT = "FORMAT";
+    public static final String OPERATION_OUTLIER = "OUTLIER";
+    public static final String OPERATION_NEAR_DEDUPLICATE = "NEAR_DEDUPLICATE";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // 记录唯一标识
+
+    @Column(name = "data_set_id")
+    private Long dataSetId; // 清洗的数据集ID
+
+    @Column(nullable = false)
+    private String operation; // 清洗操作：DEDUPLICATE、FILTER、FILL_MISSING、FORMAT、OUTLIER、NEAR_DEDUPLICATE
+
+    @Column(name = "data_source_id")
+    private Long dataSourceId; // 表所在的数据源ID，为空表示平台默认库
+
+    @Column(name = "table_name")
+    private String tableName; // 数据表名
+
+    @Column(name = "rows_scanned", nullable = false)
+    private Long rowsScanned; // 扫描的行数
+
+    @Column(name = "rows_affected")
+    private Long rowsAffected; // 删除或修改的行数
+
+    @Column(name = "elapsed_millis", nullable = false)
+    private Long elapsedMillis; // 耗时（毫秒）
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt; // 记录时间
+
+    // 在创建前设置时间戳
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -25,6 +25,8 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 public class DataLineage {
+    public static final String TRANSFORMATION_CLEANING = "CLEANING"; // 清洗生成的新数据集
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id; // 血缘关系唯一标识
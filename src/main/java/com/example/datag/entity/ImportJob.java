@@ -0,0 +1,160 @@
+package com.example.datag.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * 导入任务实体类
+ * 记录后台导入任务的状态、进度和检查点
+ *
+ * 每批数据提交后都会更新检查点（已提交的字节偏移量和行号），
+ * 任务失败或被取消后可以从最后一个检查点继续导入
+ */
+@Entity
+@Table(name = "import_jobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJob {
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    public static final String MODE_APPEND = "APPEND";
+    public static final String MODE_MERGE = "MERGE";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // 任务唯一标识
+
+    @Column(name = "file_name")
+    private String fileName; // 原始文件名
+
+    @Column(name = "table_name", nullable = false)
+    private String tableName; // 目标数据库表名
+
+    @Column(name = "data_source_id")
+    private Long dataSourceId; // 目标数据源ID
+
+    @Column(nullable = false)
+    private String format; // 文件格式：CSV、JSON、XLSX
+
+    @Column(name = "sheet_name")
+    private String sheetName; // Excel导入的工作表名称，为空时导入第一个工作表
+
+    @Column(name = "compression")
+    private String compression; // 压缩格式：NONE、GZIP、ZIP、ZSTD
+
+    @Column(name = "staging_path", length = 1000)
+    private String stagingPath; // 服务端暂存文件路径
+
+    @Column(name = "import_mode")
+    private String importMode; // 导入方式：APPEND（追加）、MERGE（按键列合并）
+
+    @Column(name = "key_columns", length = 1000)
+    private String keyColumns; // 合并键列，逗号分隔
+
+    @Column(nullable = false)
+    private String status; // 任务状态：PENDING、RUNNING、COMPLETED、FAILED、CANCELLED
+
+    @Column(name = "header_line", length = 4000)
+    private String headerLine; // 已解析的表头行，恢复时无需重新读取
+
+    @Column(name = "total_bytes")
+    private Long totalBytes; // 文件总字节数
+
+    @Column(name = "bytes_processed")
+    private Long bytesProcessed; // 已处理字节数
+
+    @Column(name = "rows_processed")
+    private Long rowsProcessed; // 已提交的数据行数
+
+    @Column(name = "committed_entry")
+    private Integer committedEntry; // 检查点：正在导入的分段序号（zip压缩包中的第几个文件，从0开始）
+
+    @Column(name = "committed_offset")
+    private Long committedOffset; // 检查点：已提交数据对应的文件字节偏移量（压缩文件为已读取的压缩字节数）
+
+    @Column(name = "committed_line")
+    private Long committedLine; // 检查点：当前分段中已提交的最后一行行号（含表头）
+
+    @Column(name = "rows_inserted")
+    private Long rowsInserted; // 合并导入：新增的行数
+
+    @Column(name = "rows_updated")
+    private Long rowsUpdated; // 合并导入：内容变化被更新的行数
+
+    @Column(name = "rows_unchanged")
+    private Long rowsUnchanged; // 合并导入：内容相同未写入的行数
+
+    @Column(name = "rows_rejected")
+    private Long rowsRejected; // 错误行数（跳过的行和按0写入的行）
+
+    @Column(name = "reject_counts", length = 1000)
+    private String rejectCounts; // 各错误类型的行数（JSON）
+
+    @Column(name = "reject_path", length = 1000)
+    private String rejectPath; // 错误行文件路径（gzip压缩的CSV）
+
+    @Column(name = "resumable")
+    private Boolean resumable; // 为false时不能断点恢复：追加导入到其他数据源时最后一批是否已写入无法确认
+
+    @Column(name = "reject_committed_bytes")
+    private Long rejectCommittedBytes; // 检查点：已提交批次的错误行写完后错误行文件的长度，断点恢复时截断到这个长度
+
+    @Column(name = "max_error_ratio")
+    private Double maxErrorRatio; // 允许的最大错误行比例，为空时使用全局配置
+
+    @Column(name = "table_created")
+    private Boolean tableCreated; // 目标表是否由本任务创建
+
+    @JsonIgnore
+    @Lob
+    @Column(name = "profile_state", columnDefinition = "LONGBLOB")
+    private byte[] profileState; // 检查点：已提交数据的列统计状态
+
+    @Column(name = "data_set_id")
+    private Long dataSetId; // 导入完成后登记的数据集ID
+
+    @Column(name = "rows_per_second")
+    private Double rowsPerSecond; // 当前吞吐量（行/秒）
+
+    @Column(name = "eta_seconds")
+    private Long etaSeconds; // 预计剩余时间（秒）
+
+    @Column(name = "error_message", length = 2000)
+    private String errorMessage; // 失败原因
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt; // 最近一次开始运行时间
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt; // 结束时间
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt; // 创建时间
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt; // 更新时间
+
+    // 在创建前设置时间戳
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    // 在更新前设置时间戳
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.datag.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -40,6 +41,23 @@ public class MetaData {
     @Column(name = "default_value")
     private String defaultValue; // 默认值
 
+    @Column(name = "null_count")
+    private Long nullCount; // 空值个数（导入时统计）
+
+    @Column(name = "min_value")
+    private String minValue; // 最小值（导入时统计）
+
+    @Column(name = "max_value")
+    private String maxValue; // 最大值（导入时统计）
+
+    @Column(name = "distinct_count")
+    private Long distinctCount; // 不同值个数（HyperLogLog近似值）
+
+    @JsonIgnore
+    @Lob
+    @Column(name = "distinct_sketch", columnDefinition = "BLOB")
+    private byte[] distinctSketch; // 不同值估计器的寄存器，追加导入时用于合并统计
+
     @Column(name = "created_at")
     private LocalDateTime createdAt; // 创建时间
 
@@ -0,0 +1,71 @@
+package com.example.datag.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * 数据表历史版本实体类
+ * 写时复制清洗换表后，被换下的原表改名保留为一个版本，可以回滚
+ */
+@Entity
+@Table(name = "table_versions")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TableVersion {
+    public static final String STATUS_RETAINED = "RETAINED";
+    public static final String STATUS_RESTORED = "RESTORED";
+    public static final String STATUS_DROPPED = "DROPPED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // 版本唯一标识
+
+    @Column(name = "data_set_id", nullable = false)
+    private Long dataSetId; // 所属数据集ID
+
+    @Column(name = "data_source_id")
+    private Long dataSourceId; // 表所在的数据源ID，为空表示平台默认库
+
+    @Column(name = "table_name", nullable = false)
+    private String tableName; // 数据表名
+
+    @Column(name = "version_table_name", nullable = false)
+    private String versionTableName; // 保存该版本数据的表名，如 orders__v3
+
+    @Column(nullable = false)
+    private Integer version; // 版本号，同一数据集内递增
+
+    @Column(length = 1000)
+    private String operation; // 换下该版本的清洗操作
+
+    @Column(name = "row_count")
+    private Long rowCount; // 该版本的记录数
+
+    @Column(nullable = false)
+    private String status; // 状态：RETAINED（保留中）、RESTORED（已回滚为当前表）、DROPPED（已清理）
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt; // 创建时间
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt; // 更新时间
+
+    // 在创建前设置时间戳
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    // 在更新前设置时间戳
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.datag.importer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 导入时的列统计
+ * 数据行经过导入引擎时逐列累计空值数、最小值、最大值和近似不同值个数，
+ * 导入完成后直接用于登记元数据，不需要再扫描一遍表
+ *
+ * 统计状态可以序列化，后台导入任务随检查点一起保存，恢复后继续累计
+ */
+public class ColumnProfiler {
+
+    private static final int FORMAT_VERSION = 2;
+    private static final String DEFAULT_FIELD_TYPE = "INT";
+
+    private final List<String> columns;
+    private final long[] nullCounts;
+    private final long[] valueCounts;
+    private final long[] numericCounts;
+    private final String[] fieldTypes;
+    private final boolean[] nullable;
+    private final long[] minValues;
+    private final long[] maxValues;
+    private final HyperLogLog[] sketches;
+
+    /**
+     * @param columns 列名（不含id列，顺序与导入引擎输出的行数据一致）
+     */
+    public ColumnProfiler(List<String> columns) {
+        this.columns = new ArrayList<>(columns);
+        int size = columns.size();
+        this.nullCounts = new long[size];
+        this.valueCounts = new long[size];
+        this.numericCounts = new long[size];
+        this.fieldTypes = new String[size];
+        Arrays.fill(fieldTypes, DEFAULT_FIELD_TYPE);
+        this.nullable = new boolean[size];
+        this.minValues = new long[size];
+        this.maxValues = new long[size];
+        this.sketches = new HyperLogLog[size];
+        for (int i = 0; i < size; i++) {
+            sketches[i] = new HyperLogLog();
+        }
+    }
+
+    /**
+     * 记录一个空值（空单元格或无法解析的单元格）
+     */
+    public void observeNull(int column) {
+        nullCounts[column]++;
+    }
+
+    /**
+     * 记录一个整数值
+     */
+    public void observe(int column, long value) {
+        if (numericCounts[column] == 0) {
+            minValues[column] = value;
+            maxValues[column] = value;
+        } else if (value < minValues[column]) {
+            minValues[column] = value;
+        } else if (value > maxValues[column]) {
+            maxValues[column] = value;
+        }
+        numericCounts[column]++;
+        valueCounts[column]++;
+        sketches[column].add(value);
+    }
+
+    /**
+     * 记录一个非整数值（字符串、小数、布尔值），只计入非空数和不同值个数
+     */
+    public void observeText(int column, String value) {
+        valueCounts[column]++;
+        sketches[column].add(stringHash(value));
+    }
+
+    /**
+     * 设置字段类型和是否可为空（登记元数据时使用），默认为不可为空的INT
+     */
+    public void setFieldType(int column, String fieldType, boolean isNullable) {
+        fieldTypes[column] = fieldType;
+        nullable[column] = isNullable;
+    }
+
+    public String getFieldType(int column) {
+        return fieldTypes[column];
+    }
+
+    public boolean isNullable(int column) {
+        return nullable[column];
+    }
+
+    /**
+     * 合并另一个统计（列顺序必须一致），用于并行导入时汇总各线程的统计
+     */
+    public void merge(ColumnProfiler other) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (other.numericCounts[i] > 0) {
+                if (numericCounts[i] == 0 || other.minValues[i] < minValues[i]) {
+                    minValues[i] = other.minValues[i];
+                }
+                if (numericCounts[i] == 0 || other.maxValues[i] > maxValues[i]) {
+                    maxValues[i] = other.maxValues[i];
+                }
+            }
+            nullCounts[i] += other.nullCounts[i];
+            valueCounts[i] += other.valueCounts[i];
+            numericCounts[i] += other.numericCounts[i];
+            sketches[i].merge(other.sketches[i]);
+        }
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public long getNullCount(int column) {
+        return nullCounts[column];
+    }
+
+    /**
+     * 非空值个数
+     */
+    public long getValueCount(int column) {
+        return valueCounts[column];
+    }
+
+    /**
+     * 最小值，没有整数值时返回null
+     */
+    public Long getMin(int column) {
+        return numericCounts[column] > 0 ? minValues[column] : null;
+    }
+
+    /**
+     * 最大值，没有整数值时返回null
+     */
+    public Long getMax(int column) {
+        return numericCounts[column] > 0 ? maxValues[column] : null;
+    }
+
+    public HyperLogLog getSketch(int column) {
+        return sketches[column];
+    }
+
+    /**
+     * 序列化统计状态
+     */
+    public byte[] toBytes() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(columns.size());
+            for (int i = 0; i < columns.size(); i++) {
+                out.writeUTF(columns.get(i));
+                out.writeUTF(fieldTypes[i]);
+                out.writeBoolean(nullable[i]);
+                out.writeLong(nullCounts[i]);
+                out.writeLong(valueCounts[i]);
+                out.writeLong(numericCounts[i]);
+                out.writeLong(minValues[i]);
+                out.writeLong(maxValues[i]);
+                out.write(sketches[i].toBytes());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("序列化列统计失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 从序列化的状态恢复
+     */
+    public static ColumnProfiler fromBytes(byte[] state) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(state))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new RuntimeException("不支持的列统计格式");
+            }
+            int size = in.readInt();
+            List<String> columns = new ArrayList<>(size);
+            String[] types = new String[size];
+            boolean[] nullables = new boolean[size];
+            long[][] numbers = new long[size][];
+            byte[][] registers = new byte[size][];
+            for (int i = 0; i < size; i++) {
+                columns.add(in.readUTF());
+                types[i] = in.readUTF();
+                nullables[i] = in.readBoolean();
+                numbers[i] = new long[]{in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readLong()};
+                registers[i] = new HyperLogLog().toBytes();
+                in.readFully(registers[i]);
+            }
+            ColumnProfiler profiler = new ColumnProfiler(columns);
+            for (int i = 0; i < size; i++) {
+                profiler.fieldTypes[i] = types[i];
+                profiler.nullable[i] = nullables[i];
+                profiler.nullCounts[i] = numbers[i][0];
+                profiler.valueCounts[i] = numbers[i][1];
+                profiler.numericCounts[i] = numbers[i][2];
+                profiler.minValues[i] = numbers[i][3];
+                profiler.maxValues[i] = numbers[i][4];
+                profiler.sketches[i] = HyperLogLog.fromBytes(registers[i]);
+            }
+            return profiler;
+        } catch (IOException e) {
+            throw new RuntimeException("读取列统计失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 字符串的64位哈希（FNV-1a），再由HyperLogLog做一次混合
+     */
+    private static long stringHash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.datag.importer;
+
+/**
+ * 导入文件的压缩格式
+ */
+public enum Compression {
+    NONE,
+    GZIP,
+    ZIP,
+    ZSTD;
+
+    /**
+     * 根据文件名后缀判断压缩格式
+     * 支持 .csv、.csv.gz/.gz、.zip、.csv.zst/.zst
+     * @return 压缩格式，不支持的文件类型返回null
+     */
+    public static Compression fromFileName(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        String lower = fileName.toLowerCase();
+        if (lower.endsWith(".csv")) {
+            return NONE;
+        }
+        if (lower.endsWith(".gz")) {
+            return GZIP;
+        }
+        if (lower.endsWith(".zip")) {
+            return ZIP;
+        }
+        if (lower.endsWith(".zst")) {
+            return ZSTD;
+        }
+        return null;
+    }
+
+    /**
+     * 暂存文件使用的后缀
+     */
+    public String fileSuffix() {
+        switch (this) {
+            case GZIP:
+                return ".csv.gz";
+            case ZIP:
+                return ".zip";
+            case ZSTD:
+                return ".csv.zst";
+            default:
+                return ".csv";
+        }
+    }
+}
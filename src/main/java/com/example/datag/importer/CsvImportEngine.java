@@ -0,0 +1,181 @@
+package com.example.datag.importer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * CSV流式导入引擎
+ * 逐行读取、解析并转换数据，每凑满一批交给提交器写入
+ *
+ * 提交器在写入数据的同时可以记录检查点（批次结束时的字节偏移量和行号），
+ * 这样任务中断后可以从最后一个已提交的批次之后继续导入
+ *
+ * 列数不匹配的行被跳过，含非整数单元格的行按0写入，两者都交给错误行收集器记录；
+ * 已读取的数据行达到最小行数后，若错误行比例超过阈值则停止导入
+ */
+public class CsvImportEngine {
+
+    /**
+     * 批次提交器
+     */
+    @FunctionalInterface
+    public interface BatchCommitter {
+        /**
+         * 提交一批数据
+         * @param rows 本批数据
+         * @param endOffset 本批最后一行之后的字节偏移量
+         * @param endLine 本批最后读取的行号（从1开始，含表头）
+         */
+        void commit(List<Object[]> rows, long endOffset, long endLine);
+    }
+
+    private final int batchSize;
+    private final RejectSink rejectSink;
+    private final double maxErrorRatio;
+    private final long errorRatioMinRows;
+    private long rowsSeen;
+    private ColumnProfiler profiler;
+
+    /**
+     * @param batchSize 每批行数
+     * @param rejectSink 错误行收集器
+     * @param maxErrorRatio 允许的最大错误行比例，大于等于1表示不限制
+     * @param errorRatioMinRows 已读取的数据行数达到该值后才检查错误行比例
+     * @param initialRowsSeen 之前已读取的数据行数（断点恢复时累计计算比例）
+     */
+    public CsvImportEngine(int batchSize, RejectSink rejectSink, double maxErrorRatio,
+                           long errorRatioMinRows, long initialRowsSeen) {
+        this.batchSize = batchSize;
+        this.rejectSink = rejectSink;
+        this.maxErrorRatio = maxErrorRatio;
+        this.errorRatioMinRows = errorRatioMinRows;
+        this.rowsSeen = initialRowsSeen;
+    }
+
+    /**
+     * 设置列统计，写入的每一行都会计入统计
+     */
+    public void setProfiler(ColumnProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * 执行导入
+     * @param source 行数据源（已越过表头或检查点）
+     * @param headers 表头
+     * @param startLine 数据源当前位置之前已读取的行数
+     * @param committer 批次提交器
+     * @param cancelled 取消标志，每批提交前检查一次
+     * @return 本次导入的行数
+     */
+    public long run(LineSource source, List<String> headers, long startLine,
+                    BatchCommitter committer, BooleanSupplier cancelled) throws IOException {
+        int idIndex = indexOfIdColumn(headers);
+        long lineNumber = startLine;
+        long rowCount = 0;
+        List<Object[]> batch = new ArrayList<>(batchSize);
+
+        String line;
+        while ((line = source.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+
+            rowsSeen++;
+            List<String> values = CsvLineParser.parse(line);
+            if (values.size() != headers.size()) {
+                rejectSink.reject(lineNumber, RejectSink.COLUMN_COUNT_MISMATCH,
+                        "列数为 " + values.size() + "，表头为 " + headers.size(), line);
+                checkErrorRatio(lineNumber);
+                continue;
+            }
+
+            batch.add(bindRow(values, idIndex, lineNumber, line));
+            rowCount++;
+
+            if (batch.size() >= batchSize) {
+                if (cancelled.getAsBoolean()) {
+                    return rowCount - batch.size();
+                }
+                committer.commit(batch, source.position(), lineNumber);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        // 提交剩余数据
+        if (!batch.isEmpty()) {
+            if (cancelled.getAsBoolean()) {
+                return rowCount - batch.size();
+            }
+            committer.commit(batch, source.position(), lineNumber);
+        }
+        return rowCount;
+    }
+
+    /**
+     * 转换为整数数组（所有字段都作为int处理，id列由数据库自动生成）
+     */
+    private Object[] bindRow(List<String> values, int idIndex, long lineNumber, String line) {
+        Object[] rowData = new Object[idIndex >= 0 ? values.size() - 1 : values.size()];
+        StringBuilder invalidColumns = null;
+        int target = 0;
+        for (int i = 0; i < values.size(); i++) {
+            if (i == idIndex) {
+                continue;
+            }
+            String value = values.get(i).trim();
+            if (value.isEmpty()) {
+                if (profiler != null) {
+                    profiler.observeNull(target);
+                }
+                rowData[target++] = 0; // 空值默认为0
+                continue;
+            }
+            try {
+                int parsed = Integer.parseInt(value);
+                if (profiler != null) {
+                    profiler.observe(target, parsed);
+                }
+                rowData[target++] = parsed;
+            } catch (NumberFormatException e) {
+                if (profiler != null) {
+                    profiler.observeNull(target);
+                }
+                rowData[target++] = 0;
+                invalidColumns = invalidColumns == null ? new StringBuilder() : invalidColumns.append(", ");
+                invalidColumns.append(i + 1);
+            }
+        }
+        if (invalidColumns != null) {
+            // 同一行的多个非整数单元格合并为一条记录
+            rejectSink.reject(lineNumber, RejectSink.NON_INTEGER,
+                    "列 " + invalidColumns + " 不是整数，已按0写入", line);
+            checkErrorRatio(lineNumber);
+        }
+        return rowData;
+    }
+
+    private void checkErrorRatio(long lineNumber) {
+        if (maxErrorRatio >= 1 || rowsSeen < errorRatioMinRows) {
+            return;
+        }
+        long errors = rejectSink.getTotal();
+        if (errors > maxErrorRatio * rowsSeen) {
+            throw new RuntimeException(String.format(
+                    "错误行比例超过阈值，导入已停止：已读取 %d 行，错误 %d 行（%.2f%%），阈值 %.2f%%，停止于第 %d 行",
+                    rowsSeen, errors, errors * 100.0 / rowsSeen, maxErrorRatio * 100, lineNumber));
+        }
+    }
+
+    private int indexOfIdColumn(List<String> headers) {
+        for (int i = 0; i < headers.size(); i++) {
+            if (headers.get(i).equalsIgnoreCase("id")) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
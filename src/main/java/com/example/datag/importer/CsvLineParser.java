@@ -0,0 +1,30 @@
+package com.example.datag.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV行解析工具
+ * 同步导入和后台导入任务共用同一套解析规则
+ */
+public final class CsvLineParser {
+
+    private CsvLineParser() {
+    }
+
+    /**
+     * 解析CSV行（简单的CSV解析，不支持引号内的逗号）
+     */
+    public static List<String> parse(String line) {
+        List<String> result = new ArrayList<>();
+        if (line == null || line.trim().isEmpty()) {
+            return result;
+        }
+
+        String[] parts = line.split(",");
+        for (String part : parts) {
+            result.add(part.trim());
+        }
+        return result;
+    }
+}
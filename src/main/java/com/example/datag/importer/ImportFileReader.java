@@ -0,0 +1,165 @@
+package com.example.datag.importer;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 导入文件读取器
+ * 按分段读取导入文件：普通CSV和gzip/zstd压缩文件只有一个分段，zip压缩包中的每个文件是一个分段
+ *
+ * 压缩文件边读边解压，不需要先解压到磁盘；解压在独立线程中进行，与解析并行。
+ * 压缩文件的行数据源position()返回已读取的压缩字节数，用于计算进度
+ */
+public class ImportFileReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final Compression compression;
+    private final long mmapThreshold;
+
+    private CountingInputStream counting;
+    private ZipInputStream zip;
+    private LineSource current;
+    private String entryName;
+    private int entryIndex = -1;
+    private boolean singleEntryOpened;
+
+    public ImportFileReader(Path file, Compression compression, long mmapThreshold) {
+        this.file = file;
+        this.compression = compression;
+        this.mmapThreshold = mmapThreshold;
+    }
+
+    /**
+     * 打开下一个分段
+     * @param startOffset 起始字节偏移量，仅对未压缩文件有效（断点恢复时直接定位）
+     * @return 分段的行数据源，没有更多分段时返回null
+     */
+    public LineSource nextEntry(long startOffset) throws IOException {
+        closeCurrent();
+        switch (compression) {
+            case NONE:
+                if (singleEntryOpened) {
+                    return null;
+                }
+                singleEntryOpened = true;
+                entryIndex++;
+                entryName = file.getFileName().toString();
+                current = LineSources.openFile(file, startOffset, mmapThreshold);
+                return current;
+            case GZIP:
+            case ZSTD:
+                if (singleEntryOpened) {
+                    return null;
+                }
+                singleEntryOpened = true;
+                entryIndex++;
+                entryName = file.getFileName().toString();
+                counting = new CountingInputStream(Files.newInputStream(file));
+                InputStream decompressed = compression == Compression.GZIP
+                        ? new GZIPInputStream(counting, BUFFER_SIZE)
+                        : new BufferedInputStream(new ZstdInputStream(counting), BUFFER_SIZE);
+                current = new PrefetchingLineSource(new StreamLineSource(decompressed, 0), counting::getCount);
+                return current;
+            case ZIP:
+                if (zip == null) {
+                    counting = new CountingInputStream(Files.newInputStream(file));
+                    zip = new ZipInputStream(new BufferedInputStream(counting, BUFFER_SIZE));
+                }
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null && !isCsvEntry(entry)) {
+                    // 跳过目录和非CSV文件
+                }
+                if (entry == null) {
+                    return null;
+                }
+                entryIndex++;
+                entryName = entry.getName();
+                current = new PrefetchingLineSource(new StreamLineSource(new EntryInputStream(zip), 0), counting::getCount);
+                return current;
+            default:
+                throw new IOException("不支持的压缩格式: " + compression);
+        }
+    }
+
+    /**
+     * 跳过指定数量的行（压缩文件断点恢复时使用）
+     */
+    public static void skipLines(LineSource source, long lines) throws IOException {
+        for (long i = 0; i < lines; i++) {
+            if (source.readLine() == null) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 当前分段的序号（从0开始）
+     */
+    public int getEntryIndex() {
+        return entryIndex;
+    }
+
+    /**
+     * 当前分段的名称（zip中的文件名）
+     */
+    public String getEntryName() {
+        return entryName;
+    }
+
+    /**
+     * 是否支持按字节偏移量直接定位
+     */
+    public boolean isSeekable() {
+        return compression == Compression.NONE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeCurrent();
+        if (zip != null) {
+            zip.close();
+        } else if (counting != null) {
+            counting.close();
+        }
+    }
+
+    private boolean isCsvEntry(ZipEntry entry) {
+        String name = entry.getName();
+        return !entry.isDirectory()
+                && !name.startsWith("__MACOSX/")
+                && name.toLowerCase().endsWith(".csv");
+    }
+
+    private void closeCurrent() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+
+    /**
+     * zip条目输入流：关闭时只结束当前条目，不关闭整个压缩包
+     */
+    private static class EntryInputStream extends FilterInputStream {
+        EntryInputStream(ZipInputStream zip) {
+            super(zip);
+        }
+
+        @Override
+        public void close() throws IOException {
+            ((ZipInputStream) in).closeEntry();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.datag.importer;
+
+import lombok.Getter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * 导入的目标库
+ * 平台默认库或已登记的数据源，包含该库的连接、方言和事务模板
+ *
+ * 目标为默认库时，数据和导入任务的检查点可以在同一个事务中提交；
+ * 目标为其他数据源时两者分别提交，检查点保存前中断的追加导入不能断点恢复
+ *
+ * 长时间使用目标库的操作（导入任务、清洗）应先借用连接池，用完归还：
+ * 数据源配置变化时旧连接池不会立即关闭，等最后一个借用者归还后才关闭
+ */
+@Getter
+public class ImportTarget {
+
+    /**
+     * 借用连接池的凭证
+     */
+    public interface Lease extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final Lease NO_LEASE = () -> { };
+
+    private final Long dataSourceId;
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlDialect dialect;
+    private final TransactionTemplate transactionTemplate;
+    @Getter(lombok.AccessLevel.NONE)
+    private final Supplier<Lease> leases;
+
+    public ImportTarget(Long dataSourceId, JdbcTemplate jdbcTemplate, SqlDialect dialect,
+                        TransactionTemplate transactionTemplate) {
+        this(dataSourceId, jdbcTemplate, dialect, transactionTemplate, null);
+    }
+
+    /**
+     * @param leases 借用连接池，为空表示连接池不会被替换（如平台默认库）
+     */
+    public ImportTarget(Long dataSourceId, JdbcTemplate jdbcTemplate, SqlDialect dialect,
+                        TransactionTemplate transactionTemplate, Supplier<Lease> leases) {
+        this.dataSourceId = dataSourceId;
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.transactionTemplate = transactionTemplate;
+        this.leases = leases;
+    }
+
+    /**
+     * 是否为平台默认库
+     */
+    public boolean isPrimary() {
+        return dataSourceId == null;
+    }
+
+    /**
+     * 借用连接池，归还前连接池不会因数据源配置变化而关闭
+     */
+    public Lease lease() {
+        return leases != null ? leases.get() : NO_LEASE;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.datag.importer;
+
+import java.time.LocalDateTime;
+
+/**
+ * JSON字段和Excel单元格推断出的列类型
+ * 按 BOOLEAN < BIGINT < DOUBLE < STRING < TEXT 的顺序放宽：
+ * 同一字段在样本中出现多种类型时取能容纳所有值的类型；
+ * DATETIME只来自Excel的日期单元格，与其他类型混合时按字符串处理
+ */
+public enum JsonColumnType {
+    BOOLEAN,
+    BIGINT,
+    DOUBLE,
+    DATETIME,
+    STRING,
+    TEXT;
+
+    /**
+     * 短字符串使用VARCHAR，超过该长度使用TEXT
+     */
+    public static final int MAX_STRING_LENGTH = 255;
+
+    /**
+     * 根据单个值判断类型
+     */
+    public static JsonColumnType of(Object value) {
+        if (value instanceof Boolean) {
+            return BOOLEAN;
+        }
+        if (value instanceof Long || value instanceof Integer) {
+            return BIGINT;
+        }
+        if (value instanceof Number) {
+            return DOUBLE;
+        }
+        if (value instanceof LocalDateTime) {
+            return DATETIME;
+        }
+        return value.toString().length() > MAX_STRING_LENGTH ? TEXT : STRING;
+    }
+
+    /**
+     * 合并两个类型，返回能同时容纳两者的类型
+     */
+    public JsonColumnType widen(JsonColumnType other) {
+        if (other == null || other == this) {
+            return this;
+        }
+        if (this == BOOLEAN || other == BOOLEAN || this == DATETIME || other == DATETIME) {
+            // 布尔值、日期和其他类型混合时只能存为字符串
+            return this == TEXT || other == TEXT ? TEXT : STRING;
+        }
+        return ordinal() >= other.ordinal() ? this : other;
+    }
+
+    /**
+     * 把值转换为该列类型的JDBC参数，无法转换时返回null
+     */
+    public Object convert(Object value) {
+        if (value == null) {
+            return null;
+        }
+        switch (this) {
+            case BOOLEAN:
+                return value instanceof Boolean ? value : null;
+            case BIGINT:
+                return value instanceof Long || value instanceof Integer ? ((Number) value).longValue() : null;
+            case DOUBLE:
+                return value instanceof Number ? ((Number) value).doubleValue() : null;
+            case DATETIME:
+                return value instanceof LocalDateTime ? value : null;
+            case STRING:
+                String text = value.toString();
+                return text.length() > MAX_STRING_LENGTH ? null : text;
+            default:
+                return value.toString();
+        }
+    }
+}
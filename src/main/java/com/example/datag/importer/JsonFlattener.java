@@ -0,0 +1,95 @@
+package com.example.datag.importer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JSON记录展开器
+ * 用流式JsonParser读取一条JSON对象，把嵌套对象展开为以下划线连接的列路径，
+ * 例如 {"user": {"id": 1}} 展开为列 user_id；数组保留为JSON文本
+ *
+ * 只在内存中保留当前这一条记录
+ */
+public final class JsonFlattener {
+
+    private static final int MAX_COLUMN_LENGTH = 64;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private JsonFlattener() {
+    }
+
+    /**
+     * 展开当前对象
+     * @param parser 已定位在START_OBJECT上的解析器，返回时定位在对应的END_OBJECT上
+     * @return 列路径 -> 值（Boolean、Long、Double、String或null）
+     */
+    public static Map<String, Object> flatten(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("JSON记录必须是对象，实际为: " + parser.currentToken());
+        }
+        Map<String, Object> row = new LinkedHashMap<>();
+        flattenObject(parser, "", row);
+        return row;
+    }
+
+    /**
+     * 把字段路径转换为合法的列名（只保留字母、数字和下划线）
+     */
+    public static String columnName(String path) {
+        String name = path.replaceAll("[^a-zA-Z0-9_]", "_");
+        return name.length() > MAX_COLUMN_LENGTH ? name.substring(0, MAX_COLUMN_LENGTH) : name;
+    }
+
+    private static void flattenObject(JsonParser parser, String prefix, Map<String, Object> row) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String column = columnName(prefix + parser.currentName());
+            JsonToken token = parser.nextToken();
+            switch (token) {
+                case START_OBJECT:
+                    flattenObject(parser, column + "_", row);
+                    break;
+                case START_ARRAY:
+                    row.put(column, copyStructure(parser));
+                    break;
+                case VALUE_TRUE:
+                case VALUE_FALSE:
+                    row.put(column, parser.getBooleanValue());
+                    break;
+                case VALUE_NUMBER_INT:
+                    if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                        row.put(column, parser.getText());
+                    } else {
+                        row.put(column, parser.getLongValue());
+                    }
+                    break;
+                case VALUE_NUMBER_FLOAT:
+                    row.put(column, parser.getDoubleValue());
+                    break;
+                case VALUE_NULL:
+                    row.put(column, null);
+                    break;
+                default:
+                    row.put(column, parser.getText());
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 把当前数组原样复制为JSON文本
+     */
+    private static String copyStructure(JsonParser parser) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.copyCurrentStructure(parser);
+        }
+        return writer.toString();
+    }
+}
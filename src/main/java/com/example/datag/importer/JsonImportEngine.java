@@ -0,0 +1,453 @@
+package com.example.datag.importer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * JSON流式导入引擎
+ * 支持两种文件格式：
+ * 1. NDJSON：每行一条JSON对象。文件按字节范围切分（切分点对齐到行首），多个线程各自读取一段并写库；
+ *    每行单独解析，格式错误的行记入错误行文件后继续
+ * 2. JSON数组：整个文件是一个对象数组。用JsonParser逐个元素流式读取，单线程写库；
+ *    数组格式无法从错误中恢复，遇到格式错误时停止
+ *
+ * 每个线程只在内存中保留当前一批数据，内存占用与文件大小无关
+ * 错误行文件中的位置为记录起始的字节偏移量
+ */
+public class JsonImportEngine {
+
+    /** JSON格式错误 */
+    public static final String MALFORMED_JSON = "MALFORMED_JSON";
+    /** 值与推断的列类型不符，按null写入 */
+    public static final String TYPE_MISMATCH = "TYPE_MISMATCH";
+    /** 字段不在推断的表结构中，被忽略 */
+    public static final String UNKNOWN_FIELD = "UNKNOWN_FIELD";
+
+    /** 每个线程至少处理的字节数，小文件不切分 */
+    private static final long MIN_RANGE_BYTES = 16L * 1024 * 1024;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final AtomicInteger THREAD_SEQ = new AtomicInteger();
+
+    /**
+     * JSON文件格式
+     */
+    public enum Format {
+        NDJSON,
+        ARRAY
+    }
+
+    /**
+     * 批次写入器，可能被多个线程同时调用
+     */
+    @FunctionalInterface
+    public interface BatchWriter {
+        /**
+         * @param rows 本批数据，列顺序与表结构一致
+         * @param bytesRead 本批对应的文件字节数（用于计算进度）
+         */
+        void write(List<Object[]> rows, long bytesRead);
+    }
+
+    private final int batchSize;
+    private final int parallelism;
+    private final long mmapThreshold;
+    private final RejectSink rejectSink;
+    private final double maxErrorRatio;
+    private final long errorRatioMinRows;
+    private final AtomicLong rowsSeen = new AtomicLong();
+
+    /**
+     * @param batchSize 每批行数
+     * @param parallelism NDJSON导入的最大线程数
+     * @param mmapThreshold 使用内存映射读取的最小文件大小
+     * @param rejectSink 错误行收集器
+     * @param maxErrorRatio 允许的最大错误行比例，大于等于1表示不限制
+     * @param errorRatioMinRows 已读取的记录数达到该值后才检查错误行比例
+     */
+    public JsonImportEngine(int batchSize, int parallelism, long mmapThreshold, RejectSink rejectSink,
+                            double maxErrorRatio, long errorRatioMinRows) {
+        this.batchSize = batchSize;
+        this.parallelism = Math.max(1, parallelism);
+        this.mmapThreshold = mmapThreshold;
+        this.rejectSink = rejectSink;
+        this.maxErrorRatio = maxErrorRatio;
+        this.errorRatioMinRows = errorRatioMinRows;
+    }
+
+    /**
+     * 根据第一个非空白字符判断格式：'[' 为JSON数组，否则为NDJSON
+     */
+    public static Format detectFormat(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '[') {
+                    return Format.ARRAY;
+                }
+                if (!Character.isWhitespace(b) && b != 0xEF && b != 0xBB && b != 0xBF) {
+                    return Format.NDJSON;
+                }
+            }
+        }
+        throw new IOException("JSON文件为空");
+    }
+
+    /**
+     * 读取前若干条记录推断表结构
+     * @param sampleSize 样本记录数
+     */
+    public static JsonSchema inferSchema(Path file, Format format, int sampleSize, long mmapThreshold) throws IOException {
+        JsonSchema schema = new JsonSchema();
+        int sampled = 0;
+        if (format == Format.NDJSON) {
+            try (LineSource source = LineSources.openFile(file, 0, mmapThreshold)) {
+                String line;
+                while (sampled < sampleSize && (line = source.readLine()) != null) {
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+                    try (JsonParser parser = JSON_FACTORY.createParser(line)) {
+                        parser.nextToken();
+                        schema.observe(JsonFlattener.flatten(parser));
+                        sampled++;
+                    } catch (IOException e) {
+                        // 格式错误的行在导入时记入错误行文件，推断时跳过
+                    }
+                }
+            }
+        } else {
+            try (JsonParser parser = JSON_FACTORY.createParser(Files.newInputStream(file))) {
+                expectArray(parser);
+                while (sampled < sampleSize && parser.nextToken() == JsonToken.START_OBJECT) {
+                    schema.observe(JsonFlattener.flatten(parser));
+                    sampled++;
+                }
+            }
+        }
+        if (schema.isEmpty()) {
+            throw new IOException("JSON文件中没有可用于推断表结构的记录");
+        }
+        return schema;
+    }
+
+    /**
+     * 执行导入
+     * @param file JSON文件
+     * @param format 文件格式
+     * @param schema 表结构
+     * @param writer 批次写入器
+     * @param profiler 列统计（可选），各线程的统计在结束时合并进来
+     * @param cancelled 取消标志，每批写入前检查一次
+     * @return 写入的行数
+     */
+    public long run(Path file, Format format, JsonSchema schema, BatchWriter writer, ColumnProfiler profiler,
+                    BooleanSupplier cancelled) throws IOException {
+        List<String> columns = schema.getColumnNames();
+        List<JsonColumnType> types = new ArrayList<>(schema.getColumns().values());
+        if (format == Format.ARRAY) {
+            Worker worker = new Worker(columns, types, writer, profiler, cancelled);
+            worker.readArray(file);
+            return worker.rowsWritten;
+        }
+
+        List<long[]> ranges = splitRanges(file);
+        if (ranges.size() == 1) {
+            Worker worker = new Worker(columns, types, writer, profiler, cancelled);
+            worker.readLines(file, 0, ranges.get(0)[1]);
+            return worker.rowsWritten;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(ranges.size(), runnable -> {
+            Thread thread = new Thread(runnable, "json-import-" + THREAD_SEQ.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicBoolean failed = new AtomicBoolean();
+        BooleanSupplier stop = () -> failed.get() || cancelled.getAsBoolean();
+        List<Worker> workers = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (long[] range : ranges) {
+                Worker worker = new Worker(columns, types, writer,
+                        profiler != null ? new ColumnProfiler(profiler.getColumns()) : null, stop);
+                workers.add(worker);
+                futures.add(executor.submit(() -> {
+                    try {
+                        worker.readLines(file, range[0], range[1]);
+                    } catch (IOException | RuntimeException e) {
+                        // 一个线程失败时通知其他线程尽快停止
+                        failed.set(true);
+                        throw e;
+                    }
+                    return null;
+                }));
+            }
+            Throwable error = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (error == null) {
+                        error = e.getCause();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed.set(true);
+                    throw new IOException("导入被中断", e);
+                }
+            }
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            }
+            if (error != null) {
+                throw error instanceof RuntimeException ? (RuntimeException) error : new RuntimeException(error);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long total = 0;
+        for (Worker worker : workers) {
+            total += worker.rowsWritten;
+            if (profiler != null) {
+                profiler.merge(worker.profiler);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 按字节范围切分NDJSON文件，每个切分点移动到下一行的行首
+     */
+    private List<long[]> splitRanges(Path file) throws IOException {
+        List<long[]> ranges = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int count = (int) Math.max(1, Math.min(parallelism, size / MIN_RANGE_BYTES));
+            long start = 0;
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            for (int i = 1; i < count && start < size; i++) {
+                long end = nextLineStart(channel, Math.max(start, size * i / count), buffer);
+                if (end > start) {
+                    ranges.add(new long[]{start, end});
+                    start = end;
+                }
+            }
+            if (start < size || ranges.isEmpty()) {
+                ranges.add(new long[]{start, size});
+            }
+        }
+        return ranges;
+    }
+
+    private long nextLineStart(FileChannel channel, long from, ByteBuffer buffer) throws IOException {
+        long position = from;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    private void checkErrorRatio(long position) {
+        long seen = rowsSeen.get();
+        if (maxErrorRatio >= 1 || seen < errorRatioMinRows) {
+            return;
+        }
+        long errors = rejectSink.getTotal();
+        if (errors > maxErrorRatio * seen) {
+            throw new RuntimeException(String.format(
+                    "错误记录比例超过阈值，导入已停止：已读取 %d 条，错误 %d 条（%.2f%%），阈值 %.2f%%，停止于字节偏移 %d",
+                    seen, errors, errors * 100.0 / seen, maxErrorRatio * 100, position));
+        }
+    }
+
+    /**
+     * 单个线程的读取和写入状态
+     */
+    private class Worker {
+        private final List<String> columns;
+        private final List<JsonColumnType> types;
+        private final Map<String, Integer> columnIndexes = new HashMap<>();
+        private final BatchWriter writer;
+        private final ColumnProfiler profiler;
+        private final BooleanSupplier stop;
+        private List<Object[]> batch;
+        private long batchStart;
+        private long rowsWritten;
+
+        Worker(List<String> columns, List<JsonColumnType> types, BatchWriter writer, ColumnProfiler profiler,
+               BooleanSupplier stop) {
+            this.columns = columns;
+            this.types = types;
+            this.writer = writer;
+            this.profiler = profiler;
+            this.stop = stop;
+            for (int i = 0; i < columns.size(); i++) {
+                columnIndexes.put(columns.get(i), i);
+            }
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        /**
+         * 读取NDJSON文件中 [start, end) 范围内的行
+         */
+        void readLines(Path file, long start, long end) throws IOException {
+            batchStart = start;
+            try (LineSource source = LineSources.openFile(file, start, mmapThreshold)) {
+                long position = start;
+                String line;
+                while (position < end && (line = source.readLine()) != null) {
+                    long lineStart = position;
+                    position = source.position();
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+                    rowsSeen.incrementAndGet();
+                    Map<String, Object> record;
+                    try (JsonParser parser = JSON_FACTORY.createParser(line)) {
+                        parser.nextToken();
+                        record = JsonFlattener.flatten(parser);
+                    } catch (IOException e) {
+                        rejectSink.reject(lineStart, MALFORMED_JSON, e.getMessage(), line);
+                        checkErrorRatio(lineStart);
+                        continue;
+                    }
+                    if (!add(record, lineStart, line, position)) {
+                        return;
+                    }
+                }
+                flush(position);
+            }
+        }
+
+        /**
+         * 流式读取JSON数组
+         */
+        void readArray(Path file) throws IOException {
+            try (JsonParser parser = JSON_FACTORY.createParser(new BufferedInputStream(Files.newInputStream(file)))) {
+                expectArray(parser);
+                JsonToken token;
+                while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                    long recordStart = parser.currentTokenLocation().getByteOffset();
+                    rowsSeen.incrementAndGet();
+                    Map<String, Object> record = JsonFlattener.flatten(parser);
+                    if (!add(record, recordStart, null, parser.currentLocation().getByteOffset())) {
+                        return;
+                    }
+                }
+                if (token != JsonToken.END_ARRAY) {
+                    throw new IOException("JSON数组中只能包含对象，位置: " + parser.currentTokenLocation().getByteOffset());
+                }
+                flush(parser.currentLocation().getByteOffset());
+            }
+        }
+
+        /**
+         * 转换一条记录并加入当前批次，批次满时写入
+         * @return 是否继续读取（取消或其他线程失败时返回false）
+         */
+        private boolean add(Map<String, Object> record, long recordStart, String raw, long position) {
+            Object[] row = new Object[columns.size()];
+            StringBuilder mismatched = null;
+            StringBuilder unknown = null;
+            for (Map.Entry<String, Object> field : record.entrySet()) {
+                Integer index = columnIndexes.get(field.getKey());
+                if (index == null) {
+                    unknown = append(unknown, field.getKey());
+                    continue;
+                }
+                Object value = field.getValue();
+                Object converted = types.get(index).convert(value);
+                if (value != null && converted == null) {
+                    mismatched = append(mismatched, field.getKey());
+                }
+                row[index] = converted;
+            }
+            if (profiler != null) {
+                profile(row);
+            }
+            if (mismatched != null) {
+                rejectSink.reject(recordStart, TYPE_MISMATCH, "字段 " + mismatched + " 与推断的类型不符，已按null写入",
+                        raw != null ? raw : record.toString());
+                checkErrorRatio(recordStart);
+            } else if (unknown != null) {
+                rejectSink.reject(recordStart, UNKNOWN_FIELD, "字段 " + unknown + " 不在推断的表结构中，已忽略",
+                        raw != null ? raw : record.toString());
+                checkErrorRatio(recordStart);
+            }
+
+            batch.add(row);
+            if (batch.size() >= batchSize) {
+                if (stop.getAsBoolean()) {
+                    return false;
+                }
+                flush(position);
+            }
+            return true;
+        }
+
+        private void flush(long position) {
+            if (batch.isEmpty() || stop.getAsBoolean()) {
+                return;
+            }
+            writer.write(batch, position - batchStart);
+            rowsWritten += batch.size();
+            batchStart = position;
+            batch = new ArrayList<>(batchSize);
+        }
+
+        private void profile(Object[] row) {
+            for (int i = 0; i < row.length; i++) {
+                Object value = row[i];
+                if (value == null) {
+                    profiler.observeNull(i);
+                } else if (value instanceof Long) {
+                    profiler.observe(i, (Long) value);
+                } else {
+                    profiler.observeText(i, value.toString());
+                }
+            }
+        }
+
+        private StringBuilder append(StringBuilder names, String name) {
+            return names == null ? new StringBuilder(name) : names.append(", ").append(name);
+        }
+    }
+
+    private static void expectArray(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IOException("JSON文件必须是对象数组或NDJSON格式");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.datag.importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON和Excel导入的表结构
+ * 从样本记录推断每个列路径（Excel为表头列）的类型，按首次出现的顺序排列；
+ * 样本中只出现过null的列按STRING处理
+ */
+public class JsonSchema {
+
+    private final Map<String, JsonColumnType> columns = new LinkedHashMap<>();
+
+    /**
+     * 用一条样本记录更新推断结果
+     */
+    public void observe(Map<String, Object> row) {
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            JsonColumnType current = columns.get(entry.getKey());
+            if (entry.getValue() == null) {
+                columns.putIfAbsent(entry.getKey(), null);
+            } else {
+                JsonColumnType type = JsonColumnType.of(entry.getValue());
+                columns.put(entry.getKey(), current == null ? type : current.widen(type));
+            }
+        }
+    }
+
+    /**
+     * 推断出的列及类型
+     */
+    public Map<String, JsonColumnType> getColumns() {
+        Map<String, JsonColumnType> result = new LinkedHashMap<>();
+        columns.forEach((name, type) -> result.put(name, type != null ? type : JsonColumnType.STRING));
+        return Collections.unmodifiableMap(result);
+    }
+
+    public List<String> getColumnNames() {
+        return new ArrayList<>(columns.keySet());
+    }
+
+    public boolean isEmpty() {
+        return columns.isEmpty();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.datag.importer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON导入的目标表写入器
+ * 按推断出的表结构和目标库方言建表，每批数据在一个事务中批量插入
+ *
+ * 可以被多个导入线程同时调用
+ */
+public class JsonTableWriter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlDialect dialect;
+    private final String tableName;
+    private final Map<String, JsonColumnType> columns;
+    private final String insertSql;
+    private final TransactionTemplate transactionTemplate;
+
+    public JsonTableWriter(ImportTarget target, String tableName, Map<String, JsonColumnType> columns) {
+        this.jdbcTemplate = target.getJdbcTemplate();
+        this.dialect = target.getDialect();
+        this.tableName = tableName;
+        this.columns = columns;
+        this.insertSql = dialect.insertSql(tableName, new ArrayList<>(columns.keySet()));
+        this.transactionTemplate = target.getTransactionTemplate();
+    }
+
+    /**
+     * 确保表存在，如果不存在则按推断出的结构创建
+     * @return 是否新建了表
+     */
+    public boolean ensureTableExists() {
+        if (SqlDialect.tableExists(jdbcTemplate, tableName)) {
+            return false;
+        }
+        jdbcTemplate.execute(dialect.createTableSql(tableName, columns));
+        return true;
+    }
+
+    /**
+     * 写入一批数据
+     * @param rows 行数据，列顺序与表结构一致
+     */
+    public void writeBatch(List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(insertSql, rows));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.datag.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 按行读取的数据源
+ * 除了返回行内容，还记录已消费的字节偏移量，用于导入进度和断点恢复
+ */
+public interface LineSource extends Closeable {
+
+    /**
+     * 读取下一行（不含换行符）
+     * @return 行内容，到达末尾时返回null
+     */
+    String readLine() throws IOException;
+
+    /**
+     * 已消费的字节偏移量（指向下一行的起始位置）
+     */
+    long position();
+}
@@ -0,0 +1,33 @@
+package com.example.datag.importer;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 行数据源工厂
+ * 服务端文件达到阈值时使用内存映射读取，小文件直接用FileChannel流式读取
+ */
+public final class LineSources {
+
+    private LineSources() {
+    }
+
+    /**
+     * 打开服务端文件
+     * @param file 文件路径
+     * @param startOffset 起始字节偏移量（用于断点恢复，从头读取时为0）
+     * @param mmapThreshold 使用内存映射的最小文件大小（字节）
+     */
+    public static LineSource openFile(Path file, long startOffset, long mmapThreshold) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        if (channel.size() >= mmapThreshold) {
+            channel.close();
+            return new MappedFileLineSource(file, startOffset);
+        }
+        channel.position(startOffset);
+        return new StreamLineSource(Channels.newInputStream(channel), startOffset);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.datag.importer;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于内存映射的文件行读取器
+ *
+ * 工作原理：
+ * 1. 按窗口（默认64MB）把文件的一段映射到内存，单个MappedByteBuffer不能超过2GB，所以大文件分多个窗口
+ * 2. 直接在映射区域中扫描换行符，只把当前行的字节解码成字符串，不经过额外的读缓冲
+ * 3. 当一行跨越窗口边界时，从该行起始位置重新映射下一个窗口
+ *
+ * 读取的数据量只和实际消费的行数有关，读取表头或预览前几行不会加载整个文件
+ */
+public class MappedFileLineSource implements LineSource {
+
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private long windowSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private boolean checkBom;
+
+    public MappedFileLineSource(Path file, long startOffset) throws IOException {
+        this(file, startOffset, DEFAULT_WINDOW_SIZE);
+    }
+
+    public MappedFileLineSource(Path file, long startOffset, int windowSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        this.position = startOffset;
+        this.checkBom = startOffset == 0;
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        if (position >= fileSize) {
+            return null;
+        }
+        while (true) {
+            if (window == null || position < windowStart || position >= windowStart + window.limit()) {
+                map(position);
+            }
+            int start = (int) (position - windowStart);
+            int limit = window.limit();
+            int index = start;
+            while (index < limit && window.get(index) != '\n') {
+                index++;
+            }
+            boolean windowReachesEof = windowStart + limit >= fileSize;
+            if (index < limit || windowReachesEof) {
+                String line = decode(start, index - start);
+                position = windowStart + Math.min(index + 1, limit);
+                return line;
+            }
+            // 当前行跨越窗口边界：从行首重新映射；如果一行比窗口还长，扩大窗口
+            if (start == 0) {
+                windowSize = Math.min(windowSize * 2, Integer.MAX_VALUE);
+            }
+            map(position);
+        }
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private void map(long offset) throws IOException {
+        long size = Math.min(windowSize, fileSize - offset);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        windowStart = offset;
+    }
+
+    private String decode(int start, int length) {
+        if (checkBom) {
+            checkBom = false;
+            // 跳过UTF-8 BOM，避免第一列表头带上不可见字符
+            if (length >= 3 && (window.get(start) & 0xFF) == 0xEF
+                    && (window.get(start + 1) & 0xFF) == 0xBB && (window.get(start + 2) & 0xFF) == 0xBF) {
+                start += 3;
+                length -= 3;
+            }
+        }
+        if (length > 0 && window.get(start + length - 1) == '\r') {
+            length--;
+        }
+        byte[] bytes = new byte[length];
+        window.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
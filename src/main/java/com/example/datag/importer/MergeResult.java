@@ -0,0 +1,22 @@
+package com.example.datag.importer;
+
+import lombok.Data;
+
+/**
+ * 合并导入的统计结果
+ */
+@Data
+public class MergeResult {
+    private long inserted; // 新增的行数
+    private long updated; // 键已存在且内容变化、被更新的行数
+    private long unchanged; // 键已存在且内容相同、未写入的行数
+
+    /**
+     * 累加另一批的统计结果
+     */
+    public void add(MergeResult other) {
+        inserted += other.inserted;
+        updated += other.updated;
+        unchanged += other.unchanged;
+    }
+}
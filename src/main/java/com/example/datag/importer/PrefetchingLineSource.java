@@ -0,0 +1,136 @@
+package com.example.datag.importer;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * 预读行数据源
+ * 由独立线程读取底层数据源（通常包含解压），按块放入有界队列，
+ * 调用线程只负责解析和写库，这样解压和解析可以并行进行
+ *
+ * 队列容量有限，预读的数据量不会超过 块大小 × 队列容量 行
+ */
+public class PrefetchingLineSource implements LineSource {
+
+    private static final int CHUNK_LINES = 1024;
+    private static final int QUEUE_CHUNKS = 8;
+    private static final AtomicInteger THREAD_SEQ = new AtomicInteger();
+
+    private final LineSource delegate;
+    private final LongSupplier positionSupplier;
+    private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+    private final Thread producer;
+    private volatile boolean closed;
+    private boolean started;
+
+    private Chunk current;
+    private int index;
+    private long position;
+    private boolean finished;
+
+    /**
+     * @param delegate 底层数据源
+     * @param positionSupplier 进度位置（如已读取的压缩字节数），在预读线程中每读一行采样一次
+     */
+    public PrefetchingLineSource(LineSource delegate, LongSupplier positionSupplier) {
+        this.delegate = delegate;
+        this.positionSupplier = positionSupplier;
+        this.producer = new Thread(this::produce, "import-prefetch-" + THREAD_SEQ.incrementAndGet());
+        this.producer.setDaemon(true);
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        if (!started) {
+            // 第一次读取时才启动预读线程，未读取就关闭的分段不会触发解压
+            started = true;
+            producer.start();
+        }
+        while (!finished) {
+            if (current != null && index < current.size) {
+                position = current.positions[index];
+                return current.lines[index++];
+            }
+            try {
+                current = queue.take();
+                index = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("读取被中断", e);
+            }
+            if (current.error != null) {
+                finished = true;
+                throw current.error;
+            }
+            if (current.size == 0) {
+                finished = true;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (started) {
+            // 不中断预读线程（中断会关闭底层FileChannel），而是清空队列让它尽快退出
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (producer.isAlive() && System.nanoTime() < deadline) {
+                queue.clear();
+                try {
+                    producer.join(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        delegate.close();
+    }
+
+    private void produce() {
+        try {
+            while (!closed) {
+                Chunk chunk = new Chunk();
+                String line;
+                while (!closed && chunk.size < CHUNK_LINES && (line = delegate.readLine()) != null) {
+                    chunk.lines[chunk.size] = line;
+                    chunk.positions[chunk.size] = positionSupplier.getAsLong();
+                    chunk.size++;
+                }
+                if (chunk.size == 0) {
+                    // 空块表示数据读完
+                    queue.put(chunk);
+                    return;
+                }
+                queue.put(chunk);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            Chunk failed = new Chunk();
+            failed.error = e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e);
+            try {
+                queue.put(failed);
+            } catch (InterruptedException ignored) {
+                // 消费方已关闭
+            }
+        }
+    }
+
+    private static class Chunk {
+        final String[] lines = new String[CHUNK_LINES];
+        final long[] positions = new long[CHUNK_LINES];
+        int size;
+        IOException error;
+    }
+}
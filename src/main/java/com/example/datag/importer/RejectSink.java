@@ -0,0 +1,298 @@
+package com.example.datag.importer;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 错误行收集器
+ * 替代逐行打印System.err：错误行进入有界队列，由独立线程写入gzip压缩文件，
+ * 同时按错误类型计数
+ *
+ * 文件格式为CSV：位置,错误类型,原因,原始行（CSV导入的位置为行号，JSON导入为记录起始的字节偏移量，Excel导入为工作表行号）
+ *
+ * 每个检查点结束当前的gzip成员并返回文件长度，随任务检查点保存；多个成员拼接后仍是合法的gzip文件。
+ * 断点恢复时先把文件截断到检查点的长度再继续写，检查点之后写入的错误行随数据行一起重新读取，不会重复
+ */
+public class RejectSink implements Closeable {
+
+    /** 列数与表头不一致，整行跳过 */
+    public static final String COLUMN_COUNT_MISMATCH = "COLUMN_COUNT_MISMATCH";
+    /** 单元格不是整数，按0写入 */
+    public static final String NON_INTEGER = "NON_INTEGER";
+
+    private static final AtomicInteger THREAD_SEQ = new AtomicInteger();
+    private static final Record POISON = new Record(0, null, null, null);
+    private static final String HEADER = "position,error_type,reason,raw_line\n";
+
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private final AtomicLong total = new AtomicLong();
+    private final BlockingQueue<Record> queue;
+    private final Thread writerThread;
+    private final FileChannel channel;
+    private final OutputStream fileOut;
+    private final boolean writeHeader;
+    private BufferedWriter writer; // 当前的gzip成员，只由写线程访问，没有待写内容时为null
+    private volatile long committedLength;
+    private volatile IOException writeError;
+
+    /**
+     * 只计数、不写文件的收集器
+     */
+    public static RejectSink countingOnly() {
+        return new RejectSink();
+    }
+
+    private RejectSink() {
+        this.queue = null;
+        this.writerThread = null;
+        this.channel = null;
+        this.fileOut = null;
+        this.writeHeader = false;
+    }
+
+    /**
+     * @param file 错误行文件（gzip压缩）
+     * @param committedLength 断点恢复时为检查点记录的文件长度，之后的内容被截掉；新任务为0
+     * @param capacity 队列容量，写文件跟不上时阻塞调用方
+     * @param initialCounts 已有的各类型计数（断点恢复时从任务检查点读取）
+     */
+    public RejectSink(Path file, long committedLength, int capacity, Map<String, Long> initialCounts)
+            throws IOException {
+        if (initialCounts != null) {
+            initialCounts.forEach((type, count) -> {
+                counts.put(type, new AtomicLong(count));
+                total.addAndGet(count);
+            });
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.committedLength = Math.max(0, Math.min(committedLength, channel.size()));
+        channel.truncate(this.committedLength);
+        channel.position(this.committedLength);
+        this.fileOut = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+        // 续写已有文件时不重复写表头
+        this.writeHeader = this.committedLength == 0;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writerThread = new Thread(this::drain, "import-reject-" + THREAD_SEQ.incrementAndGet());
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * 记录一条错误行
+     * @param lineNumber 行号（从1开始，含表头），JSON导入时为字节偏移量
+     * @param errorType 错误类型
+     * @param reason 错误原因
+     * @param line 原始行内容
+     */
+    public void reject(long lineNumber, String errorType, String reason, String line) {
+        counts.computeIfAbsent(errorType, k -> new AtomicLong()).incrementAndGet();
+        total.incrementAndGet();
+        if (queue == null || writeError != null) {
+            return;
+        }
+        try {
+            queue.put(new Record(lineNumber, errorType, reason, line));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 检查点：等待已记录的错误行写完，结束当前gzip成员
+     * @return 文件长度，断点恢复时截断到这个长度
+     */
+    public long checkpoint() {
+        if (writerThread == null) {
+            return 0;
+        }
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        try {
+            queue.put(new Record(done));
+            while (true) {
+                try {
+                    return done.get(1, TimeUnit.SECONDS);
+                } catch (TimeoutException e) {
+                    // 写线程因写入失败退出时不会再处理检查点
+                    if (!writerThread.isAlive()) {
+                        return committedLength;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return committedLength;
+        } catch (ExecutionException e) {
+            return committedLength;
+        }
+    }
+
+    /**
+     * 错误行总数
+     */
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * 各错误类型的计数
+     */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        counts.forEach((type, count) -> snapshot.put(type, count.get()));
+        return snapshot;
+    }
+
+    /**
+     * 等待队列写完并关闭文件
+     */
+    @Override
+    public void close() throws IOException {
+        if (writerThread == null) {
+            return;
+        }
+        try {
+            queue.put(POISON);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (writeError == null) {
+                finishMember();
+            }
+        } finally {
+            fileOut.close();
+        }
+        if (writeError != null) {
+            throw writeError;
+        }
+    }
+
+    private void drain() {
+        try {
+            if (writeHeader) {
+                member().write(HEADER);
+            }
+            while (true) {
+                Record record = queue.take();
+                if (record == POISON) {
+                    break;
+                }
+                if (record.checkpoint != null) {
+                    record.checkpoint.complete(finishMember());
+                    continue;
+                }
+                BufferedWriter out = member();
+                out.write(Long.toString(record.lineNumber));
+                out.write(',');
+                out.write(record.errorType);
+                out.write(',');
+                writeQuoted(out, record.reason);
+                out.write(',');
+                writeQuoted(out, record.line);
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            writeError = e;
+            queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 当前的gzip成员，没有时新开一个
+     */
+    private BufferedWriter member() throws IOException {
+        if (writer == null) {
+            writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(new NonClosingOutputStream(fileOut)), StandardCharsets.UTF_8));
+        }
+        return writer;
+    }
+
+    /**
+     * 结束当前gzip成员并把内容写入文件，返回文件长度；没有新内容时不新增空成员
+     */
+    private long finishMember() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+            committedLength = channel.position();
+        }
+        return committedLength;
+    }
+
+    private static void writeQuoted(BufferedWriter writer, String value) throws IOException {
+        writer.write('"');
+        writer.write(value == null ? "" : value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static class Record {
+        final long lineNumber;
+        final String errorType;
+        final String reason;
+        final String line;
+        final CompletableFuture<Long> checkpoint;
+
+        Record(long lineNumber, String errorType, String reason, String line) {
+            this.lineNumber = lineNumber;
+            this.errorType = errorType;
+            this.reason = reason;
+            this.line = line;
+            this.checkpoint = null;
+        }
+
+        Record(CompletableFuture<Long> checkpoint) {
+            this.lineNumber = 0;
+            this.errorType = null;
+            this.reason = null;
+            this.line = null;
+            this.checkpoint = checkpoint;
+        }
+    }
+
+    /**
+     * 关闭gzip成员时只刷新、不关闭文件，文件在所有成员写完后关闭
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.datag.importer;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 目标库SQL方言
+ * 不同数据库的标识符引用方式、列类型和自增主键写法不同，
+ * 导入到已登记的数据源时按数据源类型选择方言
+ */
+public enum SqlDialect {
+    MYSQL("`", "id BIGINT PRIMARY KEY AUTO_INCREMENT"),
+    POSTGRESQL("\"", "id BIGSERIAL PRIMARY KEY"),
+    ORACLE("\"", "id NUMBER(19) GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY");
+
+    private final String quote;
+    private final String identityColumn;
+
+    SqlDialect(String quote, String identityColumn) {
+        this.quote = quote;
+        this.identityColumn = identityColumn;
+    }
+
+    /**
+     * 根据数据源类型选择方言，数据源类型为空时使用MySQL（平台默认库）
+     */
+    public static SqlDialect fromDataSourceType(String type) {
+        if (type == null) {
+            return MYSQL;
+        }
+        switch (type.toUpperCase()) {
+            case "MYSQL":
+                return MYSQL;
+            case "POSTGRESQL":
+                return POSTGRESQL;
+            case "ORACLE":
+                return ORACLE;
+            default:
+                throw new UnsupportedOperationException("不支持的数据源类型: " + type);
+        }
+    }
+
+    /**
+     * 引用标识符
+     */
+    public String quote(String identifier) {
+        return quote + identifier + quote;
+    }
+
+    /**
+     * 自增主键id列定义
+     */
+    public String identityColumn() {
+        return identityColumn;
+    }
+
+    /**
+     * CSV导入使用的整数列类型
+     */
+    public String integerColumnType() {
+        return this == ORACLE ? "NUMBER(10)" : this == POSTGRESQL ? "INTEGER" : "INT";
+    }
+
+    /**
+     * 推断出的列类型对应的数据库列类型
+     */
+    public String columnType(JsonColumnType type) {
+        switch (type) {
+            case BOOLEAN:
+                return this == ORACLE ? "NUMBER(1)" : "BOOLEAN";
+            case BIGINT:
+                return this == ORACLE ? "NUMBER(19)" : "BIGINT";
+            case DOUBLE:
+                return this == ORACLE ? "BINARY_DOUBLE" : this == POSTGRESQL ? "DOUBLE PRECISION" : "DOUBLE";
+            case DATETIME:
+                return this == MYSQL ? "DATETIME" : "TIMESTAMP";
+            case STRING:
+                return (this == ORACLE ? "VARCHAR2(" : "VARCHAR(") + JsonColumnType.MAX_STRING_LENGTH + ")";
+            default:
+                return this == ORACLE ? "CLOB" : "TEXT";
+        }
+    }
+
+    /**
+     * 建表语句
+     * 列中没有id时添加自增主键id列
+     */
+    public String createTableSql(String tableName, Map<String, JsonColumnType> columns) {
+        StringBuilder sql = new StringBuilder("CREATE TABLE ").append(quote(tableName)).append(" (");
+        boolean hasId = columns.keySet().stream().anyMatch(c -> c.equalsIgnoreCase("id"));
+        if (!hasId) {
+            sql.append(identityColumn).append(", ");
+        }
+        sql.append(columns.entrySet().stream()
+                .map(e -> quote(e.getKey()) + " " + columnType(e.getValue()))
+                .collect(Collectors.joining(", ")));
+        sql.append(")");
+        if (this == MYSQL) {
+            sql.append(" ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * 按已有表的结构建一张空表
+     * MySQL和PostgreSQL连同索引一起复制；Oracle只复制列，再单独加上主键
+     */
+    public List<String> copyTableStructureSql(String newTable, String sourceTable, List<String> primaryKey) {
+        switch (this) {
+            case MYSQL:
+                return List.of("CREATE TABLE " + quote(newTable) + " LIKE " + quote(sourceTable));
+            case POSTGRESQL:
+                return List.of("CREATE TABLE " + quote(newTable) + " (LIKE " + quote(sourceTable) + " INCLUDING ALL)");
+            default:
+                List<String> statements = new ArrayList<>();
+                statements.add("CREATE TABLE " + quote(newTable) + " AS SELECT * FROM " + quote(sourceTable)
+                        + " WHERE 1 = 0");
+                if (!primaryKey.isEmpty()) {
+                    statements.add("ALTER TABLE " + quote(newTable) + " ADD PRIMARY KEY ("
+                            + primaryKey.stream().map(this::quote).collect(Collectors.joining(", ")) + ")");
+                }
+                return statements;
+        }
+    }
+
+    /**
+     * 用新表替换原表，原表改名保留
+     * MySQL用一条RENAME TABLE原子完成；PostgreSQL的两条改名在同一事务中执行；
+     * Oracle的DDL会隐式提交，两次改名之间有很短的时间原表名不存在，第二次改名失败时
+     * 调用方需要用renameTableSql把原表改回原名（见TableSwap.swap）
+     */
+    public List<String> swapTablesSql(String table, String replacement, String retired) {
+        if (this == MYSQL) {
+            return List.of("RENAME TABLE " + quote(table) + " TO " + quote(retired) + ", "
+                    + quote(replacement) + " TO " + quote(table));
+        }
+        return List.of(renameTableSql(table, retired), renameTableSql(replacement, table));
+    }
+
+    /**
+     * 表改名
+     */
+    public String renameTableSql(String from, String to) {
+        if (this == MYSQL) {
+            return "RENAME TABLE " + quote(from) + " TO " + quote(to);
+        }
+        return "ALTER TABLE " + quote(from) + " RENAME TO " + quote(to);
+    }
+
+    /**
+     * 两个字符串表达式的值是否不同（任一为NULL时结果为NULL）
+     * MySQL默认的排序规则不区分大小写且忽略尾部空格，'abc' = 'ABC '，按二进制比较才能发现大小写和空格的变化
+     */
+    public String textDiffers(String left, String right) {
+        if (this == MYSQL) {
+            return "CAST(" + left + " AS BINARY) <> CAST(" + right + " AS BINARY)";
+        }
+        return left + " <> " + right;
+    }
+
+    /**
+     * INSERT语句
+     */
+    public String insertSql(String tableName, List<String> columns) {
+        return "INSERT INTO " + quote(tableName) + " ("
+                + columns.stream().map(this::quote).collect(Collectors.joining(", "))
+                + ") VALUES (" + columns.stream().map(c -> "?").collect(Collectors.joining(", ")) + ")";
+    }
+
+    /**
+     * 通过JDBC元数据判断表是否存在，不依赖具体数据库的系统表
+     * 表名参数是LIKE模式，先转义下划线和百分号，再按TABLE_NAME精确比较，
+     * orders__outliers不会匹配到ordersXXoutliers
+     */
+    public static boolean tableExists(JdbcTemplate jdbcTemplate, String tableName) {
+        Boolean exists = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet tables = metaData.getTables(connection.getCatalog(), connection.getSchema(),
+                    escapeNamePattern(metaData, tableName), new String[]{"TABLE"})) {
+                while (tables.next()) {
+                    if (tableName.equals(tables.getString("TABLE_NAME"))) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        });
+        return Boolean.TRUE.equals(exists);
+    }
+
+    /**
+     * 把名称转义为只匹配自身的元数据查询模式，驱动不支持转义时原样返回
+     */
+    public static String escapeNamePattern(DatabaseMetaData metaData, String name) throws SQLException {
+        String escape = metaData.getSearchStringEscape();
+        if (escape == null || escape.isEmpty()) {
+            return name;
+        }
+        StringBuilder pattern = new StringBuilder(name.length() + 8);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '_' || c == '%' || escape.indexOf(c) >= 0) {
+                pattern.append(escape);
+            }
+            pattern.append(c);
+        }
+        return pattern.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.datag.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 基于输入流的UTF-8行读取器
+ * 自行扫描换行符而不是使用BufferedReader，这样可以精确记录每一行结束时的字节偏移量
+ */
+public class StreamLineSource implements LineSource {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private long position;
+    private byte[] lineBuffer = new byte[256];
+    private boolean checkBom;
+
+    /**
+     * @param in 输入流（调用方负责将其定位到startOffset处）
+     * @param startOffset 输入流当前位置对应的字节偏移量
+     */
+    public StreamLineSource(InputStream in, long startOffset) {
+        this.in = in;
+        this.position = startOffset;
+        this.checkBom = startOffset == 0;
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        int length = 0;
+        boolean readAny = false;
+        while (true) {
+            if (pos >= limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                pos = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return readAny ? decode(length) : null;
+                }
+            }
+            readAny = true;
+            int start = pos;
+            while (pos < limit && buffer[pos] != '\n') {
+                pos++;
+            }
+            int segment = pos - start;
+            if (length + segment > lineBuffer.length) {
+                lineBuffer = Arrays.copyOf(lineBuffer, Math.max(lineBuffer.length * 2, length + segment));
+            }
+            System.arraycopy(buffer, start, lineBuffer, length, segment);
+            length += segment;
+            position += segment;
+            if (pos < limit) {
+                // 跳过换行符
+                pos++;
+                position++;
+                return decode(length);
+            }
+        }
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private String decode(int length) {
+        int offset = 0;
+        if (checkBom) {
+            checkBom = false;
+            // 跳过UTF-8 BOM，避免第一列表头带上不可见字符
+            if (length >= 3 && (lineBuffer[0] & 0xFF) == 0xEF && (lineBuffer[1] & 0xFF) == 0xBB && (lineBuffer[2] & 0xFF) == 0xBF) {
+                offset = 3;
+            }
+        }
+        if (length > offset && lineBuffer[length - 1] == '\r') {
+            length--;
+        }
+        return new String(lineBuffer, offset, length - offset, StandardCharsets.UTF_8);
+    }
+}
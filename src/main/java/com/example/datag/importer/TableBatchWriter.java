@@ -0,0 +1,98 @@
+package com.example.datag.importer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 目标表批量写入器
+ * 负责建表和按批执行INSERT，同步导入和后台导入任务共用
+ * 建表和INSERT语句按目标库方言生成，默认为MySQL
+ */
+public class TableBatchWriter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlDialect dialect;
+    private final String tableName;
+    private final List<String> columns;
+    private final String insertSql;
+
+    public TableBatchWriter(JdbcTemplate jdbcTemplate, String tableName, List<String> columns) {
+        this(jdbcTemplate, SqlDialect.MYSQL, tableName, columns);
+    }
+
+    public TableBatchWriter(JdbcTemplate jdbcTemplate, SqlDialect dialect, String tableName, List<String> columns) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.tableName = tableName;
+        this.columns = columns;
+        this.insertSql = buildInsertSql();
+    }
+
+    /**
+     * 确保表存在，如果不存在则创建
+     * @return 是否新建了表
+     */
+    public boolean ensureTableExists() {
+        if (dialect == SqlDialect.MYSQL) {
+            // 检查表是否存在
+            String checkTableSql = "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+            Integer count = jdbcTemplate.queryForObject(checkTableSql, Integer.class, tableName);
+            if (count != null && count > 0) {
+                return false;
+            }
+        } else if (SqlDialect.tableExists(jdbcTemplate, tableName)) {
+            return false;
+        }
+
+        // 表不存在，创建表
+        StringBuilder createTableSql = new StringBuilder();
+        createTableSql.append("CREATE TABLE ").append(dialect.quote(tableName)).append(" (");
+        createTableSql.append(dialect == SqlDialect.MYSQL
+                ? "id INT PRIMARY KEY AUTO_INCREMENT" : dialect.identityColumn()).append(", ");
+
+        for (String column : columns) {
+            // 跳过id列（如果存在）
+            if (column.equalsIgnoreCase("id")) {
+                continue;
+            }
+            createTableSql.append(dialect.quote(column)).append(" ")
+                    .append(dialect.integerColumnType()).append(" NOT NULL, ");
+        }
+
+        createTableSql.append("created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP");
+        createTableSql.append(")");
+        if (dialect == SqlDialect.MYSQL) {
+            createTableSql.append(" ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+        }
+
+        jdbcTemplate.execute(createTableSql.toString());
+        return true;
+    }
+
+    /**
+     * 写入一批数据
+     * @param rows 行数据，列顺序与构造时的表头一致（id列已被剔除）
+     */
+    public void writeBatch(List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(insertSql, rows);
+        }
+    }
+
+    /**
+     * 构建INSERT SQL语句
+     */
+    private String buildInsertSql() {
+        // 过滤掉id列（自动生成）
+        List<String> insertColumns = new ArrayList<>();
+        for (String col : columns) {
+            if (!col.equalsIgnoreCase("id")) {
+                insertColumns.add(col);
+            }
+        }
+        return dialect.insertSql(tableName, insertColumns);
+    }
+}
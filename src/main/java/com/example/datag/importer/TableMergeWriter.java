@@ -0,0 +1,397 @@
+package com.example.datag.importer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 目标表合并写入器
+ * 按键列合并导入数据：键不存在时插入，键存在且内容变化时更新，内容相同时不写入
+ *
+ * 两种实现方式：
+ * 1. 目标表有与键列完全一致的唯一索引：每批写入临时表，统计变化后用
+ *    INSERT ... SELECT ... ON DUPLICATE KEY UPDATE 只写入新增和变化的行
+ * 2. 没有合适的唯一索引：开始时扫描一次目标表，在内存中建立 键 -> (行哈希, id) 的哈希表，
+ *    每批数据在内存中与哈希表比对，新增行批量插入，变化行按主键id批量更新。
+ *    哈希表的大小与目标表行数成正比，目标表超过maxIndexedRows行时拒绝合并，提示先在键列上建唯一索引
+ *
+ * 导入的值不会是NULL（空单元格按0写入），目标表中已有的NULL与0不同：
+ * 键列含NULL的行与任何导入的键都不相等（与唯一索引方式中NULL不等于任何值一致），不进入哈希表；
+ * 非键列为NULL的行在导入值为0时算作变化
+ *
+ * 两种方式都必须在事务中调用writeBatch：临时表只在当前连接上可见
+ */
+public class TableMergeWriter {
+
+    /**
+     * NULL在行哈希中使用的值
+     */
+    private static final long NULL_HASH_VALUE = 1L << 32;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String tableName;
+    private final List<String> columns;
+    private final List<String> keyColumns;
+    private final int[] keyIndexes;
+    private final int[] valueIndexes;
+    private final TableBatchWriter insertWriter;
+    private final long maxIndexedRows;
+
+    private boolean useUniqueIndex;
+    private Map<RowKey, KeyEntry> keyIndex;
+
+    /**
+     * @param jdbcTemplate 目标库
+     * @param tableName 目标表
+     * @param headers CSV表头（可包含id列）
+     * @param keyColumns 合并键列
+     * @param maxIndexedRows 没有唯一索引时允许在内存中建立键哈希表的最大目标表行数
+     */
+    public TableMergeWriter(JdbcTemplate jdbcTemplate, String tableName, List<String> headers, List<String> keyColumns,
+                            long maxIndexedRows) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxIndexedRows = maxIndexedRows;
+        this.tableName = tableName;
+        this.columns = headers.stream().filter(h -> !h.equalsIgnoreCase("id")).collect(Collectors.toList());
+        this.keyColumns = keyColumns;
+        this.insertWriter = new TableBatchWriter(jdbcTemplate, tableName, headers);
+
+        if (keyColumns == null || keyColumns.isEmpty()) {
+            throw new RuntimeException("合并导入需要指定键列");
+        }
+        this.keyIndexes = new int[keyColumns.size()];
+        for (int i = 0; i < keyColumns.size(); i++) {
+            keyIndexes[i] = indexOfColumn(keyColumns.get(i));
+            if (keyIndexes[i] < 0) {
+                throw new RuntimeException("键列不存在于CSV表头中（id列不能作为键列）: " + keyColumns.get(i));
+            }
+        }
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            final int index = i;
+            if (Arrays.stream(keyIndexes).noneMatch(k -> k == index)) {
+                values.add(i);
+            }
+        }
+        this.valueIndexes = values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 确保目标表存在，并选择合并方式
+     * 新建的表会在键列上创建唯一索引
+     * @return 是否新建了表
+     */
+    public boolean prepare() {
+        boolean created = insertWriter.ensureTableExists();
+        if (created) {
+            jdbcTemplate.execute("ALTER TABLE `" + tableName + "` ADD UNIQUE INDEX `uk_merge_key` (" + quotedColumns(keyColumns) + ")");
+        }
+        useUniqueIndex = hasMatchingUniqueIndex();
+        if (!useUniqueIndex) {
+            loadKeyIndex();
+        }
+        return created;
+    }
+
+    /**
+     * 是否使用唯一索引方式合并
+     */
+    public boolean isUsingUniqueIndex() {
+        return useUniqueIndex;
+    }
+
+    /**
+     * 合并一批数据
+     * @param rows 行数据，列顺序与表头一致（id列已被剔除）
+     * @return 本批的统计结果
+     */
+    public MergeResult writeBatch(List<Object[]> rows) {
+        MergeResult result = new MergeResult();
+        if (rows.isEmpty()) {
+            return result;
+        }
+
+        // 同一批中键重复时保留最后一行，被覆盖的行计为更新
+        Map<RowKey, Object[]> distinct = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            if (distinct.put(keyOf(row), row) != null) {
+                result.setUpdated(result.getUpdated() + 1);
+            }
+        }
+        List<Object[]> batch = new ArrayList<>(distinct.values());
+
+        result.add(useUniqueIndex ? mergeWithUniqueIndex(batch) : mergeWithKeyIndex(batch));
+        return result;
+    }
+
+    /**
+     * 通过临时表和 ON DUPLICATE KEY UPDATE 合并
+     */
+    private MergeResult mergeWithUniqueIndex(List<Object[]> batch) {
+        String stageTable = stageTableName();
+        jdbcTemplate.execute("DROP TEMPORARY TABLE IF EXISTS `" + stageTable + "`");
+        jdbcTemplate.execute("CREATE TEMPORARY TABLE `" + stageTable + "` (" + columns.stream()
+                .map(c -> "`" + c + "` INT NOT NULL").collect(Collectors.joining(", ")) + ")");
+        jdbcTemplate.batchUpdate("INSERT INTO `" + stageTable + "` (" + quotedColumns(columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")", batch);
+
+        String join = " FROM `" + stageTable + "` s LEFT JOIN `" + tableName + "` t ON " + keyJoinCondition();
+        String firstKey = "t.`" + keyColumns.get(0) + "`";
+        String sameValues = sameValuesCondition();
+
+        Map<String, Object> counts = jdbcTemplate.queryForMap("SELECT "
+                + "COALESCE(SUM(" + firstKey + " IS NULL), 0) AS inserted, "
+                + "COALESCE(SUM(" + firstKey + " IS NOT NULL AND NOT (" + sameValues + ")), 0) AS updated"
+                + join);
+        MergeResult result = new MergeResult();
+        result.setInserted(((Number) counts.get("inserted")).longValue());
+        result.setUpdated(((Number) counts.get("updated")).longValue());
+        result.setUnchanged(batch.size() - result.getInserted() - result.getUpdated());
+
+        if (result.getInserted() + result.getUpdated() > 0) {
+            // 只把新增和变化的行写回目标表
+            StringBuilder sql = new StringBuilder();
+            sql.append("INSERT INTO `").append(tableName).append("` (").append(quotedColumns(columns)).append(") ");
+            sql.append("SELECT * FROM (SELECT ");
+            sql.append(columns.stream().map(c -> "s.`" + c + "`").collect(Collectors.joining(", ")));
+            sql.append(join).append(" WHERE ").append(firstKey).append(" IS NULL OR NOT (").append(sameValues).append(")");
+            sql.append(") AS d ON DUPLICATE KEY UPDATE ");
+            if (valueIndexes.length == 0) {
+                String key = keyColumns.get(0);
+                sql.append("`").append(key).append("` = d.`").append(key).append("`");
+            } else {
+                sql.append(Arrays.stream(valueIndexes).mapToObj(columns::get)
+                        .map(c -> "`" + c + "` = d.`" + c + "`").collect(Collectors.joining(", ")));
+            }
+            jdbcTemplate.update(sql.toString());
+        }
+        jdbcTemplate.execute("DROP TEMPORARY TABLE IF EXISTS `" + stageTable + "`");
+        return result;
+    }
+
+    /**
+     * 与内存中的键哈希表比对后合并
+     */
+    private MergeResult mergeWithKeyIndex(List<Object[]> batch) {
+        MergeResult result = new MergeResult();
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updatesById = new ArrayList<>();
+        List<Object[]> updatesByKey = new ArrayList<>();
+
+        for (Object[] row : batch) {
+            RowKey key = keyOf(row);
+            long rowHash = valueHash(row);
+            KeyEntry entry = keyIndex.get(key);
+            if (entry == null) {
+                inserts.add(row);
+                // 本次插入的行id未知，之后再变化时按键列更新
+                keyIndex.put(key, new KeyEntry(rowHash, null));
+                result.setInserted(result.getInserted() + 1);
+            } else if (entry.rowHash == rowHash) {
+                result.setUnchanged(result.getUnchanged() + 1);
+            } else {
+                entry.rowHash = rowHash;
+                if (entry.ids == null) {
+                    updatesByKey.add(updateParams(row, keyIndexes));
+                } else {
+                    for (long id : entry.ids) {
+                        Object[] params = Arrays.copyOf(valueParams(row), valueIndexes.length + 1);
+                        params[valueIndexes.length] = id;
+                        updatesById.add(params);
+                    }
+                }
+                result.setUpdated(result.getUpdated() + 1);
+            }
+        }
+
+        insertWriter.writeBatch(inserts);
+        if (valueIndexes.length > 0) {
+            String setClause = Arrays.stream(valueIndexes).mapToObj(columns::get)
+                    .map(c -> "`" + c + "` = ?").collect(Collectors.joining(", "));
+            if (!updatesById.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE `" + tableName + "` SET " + setClause + " WHERE id = ?", updatesById);
+            }
+            if (!updatesByKey.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE `" + tableName + "` SET " + setClause + " WHERE "
+                        + keyColumns.stream().map(c -> "`" + c + "` = ?").collect(Collectors.joining(" AND ")),
+                        updatesByKey);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 扫描目标表，建立 键 -> (行哈希, id) 的哈希表
+     * 超过maxIndexedRows行时停止并拒绝合并，不让哈希表无限制地占用堆内存
+     */
+    private void loadKeyIndex() {
+        Integer idColumns = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = 'id'", Integer.class, tableName);
+        if (idColumns == null || idColumns == 0) {
+            throw new RuntimeException("目标表 " + tableName + " 没有与键列一致的唯一索引，也没有id列，无法合并导入");
+        }
+
+        keyIndex = new HashMap<>();
+        // MySQL驱动在fetchSize为Integer.MIN_VALUE时逐行流式返回结果，避免一次性加载整张表
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(Integer.MIN_VALUE);
+        long[] scanned = {0};
+        streaming.query("SELECT id, " + quotedColumns(columns) + " FROM `" + tableName + "`", rs -> {
+            if (++scanned[0] > maxIndexedRows) {
+                throw new RuntimeException("目标表 " + tableName + " 超过 " + maxIndexedRows
+                        + " 行且没有与键列一致的唯一索引，无法在内存中比对，请先在键列 " + keyColumns
+                        + " 上创建唯一索引后再合并导入");
+            }
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                int value = rs.getInt(i + 2);
+                row[i] = rs.wasNull() ? null : value;
+            }
+            if (hasNullKey(row)) {
+                // 键为NULL的行不会与导入的任何行匹配
+                return;
+            }
+            long id = rs.getLong(1);
+            KeyEntry entry = keyIndex.get(keyOf(row));
+            if (entry == null) {
+                keyIndex.put(keyOf(row), new KeyEntry(valueHash(row), new long[]{id}));
+            } else {
+                // 目标表中键重复的行一起更新
+                entry.ids = Arrays.copyOf(entry.ids, entry.ids.length + 1);
+                entry.ids[entry.ids.length - 1] = id;
+            }
+        });
+    }
+
+    private boolean hasMatchingUniqueIndex() {
+        Map<String, Set<String>> uniqueIndexes = new HashMap<>();
+        jdbcTemplate.query("SELECT INDEX_NAME, COLUMN_NAME FROM INFORMATION_SCHEMA.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND NON_UNIQUE = 0", rs -> {
+            uniqueIndexes.computeIfAbsent(rs.getString(1), k -> new HashSet<>())
+                    .add(rs.getString(2).toLowerCase(Locale.ROOT));
+        }, tableName);
+        Set<String> keys = keyColumns.stream().map(k -> k.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+        return uniqueIndexes.values().stream().anyMatch(keys::equals);
+    }
+
+    private String keyJoinCondition() {
+        return keyColumns.stream().map(c -> "t.`" + c + "` = s.`" + c + "`").collect(Collectors.joining(" AND "));
+    }
+
+    private String sameValuesCondition() {
+        if (valueIndexes.length == 0) {
+            return "TRUE";
+        }
+        return Arrays.stream(valueIndexes).mapToObj(columns::get)
+                .map(c -> "t.`" + c + "` <=> s.`" + c + "`").collect(Collectors.joining(" AND "));
+    }
+
+    private String stageTableName() {
+        String name = "tmp_merge_" + tableName;
+        return name.length() > 64 ? name.substring(0, 64) : name;
+    }
+
+    private String quotedColumns(List<String> names) {
+        return names.stream().map(c -> "`" + c + "`").collect(Collectors.joining(", "));
+    }
+
+    private int indexOfColumn(String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean hasNullKey(Object[] row) {
+        for (int index : keyIndexes) {
+            if (row[index] == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private RowKey keyOf(Object[] row) {
+        int[] values = new int[keyIndexes.length];
+        for (int i = 0; i < keyIndexes.length; i++) {
+            values[i] = ((Number) row[keyIndexes[i]]).intValue();
+        }
+        return new RowKey(values);
+    }
+
+    /**
+     * 非键列的64位哈希，用于判断行内容是否变化
+     * 整数按无符号32位参与计算，NULL使用32位整数范围之外的值，与0区分
+     */
+    private long valueHash(Object[] row) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int index : valueIndexes) {
+            long value = row[index] == null ? NULL_HASH_VALUE : ((Number) row[index]).intValue() & 0xFFFFFFFFL;
+            h = (h ^ value) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        return h;
+    }
+
+
+    private Object[] valueParams(Object[] row) {
+        Object[] params = new Object[valueIndexes.length];
+        for (int i = 0; i < valueIndexes.length; i++) {
+            params[i] = row[valueIndexes[i]];
+        }
+        return params;
+    }
+
+    private Object[] updateParams(Object[] row, int[] whereIndexes) {
+        Object[] params = Arrays.copyOf(valueParams(row), valueIndexes.length + whereIndexes.length);
+        for (int i = 0; i < whereIndexes.length; i++) {
+            params[valueIndexes.length + i] = row[whereIndexes[i]];
+        }
+        return params;
+    }
+
+    /**
+     * 键列值（所有列都是整数）
+     */
+    private static final class RowKey {
+        private final int[] values;
+        private final int hash;
+
+        RowKey(int[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RowKey && Arrays.equals(values, ((RowKey) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class KeyEntry {
+        long rowHash;
+        long[] ids; // 目标表中该键对应的行id，为null表示本次导入新插入的行
+
+        KeyEntry(long rowHash, long[] ids) {
+            this.rowHash = rowHash;
+            this.ids = ids;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.datag.importer;
+
+import lombok.Getter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 表结构快照
+ * 包含表的真实名称、列（名称、JDBC类型、类型名、长度、是否可空、默认值）、主键和索引，
+ * 均通过JDBC元数据读取，不依赖具体数据库的系统表；读取后不再变化，可以在线程间共享和缓存
+ */
+@Getter
+public class TableSchema {
+
+    private final String tableName;
+    private final List<Column> columns;
+    private final List<String> primaryKey;
+    private final Map<String, List<String>> indexes; // 索引名 -> 按位置排列的列
+    private final String databaseProduct;
+    private final int databaseMajorVersion;
+
+    private TableSchema(String tableName, List<Column> columns, List<String> primaryKey,
+                        Map<String, List<String>> indexes, String databaseProduct, int databaseMajorVersion) {
+        this.tableName = tableName;
+        this.columns = columns;
+        this.primaryKey = primaryKey;
+        this.indexes = indexes;
+        this.databaseProduct = databaseProduct;
+        this.databaseMajorVersion = databaseMajorVersion;
+    }
+
+    /**
+     * 单个列的结构
+     */
+    @Getter
+    public static class Column {
+        private final String name;
+        private final int sqlType; // java.sql.Types
+        private final String typeName; // 数据库的类型名，如VARCHAR
+        private final int size; // 长度或精度
+        private final int decimalDigits; // 小数位数
+        private final boolean nullable;
+        private final String defaultValue;
+        private final boolean autoIncrement;
+
+        Column(String name, int sqlType, String typeName, int size, int decimalDigits, boolean nullable,
+               String defaultValue, boolean autoIncrement) {
+            this.name = name;
+            this.sqlType = sqlType;
+            this.typeName = typeName;
+            this.size = size;
+            this.decimalDigits = decimalDigits;
+            this.nullable = nullable;
+            this.defaultValue = defaultValue;
+            this.autoIncrement = autoIncrement;
+        }
+
+        /**
+         * 带长度的类型，如 VARCHAR(255)、DECIMAL(10,2)，没有长度的类型只返回类型名
+         */
+        public String getFullTypeName() {
+            String type = typeName == null ? "" : typeName.toUpperCase();
+            if (type.contains("CHAR") || type.equals("BINARY") || type.equals("VARBINARY")) {
+                return type + "(" + size + ")";
+            }
+            if (type.equals("DECIMAL") || type.equals("NUMERIC") || type.equals("NUMBER")) {
+                return size > 0 ? type + "(" + size + "," + decimalDigits + ")" : type;
+            }
+            return type;
+        }
+    }
+
+    /**
+     * 读取表结构
+     * 表名先按原样查找，找不到时再按大写和小写查找（Oracle默认大写，PostgreSQL默认小写）
+     * @return 表结构，表不存在时返回null
+     */
+    public static TableSchema read(JdbcTemplate jdbcTemplate, String tableName) {
+        return jdbcTemplate.execute((ConnectionCallback<TableSchema>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String candidate : new String[]{tableName, tableName.toUpperCase(), tableName.toLowerCase()}) {
+                List<Column> columns = readColumns(connection, metaData, candidate);
+                if (!columns.isEmpty()) {
+                    return new TableSchema(candidate, Collections.unmodifiableList(columns),
+                            readPrimaryKey(connection, metaData, candidate),
+                            readIndexes(connection, metaData, candidate),
+                            metaData.getDatabaseProductName(), metaData.getDatabaseMajorVersion());
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 列出当前库（schema）中的所有表名
+     */
+    public static List<String> listTables(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.execute((ConnectionCallback<List<String>>) connection -> {
+            List<String> tables = new ArrayList<>();
+            try (ResultSet rs = connection.getMetaData().getTables(connection.getCatalog(), connection.getSchema(),
+                    "%", new String[]{"TABLE"})) {
+                while (rs.next()) {
+                    tables.add(rs.getString("TABLE_NAME"));
+                }
+            }
+            return Collections.unmodifiableList(tables);
+        });
+    }
+
+    private static List<Column> readColumns(Connection connection, DatabaseMetaData metaData, String tableName)
+            throws SQLException {
+        List<Column> columns = new ArrayList<>();
+        try (ResultSet rs = metaData.getColumns(connection.getCatalog(), connection.getSchema(),
+                SqlDialect.escapeNamePattern(metaData, tableName), null)) {
+            while (rs.next()) {
+                // 表名参数是LIKE模式，驱动不支持转义时下划线仍会匹配任意字符，需要过滤掉其他表的列
+                if (!tableName.equals(rs.getString("TABLE_NAME"))) {
+                    continue;
+                }
+                columns.add(new Column(rs.getString("COLUMN_NAME"), rs.getInt("DATA_TYPE"), rs.getString("TYPE_NAME"),
+                        rs.getInt("COLUMN_SIZE"), rs.getInt("DECIMAL_DIGITS"),
+                        rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls, rs.getString("COLUMN_DEF"),
+                        "YES".equalsIgnoreCase(rs.getString("IS_AUTOINCREMENT"))));
+            }
+        }
+        return columns;
+    }
+
+    private static List<String> readPrimaryKey(Connection connection, DatabaseMetaData metaData, String tableName)
+            throws SQLException {
+        // KEY_SEQ是列在主键中的位置，结果集按列名排序，需要重新排序
+        Map<Short, String> keyColumns = new TreeMap<>();
+        try (ResultSet rs = metaData.getPrimaryKeys(connection.getCatalog(), connection.getSchema(), tableName)) {
+            while (rs.next()) {
+                keyColumns.put(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<>(keyColumns.values()));
+    }
+
+    private static Map<String, List<String>> readIndexes(Connection connection, DatabaseMetaData metaData,
+                                                         String tableName) throws SQLException {
+        Map<String, Map<Short, String>> positions = new LinkedHashMap<>();
+        try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), tableName,
+                false, true)) {
+            while (rs.next()) {
+                String indexName = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (indexName != null && column != null) {
+                    positions.computeIfAbsent(indexName, k -> new TreeMap<>())
+                            .put(rs.getShort("ORDINAL_POSITION"), column);
+                }
+            }
+        }
+        Map<String, List<String>> indexes = new LinkedHashMap<>();
+        positions.forEach((name, columns) ->
+                indexes.put(name, Collections.unmodifiableList(new ArrayList<>(columns.values()))));
+        return Collections.unmodifiableMap(indexes);
+    }
+
+    /**
+     * 列名列表
+     */
+    public List<String> getColumnNames() {
+        List<String> names = new ArrayList<>(columns.size());
+        columns.forEach(c -> names.add(c.getName()));
+        return names;
+    }
+
+    /**
+     * 按名称查找列（忽略大小写），不存在时返回null
+     */
+    public Column findColumn(String name) {
+        for (Column column : columns) {
+            if (column.getName().equalsIgnoreCase(name)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 将用户传入的字段名对应到表中的真实列名（忽略大小写）
+     */
+    public String column(String name) {
+        Column column = findColumn(name);
+        if (column == null) {
+            throw new RuntimeException("字段不存在于表 " + tableName + " 中: " + name);
+        }
+        return column.getName();
+    }
+}
@@ -0,0 +1,482 @@
+package com.example.datag.importer;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Excel（XLSX）流式导入引擎
+ * 使用SAX事件模型逐行读取工作表XML，不构建整个工作簿对象，内存占用与行数无关；
+ * 共享字符串表和样式表按POI的只读方式加载
+ *
+ * 第一行为表头，单元格按类型转换：
+ * 数字单元格为整数时按BIGINT、否则按DOUBLE，日期格式的数字单元格按DATETIME，
+ * 布尔单元格按BOOLEAN，其余按字符串
+ *
+ * 错误行文件中的位置为工作表行号（从1开始）
+ */
+public class XlsxImportEngine {
+
+    /** 单元格为Excel错误值（如 #DIV/0!），按null写入 */
+    public static final String CELL_ERROR = "CELL_ERROR";
+    /** 表头之外的列有值，被忽略 */
+    public static final String COLUMN_COUNT_MISMATCH = RejectSink.COLUMN_COUNT_MISMATCH;
+
+    /** Excel中能精确表示的最大整数 */
+    private static final double MAX_EXACT_INTEGER = 9007199254740992.0;
+
+    private final int batchSize;
+    private final RejectSink rejectSink;
+    private final double maxErrorRatio;
+    private final long errorRatioMinRows;
+
+    /**
+     * @param batchSize 每批行数
+     * @param rejectSink 错误行收集器
+     * @param maxErrorRatio 允许的最大错误行比例，大于等于1表示不限制
+     * @param errorRatioMinRows 已读取的行数达到该值后才检查错误行比例
+     */
+    public XlsxImportEngine(int batchSize, RejectSink rejectSink, double maxErrorRatio, long errorRatioMinRows) {
+        this.batchSize = batchSize;
+        this.rejectSink = rejectSink;
+        this.maxErrorRatio = maxErrorRatio;
+        this.errorRatioMinRows = errorRatioMinRows;
+    }
+
+    /**
+     * 读取表头和前若干行推断表结构
+     * @param sheetName 工作表名称，为空时使用第一个工作表
+     * @param sampleSize 样本行数
+     */
+    public static JsonSchema inferSchema(Path file, String sheetName, int sampleSize) throws IOException {
+        JsonSchema schema = new JsonSchema();
+        int[] sampled = {0};
+        List<String> headers = new ArrayList<>();
+        readSheet(file, sheetName, (rowNumber, cells, progress) -> {
+            if (headers.isEmpty()) {
+                headers.addAll(columnNames(cells));
+                return;
+            }
+            if (sampled[0] >= sampleSize) {
+                throw new StopReading();
+            }
+            Map<String, Object> record = new LinkedHashMap<>();
+            for (int i = 0; i < headers.size(); i++) {
+                Object value = i < cells.size() ? cells.get(i) : null;
+                record.put(headers.get(i), value instanceof CellError ? null : value);
+            }
+            schema.observe(record);
+            sampled[0]++;
+        });
+        if (headers.isEmpty()) {
+            throw new IOException("工作表为空");
+        }
+        if (schema.isEmpty()) {
+            // 只有表头时按表头建字符串列
+            Map<String, Object> record = new LinkedHashMap<>();
+            headers.forEach(header -> record.put(header, null));
+            schema.observe(record);
+        }
+        return schema;
+    }
+
+    /**
+     * 执行导入
+     * @param file XLSX文件
+     * @param sheetName 工作表名称，为空时使用第一个工作表
+     * @param schema 表结构，列顺序与表头一致
+     * @param writer 批次写入器
+     * @param profiler 列统计（可选）
+     * @param cancelled 取消标志，每批写入前检查一次
+     * @return 写入的行数
+     */
+    public long run(Path file, String sheetName, JsonSchema schema, JsonImportEngine.BatchWriter writer,
+                    ColumnProfiler profiler, BooleanSupplier cancelled) throws IOException {
+        List<String> columns = schema.getColumnNames();
+        List<JsonColumnType> types = new ArrayList<>(schema.getColumns().values());
+        long fileSize = Files.size(file);
+        long[] rowsSeen = {0};
+        long[] rowsWritten = {0};
+        long[] reported = {0};
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        boolean[] headerRead = {false};
+
+        boolean completed = readSheet(file, sheetName, (rowNumber, cells, progress) -> {
+            if (!headerRead[0]) {
+                if (!columnNames(cells).equals(columns)) {
+                    throw new IllegalStateException("工作表表头与推断的表结构不一致");
+                }
+                headerRead[0] = true;
+                return;
+            }
+            rowsSeen[0]++;
+            Object[] row = new Object[columns.size()];
+            StringBuilder mismatched = null;
+            StringBuilder errors = null;
+            boolean extra = false;
+            for (int i = 0; i < cells.size(); i++) {
+                Object value = cells.get(i);
+                if (value == null) {
+                    continue;
+                }
+                if (i >= columns.size()) {
+                    extra = true;
+                    continue;
+                }
+                if (value instanceof CellError) {
+                    errors = append(errors, columns.get(i) + "=" + value);
+                    continue;
+                }
+                Object converted = types.get(i).convert(value);
+                if (converted == null) {
+                    mismatched = append(mismatched, columns.get(i));
+                }
+                row[i] = converted;
+            }
+            if (profiler != null) {
+                profile(profiler, row);
+            }
+            if (errors != null) {
+                reject(rowNumber, CELL_ERROR, "单元格 " + errors + " 为错误值，已按null写入", cells, rowsSeen[0]);
+            } else if (mismatched != null) {
+                reject(rowNumber, JsonImportEngine.TYPE_MISMATCH,
+                        "字段 " + mismatched + " 与推断的类型不符，已按null写入", cells, rowsSeen[0]);
+            } else if (extra) {
+                reject(rowNumber, COLUMN_COUNT_MISMATCH, "表头之外的列有值，已忽略", cells, rowsSeen[0]);
+            }
+
+            batch.add(row);
+            if (batch.size() >= batchSize) {
+                if (cancelled.getAsBoolean()) {
+                    throw new StopReading();
+                }
+                long bytesRead = (long) (progress * fileSize);
+                writer.write(batch, bytesRead - reported[0]);
+                reported[0] = bytesRead;
+                rowsWritten[0] += batch.size();
+                batch.clear();
+            }
+        });
+
+        if (completed && !batch.isEmpty() && !cancelled.getAsBoolean()) {
+            writer.write(batch, fileSize - reported[0]);
+            rowsWritten[0] += batch.size();
+        }
+        return rowsWritten[0];
+    }
+
+    private void reject(int rowNumber, String errorType, String reason, List<Object> cells, long rowsSeen) {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < cells.size(); i++) {
+            if (i > 0) {
+                raw.append(',');
+            }
+            if (cells.get(i) != null) {
+                raw.append(cells.get(i));
+            }
+        }
+        rejectSink.reject(rowNumber, errorType, reason, raw.toString());
+        if (maxErrorRatio >= 1 || rowsSeen < errorRatioMinRows) {
+            return;
+        }
+        long errors = rejectSink.getTotal();
+        if (errors > maxErrorRatio * rowsSeen) {
+            throw new RuntimeException(String.format(
+                    "错误行比例超过阈值，导入已停止：已读取 %d 行，错误 %d 行（%.2f%%），阈值 %.2f%%，停止于第 %d 行",
+                    rowsSeen, errors, errors * 100.0 / rowsSeen, maxErrorRatio * 100, rowNumber));
+        }
+    }
+
+    private static void profile(ColumnProfiler profiler, Object[] row) {
+        for (int i = 0; i < row.length; i++) {
+            Object value = row[i];
+            if (value == null) {
+                profiler.observeNull(i);
+            } else if (value instanceof Long) {
+                profiler.observe(i, (Long) value);
+            } else {
+                profiler.observeText(i, value.toString());
+            }
+        }
+    }
+
+    private static StringBuilder append(StringBuilder names, String name) {
+        return names == null ? new StringBuilder(name) : names.append(", ").append(name);
+    }
+
+    /**
+     * 表头单元格转换为列名：非法字符替换为下划线，空表头按列号命名，重复的列名加序号
+     */
+    private static List<String> columnNames(List<Object> headerCells) {
+        int last = headerCells.size() - 1;
+        while (last >= 0 && (headerCells.get(last) == null || headerCells.get(last).toString().trim().isEmpty())) {
+            last--;
+        }
+        List<String> names = new ArrayList<>();
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i <= last; i++) {
+            Object cell = headerCells.get(i);
+            String text = cell == null ? "" : cell.toString().trim();
+            String name = text.isEmpty() ? "column_" + (i + 1) : JsonFlattener.columnName(text);
+            String unique = name;
+            for (int n = 2; !used.add(unique.toLowerCase()); n++) {
+                unique = name + "_" + n;
+            }
+            names.add(unique);
+        }
+        return names;
+    }
+
+    /**
+     * 逐行回调
+     */
+    @FunctionalInterface
+    private interface RowHandler {
+        /**
+         * @param rowNumber 工作表行号（从1开始）
+         * @param cells 按列号排列的单元格值，空单元格为null
+         * @param progress 已读取的工作表XML比例（0~1）
+         */
+        void row(int rowNumber, List<Object> cells, double progress);
+    }
+
+    /**
+     * 用SAX解析工作表
+     * @return 是否读完了整个工作表（回调提前停止时返回false）
+     */
+    private static boolean readSheet(Path file, String sheetName, RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable styles = reader.getStylesTable();
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    if (sheetName != null && !sheetName.equals(sheets.getSheetName())) {
+                        continue;
+                    }
+                    CountingStream counting = new CountingStream(sheet);
+                    long sheetSize = sheets.getSheetPart().getSize();
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new SheetHandler(sharedStrings, styles, handler,
+                            () -> sheetSize > 0 ? Math.min(1.0, (double) counting.count / sheetSize) : 0));
+                    try {
+                        parser.parse(new InputSource(counting));
+                    } catch (StopReading e) {
+                        return false;
+                    }
+                    return true;
+                }
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("解析Excel文件失败: " + e.getMessage(), e);
+        }
+        throw new IOException(sheetName != null ? "工作表不存在: " + sheetName : "Excel文件中没有工作表");
+    }
+
+    /**
+     * 工作表XML的SAX处理器
+     * 只关心 row、c、v、is/t 元素，按单元格类型属性 t 和样式 s 转换值
+     */
+    private static class SheetHandler extends DefaultHandler {
+        private final ReadOnlySharedStringsTable sharedStrings;
+        private final StylesTable styles;
+        private final RowHandler handler;
+        private final DoubleSupplier progress;
+        private final Map<Integer, Boolean> dateStyles = new HashMap<>();
+        private final StringBuilder text = new StringBuilder();
+        private final List<Object> cells = new ArrayList<>();
+        private int rowNumber;
+        private int column;
+        private String cellType;
+        private int style;
+        private boolean inValue;
+
+        SheetHandler(ReadOnlySharedStringsTable sharedStrings, StylesTable styles, RowHandler handler,
+                     DoubleSupplier progress) {
+            this.sharedStrings = sharedStrings;
+            this.styles = styles;
+            this.handler = handler;
+            this.progress = progress;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String r = attributes.getValue("r");
+                    rowNumber = r != null ? Integer.parseInt(r) : rowNumber + 1;
+                    cells.clear();
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    column = ref != null ? new CellReference(ref).getCol() : column + 1;
+                    cellType = attributes.getValue("t");
+                    String s = attributes.getValue("s");
+                    style = s != null ? Integer.parseInt(s) : 0;
+                    text.setLength(0);
+                    break;
+                case "v":
+                case "t":
+                    inValue = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                case "t":
+                    inValue = false;
+                    break;
+                case "c":
+                    while (cells.size() <= column) {
+                        cells.add(null);
+                    }
+                    cells.set(column, cellValue());
+                    break;
+                case "row":
+                    if (cells.stream().anyMatch(cell -> cell != null)) {
+                        handler.row(rowNumber, new ArrayList<>(cells), progress.getAsDouble());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private Object cellValue() {
+            String value = text.toString();
+            if (cellType == null || cellType.equals("n")) {
+                if (value.isEmpty()) {
+                    return null;
+                }
+                double number = Double.parseDouble(value);
+                if (isDateStyle()) {
+                    return DateUtil.getLocalDateTime(number);
+                }
+                if (number == Math.rint(number) && Math.abs(number) < MAX_EXACT_INTEGER) {
+                    return (long) number;
+                }
+                return number;
+            }
+            switch (cellType) {
+                case "s":
+                    return value.isEmpty() ? null : sharedStrings.getItemAt(Integer.parseInt(value)).getString();
+                case "b":
+                    return "1".equals(value);
+                case "e":
+                    return new CellError(value);
+                case "d":
+                    return value.isEmpty() ? null : LocalDateTime.parse(value.length() == 10 ? value + "T00:00" : value);
+                default:
+                    // inlineStr 和公式字符串结果 str
+                    return value.isEmpty() ? null : value;
+            }
+        }
+
+        private boolean isDateStyle() {
+            if (style == 0 || styles == null) {
+                return false;
+            }
+            return dateStyles.computeIfAbsent(style, index -> {
+                XSSFCellStyle cellStyle = styles.getStyleAt(index);
+                return cellStyle != null
+                        && DateUtil.isADateFormat(cellStyle.getDataFormat(), cellStyle.getDataFormatString());
+            });
+        }
+    }
+
+    /**
+     * Excel错误值
+     */
+    private static class CellError {
+        private final String code;
+
+        CellError(String code) {
+            this.code = code;
+        }
+
+        @Override
+        public String toString() {
+            return code;
+        }
+    }
+
+    /**
+     * 回调提前结束读取（样本已足够或任务被取消）
+     */
+    private static class StopReading extends RuntimeException {
+        StopReading() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * 统计已读取的工作表XML字节数，用于计算进度
+     */
+    private static class CountingStream extends FilterInputStream {
+        private long count;
+
+        CountingStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.datag.repository;
+
+import com.example.datag.entity.CleaningJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 清洗任务Repository接口
+ * 提供对清洗任务表的CRUD操作
+ */
+@Repository
+public interface CleaningJobRepository extends JpaRepository<CleaningJob, Long> {
+    // 按创建时间倒序获取所有任务
+    List<CleaningJob> findAllByOrderByCreatedAtDesc();
+
+    // 根据状态查找任务（用于服务重启后标记中断的任务）
+    List<CleaningJob> findByStatusIn(Collection<String> statuses);
+}
@@ -0,0 +1,17 @@
+package com.example.datag.repository;
+
+import com.example.datag.entity.CleaningRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 清洗执行记录Repository接口
+ * 提供对清洗执行记录表的CRUD操作
+ */
+@Repository
+public interface CleaningRunRepository extends JpaRepository<CleaningRun, Long> {
+    // 获取某种操作最近的执行记录（用于估计吞吐量）
+    List<CleaningRun> findTop20ByOperationOrderByCreatedAtDesc(String operation);
+}
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * 数据集Repository接口
@@ -17,4 +18,7 @@ public interface DataSetRepository extends JpaRepository<DataSet, Long> {
 
     // 根据格式查找数据集
     List<DataSet> findByFormat(String format);
+
+    // 根据表名和数据源查找数据集（数据源ID为空时匹配默认库）
+    Optional<DataSet> findFirstByTableNameAndDataSourceId(String tableName, Long dataSourceId);
 }
\ No newline at end of file
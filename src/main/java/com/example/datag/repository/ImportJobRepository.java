@@ -0,0 +1,21 @@
+package com.example.datag.repository;
+
+import com.example.datag.entity.ImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 导入任务Repository接口
+ * 提供对导入任务表的CRUD操作
+ */
+@Repository
+public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
+    // 按创建时间倒序获取所有任务
+    List<ImportJob> findAllByOrderByCreatedAtDesc();
+
+    // 根据状态查找任务（用于服务重启后恢复中断的任务）
+    List<ImportJob> findByStatusIn(Collection<String> statuses);
+}
@@ -0,0 +1,24 @@
+package com.example.datag.repository;
+
+import com.example.datag.entity.TableVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 数据表历史版本Repository接口
+ * 提供对历史版本表的CRUD操作
+ */
+@Repository
+public interface TableVersionRepository extends JpaRepository<TableVersion, Long> {
+    // 获取数据集的所有版本（按版本号倒序）
+    List<TableVersion> findByDataSetIdOrderByVersionDesc(Long dataSetId);
+
+    // 获取数据集的最大版本号
+    Optional<TableVersion> findTopByDataSetIdOrderByVersionDesc(Long dataSetId);
+
+    // 根据状态查找版本（用于清理过期版本）
+    List<TableVersion> findByStatusOrderByVersionDesc(String status);
+}
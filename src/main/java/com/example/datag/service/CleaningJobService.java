@@ -0,0 +1,121 @@
+package com.example.datag.service;
+
+import com.example.datag.entity.CleaningJob;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 清洗任务服务接口
+ * 将大表的清洗操作作为后台任务执行，支持进度查询、取消和断点恢复
+ *
+ * 提交后立即返回任务，由后台线程池执行，同时运行的任务数不超过配置的线程数；
+ * 同一张表同一时刻只允许一个未结束的任务，提交时表上已有未结束的任务则拒绝
+ */
+public interface CleaningJobService {
+    /**
+     * 提交过滤任务
+     * 按主键区间分批删除不满足条件的记录，每个事务最多删除一批，并按配置的速率和从库延迟节流
+     * 开启写时复制时在工作表上删除，完成后换表并保留原表为历史版本
+     * @param dataSetId 数据集ID（对应的表需要有整数类型的单列主键）
+     * @param filterCondition 保留条件（SQL WHERE子句格式）
+     * @return 创建的清洗任务
+     */
+    CleaningJob submitFilterJob(Long dataSetId, String filterCondition);
+
+    /**
+     * 提交去重任务
+     * @param dataSetId 数据集ID
+     * @param duplicateFields 去重字段列表
+     * @return 创建的清洗任务
+     */
+    CleaningJob submitDeduplicateJob(Long dataSetId, List<String> duplicateFields);
+
+    /**
+     * 提交缺失值填充任务
+     * @param dataSetId 数据集ID
+     * @param fillStrategy 填充策略
+     * @return 创建的清洗任务
+     */
+    CleaningJob submitFillJob(Long dataSetId, String fillStrategy);
+
+    /**
+     * 提交格式化任务
+     * @param dataSetId 数据集ID
+     * @param formatRules 格式化规则列表
+     * @return 创建的清洗任务
+     */
+    CleaningJob submitFormatJob(Long dataSetId, List<String> formatRules);
+
+    /**
+     * 提交异常值处理任务
+     * @param dataSetId 数据集ID
+     * @param outlierRule 异常值规则
+     * @return 创建的清洗任务
+     */
+    CleaningJob submitOutlierJob(Long dataSetId, String outlierRule);
+
+    /**
+     * 提交近似去重任务
+     * @param dataSetId 数据集ID
+     * @param nearDuplicateRule 近似去重规则
+     * @return 创建的清洗任务
+     */
+    CleaningJob submitNearDedupJob(Long dataSetId, String nearDuplicateRule);
+
+    /**
+     * 提交清洗流程任务
+     * @param dataSetId 数据集ID
+     * @param cleaningSteps 清洗步骤列表，格式与同步清洗流程相同（如 filter:amount > 0）
+     * @return 创建的清洗任务，完成后summary中记录每一步的行数变化
+     */
+    CleaningJob submitPipelineJob(Long dataSetId, List<String> cleaningSteps);
+
+    /**
+     * 提交清洗到新数据集的任务，源数据集不变
+     * @param dataSetId 源数据集ID
+     * @param cleaningSteps 清洗步骤列表，格式与清洗流程相同
+     * @param targetTable 目标表名
+     * @param targetName 新数据集名称，为空时使用目标表名
+     * @return 创建的清洗任务，完成后targetDataSetId为新数据集ID
+     */
+    CleaningJob submitCleanIntoJob(Long dataSetId, List<String> cleaningSteps, String targetTable, String targetName);
+
+    /**
+     * 在请求线程上执行同步清洗，与后台任务共用并发名额
+     * 表的估计行数超过datag.cleaning.sync-max-rows或没有空闲名额时拒绝，大表请提交后台任务
+     * @param dataSetId 数据集ID
+     * @param operation 同步清洗操作
+     * @return 清洗操作的返回值
+     */
+    <T> T runSynchronously(Long dataSetId, Supplier<T> operation);
+
+    /**
+     * 根据ID获取清洗任务（包含检查点、进度和预计剩余时间）
+     * @param id 任务ID
+     * @return 清洗任务，不存在时返回null
+     */
+    CleaningJob getJobById(Long id);
+
+    /**
+     * 获取所有清洗任务
+     * @return 清洗任务列表（按创建时间倒序）
+     */
+    List<CleaningJob> getAllJobs();
+
+    /**
+     * 取消清洗任务
+     * 运行中的任务会在当前批次提交后停止，已删除或修改的记录和检查点保留
+     * @param id 任务ID
+     * @return 清洗任务
+     */
+    CleaningJob cancelJob(Long id);
+
+    /**
+     * 恢复失败或已取消的清洗任务
+     * 未开启写时复制时过滤任务从检查点之后继续，其他任务（包括写时复制模式下的过滤任务）重新执行
+     * @param id 任务ID
+     * @return 清洗任务
+     */
+    CleaningJob resumeJob(Long id);
+}
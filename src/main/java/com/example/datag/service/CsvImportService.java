@@ -1,5 +1,7 @@
 package com.example.datag.service;
 
+import com.example.datag.importer.MergeResult;
+
 import java.util.List;
 import java.util.Map;
 
@@ -15,6 +17,35 @@ public interface CsvImportService {
      * @return 导入的行数
      */
     int importCsvToTable(String csvFilePath, String tableName);
+
+    /**
+     * 导入CSV文件到指定数据源的表，建表和INSERT语句使用该数据源的方言
+     * @param csvFilePath CSV文件路径
+     * @param tableName 目标数据库表名
+     * @param dataSourceId 目标数据源ID，为空时导入到平台默认库
+     * @return 导入的行数
+     */
+    int importCsvToTable(String csvFilePath, String tableName, Long dataSourceId);
+
+    /**
+     * 按键列合并导入CSV文件：键不存在的行插入，键存在且内容变化的行更新，内容相同的行不写入
+     * 重复导入每日全量文件时不会产生重复数据
+     * @param csvFilePath CSV文件路径
+     * @param tableName 目标数据库表名
+     * @param keyColumns 合并键列
+     * @return 新增、更新和未变化的行数
+     */
+    MergeResult mergeCsvToTable(String csvFilePath, String tableName, List<String> keyColumns);
+
+    /**
+     * 按键列合并导入CSV文件到指定数据源的表（目前只支持MySQL数据源）
+     * @param csvFilePath CSV文件路径
+     * @param tableName 目标数据库表名
+     * @param keyColumns 合并键列
+     * @param dataSourceId 目标数据源ID，为空时导入到平台默认库
+     * @return 新增、更新和未变化的行数
+     */
+    MergeResult mergeCsvToTable(String csvFilePath, String tableName, List<String> keyColumns, Long dataSourceId);
     
     /**
      * 从上传的文件导入CSV到数据库表
@@ -1,5 +1,8 @@
 package com.example.datag.service;
 
+import com.example.datag.cleaning.CleaningTable;
+import com.example.datag.cleaning.ImpactEstimate;
+import com.example.datag.cleaning.PipelineResult;
 import com.example.datag.dto.DataSetRequest;
 import com.example.datag.entity.DataSet;
 import java.util.List;
@@ -13,7 +16,8 @@ import java.util.List;
  * 2. 过滤：移除不符合条件的记录
  * 3. 填充：填补缺失值
  * 4. 格式化：统一数据格式
- * 5. 验证：检查数据质量
+ * 5. 异常值：截断、删除或标记数值列中的统计异常值
+ * 6. 验证：检查数据质量
  */
 public interface DataCleaningService {
     /**
@@ -27,7 +31,8 @@ public interface DataCleaningService {
 
     /**
      * 过滤清洗
-     * 根据条件过滤数据集中的记录
+     * 根据条件过滤数据集中的记录，有整数主键的表按主键区间分批删除
+     * 大表建议提交后台过滤任务（CleaningJobService），可查询进度、取消和恢复
      * @param dataSetId 数据集ID
      * @param filterCondition 过滤条件（如SQL WHERE子句格式）
      * @return 清洗后的数据集
@@ -43,6 +48,33 @@ public interface DataCleaningService {
      */
     DataSet fillMissingValues(Long dataSetId, String fillStrategy);
 
+    /**
+     * 去重试运行
+     * 不修改数据，估计去重会删除的行数及置信区间，并按历史吞吐量估计耗时
+     * @param dataSetId 数据集ID
+     * @param duplicateFields 去重字段列表
+     * @return 影响估计
+     */
+    ImpactEstimate estimateDuplicates(Long dataSetId, List<String> duplicateFields);
+
+    /**
+     * 过滤试运行
+     * 不修改数据，按主键区间抽样估计过滤会删除的行数及置信区间，并按历史吞吐量估计耗时
+     * @param dataSetId 数据集ID
+     * @param filterCondition 过滤条件
+     * @return 影响估计
+     */
+    ImpactEstimate estimateFilter(Long dataSetId, String filterCondition);
+
+    /**
+     * 填充试运行
+     * 不修改数据，按主键区间抽样估计含空值的行数和每列的空值个数，并按历史吞吐量估计耗时
+     * @param dataSetId 数据集ID
+     * @param fillStrategy 填充策略
+     * @return 影响估计
+     */
+    ImpactEstimate estimateFill(Long dataSetId, String fillStrategy);
+
     /**
      * 数据格式化
      * 统一数据格式，如日期格式、数值格式等
@@ -52,15 +84,55 @@ public interface DataCleaningService {
      */
     DataSet formatData(Long dataSetId, List<String> formatRules);
 
+    /**
+     * 异常值处理
+     * 一遍扫描统计各数值列的分位数、平均值和标准差，按四分位距或标准分数判定异常值，
+     * 再截断到上下界、删除所在行，或写入标记表（原表不变）
+     * @param dataSetId 数据集ID
+     * @param outlierRule 异常值规则（格式见OutlierRule，如 iqr=1.5;cap@amount|price）
+     * @return 处理后的数据集
+     */
+    DataSet treatOutliers(Long dataSetId, String outlierRule);
+
+    /**
+     * 近似去重
+     * 对字符串字段的3-gram集合计算MinHash签名，经LSH分桶找出候选对，按Jaccard相似度聚成簇，
+     * 再把簇写入复核表（原表不变），或每个簇只保留主键最小的一行
+     * @param dataSetId 数据集ID
+     * @param nearDuplicateRule 近似去重规则（格式见NearDuplicateRule，如 0.85;review@name|address）
+     * @return 处理后的数据集
+     */
+    DataSet removeNearDuplicates(Long dataSetId, String nearDuplicateRule);
+
     /**
      * 执行完整数据清洗流程
-     * 按照预定义的顺序执行多种清洗操作
+     * 按照给定的顺序执行多种清洗操作
      * @param dataSetId 数据集ID
-     * @param cleaningSteps 清洗步骤列表
+     * @param cleaningSteps 清洗步骤列表，格式为"步骤名"或"步骤名:参数"（如 filter:amount > 0）
      * @return 清洗完成的数据集
      */
     DataSet executeCleaningProcess(Long dataSetId, List<String> cleaningSteps);
 
+    /**
+     * 执行清洗流程并返回每一步的结果
+     * 连续的可合并步骤编译为一条INSERT ... SELECT写入新表后换表，其余步骤在原表上执行
+     * @param dataSetId 数据集ID
+     * @param cleaningSteps 清洗步骤列表
+     * @return 每一步的执行方式和行数变化
+     */
+    PipelineResult runCleaningPipeline(Long dataSetId, List<String> cleaningSteps);
+
+    /**
+     * 清洗到新数据集，源表和源数据集不变
+     * 在源表所在的库中新建目标表，写入清洗结果后登记为新数据集，并自动记录类型为CLEANING的血缘关系
+     * @param dataSetId 源数据集ID
+     * @param cleaningSteps 清洗步骤列表，格式同清洗流程
+     * @param targetTable 目标表名，不能已存在
+     * @param targetName 新数据集名称，为空时使用目标表名
+     * @return 新数据集
+     */
+    DataSet cleanIntoNewDataSet(Long dataSetId, List<String> cleaningSteps, String targetTable, String targetName);
+
     /**
      * 根据数据集location字段对应的本地数据表去重
      * 从location字段解析出数据库表名，使用本地默认数据源执行去重
@@ -69,4 +141,11 @@ public interface DataCleaningService {
      * @return 清洗后的数据集
      */
     DataSet removeDuplicatesByLocation(Long dataSetId, List<String> duplicateFields);
-}
\ No newline at end of file
+
+    /**
+     * 解析数据集对应的数据表
+     * @param dataSetId 数据集ID
+     * @return 数据表（包含列、主键和所在数据源）
+     */
+    CleaningTable getCleaningTable(Long dataSetId);
+}
@@ -2,6 +2,7 @@ package com.example.datag.service;
 
 import com.example.datag.dto.DataSetRequest;
 import com.example.datag.entity.DataSet;
+import com.example.datag.importer.ColumnProfiler;
 import java.util.List;
 
 /**
@@ -71,4 +72,20 @@ public interface DataSetService {
      * @return 导入成功后的数据集对象
      */
     DataSet importFromDataSource(Long dataSourceId, String dataSetName, String location);
+
+    /**
+     * 登记导入后的数据表
+     * 按表名和数据源查找数据集，不存在时创建；同时更新行数、文件大小和每个字段的元数据统计，
+     * 统计来自导入过程中累计的结果，不需要再扫描表
+     * @param tableName 目标表名
+     * @param dataSourceId 数据源ID（可选）
+     * @param sourceFileName 导入的文件名（可选，直接上传内容时为null）
+     * @param rowsAdded 本次新增的行数
+     * @param fileSize 导入文件的字节数
+     * @param tableCreated 目标表是否由本次导入创建（是则覆盖原有统计，否则与原有统计合并）
+     * @param profiler 导入过程中累计的列统计
+     * @return 登记的数据集
+     */
+    DataSet registerImportedTable(String tableName, Long dataSourceId, String sourceFileName, long rowsAdded,
+                                  long fileSize, boolean tableCreated, ColumnProfiler profiler);
 }
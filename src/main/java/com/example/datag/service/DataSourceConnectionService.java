@@ -1,11 +1,13 @@
 package com.example.datag.service;
 
 import com.example.datag.entity.DataSource;
+import com.example.datag.importer.ImportTarget;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 /**
  * 数据源连接服务接口
  * 提供动态创建和管理数据库连接的功能
+ * 每个已登记的数据源共用一个连接池，调用方不需要关闭返回的JdbcTemplate
  */
 public interface DataSourceConnectionService {
     /**
@@ -22,6 +24,19 @@ public interface DataSourceConnectionService {
      */
     JdbcTemplate createJdbcTemplate(Long dataSourceId);
 
+    /**
+     * 获取导入目标库
+     * @param dataSourceId 数据源ID，为空时返回平台默认库
+     * @return 目标库的连接、方言和事务模板
+     */
+    ImportTarget getImportTarget(Long dataSourceId);
+
+    /**
+     * 移除数据源的连接池，数据源修改或删除后调用；旧连接池在宽限期结束且借用者全部归还后关闭
+     * @param dataSourceId 数据源ID
+     */
+    void evict(Long dataSourceId);
+
     /**
      * 测试数据源连接
      * @param dataSource 数据源实体
@@ -0,0 +1,82 @@
+package com.example.datag.service;
+
+import com.example.datag.entity.ImportJob;
+
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * 导入任务服务接口
+ * 将文件导入作为后台任务执行，支持进度查询、取消和断点恢复
+ */
+public interface ImportJobService {
+    /**
+     * 提交CSV导入任务
+     * 文件内容先写入服务端暂存目录，随后由后台线程分批导入
+     * @param content 文件内容
+     * @param fileName 原始文件名
+     * @param tableName 目标数据库表名
+     * @param dataSourceId 数据源ID（可选）
+     * @param maxErrorRatio 允许的最大错误行比例（可选，为空时使用全局配置）
+     * @param keyColumns 合并键列（可选，为空时追加导入，否则按键列合并）
+     * @return 创建的导入任务
+     */
+    ImportJob submitCsvImport(InputStream content, String fileName, String tableName, Long dataSourceId,
+                              Double maxErrorRatio, List<String> keyColumns);
+
+    /**
+     * 提交JSON导入任务
+     * 支持NDJSON（每行一条记录）和对象数组两种格式，嵌套对象展开为以下划线连接的列，
+     * 表结构从前若干条记录推断
+     * @param content 文件内容
+     * @param fileName 原始文件名（.json、.ndjson或.jsonl）
+     * @param tableName 目标数据库表名
+     * @param dataSourceId 目标数据源ID（可选，为空时导入到平台默认库）
+     * @param maxErrorRatio 允许的最大错误记录比例（可选，为空时使用全局配置）
+     * @return 创建的导入任务
+     */
+    ImportJob submitJsonImport(InputStream content, String fileName, String tableName, Long dataSourceId,
+                               Double maxErrorRatio);
+
+    /**
+     * 提交Excel（XLSX）导入任务
+     * 工作表第一行为表头，按单元格类型推断列类型，工作表按SAX事件流式读取
+     * @param content 文件内容
+     * @param fileName 原始文件名（.xlsx）
+     * @param tableName 目标数据库表名
+     * @param dataSourceId 目标数据源ID（可选，为空时导入到平台默认库）
+     * @param maxErrorRatio 允许的最大错误行比例（可选，为空时使用全局配置）
+     * @param sheetName 工作表名称（可选，为空时导入第一个工作表）
+     * @return 创建的导入任务
+     */
+    ImportJob submitXlsxImport(InputStream content, String fileName, String tableName, Long dataSourceId,
+                               Double maxErrorRatio, String sheetName);
+
+    /**
+     * 根据ID获取导入任务（包含进度、吞吐量和预计剩余时间）
+     * @param id 任务ID
+     * @return 导入任务，不存在时返回null
+     */
+    ImportJob getJobById(Long id);
+
+    /**
+     * 获取所有导入任务
+     * @return 导入任务列表（按创建时间倒序）
+     */
+    List<ImportJob> getAllJobs();
+
+    /**
+     * 取消导入任务
+     * 运行中的任务会在当前批次提交后停止，已提交的数据和检查点保留
+     * @param id 任务ID
+     * @return 导入任务
+     */
+    ImportJob cancelJob(Long id);
+
+    /**
+     * 从最后一个检查点恢复失败或已取消的导入任务
+     * @param id 任务ID
+     * @return 导入任务
+     */
+    ImportJob resumeJob(Long id);
+}
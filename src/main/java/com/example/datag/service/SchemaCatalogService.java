@@ -0,0 +1,48 @@
+package com.example.datag.service;
+
+import com.example.datag.cleaning.CleaningTable;
+import com.example.datag.importer.TableSchema;
+
+import java.util.List;
+
+/**
+ * 表结构缓存服务接口
+ * 按数据源缓存表名列表和每张表的结构（列、类型、主键、索引），清洗、质量检查、元数据和可视化共用，
+ * 避免每次操作都查询数据库的元数据（MySQL库很多时元数据查询可能很慢）
+ *
+ * 缓存项超过配置的时长后重新读取；平台自己执行的DDL（建表、换表、删表、加索引）之后调用invalidate立即失效
+ */
+public interface SchemaCatalogService {
+    /**
+     * 获取表结构
+     * @param dataSourceId 数据源ID，为空表示平台默认库
+     * @param tableName 表名（大小写不敏感）
+     * @return 表结构，表不存在时返回null
+     */
+    TableSchema getTable(Long dataSourceId, String tableName);
+
+    /**
+     * 获取表结构，表不存在时抛出异常
+     */
+    TableSchema requireTable(Long dataSourceId, String tableName);
+
+    /**
+     * 获取待清洗的表，表结构来自缓存，连接使用数据源当前的连接池
+     */
+    CleaningTable getCleaningTable(Long dataSourceId, String tableName);
+
+    /**
+     * 列出数据源当前库中的所有表名
+     */
+    List<String> listTables(Long dataSourceId);
+
+    /**
+     * 表结构发生变化（或表被创建、删除）后调用，使该表的缓存和数据源的表名列表失效
+     */
+    void invalidate(Long dataSourceId, String tableName);
+
+    /**
+     * 使数据源的所有缓存失效
+     */
+    void invalidateAll(Long dataSourceId);
+}
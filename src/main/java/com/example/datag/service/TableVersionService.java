@@ -0,0 +1,48 @@
+package com.example.datag.service;
+
+import com.example.datag.cleaning.CleaningTable;
+import com.example.datag.entity.DataSet;
+import com.example.datag.entity.TableVersion;
+
+import java.util.List;
+
+/**
+ * 数据表版本服务接口
+ * 写时复制清洗的结果校验后换成当前表，被换下的原表保留为历史版本，支持回滚和过期清理
+ */
+public interface TableVersionService {
+    /**
+     * 校验工作表行数后换表，原表保留为新的历史版本
+     * @param dataSet 数据集
+     * @param table 当前表
+     * @param working 清洗结果所在的工作表
+     * @param previousRows 清洗前的记录数
+     * @param expectedRows 清洗后应有的记录数
+     * @param operation 清洗操作说明
+     * @return 新的历史版本
+     */
+    TableVersion publish(DataSet dataSet, CleaningTable table, CleaningTable working, long previousRows,
+                         long expectedRows, String operation);
+
+    /**
+     * 获取数据集的历史版本
+     * @param dataSetId 数据集ID
+     * @return 历史版本列表（按版本号倒序）
+     */
+    List<TableVersion> getVersions(Long dataSetId);
+
+    /**
+     * 回滚到历史版本
+     * 当前表也保留为一个新版本，回滚本身可以再撤销
+     * @param versionId 版本ID
+     * @return 回滚前的当前表对应的新版本
+     */
+    TableVersion rollback(Long versionId);
+
+    /**
+     * 清理过期版本
+     * 每个数据集只保留最近的若干个版本，超出数量或超过保留时长的版本表被删除
+     * @return 删除的版本数
+     */
+    int cleanupExpiredVersions();
+}
@@ -0,0 +1,676 @@
+package com.example.datag.service.impl;
+
+import com.example.datag.cleaning.CleaningContext;
+import com.example.datag.cleaning.CleaningSlots;
+import com.example.datag.cleaning.CleaningStep;
+import com.example.datag.cleaning.CleaningTable;
+import com.example.datag.cleaning.FillStrategy;
+import com.example.datag.cleaning.FilterConditions;
+import com.example.datag.cleaning.FilterDeleteExecutor;
+import com.example.datag.cleaning.NearDuplicateRule;
+import com.example.datag.cleaning.OutlierRule;
+import com.example.datag.cleaning.PipelineResult;
+import com.example.datag.cleaning.TableLocks;
+import com.example.datag.cleaning.Throttle;
+import com.example.datag.config.CleaningProperties;
+import com.example.datag.entity.CleaningJob;
+import com.example.datag.entity.CleaningRun;
+import com.example.datag.entity.DataSet;
+import com.example.datag.importer.ImportTarget;
+import com.example.datag.repository.CleaningJobRepository;
+import com.example.datag.repository.CleaningRunRepository;
+import com.example.datag.repository.DataSetRepository;
+import com.example.datag.service.CleaningJobService;
+import com.example.datag.service.DataCleaningService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 清洗任务服务实现类
+ *
+ * 工作原理：
+ * 1. 提交时检查条件能否执行，记录表当前的最小和最大主键，创建PENDING状态的任务后立即返回
+ * 2. 后台线程按主键区间遍历表，每段读出不满足条件的主键后分批删除，每个事务最多删除一批
+ * 3. 每批提交后按配置暂停、限速，从库延迟超过上限时等待延迟回落
+ * 4. 每段完成后推进检查点（大约每秒保存一次）；按主键删除是幂等的，
+ *    任务失败或取消后从检查点之后继续，不会多删或漏删
+ * 5. 任务范围在提交时确定，之后新增的主键更大的记录不在本任务范围内
+ *
+ * 去重、填充、格式化和清洗流程任务在后台线程上调用同步的清洗方法，线程上绑定CleaningContext，
+ * 清洗引擎每提交一批都会累计进度并检查取消标志；这些任务没有检查点，恢复时重新执行
+ *
+ * 开启写时复制时过滤任务同样调用同步的过滤方法：在工作表上删除，校验行数后换表，原表保留为历史版本，
+ * 可以回滚；失败或取消时工作表被删除，原表不变，因此没有检查点，恢复时重新执行
+ *
+ * 互斥：提交时拒绝表上已有未结束任务的提交（按任务表判断，多实例也有效）；
+ * 执行前获取表锁，同步接口正在修改该表时任务保持PENDING状态等待
+ *
+ * 并发：后台任务和同步清洗接口共用CleaningSlots的名额，任务执行前等待空闲名额；
+ * 同步接口没有空闲名额或表超过同步上限时立即拒绝，不会绕过并发上限
+ */
+@Service
+@RequiredArgsConstructor
+public class CleaningJobServiceImpl implements CleaningJobService {
+
+    private final CleaningJobRepository cleaningJobRepository;
+    private final CleaningRunRepository cleaningRunRepository;
+    private final DataSetRepository dataSetRepository;
+    private final DataCleaningService dataCleaningService;
+    private final CleaningProperties cleaningProperties;
+    private final ThreadPoolTaskExecutor cleaningTaskExecutor;
+    private final TableLocks tableLocks;
+    private final CleaningSlots cleaningSlots;
+
+    // 正在排队或运行的任务的取消标志
+    private final Map<Long, AtomicBoolean> cancelFlags = new ConcurrentHashMap<>();
+
+    @Override
+    public CleaningJob submitFilterJob(Long dataSetId, String filterCondition) {
+        if (filterCondition == null || filterCondition.trim().isEmpty()) {
+            throw new RuntimeException("过滤条件不能为空");
+        }
+        CleaningTable table = dataCleaningService.getCleaningTable(dataSetId);
+        if (!table.hasIntegralKey()) {
+            throw new RuntimeException("表 " + table.getTableName() + " 没有整数类型的单列主键，无法分批过滤，请使用同步过滤接口");
+        }
+        // 提前检查条件能否执行，避免任务启动后才失败
+        String condition = FilterConditions.quoteColumns(filterCondition, table);
+        try {
+            table.getJdbcTemplate().queryForList("SELECT 1 FROM " + table.quotedName()
+                    + " WHERE 1 = 0 AND (" + condition + ")");
+        } catch (Exception e) {
+            throw new RuntimeException("过滤条件无效: " + e.getMessage(), e);
+        }
+        long[] keyRange = table.keyRange();
+        if (keyRange == null) {
+            throw new RuntimeException("表 " + table.getTableName() + " 中没有数据");
+        }
+
+        CleaningJob job = CleaningJob.builder()
+                .dataSetId(dataSetId)
+                .operation(CleaningJob.OPERATION_FILTER)
+                .parameters(filterCondition)
+                .dataSourceId(table.getTarget().getDataSourceId())
+                .tableName(table.getTableName())
+                .status(CleaningJob.STATUS_PENDING)
+                .minKey(keyRange[0])
+                .maxKey(keyRange[1])
+                .rowsScanned(0L)
+                .rowsAffected(0L)
+                .progressPercent(0.0)
+                .build();
+        return enqueue(job);
+    }
+
+    @Override
+    public CleaningJob submitDeduplicateJob(Long dataSetId, List<String> duplicateFields) {
+        if (duplicateFields == null || duplicateFields.isEmpty()) {
+            throw new RuntimeException("去重字段不能为空");
+        }
+        CleaningTable table = dataCleaningService.getCleaningTable(dataSetId);
+        for (String field : duplicateFields) {
+            if (!table.hasColumn(field)) {
+                throw new RuntimeException("去重字段不存在于数据集中: " + field);
+            }
+        }
+        return enqueue(newJob(dataSetId, CleaningJob.OPERATION_DEDUPLICATE, duplicateFields, table));
+    }
+
+    @Override
+    public CleaningJob submitFillJob(Long dataSetId, String fillStrategy) {
+        FillStrategy strategy = FillStrategy.fromName(fillStrategy);
+        CleaningTable table = dataCleaningService.getCleaningTable(dataSetId);
+        return enqueue(newJob(dataSetId, CleaningJob.OPERATION_FILL_MISSING, List.of(strategy.getName()), table));
+    }
+
+    @Override
+    public CleaningJob submitFormatJob(Long dataSetId, List<String> formatRules) {
+        if (formatRules == null || formatRules.isEmpty()) {
+            throw new RuntimeException("格式化规则不能为空");
+        }
+        CleaningTable table = dataCleaningService.getCleaningTable(dataSetId);
+        return enqueue(newJob(dataSetId, CleaningJob.OPERATION_FORMAT, formatRules, table));
+    }
+
+    @Override
+    public CleaningJob submitOutlierJob(Long dataSetId, String outlierRule) {
+        OutlierRule rule = OutlierRule.parse(outlierRule);
+        CleaningTable table = dataCleaningService.getCleaningTable(dataSetId);
+        rule.targetColumns(table);
+        return enqueue(newJob(dataSetId, CleaningJob.OPERATION_OUTLIER, List.of(rule.toString()), table));
+    }
+
+    @Override
+    public CleaningJob submitNearDedupJob(Long dataSetId, String nearDuplicateRule) {
+        NearDuplicateRule rule = NearDuplicateRule.parse(nearDuplicateRule);
+        CleaningTable table = dataCleaningService.getCleaningTable(dataSetId);
+        if (!table.hasIntegralKey()) {
+            throw new RuntimeException("表 " + table.getTableName() + " 没有整数类型的单列主键，无法做近似去重");
+        }
+        rule.targetColumns(table);
+        return enqueue(newJob(dataSetId, CleaningJob.OPERATION_NEAR_DEDUPLICATE, List.of(rule.toString()), table));
+    }
+
+    @Override
+    public CleaningJob submitPipelineJob(Long dataSetId, List<String> cleaningSteps) {
+        if (cleaningSteps == null || cleaningSteps.isEmpty()) {
+            throw new RuntimeException("清洗步骤不能为空");
+        }
+        // 提前解析步骤，格式错误在提交时返回
+        cleaningSteps.forEach(CleaningStep::parse);
+        CleaningTable table = dataCleaningService.getCleaningTable(dataSetId);
+        return enqueue(newJob(dataSetId, CleaningJob.OPERATION_PIPELINE, cleaningSteps, table));
+    }
+
+    @Override
+    public CleaningJob submitCleanIntoJob(Long dataSetId, List<String> cleaningSteps, String targetTable,
+                                         String targetName) {
+        if (cleaningSteps == null || cleaningSteps.isEmpty()) {
+            throw new RuntimeException("清洗步骤不能为空");
+        }
+        if (targetTable == null || !targetTable.matches("^[a-zA-Z0-9_]+$")) {
+            throw new IllegalArgumentException("表名包含非法字符，只允许字母、数字和下划线: " + targetTable);
+        }
+        cleaningSteps.forEach(CleaningStep::parse);
+        CleaningTable table = dataCleaningService.getCleaningTable(dataSetId);
+        CleaningJob job = newJob(dataSetId, CleaningJob.OPERATION_CLEAN_INTO, cleaningSteps, table);
+        job.setTargetTable(targetTable);
+        job.setTargetName(targetName);
+        return enqueue(job);
+    }
+
+    /**
+     * 创建没有检查点的任务，多个参数每行一个
+     */
+    private CleaningJob newJob(Long dataSetId, String operation, List<String> parameters, CleaningTable table) {
+        for (String parameter : parameters) {
+            if (parameter.contains("\n")) {
+                throw new RuntimeException("参数不能包含换行: " + parameter);
+            }
+        }
+        return CleaningJob.builder()
+                .dataSetId(dataSetId)
+                .operation(operation)
+                .parameters(String.join("\n", parameters))
+                .dataSourceId(table.getTarget().getDataSourceId())
+                .tableName(table.getTableName())
+                .status(CleaningJob.STATUS_PENDING)
+                .rowsScanned(0L)
+                .rowsAffected(0L)
+                .progressPercent(0.0)
+                .build();
+    }
+
+    /**
+     * 检查表上没有未结束的任务后保存任务并提交执行
+     * 同一实例内检查和保存在同一个锁内完成，避免两个请求同时通过检查
+     */
+    private CleaningJob enqueue(CleaningJob job) {
+        synchronized (this) {
+            checkTableIdle(job);
+            job = cleaningJobRepository.save(job);
+        }
+        dispatch(job.getId());
+        return job;
+    }
+
+    /**
+     * 表上已有排队或运行中的任务时拒绝
+     */
+    private void checkTableIdle(CleaningJob job) {
+        String key = TableLocks.key(job.getDataSourceId(), job.getTableName());
+        for (CleaningJob active : cleaningJobRepository.findByStatusIn(
+                List.of(CleaningJob.STATUS_PENDING, CleaningJob.STATUS_RUNNING))) {
+            if (active.getTableName() != null && !active.getId().equals(job.getId())
+                    && key.equals(TableLocks.key(active.getDataSourceId(), active.getTableName()))) {
+                throw new RuntimeException("表 " + job.getTableName() + " 已有未结束的清洗任务 #" + active.getId()
+                        + "（" + active.getStatus() + "），请等待其结束或取消后再提交");
+            }
+        }
+    }
+
+    /**
+     * 在请求线程上执行同步清洗，占用一个清洗名额
+     */
+    @Override
+    public <T> T runSynchronously(Long dataSetId, Supplier<T> operation) {
+        CleaningTable table = dataCleaningService.getCleaningTable(dataSetId);
+        long limit = cleaningProperties.getSyncMaxRows();
+        Long rows = limit > 0 ? table.estimatedRowCount() : null;
+        if (rows != null && rows > limit) {
+            throw new RuntimeException("表 " + table.getTableName() + " 约有 " + rows + " 行，超过同步清洗的上限 "
+                    + limit + " 行，请通过 /api/cleaning-jobs 提交后台任务");
+        }
+        if (!cleaningSlots.tryAcquire(0)) {
+            throw new RuntimeException("同时运行的清洗操作已达上限 " + cleaningSlots.getPermits()
+                    + "，请稍后重试或通过 /api/cleaning-jobs 提交后台任务");
+        }
+        try {
+            return operation.get();
+        } finally {
+            cleaningSlots.release();
+        }
+    }
+
+    @Override
+    public CleaningJob getJobById(Long id) {
+        return cleaningJobRepository.findById(id).orElse(null);
+    }
+
+    @Override
+    public List<CleaningJob> getAllJobs() {
+        return cleaningJobRepository.findAllByOrderByCreatedAtDesc();
+    }
+
+    @Override
+    public CleaningJob cancelJob(Long id) {
+        CleaningJob job = cleaningJobRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("清洗任务不存在: " + id));
+
+        AtomicBoolean flag = cancelFlags.get(id);
+        if (flag != null) {
+            // 运行中的任务在下一批提交前停止，由执行线程更新最终状态
+            flag.set(true);
+        }
+        if (CleaningJob.STATUS_PENDING.equals(job.getStatus())) {
+            job.setStatus(CleaningJob.STATUS_CANCELLED);
+            job.setFinishedAt(LocalDateTime.now());
+            job = cleaningJobRepository.save(job);
+        } else if (flag == null && CleaningJob.STATUS_RUNNING.equals(job.getStatus())) {
+            throw new RuntimeException("任务不在当前服务实例中运行，无法取消: " + id);
+        } else if (!CleaningJob.STATUS_RUNNING.equals(job.getStatus())) {
+            throw new RuntimeException("任务已结束，无法取消，当前状态: " + job.getStatus());
+        }
+        return job;
+    }
+
+    @Override
+    public CleaningJob resumeJob(Long id) {
+        CleaningJob job = cleaningJobRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("清洗任务不存在: " + id));
+
+        if (!CleaningJob.STATUS_FAILED.equals(job.getStatus()) && !CleaningJob.STATUS_CANCELLED.equals(job.getStatus())) {
+            throw new RuntimeException("只能恢复失败或已取消的任务，当前状态: " + job.getStatus());
+        }
+
+        job.setStatus(CleaningJob.STATUS_PENDING);
+        job.setErrorMessage(null);
+        job.setFinishedAt(null);
+        return enqueue(job);
+    }
+
+    /**
+     * 服务启动时，将上次运行中断的任务标记为失败，便于通过恢复接口继续清洗
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void markInterruptedJobs() {
+        List<CleaningJob> interrupted = cleaningJobRepository.findByStatusIn(
+                List.of(CleaningJob.STATUS_PENDING, CleaningJob.STATUS_RUNNING));
+        for (CleaningJob job : interrupted) {
+            job.setStatus(CleaningJob.STATUS_FAILED);
+            job.setErrorMessage(hasCheckpoint(job)
+                    ? "服务重启导致任务中断，可从检查点恢复"
+                    : "服务重启导致任务中断，恢复时重新执行");
+            job.setFinishedAt(LocalDateTime.now());
+        }
+        cleaningJobRepository.saveAll(interrupted);
+    }
+
+    /**
+     * 是否按检查点恢复：只有不开启写时复制时的过滤任务直接在原表上分批删除并记录检查点
+     */
+    private boolean hasCheckpoint(CleaningJob job) {
+        return CleaningJob.OPERATION_FILTER.equals(job.getOperation()) && !cleaningProperties.isCopyOnWrite();
+    }
+
+    /**
+     * 提交任务到后台线程池
+     */
+    private void dispatch(Long jobId) {
+        cancelFlags.put(jobId, new AtomicBoolean(false));
+        try {
+            cleaningTaskExecutor.execute(() -> runJob(jobId));
+        } catch (RuntimeException e) {
+            cancelFlags.remove(jobId);
+            cleaningJobRepository.findById(jobId).ifPresent(job -> {
+                job.setStatus(CleaningJob.STATUS_FAILED);
+                job.setErrorMessage("清洗任务队列已满: " + e.getMessage());
+                cleaningJobRepository.save(job);
+            });
+            throw new RuntimeException("清洗任务队列已满，请稍后重试", e);
+        }
+    }
+
+    /**
+     * 执行清洗任务
+     * 先等待空闲的清洗名额，再获取表锁，同步接口占满名额或正在修改该表时等待，等待期间可以取消
+     */
+    private void runJob(Long jobId) {
+        AtomicBoolean cancelled = cancelFlags.get(jobId);
+        CleaningJob pending = cleaningJobRepository.findById(jobId).orElse(null);
+        if (pending == null || cancelled == null || !CleaningJob.STATUS_PENDING.equals(pending.getStatus())) {
+            cancelFlags.remove(jobId);
+            return;
+        }
+
+        while (!cleaningSlots.tryAcquire(1000)) {
+            if (cancelled.get()) {
+                cancelFlags.remove(jobId);
+                return;
+            }
+        }
+        try {
+            runWithTableLock(pending, cancelled);
+        } finally {
+            cleaningSlots.release();
+        }
+    }
+
+    /**
+     * 获取表锁后执行任务
+     */
+    private void runWithTableLock(CleaningJob pending, AtomicBoolean cancelled) {
+        Long jobId = pending.getId();
+        String lockKey = TableLocks.key(pending.getDataSourceId(), pending.getTableName());
+        while (!tableLocks.tryLock(lockKey, "清洗任务 #" + jobId, 1000)) {
+            if (cancelled.get()) {
+                cancelFlags.remove(jobId);
+                return;
+            }
+        }
+        try {
+            // 等锁期间可能已被取消
+            CleaningJob job = cleaningJobRepository.findById(jobId).orElse(null);
+            if (job == null || !CleaningJob.STATUS_PENDING.equals(job.getStatus())) {
+                return;
+            }
+            job.setStatus(CleaningJob.STATUS_RUNNING);
+            job.setStartedAt(LocalDateTime.now());
+            job = cleaningJobRepository.save(job);
+            if (hasCheckpoint(job)) {
+                runFilterJob(job, cancelled);
+            } else {
+                runOperationJob(job, cancelled);
+            }
+        } catch (Exception e) {
+            if (cancelled.get()) {
+                markCancelled(jobId, e);
+            } else {
+                markFailed(jobId, e);
+            }
+        } finally {
+            tableLocks.unlock(lockKey);
+            cancelFlags.remove(jobId);
+        }
+    }
+
+    /**
+     * 按主键区间分批过滤，从检查点之后继续
+     */
+    @SuppressWarnings("try") // lease只用于在删除期间借用连接池，不在代码块中引用
+    private void runFilterJob(CleaningJob job, AtomicBoolean cancelled) {
+        CleaningTable table = dataCleaningService.getCleaningTable(job.getDataSetId());
+        String condition = FilterConditions.quoteColumns(job.getParameters(), table);
+        Throttle throttle = new Throttle(cleaningProperties.getPauseMillis(),
+                cleaningProperties.getMaxRowsPerSecond(),
+                Throttle.replicaLagQuery(table.getJdbcTemplate(), cleaningProperties.getReplicaLagQuery()),
+                cleaningProperties.getMaxReplicaLagSeconds());
+        long fromKey = job.getCheckpointKey() != null ? job.getCheckpointKey() + 1 : job.getMinKey();
+        long rowsBefore = job.getRowsAffected();
+
+        FilterProgress progress = new FilterProgress(job, fromKey);
+        boolean finished;
+        try (ImportTarget.Lease lease = table.getTarget().lease()) {
+            finished = fromKey > job.getMaxKey()
+                    || new FilterDeleteExecutor(cleaningProperties.getBatchSize(), throttle, cancelled::get)
+                    .run(table, condition, fromKey, job.getMaxKey(), progress::onRange);
+        }
+
+        job = progress.finish();
+        if (finished) {
+            job.setStatus(CleaningJob.STATUS_COMPLETED);
+            job.setProgressPercent(100.0);
+            job.setEtaSeconds(0L);
+        } else {
+            job.setStatus(CleaningJob.STATUS_CANCELLED);
+        }
+        job.setFinishedAt(LocalDateTime.now());
+        job = cleaningJobRepository.save(job);
+        recordOnDataSet(job, job.getRowsAffected() - rowsBefore, finished);
+        recordRun(job, table, progress, job.getRowsAffected() - rowsBefore);
+    }
+
+    /**
+     * 在后台线程上执行同步清洗方法，清洗引擎每提交一批更新一次进度并检查取消标志
+     * 清洗方法自己更新数据集的记录数和描述
+     */
+    private void runOperationJob(CleaningJob job, AtomicBoolean cancelled) {
+        Long dataSetId = job.getDataSetId();
+        List<String> parameters = Arrays.asList(job.getParameters().split("\n"));
+        OperationProgress progress = new OperationProgress(job);
+        CleaningContext context = CleaningContext.open(cancelled::get, progress::onRows);
+        String summary;
+        try {
+            switch (job.getOperation()) {
+                case CleaningJob.OPERATION_FILTER:
+                    dataCleaningService.filterData(dataSetId, job.getParameters());
+                    summary = "删除记录 " + context.getRows() + " 条";
+                    break;
+                case CleaningJob.OPERATION_DEDUPLICATE:
+                    dataCleaningService.removeDuplicates(dataSetId, parameters);
+                    summary = "删除重复记录 " + context.getRows() + " 条";
+                    break;
+                case CleaningJob.OPERATION_FILL_MISSING:
+                    dataCleaningService.fillMissingValues(dataSetId, job.getParameters());
+                    summary = "填充单元格 " + context.getRows() + " 个";
+                    break;
+                case CleaningJob.OPERATION_FORMAT:
+                    dataCleaningService.formatData(dataSetId, parameters);
+                    summary = "格式化记录 " + context.getRows() + " 条";
+                    break;
+                case CleaningJob.OPERATION_OUTLIER:
+                    dataCleaningService.treatOutliers(dataSetId, job.getParameters());
+                    summary = "异常值处理影响 " + context.getRows() + " 行（标记方式下为异常值个数）";
+                    break;
+                case CleaningJob.OPERATION_NEAR_DEDUPLICATE:
+                    dataCleaningService.removeNearDuplicates(dataSetId, job.getParameters());
+                    summary = "近似去重影响 " + context.getRows() + " 行（复核方式下为写入复核表的行数）";
+                    break;
+                case CleaningJob.OPERATION_PIPELINE:
+                    PipelineResult result = dataCleaningService.runCleaningPipeline(dataSetId, parameters);
+                    summary = result.getSteps().stream()
+                            .map(o -> o.getStep() + (o.getRowDelta() != null ? "(" + o.getRowDelta() + ")" : ""))
+                            .collect(Collectors.joining(", "));
+                    break;
+                case CleaningJob.OPERATION_CLEAN_INTO:
+                    DataSet target = dataCleaningService.cleanIntoNewDataSet(dataSetId, parameters,
+                            job.getTargetTable(), job.getTargetName());
+                    progress.setTargetDataSetId(target.getId());
+                    summary = "已清洗到新数据集 #" + target.getId() + "，表: " + target.getTableName()
+                            + "，记录数: " + target.getRowCount();
+                    break;
+                default:
+                    throw new RuntimeException("不支持的清洗操作: " + job.getOperation());
+            }
+        } finally {
+            context.close();
+        }
+
+        job = progress.finish();
+        job.setSummary(truncate(summary));
+        job.setStatus(CleaningJob.STATUS_COMPLETED);
+        job.setProgressPercent(100.0);
+        job.setEtaSeconds(0L);
+        job.setFinishedAt(LocalDateTime.now());
+        cleaningJobRepository.save(job);
+    }
+
+    /**
+     * 更新数据集的记录数和描述
+     */
+    private void recordOnDataSet(CleaningJob job, long deleted, boolean finished) {
+        DataSet dataSet = dataSetRepository.findById(job.getDataSetId()).orElse(null);
+        if (dataSet == null) {
+            return;
+        }
+        if (dataSet.getRowCount() != null) {
+            dataSet.setRowCount(Math.max(0, dataSet.getRowCount() - deleted));
+        }
+        String currentDesc = dataSet.getDescription() != null ? dataSet.getDescription() : "";
+        dataSet.setDescription(currentDesc + " [" + (finished ? "已执行" : "已部分执行") + "过滤任务 #" + job.getId()
+                + "，条件: " + job.getParameters() + ", 表: " + job.getTableName() + ", 删除 " + deleted + " 条]");
+        dataSetRepository.save(dataSet);
+    }
+
+    /**
+     * 记录本次执行扫描的行数和耗时，供试运行估计耗时（恢复执行的任务只算本次执行的部分）
+     */
+    private void recordRun(CleaningJob job, CleaningTable table, FilterProgress progress, long deleted) {
+        long scanned = job.getRowsScanned() - progress.startScanned;
+        if (scanned <= 0) {
+            return;
+        }
+        try {
+            cleaningRunRepository.save(CleaningRun.builder()
+                    .dataSetId(job.getDataSetId())
+                    .operation(CleaningRun.OPERATION_FILTER)
+                    .dataSourceId(table.getTarget().getDataSourceId())
+                    .tableName(table.getTableName())
+                    .rowsScanned(scanned)
+                    .rowsAffected(deleted)
+                    .elapsedMillis((System.nanoTime() - progress.startNanos) / 1_000_000)
+                    .build());
+        } catch (Exception e) {
+            // 任务已完成，记录失败不影响任务状态
+            System.err.println("记录清洗任务 #" + job.getId() + " 的执行情况失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 标记任务失败（重新读取最新检查点，避免覆盖已提交的进度）
+     */
+    private void markFailed(Long jobId, Exception e) {
+        cleaningJobRepository.findById(jobId).ifPresent(failed -> {
+            failed.setStatus(CleaningJob.STATUS_FAILED);
+            failed.setErrorMessage(truncate(e.getMessage()));
+            failed.setFinishedAt(LocalDateTime.now());
+            cleaningJobRepository.save(failed);
+        });
+    }
+
+    /**
+     * 标记任务已取消，已提交的批次保留
+     */
+    private void markCancelled(Long jobId, Exception e) {
+        cleaningJobRepository.findById(jobId).ifPresent(cancelledJob -> {
+            cancelledJob.setStatus(CleaningJob.STATUS_CANCELLED);
+            cancelledJob.setErrorMessage(truncate(e.getMessage()));
+            cancelledJob.setFinishedAt(LocalDateTime.now());
+            cleaningJobRepository.save(cancelledJob);
+        });
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return "未知错误";
+        }
+        return message.length() > 2000 ? message.substring(0, 2000) : message;
+    }
+
+    /**
+     * 推进检查点并计算速度和预计剩余时间，大约每秒保存一次
+     * 检查点保存得晚于实际删除时，恢复后会重新扫描这几段，按主键删除不会多删
+     */
+    private class FilterProgress {
+        private CleaningJob job;
+        private final long startNanos = System.nanoTime();
+        private final long startKey;
+        private final long startScanned;
+        private long lastSaveNanos = startNanos;
+
+        FilterProgress(CleaningJob job, long startKey) {
+            this.job = job;
+            this.startKey = startKey;
+            this.startScanned = job.getRowsScanned();
+        }
+
+        void onRange(long checkpointKey, long scanned, long deleted) {
+            job.setCheckpointKey(checkpointKey);
+            job.setRowsScanned(job.getRowsScanned() + scanned);
+            job.setRowsAffected(job.getRowsAffected() + deleted);
+            long now = System.nanoTime();
+            if (now - lastSaveNanos < 1_000_000_000L) {
+                return;
+            }
+            lastSaveNanos = now;
+            apply(now);
+            job = cleaningJobRepository.save(job);
+        }
+
+        CleaningJob finish() {
+            apply(System.nanoTime());
+            return job;
+        }
+
+        private void apply(long now) {
+            if (job.getCheckpointKey() == null) {
+                return;
+            }
+            double total = (double) job.getMaxKey() - job.getMinKey() + 1;
+            double done = (double) job.getCheckpointKey() - job.getMinKey() + 1;
+            job.setProgressPercent(Math.min(100.0, done * 100 / total));
+            double elapsedSeconds = (now - startNanos) / 1_000_000_000.0;
+            double keysPerSecond = (job.getCheckpointKey() - startKey + 1) / elapsedSeconds;
+            if (elapsedSeconds > 0 && keysPerSecond > 0) {
+                job.setRowsPerSecond((job.getRowsScanned() - startScanned) / elapsedSeconds);
+                job.setEtaSeconds((long) Math.ceil(Math.max(0, job.getMaxKey() - job.getCheckpointKey()) / keysPerSecond));
+            }
+        }
+    }
+
+    /**
+     * 累计没有检查点的任务的进度，大约每秒保存一次
+     */
+    private class OperationProgress {
+        private CleaningJob job;
+        private final long startNanos = System.nanoTime();
+        private final long startAffected;
+        private long lastSaveNanos = startNanos;
+
+        OperationProgress(CleaningJob job) {
+            this.job = job;
+            this.startAffected = job.getRowsAffected();
+        }
+
+        void onRows(long rows) {
+            job.setRowsAffected(startAffected + rows);
+            long now = System.nanoTime();
+            if (now - lastSaveNanos < 1_000_000_000L) {
+                return;
+            }
+            lastSaveNanos = now;
+            job.setRowsPerSecond(rows / ((now - startNanos) / 1_000_000_000.0));
+            job = cleaningJobRepository.save(job);
+        }
+
+        void setTargetDataSetId(Long targetDataSetId) {
+            job.setTargetDataSetId(targetDataSetId);
+        }
+
+        CleaningJob finish() {
+            return job;
+        }
+    }
+}
@@ -1,15 +1,31 @@
 package com.example.datag.service.impl;
 
+import com.example.datag.config.ImportProperties;
+import com.example.datag.importer.ColumnProfiler;
+import com.example.datag.importer.Compression;
+import com.example.datag.importer.CsvImportEngine;
+import com.example.datag.importer.CsvLineParser;
+import com.example.datag.importer.ImportFileReader;
+import com.example.datag.importer.ImportTarget;
+import com.example.datag.importer.LineSource;
+import com.example.datag.importer.LineSources;
+import com.example.datag.importer.MergeResult;
+import com.example.datag.importer.RejectSink;
+import com.example.datag.importer.SqlDialect;
+import com.example.datag.importer.StreamLineSource;
+import com.example.datag.importer.TableBatchWriter;
+import com.example.datag.importer.TableMergeWriter;
 import com.example.datag.service.CsvImportService;
+import com.example.datag.service.DataSetService;
+import com.example.datag.service.DataSourceConnectionService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * CSV导入服务实现类
@@ -18,101 +34,92 @@ import java.util.*;
 @RequiredArgsConstructor
 public class CsvImportServiceImpl implements CsvImportService {
 
-    private final JdbcTemplate jdbcTemplate;
+    private final ImportProperties importProperties;
+    private final DataSetService dataSetService;
+    private final DataSourceConnectionService dataSourceConnectionService;
 
     @Override
     public int importCsvToTable(String csvFilePath, String tableName) {
-        try {
-            byte[] fileContent = Files.readAllBytes(Paths.get(csvFilePath));
-            return importCsvFromBytes(fileContent, tableName);
-        } catch (IOException e) {
-            throw new RuntimeException("读取CSV文件失败: " + e.getMessage(), e);
-        }
+        return importCsvToTable(csvFilePath, tableName, null);
     }
 
     @Override
-    public int importCsvFromBytes(byte[] fileContent, String tableName) {
-        try {
-            String content = new String(fileContent, StandardCharsets.UTF_8);
-            BufferedReader reader = new BufferedReader(new StringReader(content));
-            
-            // 读取表头
-            String headerLine = reader.readLine();
-            if (headerLine == null || headerLine.trim().isEmpty()) {
-                throw new RuntimeException("CSV文件为空或格式错误");
-            }
-            
-            // 解析表头
-            List<String> headers = parseCsvLine(headerLine);
-            if (headers.isEmpty()) {
-                throw new RuntimeException("CSV文件表头为空");
-            }
-            
-            // 验证表是否存在，如果不存在则创建
-            ensureTableExists(tableName, headers);
-            
-            // 构建INSERT SQL
-            String insertSql = buildInsertSql(tableName, headers);
-            
-            // 批量插入数据
-            int rowCount = 0;
-            String line;
-            List<Object[]> batchArgs = new ArrayList<>();
-            
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) {
-                    continue;
-                }
-                
-                List<String> values = parseCsvLine(line);
-                if (values.size() != headers.size()) {
-                    System.err.println("警告: 行 " + (rowCount + 2) + " 列数不匹配，跳过: " + line);
-                    continue;
-                }
-                
-                // 转换为整数数组（所有字段都作为int处理）
-                Object[] rowData = new Object[values.size()];
-                for (int i = 0; i < values.size(); i++) {
-                    try {
-                        String value = values.get(i).trim();
-                        if (value.isEmpty()) {
-                            rowData[i] = 0; // 空值默认为0
-                        } else {
-                            rowData[i] = Integer.parseInt(value);
-                        }
-                    } catch (NumberFormatException e) {
-                        System.err.println("警告: 行 " + (rowCount + 2) + " 列 " + (i + 1) + " 不是整数，使用0: " + values.get(i));
-                        rowData[i] = 0;
-                    }
-                }
-                
-                batchArgs.add(rowData);
-                rowCount++;
-                
-                // 每1000条批量插入
-                if (batchArgs.size() >= 1000) {
-                    jdbcTemplate.batchUpdate(insertSql, batchArgs);
-                    batchArgs.clear();
-                }
+    public int importCsvToTable(String csvFilePath, String tableName, Long dataSourceId) {
+        return (int) importFile(csvFilePath, dataSourceConnectionService.getImportTarget(dataSourceId), tableName,
+                null, null);
+    }
+
+    @Override
+    public MergeResult mergeCsvToTable(String csvFilePath, String tableName, List<String> keyColumns) {
+        return mergeCsvToTable(csvFilePath, tableName, keyColumns, null);
+    }
+
+    @Override
+    public MergeResult mergeCsvToTable(String csvFilePath, String tableName, List<String> keyColumns,
+                                       Long dataSourceId) {
+        if (keyColumns == null || keyColumns.isEmpty()) {
+            throw new RuntimeException("合并导入需要指定键列");
+        }
+        ImportTarget target = dataSourceConnectionService.getImportTarget(dataSourceId);
+        if (target.getDialect() != SqlDialect.MYSQL) {
+            throw new RuntimeException("合并导入目前只支持MySQL数据源");
+        }
+        MergeResult result = new MergeResult();
+        importFile(csvFilePath, target, tableName, keyColumns, result);
+        return result;
+    }
+
+    /**
+     * 导入服务端文件，keyColumns为空时追加导入，否则按键列合并并把统计结果累加到mergeResult
+     */
+    private long importFile(String csvFilePath, ImportTarget target, String tableName, List<String> keyColumns,
+                            MergeResult mergeResult) {
+        Compression compression = Compression.fromFileName(csvFilePath);
+        if (compression == null || compression == Compression.NONE) {
+            LineSource source;
+            try {
+                // 服务端大文件使用内存映射读取，不再一次性读入内存
+                source = LineSources.openFile(Paths.get(csvFilePath), 0, importProperties.getMmapThreshold());
+            } catch (IOException e) {
+                throw new RuntimeException("读取CSV文件失败: " + e.getMessage(), e);
             }
-            
-            // 插入剩余数据
-            if (!batchArgs.isEmpty()) {
-                jdbcTemplate.batchUpdate(insertSql, batchArgs);
+            return importFromSource(source, target, tableName, keyColumns, mergeResult,
+                    Paths.get(csvFilePath).getFileName().toString(), fileSize(csvFilePath));
+        }
+
+        // 压缩文件边读边解压，zip中的每个CSV文件依次导入同一张表
+        long total = 0;
+        try (ImportFileReader reader = new ImportFileReader(Paths.get(csvFilePath), compression,
+                importProperties.getMmapThreshold())) {
+            LineSource source;
+            long remainingBytes = fileSize(csvFilePath);
+            while ((source = reader.nextEntry(0)) != null) {
+                // 压缩文件大小只计入第一个分段
+                total += importFromSource(source, target, tableName, keyColumns, mergeResult,
+                        reader.getEntryName(), remainingBytes);
+                remainingBytes = 0;
             }
-            
-            reader.close();
-            return rowCount;
-            
-        } catch (Exception e) {
-            throw new RuntimeException("导入CSV失败: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new RuntimeException("读取压缩文件失败: " + e.getMessage(), e);
         }
+        return total;
+    }
+
+    @Override
+    public int importCsvFromBytes(byte[] fileContent, String tableName) {
+        return (int) importFromSource(new StreamLineSource(new ByteArrayInputStream(fileContent), 0),
+                dataSourceConnectionService.getImportTarget(null), tableName, null, null, null,
+                fileContent.length);
     }
 
     @Override
     public List<String> readCsvHeaders(String csvFilePath) {
-        try {
-            String firstLine = Files.readAllLines(Paths.get(csvFilePath), StandardCharsets.UTF_8).get(0);
+        // 只读取第一行
+        try (LineSource source = LineSources.openFile(Paths.get(csvFilePath), 0, importProperties.getMmapThreshold())) {
+            String firstLine = source.readLine();
+            if (firstLine == null) {
+                throw new RuntimeException("CSV文件为空");
+            }
             return parseCsvLine(firstLine);
         } catch (IOException e) {
             throw new RuntimeException("读取CSV表头失败: " + e.getMessage(), e);
@@ -121,18 +128,19 @@ public class CsvImportServiceImpl implements CsvImportService {
 
     @Override
     public List<Map<String, String>> previewCsv(String csvFilePath, int rows) {
-        try {
-            List<String> lines = Files.readAllLines(Paths.get(csvFilePath), StandardCharsets.UTF_8);
-            if (lines.isEmpty()) {
+        // 只读取表头和请求的行数，读取量与预览行数成正比
+        try (LineSource source = LineSources.openFile(Paths.get(csvFilePath), 0, importProperties.getMmapThreshold())) {
+            String headerLine = source.readLine();
+            if (headerLine == null) {
                 return Collections.emptyList();
             }
             
-            List<String> headers = parseCsvLine(lines.get(0));
+            List<String> headers = parseCsvLine(headerLine);
             List<Map<String, String>> result = new ArrayList<>();
             
-            int maxRows = Math.min(rows + 1, lines.size()); // +1 因为第一行是表头
-            for (int i = 1; i < maxRows; i++) {
-                List<String> values = parseCsvLine(lines.get(i));
+            String line;
+            while (result.size() < rows && (line = source.readLine()) != null) {
+                List<String> values = parseCsvLine(line);
                 Map<String, String> row = new LinkedHashMap<>();
                 for (int j = 0; j < headers.size() && j < values.size(); j++) {
                     row.put(headers.get(j), values.get(j));
@@ -147,71 +155,87 @@ public class CsvImportServiceImpl implements CsvImportService {
     }
 
     /**
-     * 解析CSV行（简单的CSV解析，不支持引号内的逗号）
+     * 从行数据源导入CSV到数据库表
+     * @param target 目标库
+     * @param keyColumns 合并键列，为空时追加导入
+     * @param mergeResult 合并导入的统计结果（累加）
+     * @param sourceName 文件名，登记数据集时使用，没有文件名时为null
+     * @param sourceBytes 文件字节数，登记数据集时使用
+     * @return 读取的有效数据行数
      */
-    private List<String> parseCsvLine(String line) {
-        List<String> result = new ArrayList<>();
-        if (line == null || line.trim().isEmpty()) {
-            return result;
-        }
-        
-        String[] parts = line.split(",");
-        for (String part : parts) {
-            result.add(part.trim());
-        }
-        return result;
-    }
-
-    /**
-     * 确保表存在，如果不存在则创建
-     */
-    private void ensureTableExists(String tableName, List<String> columns) {
-        // 检查表是否存在
-        String checkTableSql = "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES " +
-                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
-        Integer count = jdbcTemplate.queryForObject(checkTableSql, Integer.class, tableName);
-        
-        if (count == null || count == 0) {
-            // 表不存在，创建表
-            StringBuilder createTableSql = new StringBuilder();
-            createTableSql.append("CREATE TABLE `").append(tableName).append("` (");
-            createTableSql.append("id INT PRIMARY KEY AUTO_INCREMENT, ");
+    @SuppressWarnings("try") // lease只用于在导入期间借用连接池，不在代码块中引用
+    private long importFromSource(LineSource lineSource, ImportTarget target, String tableName,
+                                  List<String> keyColumns, MergeResult mergeResult, String sourceName,
+                                  long sourceBytes) {
+        // 导入期间借用连接池，数据源被修改或删除时连接池等导入结束后才关闭
+        try (LineSource source = lineSource;
+             ImportTarget.Lease lease = target.lease()) {
+            // 读取表头
+            String headerLine = source.readLine();
+            if (headerLine == null || headerLine.trim().isEmpty()) {
+                throw new RuntimeException("CSV文件为空或格式错误");
+            }
             
-            for (String column : columns) {
-                // 跳过id列（如果存在）
-                if (column.equalsIgnoreCase("id")) {
-                    continue;
-                }
-                createTableSql.append("`").append(column).append("` INT NOT NULL, ");
+            // 解析表头
+            List<String> headers = parseCsvLine(headerLine);
+            if (headers.isEmpty()) {
+                throw new RuntimeException("CSV文件表头为空");
             }
             
-            createTableSql.append("created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP");
-            createTableSql.append(") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+            // 按批插入，同步导入只统计错误行，不写错误行文件
+            CsvImportEngine engine = new CsvImportEngine(importProperties.getBatchSize(), RejectSink.countingOnly(),
+                    importProperties.getMaxErrorRatio(), importProperties.getErrorRatioMinRows(), 0);
+            ColumnProfiler profiler = new ColumnProfiler(headers.stream()
+                    .filter(h -> !h.equalsIgnoreCase("id")).collect(Collectors.toList()));
+            engine.setProfiler(profiler);
+
+            boolean tableCreated;
+            long rowCount;
+            long rowsAdded;
+            if (keyColumns != null && !keyColumns.isEmpty()) {
+                // 合并导入：每批在事务中执行（临时表只在同一连接上可见）
+                TableMergeWriter merger = new TableMergeWriter(target.getJdbcTemplate(), tableName, headers,
+                        keyColumns, importProperties.getMergeMaxIndexedRows());
+                tableCreated = merger.prepare();
+                MergeResult sourceResult = new MergeResult();
+                rowCount = engine.run(source, headers, 1,
+                        (rows, endOffset, endLine) -> target.getTransactionTemplate().executeWithoutResult(
+                                status -> sourceResult.add(merger.writeBatch(rows))),
+                        () -> false);
+                mergeResult.add(sourceResult);
+                rowsAdded = sourceResult.getInserted();
+            } else {
+                // 验证表是否存在，如果不存在则创建
+                TableBatchWriter writer = new TableBatchWriter(target.getJdbcTemplate(), target.getDialect(),
+                        tableName, headers);
+                tableCreated = writer.ensureTableExists();
+                rowCount = engine.run(source, headers, 1,
+                        (rows, endOffset, endLine) -> writer.writeBatch(rows), () -> false);
+                rowsAdded = rowCount;
+            }
+
+            // 用导入过程中累计的统计登记数据集和字段元数据
+            dataSetService.registerImportedTable(tableName, target.getDataSourceId(), sourceName, rowsAdded, sourceBytes,
+                    tableCreated, profiler);
+            return rowCount;
             
-            jdbcTemplate.execute(createTableSql.toString());
+        } catch (Exception e) {
+            throw new RuntimeException("导入CSV失败: " + e.getMessage(), e);
+        }
+    }
+
+    private long fileSize(String path) {
+        try {
+            return Files.size(Paths.get(path));
+        } catch (IOException e) {
+            throw new RuntimeException("读取文件大小失败: " + e.getMessage(), e);
         }
     }
 
     /**
-     * 构建INSERT SQL语句
+     * 解析CSV行（简单的CSV解析，不支持引号内的逗号）
      */
-    private String buildInsertSql(String tableName, List<String> columns) {
-        // 过滤掉id列（自动生成）
-        List<String> insertColumns = new ArrayList<>();
-        for (String col : columns) {
-            if (!col.equalsIgnoreCase("id")) {
-                insertColumns.add("`" + col + "`");
-            }
-        }
-        
-        StringBuilder sql = new StringBuilder();
-        sql.append("INSERT INTO `").append(tableName).append("` (");
-        sql.append(String.join(", ", insertColumns));
-        sql.append(") VALUES (");
-        sql.append(String.join(", ", Collections.nCopies(insertColumns.size(), "?")));
-        sql.append(")");
-        
-        return sql.toString();
+    private List<String> parseCsvLine(String line) {
+        return CsvLineParser.parse(line);
     }
 }
-
@@ -1,21 +1,64 @@
 package com.example.datag.service.impl;
 
+import com.example.datag.cleaning.ChunkedDeduplicator;
+import com.example.datag.cleaning.CleaningCancelledException;
+import com.example.datag.cleaning.CleaningContext;
+import com.example.datag.cleaning.CleaningStep;
+import com.example.datag.cleaning.CleaningTable;
+import com.example.datag.cleaning.DedupResult;
+import com.example.datag.cleaning.FillResult;
+import com.example.datag.cleaning.FillStrategy;
+import com.example.datag.cleaning.FilterConditions;
+import com.example.datag.cleaning.FilterDeleteExecutor;
+import com.example.datag.cleaning.FormatEngine;
+import com.example.datag.cleaning.FormatResult;
+import com.example.datag.cleaning.FormatRule;
+import com.example.datag.cleaning.FusedPipeline;
+import com.example.datag.cleaning.HashDeduplicator;
+import com.example.datag.cleaning.ImpactEstimate;
+import com.example.datag.cleaning.ImpactEstimator;
+import com.example.datag.cleaning.MissingValueFiller;
+import com.example.datag.cleaning.NearDuplicateDetector;
+import com.example.datag.cleaning.NearDuplicateResult;
+import com.example.datag.cleaning.NearDuplicateRule;
+import com.example.datag.cleaning.OutlierDetector;
+import com.example.datag.cleaning.OutlierResult;
+import com.example.datag.cleaning.OutlierRule;
+import com.example.datag.cleaning.ParallelRangeExecutor;
+import com.example.datag.cleaning.PipelineResult;
+import com.example.datag.cleaning.StepOutcome;
+import com.example.datag.cleaning.TableLocks;
+import com.example.datag.cleaning.TableSwap;
+import com.example.datag.cleaning.Throttle;
+import com.example.datag.importer.SqlDialect;
+import com.example.datag.config.CleaningProperties;
+import com.example.datag.entity.DataLineage;
+import com.example.datag.entity.CleaningRun;
 import com.example.datag.entity.DataSet;
 import com.example.datag.entity.MetaData;
+import com.example.datag.repository.CleaningRunRepository;
 import com.example.datag.repository.DataSetRepository;
+import com.example.datag.repository.MetaDataRepository;
 import com.example.datag.service.DataCleaningService;
+import com.example.datag.service.DataLineageService;
 import com.example.datag.service.DataSetService;
 import com.example.datag.service.DataSourceConnectionService;
 import com.example.datag.service.DataSourceService;
 import com.example.datag.service.MetaDataService;
+import com.example.datag.service.TableVersionService;
+import com.example.datag.service.SchemaCatalogService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import java.util.HashSet;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -45,6 +88,14 @@ public class DataCleaningServiceImpl implements DataCleaningService {
     private final MetaDataService metaDataService;
     private final DataSourceConnectionService dataSourceConnectionService;
     private final DataSourceService dataSourceService;
+    private final CleaningProperties cleaningProperties;
+    private final TableVersionService tableVersionService;
+    private final CleaningRunRepository cleaningRunRepository;
+    private final TableLocks tableLocks;
+    private final MetaDataRepository metaDataRepository;
+    private final DataLineageService dataLineageService;
+    private final SchemaCatalogService schemaCatalogService;
+    private final ThreadPoolTaskExecutor cleaningRangeExecutor;
     
     @Autowired(required = false)
     private JdbcTemplate localJdbcTemplate; // 本地默认数据源的JdbcTemplate
@@ -87,112 +138,16 @@ public class DataCleaningServiceImpl implements DataCleaningService {
         }
 
         // 3. 实现去重逻辑
-        JdbcTemplate jdbcTemplate = null;
-        String tableName = null;
-        Long removedCount = 0L;
-        
-        // 优先使用数据源和表名，如果没有则尝试使用location字段
-        if (dataSet.getDataSourceId() != null && dataSet.getTableName() != null) {
-            jdbcTemplate = dataSourceConnectionService.createJdbcTemplate(dataSet.getDataSourceId());
-            tableName = dataSet.getTableName();
-        } else if (dataSet.getLocation() != null && localJdbcTemplate != null) {
-            // 使用本地数据源和location字段
-            jdbcTemplate = localJdbcTemplate;
-            tableName = parseTableNameFromLocation(dataSet.getLocation());
-            
-            // 验证表名
-            if (!isValidTableName(tableName)) {
-                throw new IllegalArgumentException("表名包含非法字符，只允许字母、数字和下划线: " + tableName);
-            }
-        } else {
-            throw new RuntimeException("数据集未配置数据源和表名，或location字段无效，无法执行去重操作");
-        }
-        
+        CleaningTable table = resolveCleaningTable(dataSet, "去重");
+        long removedCount;
         try {
-            // 检查表是否存在
-            String checkTableSql = "SELECT COUNT(*) as count FROM INFORMATION_SCHEMA.TABLES " +
-                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
-            List<Map<String, Object>> tableCheck = jdbcTemplate.queryForList(checkTableSql, tableName);
-            if (tableCheck.isEmpty() || ((Number) tableCheck.get(0).get("count")).longValue() == 0) {
-                throw new RuntimeException("表不存在: " + tableName);
-            }
-            
-            // 获取去重前的记录数
-            String countBeforeSql = "SELECT COUNT(*) as count FROM `" + tableName + "`";
-            Map<String, Object> countBefore = jdbcTemplate.queryForMap(countBeforeSql);
-            Long countBeforeValue = ((Number) countBefore.get("count")).longValue();
-            
-            // 构建去重字段列表（使用反引号包裹）
-            String fields = String.join(", ", duplicateFields.stream()
-                    .map(f -> "`" + f + "`")
-                    .collect(Collectors.toList()));
-            
-            // 创建临时表存储去重后的数据
-            String tempTableName = tableName + "_dedup_" + System.currentTimeMillis();
-            
-            // 先获取所有列名
-            String getColumnsSql = "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS " +
-                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? ORDER BY ORDINAL_POSITION";
-            List<Map<String, Object>> columns = jdbcTemplate.queryForList(getColumnsSql, tableName);
-            if (columns.isEmpty()) {
-                throw new RuntimeException("表 " + tableName + " 没有列，无法执行去重操作");
-            }
-            String allColumns = columns.stream()
-                    .map(col -> "`" + col.get("COLUMN_NAME") + "`")
-                    .collect(Collectors.joining(", "));
-            
-            // 使用ROW_NUMBER()窗口函数去重（MySQL 8.0+支持）
-            // 如果MySQL版本较低，使用GROUP BY方式（需要处理非聚合列）
-            String createTempTableSql = "CREATE TABLE `" + tempTableName + "` AS " +
-                    "SELECT " + allColumns + " FROM (" +
-                    "  SELECT *, ROW_NUMBER() OVER (PARTITION BY " + fields + " ORDER BY (SELECT NULL)) as rn " +
-                    "  FROM `" + tableName + "`" +
-                    ") t WHERE rn = 1";
-            
-            try {
-                jdbcTemplate.execute(createTempTableSql);
-            } catch (Exception e) {
-                // 如果ROW_NUMBER()不支持，使用GROUP BY方式
-                // 对于非GROUP BY的列，使用MIN()或MAX()函数
-                List<String> allColumnNames = columns.stream()
-                        .map(col -> col.get("COLUMN_NAME").toString())
-                        .collect(Collectors.toList());
-                
-                List<String> selectColumns = new java.util.ArrayList<>();
-                for (String colName : allColumnNames) {
-                    if (duplicateFields.contains(colName)) {
-                        selectColumns.add("`" + colName + "`");
-                    } else {
-                        // 对于非GROUP BY列，使用MIN()函数（也可以使用MAX()）
-                        selectColumns.add("MIN(`" + colName + "`) as `" + colName + "`");
-                    }
-                }
-                
-                createTempTableSql = "CREATE TABLE `" + tempTableName + "` AS " +
-                        "SELECT " + String.join(", ", selectColumns) + " FROM `" + tableName + "` " +
-                        "GROUP BY " + fields;
-                jdbcTemplate.execute(createTempTableSql);
-            }
-            
-            // 删除原表数据
-            jdbcTemplate.execute("DELETE FROM `" + tableName + "`");
-            
-            // 将去重后的数据复制回原表
-            jdbcTemplate.execute("INSERT INTO `" + tableName + "` SELECT " + allColumns + " FROM `" + tempTableName + "`");
-            
-            // 删除临时表
-            jdbcTemplate.execute("DROP TABLE `" + tempTableName + "`");
-            
-            // 获取去重后的记录数
-            Map<String, Object> countAfter = jdbcTemplate.queryForMap(countBeforeSql);
-            Long countAfterValue = ((Number) countAfter.get("count")).longValue();
-            
-            // 更新数据集记录数
-            dataSet.setRowCount(countAfterValue);
-            
-            // 计算删除的记录数
-            removedCount = countBeforeValue - countAfterValue;
-            
+            long start = System.currentTimeMillis();
+            DedupResult result = applyCleaning(dataSet, table, "去重: " + String.join(", ", duplicateFields),
+                    t -> deduplicate(t, duplicateFields), DedupResult::getDeleted);
+            removedCount = result.getDeleted();
+            updateRowCount(dataSet, table, removedCount);
+            recordRun(dataSet, table, CleaningRun.OPERATION_DEDUPLICATE, dataSet.getRowCount() + removedCount,
+                    removedCount, start);
         } catch (Exception e) {
             throw new RuntimeException("执行去重操作失败: " + e.getMessage(), e);
         }
@@ -238,66 +193,25 @@ public class DataCleaningServiceImpl implements DataCleaningService {
         }
 
         // 2. 验证过滤条件的合法性
-        // 实际应用中需要解析过滤条件，确保其符合数据集结构
         if (filterCondition == null || filterCondition.trim().isEmpty()) {
             throw new RuntimeException("过滤条件不能为空");
         }
 
         // 3. 实现过滤逻辑
-        JdbcTemplate jdbcTemplate = null;
-        String tableName = null;
-        
-        // 优先使用数据源和表名，如果没有则尝试使用location字段
-        if (dataSet.getDataSourceId() != null && dataSet.getTableName() != null) {
-            jdbcTemplate = dataSourceConnectionService.createJdbcTemplate(dataSet.getDataSourceId());
-            tableName = dataSet.getTableName();
-        } else if (dataSet.getLocation() != null && localJdbcTemplate != null) {
-            // 使用本地数据源和location字段
-            jdbcTemplate = localJdbcTemplate;
-            tableName = parseTableNameFromLocation(dataSet.getLocation());
-            
-            // 验证表名
-            if (!isValidTableName(tableName)) {
-                throw new IllegalArgumentException("表名包含非法字符，只允许字母、数字和下划线: " + tableName);
-            }
-        } else {
-            throw new RuntimeException("数据集未配置数据源和表名，或location字段无效，无法执行过滤操作");
-        }
-        
+        CleaningTable table = resolveCleaningTable(dataSet, "过滤");
         try {
-            // 检查表是否存在
-            String checkTableSql = "SELECT COUNT(*) as count FROM INFORMATION_SCHEMA.TABLES " +
-                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
-            List<Map<String, Object>> tableCheck = jdbcTemplate.queryForList(checkTableSql, tableName);
-            if (tableCheck.isEmpty() || ((Number) tableCheck.get(0).get("count")).longValue() == 0) {
-                throw new RuntimeException("表不存在: " + tableName);
-            }
-            
-            // 获取过滤前的记录数
-            String countBeforeSql = "SELECT COUNT(*) as count FROM `" + tableName + "`";
-            Map<String, Object> countBefore = jdbcTemplate.queryForMap(countBeforeSql);
-            Long countBeforeValue = ((Number) countBefore.get("count")).longValue();
-            
-            // 处理过滤条件：自动为字段名添加反引号（如果用户没有添加）
-            String processedCondition = processFilterCondition(filterCondition, tableName, jdbcTemplate);
-            
-            // 执行DELETE操作，删除不符合条件的记录（保留符合条件的记录）
-            String deleteSql = "DELETE FROM `" + tableName + "` WHERE NOT (" + processedCondition + ")";
-            int deletedRows = jdbcTemplate.update(deleteSql);
-            
-            // 获取过滤后的记录数
-            Map<String, Object> countAfter = jdbcTemplate.queryForMap(countBeforeSql);
-            Long countAfterValue = ((Number) countAfter.get("count")).longValue();
-            Long keptRows = countBeforeValue;
-            
+            // 处理过滤条件：自动为字段名添加引号（如果用户没有添加）
+            String processedCondition = FilterConditions.quoteColumns(filterCondition, table);
+
+            long start = System.currentTimeMillis();
+            long deletedRows = applyCleaning(dataSet, table, "过滤: " + filterCondition,
+                    t -> filterRows(t, processedCondition), deleted -> deleted);
+
             // 更新记录数
-            dataSet.setRowCount(countAfterValue);
-            
-            // 记录过滤结果
-            if (deletedRows == 0) {
-                throw new RuntimeException("过滤操作未删除任何记录。请检查过滤条件是否正确，或所有记录都符合条件。过滤前: " + countBeforeValue + " 条，过滤后: " + keptRows + " 条");
-            }
-            
+            updateRowCount(dataSet, table, deletedRows);
+            recordRun(dataSet, table, CleaningRun.OPERATION_FILTER, dataSet.getRowCount() + deletedRows,
+                    deletedRows, start);
+
         } catch (Exception e) {
             throw new RuntimeException("执行过滤操作失败: " + e.getMessage(), e);
         }
@@ -305,13 +219,178 @@ public class DataCleaningServiceImpl implements DataCleaningService {
         // 4. 更新数据集描述，记录清洗操作
         String currentDesc = dataSet.getDescription() != null ? dataSet.getDescription() : "";
         String newDescription = currentDesc +
-                " [已执行过滤操作，条件: " + filterCondition + ", 表: " + tableName + "]";
+                " [已执行过滤操作，条件: " + filterCondition + ", 表: " + table.getTableName() + "]";
         dataSet.setDescription(newDescription);
 
         // 5. 更新数据集记录
         return dataSetRepository.save(dataSet);
     }
 
+    /**
+     * 删除不满足保留条件的记录
+     * 有整数主键的表按主键区间分批删除，每个事务最多删除batchSize行，并按配置节流
+     * @return 删除的行数
+     */
+    private long filterRows(CleaningTable table, String condition) {
+        long deletedRows;
+        if (table.hasIntegralKey()) {
+            Throttle throttle = new Throttle(cleaningProperties.getPauseMillis(),
+                    cleaningProperties.getMaxRowsPerSecond(),
+                    Throttle.replicaLagQuery(table.getJdbcTemplate(), cleaningProperties.getReplicaLagQuery()),
+                    cleaningProperties.getMaxReplicaLagSeconds());
+            long[] deleted = {0};
+            long[] keyRange = table.keyRange();
+            if (keyRange != null) {
+                new FilterDeleteExecutor(cleaningProperties.getBatchSize(), throttle, () -> false)
+                        .run(table, condition, keyRange[0], keyRange[1],
+                                (checkpointKey, scanned, rangeDeleted) -> deleted[0] += rangeDeleted);
+            }
+            deletedRows = deleted[0];
+        } else {
+            // 没有整数主键时无法按区间遍历，执行单条DELETE
+            String deleteSql = "DELETE FROM " + table.quotedName() + " WHERE NOT (" + condition + ")";
+            deletedRows = table.getTarget().getTransactionTemplate()
+                    .execute(status -> table.getJdbcTemplate().update(deleteSql));
+        }
+
+        // 记录过滤结果
+        if (deletedRows == 0) {
+            throw new RuntimeException("过滤操作未删除任何记录。请检查过滤条件是否正确，或所有记录都符合条件");
+        }
+        return deletedRows;
+    }
+
+    @Override
+    public CleaningTable getCleaningTable(Long dataSetId) {
+        DataSet dataSet = dataSetService.getDataSetById(dataSetId);
+        if (dataSet == null) {
+            throw new RuntimeException("数据集不存在: " + dataSetId);
+        }
+        return resolveCleaningTable(dataSet, "清洗");
+    }
+
+    /**
+     * 去重试运行
+     * 去重字段上有索引时按索引精确统计重复行数，否则流式扫描去重字段估计不同值个数，不写入任何数据
+     */
+    @Override
+    public ImpactEstimate estimateDuplicates(Long dataSetId, List<String> duplicateFields) {
+        if (duplicateFields == null || duplicateFields.isEmpty()) {
+            throw new RuntimeException("去重字段不能为空");
+        }
+        CleaningTable table = getCleaningTable(dataSetId);
+        ImpactEstimate estimate = newEstimator().estimateDuplicates(table, duplicateFields);
+        applyThroughput(estimate, CleaningRun.OPERATION_DEDUPLICATE, table);
+        return estimate;
+    }
+
+    /**
+     * 过滤试运行
+     * 按主键区间抽样统计不满足条件的行所占比例，不写入任何数据
+     */
+    @Override
+    public ImpactEstimate estimateFilter(Long dataSetId, String filterCondition) {
+        if (filterCondition == null || filterCondition.trim().isEmpty()) {
+            throw new RuntimeException("过滤条件不能为空");
+        }
+        CleaningTable table = getCleaningTable(dataSetId);
+        ImpactEstimate estimate = newEstimator().estimateFilter(table,
+                FilterConditions.quoteColumns(filterCondition, table));
+        applyThroughput(estimate, CleaningRun.OPERATION_FILTER, table);
+        return estimate;
+    }
+
+    /**
+     * 填充试运行
+     * 按主键区间抽样统计含空值的行和每列的空值个数，不写入任何数据
+     */
+    @Override
+    public ImpactEstimate estimateFill(Long dataSetId, String fillStrategy) {
+        FillStrategy strategy = FillStrategy.fromName(fillStrategy);
+        CleaningTable table = getCleaningTable(dataSetId);
+        List<String> fields = metaDataService.getMetaDataByDataSetId(dataSetId).stream()
+                .map(MetaData::getFieldName)
+                .filter(table::hasColumn)
+                .collect(Collectors.toList());
+        if (fields.isEmpty()) {
+            throw new RuntimeException("数据集没有配置元数据，无法执行填充操作");
+        }
+        ImpactEstimate estimate = newEstimator().estimateFill(table, fields, strategy);
+        applyThroughput(estimate, CleaningRun.OPERATION_FILL_MISSING, table);
+        return estimate;
+    }
+
+    /**
+     * 按表所在数据源的并行度创建并行执行器
+     */
+    private ParallelRangeExecutor newParallelExecutor(CleaningTable table) {
+        return new ParallelRangeExecutor(cleaningProperties.parallelismFor(table.getTarget().getDataSourceId()),
+                cleaningProperties.getRangeRetries(), cleaningRangeExecutor);
+    }
+
+    private OutlierDetector newOutlierDetector(CleaningTable table) {
+        return new OutlierDetector(cleaningProperties.getBatchSize(), cleaningProperties.getPauseMillis())
+                .parallel(newParallelExecutor(table));
+    }
+
+    private NearDuplicateDetector newNearDuplicateDetector(CleaningTable table) {
+        return new NearDuplicateDetector(cleaningProperties.getBatchSize(), cleaningProperties.getPauseMillis(),
+                cleaningProperties.getHashMemoryBytes(), Paths.get(cleaningProperties.getSpillDir()))
+                .parallel(newParallelExecutor(table));
+    }
+
+    private ImpactEstimator newEstimator() {
+        return new ImpactEstimator(cleaningProperties.getDryRunSampleRows(), cleaningProperties.getDryRunSampleBlocks());
+    }
+
+    /**
+     * 按最近的执行记录估计耗时
+     * 优先参考同一张表的记录，其次同一数据源，都没有时参考所有记录；
+     * 吞吐量取扫描总行数除以总耗时，耗时长的执行权重更大，不会被几次小表清洗带偏
+     */
+    private void applyThroughput(ImpactEstimate estimate, String operation, CleaningTable table) {
+        List<CleaningRun> runs = cleaningRunRepository.findTop20ByOperationOrderByCreatedAtDesc(operation);
+        Long dataSourceId = table.getTarget().getDataSourceId();
+        List<CleaningRun> sameSource = runs.stream()
+                .filter(r -> Objects.equals(r.getDataSourceId(), dataSourceId))
+                .collect(Collectors.toList());
+        List<CleaningRun> sameTable = sameSource.stream()
+                .filter(r -> table.getTableName().equalsIgnoreCase(r.getTableName()))
+                .collect(Collectors.toList());
+        List<CleaningRun> reference = !sameTable.isEmpty() ? sameTable : !sameSource.isEmpty() ? sameSource : runs;
+
+        long rows = reference.stream().mapToLong(CleaningRun::getRowsScanned).sum();
+        long millis = reference.stream().mapToLong(CleaningRun::getElapsedMillis).sum();
+        estimate.setHistoryRuns(reference.size());
+        if (rows == 0 || millis == 0) {
+            return;
+        }
+        double rowsPerSecond = rows * 1000.0 / millis;
+        estimate.setThroughputRowsPerSecond(rowsPerSecond);
+        estimate.setEstimatedSeconds((long) Math.ceil(estimate.getTotalRows() / rowsPerSecond));
+    }
+
+    /**
+     * 记录一次成功的清洗，供试运行估计耗时
+     * 记录失败不影响清洗结果
+     */
+    private void recordRun(DataSet dataSet, CleaningTable table, String operation, long rowsScanned,
+                           long rowsAffected, long startMillis) {
+        try {
+            cleaningRunRepository.save(CleaningRun.builder()
+                    .dataSetId(dataSet.getId())
+                    .operation(operation)
+                    .dataSourceId(table.getTarget().getDataSourceId())
+                    .tableName(table.getTableName())
+                    .rowsScanned(rowsScanned)
+                    .rowsAffected(rowsAffected)
+                    .elapsedMillis(System.currentTimeMillis() - startMillis)
+                    .build());
+        } catch (Exception e) {
+            System.err.println("记录清洗执行情况失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 填充缺失值
      * 填充数据集中的空值或缺失值
@@ -339,32 +418,12 @@ public class DataCleaningServiceImpl implements DataCleaningService {
         }
 
         // 2. 验证填充策略的有效性
-        List<String> validStrategies = List.of("mean", "median", "mode", "zero", "forward_fill", "backward_fill");
-        if (!validStrategies.contains(fillStrategy.toLowerCase())) {
-            throw new RuntimeException("无效的填充策略: " + fillStrategy);
-        }
+        FillStrategy strategy = FillStrategy.fromName(fillStrategy);
 
         // 3. 实现填充逻辑
-        JdbcTemplate jdbcTemplate = null;
-        String tableName = null;
-        
-        // 优先使用数据源和表名，如果没有则尝试使用location字段
-        if (dataSet.getDataSourceId() != null && dataSet.getTableName() != null) {
-            jdbcTemplate = dataSourceConnectionService.createJdbcTemplate(dataSet.getDataSourceId());
-            tableName = dataSet.getTableName();
-        } else if (dataSet.getLocation() != null && localJdbcTemplate != null) {
-            // 使用本地数据源和location字段
-            jdbcTemplate = localJdbcTemplate;
-            tableName = parseTableNameFromLocation(dataSet.getLocation());
-            
-            // 验证表名
-            if (!isValidTableName(tableName)) {
-                throw new IllegalArgumentException("表名包含非法字符，只允许字母、数字和下划线: " + tableName);
-            }
-        } else {
-            throw new RuntimeException("数据集未配置数据源和表名，或location字段无效，无法执行填充操作");
-        }
-        
+        CleaningTable table = resolveCleaningTable(dataSet, "填充");
+        String tableName = table.getTableName();
+
         try {
             // 获取所有字段
             List<MetaData> metaDataList = metaDataService.getMetaDataByDataSetId(dataSetId);
@@ -372,119 +431,42 @@ public class DataCleaningServiceImpl implements DataCleaningService {
             if (metaDataList == null || metaDataList.isEmpty()) {
                 throw new RuntimeException("数据集没有配置元数据，无法执行填充操作");
             }
-            
-            int filledCount = 0;
-            int skippedCount = 0;
-            StringBuilder filledFields = new StringBuilder();
-            StringBuilder errorMessages = new StringBuilder();
-            
-            for (MetaData metaData : metaDataList) {
-                String fieldName = metaData.getFieldName();
-                String fieldType = metaData.getFieldType();
-                String updateSql = null;
-                int affectedRows = 0;
-                
-                try {
-                    switch (fillStrategy.toLowerCase()) {
-                        case "mean":
-                            if (fieldType != null && (fieldType.contains("INT") || fieldType.contains("DECIMAL") || fieldType.contains("FLOAT") || fieldType.contains("DOUBLE"))) {
-                                // 先检查是否有非空值
-                                String countSql = "SELECT COUNT(*) as count FROM `" + tableName + "` WHERE `" + fieldName + "` IS NOT NULL AND `" + fieldName + "` != ''";
-                                Map<String, Object> countResult = jdbcTemplate.queryForMap(countSql);
-                                Long nonNullCount = ((Number) countResult.get("count")).longValue();
-                                
-                                if (nonNullCount > 0) {
-                                    // 计算平均值
-                                    // 对于INT类型，使用ROUND四舍五入；对于DECIMAL/FLOAT/DOUBLE，保留精度
-                                    String avgSql;
-                                    if (fieldType.contains("INT")) {
-                                        avgSql = "SELECT ROUND(AVG(`" + fieldName + "`)) as avg_value FROM `" + tableName + "` WHERE `" + fieldName + "` IS NOT NULL AND `" + fieldName + "` != ''";
-                                    } else {
-                                        avgSql = "SELECT AVG(`" + fieldName + "`) as avg_value FROM `" + tableName + "` WHERE `" + fieldName + "` IS NOT NULL AND `" + fieldName + "` != ''";
-                                    }
-                                    
-                                    Map<String, Object> avgResult = jdbcTemplate.queryForMap(avgSql);
-                                    Object avgValue = avgResult.get("avg_value");
-                                    
-                                    if (avgValue != null) {
-                                        // 处理NULL和空字符串的情况
-                                        updateSql = "UPDATE `" + tableName + "` SET `" + fieldName + "` = " + avgValue + " WHERE (`" + fieldName + "` IS NULL OR `" + fieldName + "` = '')";
-                                        affectedRows = jdbcTemplate.update(updateSql);
-                                        if (affectedRows > 0) {
-                                            filledCount++;
-                                            filledFields.append(fieldName).append("(").append(affectedRows).append("行), ");
-                                        }
-                                    } else {
-                                        skippedCount++;
-                                        errorMessages.append(fieldName).append(": 平均值计算结果为NULL; ");
-                                    }
-                                } else {
-                                    skippedCount++;
-                                    errorMessages.append(fieldName).append(": 没有非空值可用于计算平均值; ");
-                                }
-                            } else {
-                                skippedCount++;
-                                errorMessages.append(fieldName).append(": 字段类型").append(fieldType).append("不支持平均值填充; ");
-                            }
-                            break;
-                        case "zero":
-                            if (fieldType != null && (fieldType.contains("INT") || fieldType.contains("DECIMAL") || fieldType.contains("FLOAT") || fieldType.contains("DOUBLE"))) {
-                                // 处理NULL和空字符串的情况
-                                updateSql = "UPDATE `" + tableName + "` SET `" + fieldName + "` = 0 WHERE (`" + fieldName + "` IS NULL OR `" + fieldName + "` = '')";
-                                affectedRows = jdbcTemplate.update(updateSql);
-                                if (affectedRows > 0) {
-                                    filledCount++;
-                                    filledFields.append(fieldName).append("(").append(affectedRows).append("行), ");
-                                }
-                            } else {
-                                skippedCount++;
-                            }
-                            break;
-                        case "forward_fill":
-                            // 前向填充：用前一个非空值填充（需要表有id字段）
-                            try {
-                                updateSql = "UPDATE `" + tableName + "` t1 " +
-                                        "INNER JOIN (SELECT @prev := NULL) t2 " +
-                                        "SET t1.`" + fieldName + "` = IFNULL(t1.`" + fieldName + "`, @prev), @prev := IFNULL(t1.`" + fieldName + "`, @prev) " +
-                                        "ORDER BY t1.id";
-                                affectedRows = jdbcTemplate.update(updateSql);
-                                if (affectedRows > 0) {
-                                    filledCount++;
-                                    filledFields.append(fieldName).append("(").append(affectedRows).append("行), ");
-                                }
-                            } catch (Exception e) {
-                                // 如果表没有id字段，跳过前向填充
-                                skippedCount++;
-                            }
-                            break;
-                        default:
-                            // 其他策略暂不实现
-                            skippedCount++;
-                            break;
+            List<String> fields = metaDataList.stream()
+                    .map(MetaData::getFieldName)
+                    .filter(table::hasColumn)
+                    .collect(Collectors.toList());
+
+            // 一次扫描算出所有列的统计值，一遍分段更新填充所有列
+            long start = System.currentTimeMillis();
+            FillResult result = applyCleaning(dataSet, table, "填充: " + strategy.getName(), t -> {
+                FillResult filled = new MissingValueFiller(cleaningProperties.getBatchSize(),
+                        cleaningProperties.getPauseMillis(), cleaningProperties.getExactStatisticsLimit())
+                        .parallel(newParallelExecutor(t))
+                        .fill(t, fields, strategy);
+                if (filled.totalFilled() == 0) {
+                    String errorMsg = "没有字段被填充。";
+                    if (!filled.getSkipped().isEmpty()) {
+                        errorMsg += " 详细信息: " + describeSkipped(filled);
+                    } else {
+                        errorMsg += " 可能原因：1) 所有字段都已填充；2) 字段类型不支持；3) 没有非空值可用于计算平均值";
                     }
-                } catch (Exception e) {
-                    // 单个字段填充失败，记录但继续处理其他字段
-                    System.err.println("字段 " + fieldName + " 填充失败: " + e.getMessage());
-                    skippedCount++;
+                    throw new RuntimeException(errorMsg);
                 }
-            }
-            
-            if (filledCount == 0) {
-                String errorMsg = "没有字段被填充。";
-                if (errorMessages.length() > 0) {
-                    errorMsg += " 详细信息: " + errorMessages.toString();
-                } else {
-                    errorMsg += " 可能原因：1) 所有字段都已填充；2) 字段类型不支持；3) 没有非空值可用于计算平均值";
-                }
-                throw new RuntimeException(errorMsg);
+                return filled;
+            }, filled -> 0);
+            if (dataSet.getRowCount() != null) {
+                recordRun(dataSet, table, CleaningRun.OPERATION_FILL_MISSING, dataSet.getRowCount(),
+                        result.totalFilled(), start);
             }
             
             // 记录填充详情（用于后续描述更新）
-            String fillDetails = filledFields.length() > 0 
-                ? filledFields.substring(0, filledFields.length() - 2) 
-                : "无";
-            if (errorMessages.length() > 0) {
-                fillDetails += " | 跳过: " + errorMessages.substring(0, Math.min(errorMessages.length() - 2, 100));
+            String fillDetails = result.getFilledCells().entrySet().stream()
+                    .filter(e -> e.getValue() > 0)
+                    .map(e -> e.getKey() + "(" + e.getValue() + "个)")
+                    .collect(Collectors.joining(", "));
+            if (!result.getSkipped().isEmpty()) {
+                String skipped = describeSkipped(result);
+                fillDetails += " | 跳过: " + skipped.substring(0, Math.min(skipped.length(), 100));
             }
             
             // 将填充详情保存到数据集中（通过后续的描述更新）
@@ -505,6 +487,12 @@ public class DataCleaningServiceImpl implements DataCleaningService {
         return dataSetRepository.save(dataSet);
     }
 
+    private String describeSkipped(FillResult result) {
+        return result.getSkipped().entrySet().stream()
+                .map(e -> e.getKey() + ": " + e.getValue())
+                .collect(Collectors.joining("; "));
+    }
+
     /**
      * 数据格式化
      * 统一数据格式，如日期格式、数值格式等
@@ -515,9 +503,9 @@ public class DataCleaningServiceImpl implements DataCleaningService {
      * - 提高数据的一致性
      *
      * 工作原理：
-     * 1. 识别需要格式化的字段
-     * 2. 应用格式化规则
-     * 3. 保存格式化后的数据
+     * 1. 解析规则（如 trim、upper@name、date_format=yyyy-MM-dd、replace=\\s+=> ），确定每条规则作用的字段
+     * 2. 去空白、大小写和数值舍入编译成SQL表达式，按主键区间分段UPDATE，只更新值有变化的行
+     * 3. 日期识别和正则替换在应用内按主键顺序流式处理，有变化的行分批回写
      *
      * @param dataSetId 数据集ID
      * @param formatRules 格式化规则列表
@@ -536,23 +524,195 @@ public class DataCleaningServiceImpl implements DataCleaningService {
             throw new RuntimeException("格式化规则不能为空");
         }
 
-        // 3. 这里应该实现具体的格式化逻辑
-        // 实际项目中需要根据格式化规则对数据进行格式转换
-        // 例如：将日期字符串转换为标准日期格式，数值格式标准化等
+        List<FormatRule> rules = formatRules.stream().map(FormatRule::parse).collect(Collectors.toList());
+
+        // 3. 执行格式化
+        CleaningTable table = resolveCleaningTable(dataSet, "格式化");
+        FormatResult result;
+        try {
+            long start = System.currentTimeMillis();
+            result = applyCleaning(dataSet, table, "格式化: " + String.join(", ", formatRules),
+                    t -> new FormatEngine(cleaningProperties.getBatchSize(), cleaningProperties.getPauseMillis())
+                            .parallel(newParallelExecutor(t))
+                            .format(t, rules), formatted -> 0);
+            if (dataSet.getRowCount() != null) {
+                recordRun(dataSet, table, CleaningRun.OPERATION_FORMAT, dataSet.getRowCount(),
+                        result.getUpdatedRows(), start);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("执行格式化操作失败: " + e.getMessage(), e);
+        }
 
         // 4. 更新数据集描述，记录清洗操作
-        String newDescription = dataSet.getDescription() +
-                " [已执行格式化操作，规则: " + String.join(", ", formatRules) + "]";
+        String currentDesc = dataSet.getDescription() != null ? dataSet.getDescription() : "";
+        String skipped = result.getSkipped().isEmpty() ? "" : ", 跳过: " + result.getSkipped().entrySet().stream()
+                .map(e -> e.getKey() + "(" + e.getValue() + ")")
+                .collect(Collectors.joining("; "));
+        String newDescription = currentDesc +
+                " [已执行格式化操作，规则: " + String.join(", ", formatRules) + ", 表: " + table.getTableName() +
+                ", 更新 " + result.getUpdatedRows() + " 条记录" + skipped + "]";
         dataSet.setDescription(newDescription);
 
         // 5. 更新数据集记录
         return dataSetRepository.save(dataSet);
     }
 
+    /**
+     * 异常值处理
+     *
+     * 为什么需要异常值处理：
+     * - 录入错误、单位错误和极端值会拉偏平均值和图表的坐标范围
+     * - 截断保留行但限制极端值的影响，标记便于人工核对后再决定如何处理
+     *
+     * 工作原理：
+     * 1. 按主键区间并行流式扫描待处理的列，每列用可合并的分位数草图估计四分位数，同时累计平均值和标准差，
+     *    不把列读入内存
+     * 2. 按四分位距（Q1 - k*IQR, Q3 + k*IQR）或标准分数（平均值 ± z*标准差）算出每列的上下界
+     * 3. 截断和删除按主键区间分段在数据库中执行，开启写时复制时在工作表上执行后换表；
+     *    标记不改动原表，异常值写入标记表（原表名加__outliers），同一列重新标记时替换旧结果
+     *
+     * @param dataSetId 数据集ID
+     * @param outlierRule 异常值规则
+     * @return 处理后的数据集
+     */
+    @Override
+    public DataSet treatOutliers(Long dataSetId, String outlierRule) {
+        // 1. 获取数据集
+        DataSet dataSet = dataSetService.getDataSetById(dataSetId);
+        if (dataSet == null) {
+            throw new RuntimeException("数据集不存在: " + dataSetId);
+        }
+
+        // 2. 解析异常值规则
+        OutlierRule rule = OutlierRule.parse(outlierRule);
+
+        // 3. 统计并处理异常值
+        CleaningTable table = resolveCleaningTable(dataSet, "异常值处理");
+        String operation = "异常值处理: " + rule;
+        OutlierResult result;
+        try {
+            long start = System.currentTimeMillis();
+            if (rule.getAction() == OutlierRule.Action.FLAG) {
+                // 只写标记表，原表不变，不需要写时复制
+                result = tableLocks.withLock(table, lockHolder(operation),
+                        () -> newOutlierDetector(table).apply(table, rule));
+                schemaCatalogService.invalidate(table.getTarget().getDataSourceId(), result.getFlagTable());
+            } else {
+                boolean remove = rule.getAction() == OutlierRule.Action.REMOVE;
+                result = applyCleaning(dataSet, table, operation, t -> newOutlierDetector(t).apply(t, rule),
+                        treated -> remove ? treated.getAffectedRows() : 0);
+                if (remove) {
+                    updateRowCount(dataSet, table, result.getAffectedRows());
+                }
+            }
+            if (dataSet.getRowCount() != null) {
+                recordRun(dataSet, table, CleaningRun.OPERATION_OUTLIER, dataSet.getRowCount(),
+                        result.getAffectedRows(), start);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("执行异常值处理失败: " + e.getMessage(), e);
+        }
+
+        // 4. 更新数据集描述，记录清洗操作
+        String currentDesc = dataSet.getDescription() != null ? dataSet.getDescription() : "";
+        String bounds = result.getBounds().entrySet().stream()
+                .map(e -> e.getKey() + "[" + e.getValue().getLower().toPlainString() + ", "
+                        + e.getValue().getUpper().toPlainString() + "]")
+                .collect(Collectors.joining("; "));
+        String skipped = result.getSkipped().isEmpty() ? "" : ", 跳过: " + result.getSkipped().entrySet().stream()
+                .map(e -> e.getKey() + "(" + e.getValue() + ")")
+                .collect(Collectors.joining("; "));
+        String outcome;
+        switch (rule.getAction()) {
+            case FLAG:
+                outcome = "标记 " + result.getAffectedRows() + " 个异常值到表 " + result.getFlagTable();
+                break;
+            case REMOVE:
+                outcome = "删除 " + result.getAffectedRows() + " 条记录";
+                break;
+            default:
+                outcome = "截断 " + result.getAffectedRows() + " 条记录";
+                break;
+        }
+        dataSet.setDescription(currentDesc + " [已执行异常值处理，规则: " + rule + ", 表: " + table.getTableName()
+                + (bounds.isEmpty() ? "" : ", 上下界: " + bounds) + ", " + outcome + skipped + "]");
+
+        // 5. 更新数据集记录
+        return dataSetRepository.save(dataSet);
+    }
+
+    /**
+     * 近似去重
+     *
+     * 为什么需要近似去重：
+     * - 大小写、多余空格、错别字和缩写不同的同一条记录，精确去重找不出来
+     * - 两两比较所有行是平方级的，千万行的表无法完成
+     *
+     * 工作原理：
+     * 1. 按主键区间并行流式扫描比较字段，每行的字符3-gram集合算出64个MinHash值，按LSH分段得到桶号，
+     *    (桶号, 主键)经外部排序落盘，不把表读入内存
+     * 2. 同一个桶中的行成为候选对，候选对去重后分批读取原值计算精确的Jaccard相似度，
+     *    不低于阈值的对合并成簇，每个簇以主键最小的行为代表
+     * 3. 复核方式不改动原表，簇写入复核表（原表名加__near_dups），重新检测时替换旧结果；
+     *    合并方式每个簇保留主键最小的行（与精确去重一致），开启写时复制时在工作表上删除后换表
+     *
+     * @param dataSetId 数据集ID
+     * @param nearDuplicateRule 近似去重规则
+     * @return 处理后的数据集
+     */
+    @Override
+    public DataSet removeNearDuplicates(Long dataSetId, String nearDuplicateRule) {
+        // 1. 获取数据集
+        DataSet dataSet = dataSetService.getDataSetById(dataSetId);
+        if (dataSet == null) {
+            throw new RuntimeException("数据集不存在: " + dataSetId);
+        }
+
+        // 2. 解析近似去重规则
+        NearDuplicateRule rule = NearDuplicateRule.parse(nearDuplicateRule);
+
+        // 3. 检测并处理近似重复行
+        CleaningTable table = resolveCleaningTable(dataSet, "近似去重");
+        String operation = "近似去重: " + rule;
+        NearDuplicateResult result;
+        try {
+            long start = System.currentTimeMillis();
+            if (rule.getAction() == NearDuplicateRule.Action.REVIEW) {
+                // 只写复核表，原表不变，不需要写时复制
+                result = tableLocks.withLock(table, lockHolder(operation),
+                        () -> newNearDuplicateDetector(table).apply(table, rule));
+                schemaCatalogService.invalidate(table.getTarget().getDataSourceId(), result.getReviewTable());
+            } else {
+                result = applyCleaning(dataSet, table, operation, t -> newNearDuplicateDetector(t).apply(t, rule),
+                        NearDuplicateResult::getDeleted);
+                updateRowCount(dataSet, table, result.getDeleted());
+            }
+            if (dataSet.getRowCount() != null) {
+                recordRun(dataSet, table, CleaningRun.OPERATION_NEAR_DEDUPLICATE, dataSet.getRowCount(),
+                        rule.getAction() == NearDuplicateRule.Action.MERGE ? result.getDeleted()
+                                : result.getClusteredRows(), start);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("执行近似去重失败: " + e.getMessage(), e);
+        }
+
+        // 4. 更新数据集描述，记录清洗操作
+        String currentDesc = dataSet.getDescription() != null ? dataSet.getDescription() : "";
+        String outcome = rule.getAction() == NearDuplicateRule.Action.MERGE
+                ? "删除 " + result.getDeleted() + " 条近似重复记录"
+                        + (result.getKeptRows() > 0 ? "，" + result.getKeptRows() + " 条与簇代表的相似度低于阈值而保留" : "")
+                : "写入 " + result.getClusteredRows() + " 条记录到复核表 " + result.getReviewTable();
+        dataSet.setDescription(currentDesc + " [已执行近似去重，规则: " + rule + ", 表: " + table.getTableName()
+                + ", 候选对 " + result.getCandidatePairs() + ", 簇 " + result.getClusters() + ", " + outcome + "]");
+
+        // 5. 更新数据集记录
+        return dataSetRepository.save(dataSet);
+    }
+
 
     /**
      * 执行完整数据清洗流程
-     * 按照预定义的顺序执行多种清洗操作
+     * 按照给定的顺序执行多种清洗操作
      *
      * 为什么需要完整流程：
      * - 数据清洗通常需要多个步骤
@@ -560,9 +720,10 @@ public class DataCleaningServiceImpl implements DataCleaningService {
      * - 提供一键式清洗功能
      *
      * 工作原理：
-     * 1. 按顺序执行清洗步骤
-     * 2. 每步清洗后更新数据集
-     * 3. 返回最终清洗结果
+     * 1. 解析带参数的步骤，如 filter:amount > 0、deduplicate:email;phone、fillmissing:median
+     * 2. 连续的过滤、去重和平均值/零值填充合并为一条INSERT ... SELECT写入新表后换表，
+     *    只做一次计数就得到每一步增减的行数
+     * 3. 不能合并的步骤（格式化、中位数/众数/前后向填充等）在原表上单独执行
      *
      * @param dataSetId 数据集ID
      * @param cleaningSteps 清洗步骤列表
@@ -570,49 +731,262 @@ public class DataCleaningServiceImpl implements DataCleaningService {
      */
     @Override
     public DataSet executeCleaningProcess(Long dataSetId, List<String> cleaningSteps) {
+        PipelineResult result = runCleaningPipeline(dataSetId, cleaningSteps);
         DataSet currentDataSet = dataSetService.getDataSetById(dataSetId);
-        if (currentDataSet == null) {
+
+        // 更新数据集描述，记录完整的清洗流程和每一步的行数变化
+        String stepDetails = result.getSteps().stream()
+                .map(o -> o.getStep() + (o.getRowDelta() != null ? "(" + o.getRowDelta() + ")" : ""))
+                .collect(Collectors.joining(", "));
+        String newDescription = currentDataSet.getDescription() +
+                " [已执行完整清洗流程: " + stepDetails + "]";
+        currentDataSet.setDescription(newDescription);
+
+        return dataSetRepository.save(currentDataSet);
+    }
+
+    @Override
+    public PipelineResult runCleaningPipeline(Long dataSetId, List<String> cleaningSteps) {
+        long start = System.currentTimeMillis();
+        DataSet dataSet = dataSetService.getDataSetById(dataSetId);
+        if (dataSet == null) {
             throw new RuntimeException("数据集不存在: " + dataSetId);
         }
+        if (cleaningSteps == null || cleaningSteps.isEmpty()) {
+            throw new RuntimeException("清洗步骤不能为空");
+        }
+
+        CleaningTable table = resolveCleaningTable(dataSet, "清洗");
+        List<String> fields = cleaningFields(dataSetId, table);
+        List<CleaningStep> steps = parseSteps(table, cleaningSteps, fields);
 
-        // 验证清洗步骤的有效性
-        List<String> validSteps = List.of("deduplicate", "filter", "fillmissing", "format");
-        for (String step : cleaningSteps) {
-            if (!validSteps.contains(step.toLowerCase())) {
-                throw new RuntimeException("未知的清洗步骤: " + step);
+        // 整个流程持有表锁，步骤之间不会插入其他清洗操作
+        PipelineResult result = tableLocks.withLock(table, lockHolder("清洗流程: " + steps),
+                () -> runStages(dataSet, table, steps, fields));
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 数据集元数据中在表里存在的字段，用作填充和默认去重的字段
+     */
+    private List<String> cleaningFields(Long dataSetId, CleaningTable table) {
+        return metaDataService.getMetaDataByDataSetId(dataSetId).stream()
+                .map(MetaData::getFieldName)
+                .filter(table::hasColumn)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 验证并解析清洗步骤，去重字段省略时按所有非主键字段去重
+     */
+    private List<CleaningStep> parseSteps(CleaningTable table, List<String> cleaningSteps, List<String> fields) {
+        List<CleaningStep> steps = new ArrayList<>();
+        for (String text : cleaningSteps) {
+            CleaningStep step = CleaningStep.parse(text);
+            if (step.getType() == CleaningStep.Type.DEDUPLICATE && step.getFields().isEmpty()) {
+                step = step.withFields(fields.stream()
+                        .filter(f -> !table.getPrimaryKey().contains(table.column(f)))
+                        .collect(Collectors.toList()));
+                if (step.getFields().isEmpty()) {
+                    throw new RuntimeException("数据集没有可用于去重的非主键字段");
+                }
             }
+            steps.add(step);
         }
+        return steps;
+    }
 
-        // 按顺序执行清洗步骤
-        for (String step : cleaningSteps) {
-            switch (step.toLowerCase()) {
-                case "deduplicate":
-                    // 执行去重操作（默认按ID去重）
-                    currentDataSet = removeDuplicates(dataSetId, List.of("id"));
-                    break;
-                case "filter":
-                    // 执行过滤操作（示例条件）
-                    currentDataSet = filterData(dataSetId, "id > 0");
-                    break;
-                case "fillmissing":
-                    // 执行缺失值填充
-                    currentDataSet = fillMissingValues(dataSetId, "mean");
-                    break;
-                case "format":
-                    // 执行格式化操作
-                    currentDataSet = formatData(dataSetId, List.of("date_format", "number_format"));
-                    break;
-                default:
-                    throw new RuntimeException("未知的清洗步骤: " + step);
-            }
+    /**
+     * 清洗到新数据集
+     *
+     * 工作原理：
+     * 1. 在源表所在的库中按源表结构新建目标表
+     * 2. 开头连续的可合并步骤（过滤、去重、常量填充）编译成一条INSERT ... SELECT，数据在数据库内流式写入目标表，
+     *    不经过应用；第一步不能合并时原样复制源表
+     * 3. 目标表登记为新数据集并复制字段元数据（统计值随清洗变化，不复制），剩余步骤在目标表上逐个执行
+     * 4. 记录源数据集到新数据集的血缘关系，转换类型为CLEANING，转换详情为步骤参数和行数变化
+     *
+     * 执行期间持有源表的表锁；任一步失败时删除目标表和新数据集，源表不受影响
+     */
+    @Override
+    public DataSet cleanIntoNewDataSet(Long dataSetId, List<String> cleaningSteps, String targetTable,
+                                       String targetName) {
+        DataSet source = dataSetService.getDataSetById(dataSetId);
+        if (source == null) {
+            throw new RuntimeException("数据集不存在: " + dataSetId);
+        }
+        if (cleaningSteps == null || cleaningSteps.isEmpty()) {
+            throw new RuntimeException("清洗步骤不能为空");
+        }
+        if (!isValidTableName(targetTable)) {
+            throw new IllegalArgumentException("表名包含非法字符，只允许字母、数字和下划线: " + targetTable);
         }
+        CleaningTable table = resolveCleaningTable(source, "清洗");
+        if (SqlDialect.tableExists(table.getJdbcTemplate(), targetTable)) {
+            throw new RuntimeException("目标表已存在: " + targetTable);
+        }
+        List<String> fields = cleaningFields(dataSetId, table);
+        List<CleaningStep> steps = parseSteps(table, cleaningSteps, fields);
 
-        // 更新数据集描述，记录完整的清洗流程
-        String newDescription = currentDataSet.getDescription() +
-                " [已执行完整清洗流程: " + String.join(", ", cleaningSteps) + "]";
-        currentDataSet.setDescription(newDescription);
+        return tableLocks.withLock(table, lockHolder("清洗到新表 " + targetTable + ": " + steps), () -> {
+            int fused = 0;
+            while (fused < steps.size() && steps.get(fused).isFusible(table)) {
+                fused++;
+            }
+            table.getDialect().copyTableStructureSql(targetTable, table.getTableName(), table.getPrimaryKey())
+                    .forEach(table.getJdbcTemplate()::execute);
+            DataSet target = null;
+            try {
+                schemaCatalogService.invalidate(table.getTarget().getDataSourceId(), targetTable);
+                CleaningTable created = schemaCatalogService.getCleaningTable(table.getTarget().getDataSourceId(),
+                        targetTable);
+                List<StepOutcome> outcomes = new ArrayList<>();
+                long rowsBefore;
+                long rowsWritten;
+                if (fused > 0) {
+                    outcomes.addAll(new FusedPipeline(table, steps.subList(0, fused), fields).run(created));
+                    rowsBefore = outcomes.get(0).getRowsBefore();
+                    rowsWritten = outcomes.get(outcomes.size() - 1).getRowsAfter();
+                } else {
+                    String names = table.getColumns().stream().map(table::quote).collect(Collectors.joining(", "));
+                    rowsWritten = table.getJdbcTemplate().update("INSERT INTO " + created.quotedName() + " (" + names
+                            + ") SELECT " + names + " FROM " + table.quotedName());
+                    rowsBefore = rowsWritten;
+                }
 
-        return dataSetRepository.save(currentDataSet);
+                target = registerCleanedDataSet(source, created, targetName, rowsWritten);
+                if (fused < steps.size()) {
+                    outcomes.addAll(runStages(target, created, steps.subList(fused, steps.size()), fields).getSteps());
+                    target = dataSetService.getDataSetById(target.getId());
+                }
+
+                String details = "步骤: " + outcomes.stream()
+                        .map(o -> o.getStep() + " [" + o.getMode()
+                                + (o.getRowDelta() != null ? ", " + o.getRowDelta() : "") + "]")
+                        .collect(Collectors.joining("; "))
+                        + "; 源表: " + table.getTableName() + ", 目标表: " + targetTable
+                        + "; 记录数: " + rowsBefore + " -> " + target.getRowCount();
+                dataLineageService.createLineage(source.getId(), target.getId(), DataLineage.TRANSFORMATION_CLEANING,
+                        details.length() > 2000 ? details.substring(0, 1997) + "..." : details);
+            } catch (RuntimeException e) {
+                if (target != null) {
+                    metaDataRepository.deleteAll(metaDataRepository.findByDataSetId(target.getId()));
+                    dataSetRepository.deleteById(target.getId());
+                }
+                TableSwap.dropIfExists(table, targetTable);
+                schemaCatalogService.invalidate(table.getTarget().getDataSourceId(), targetTable);
+                throw new RuntimeException("清洗到新数据集失败: " + e.getMessage(), e);
+            }
+
+            String currentDesc = source.getDescription() != null ? source.getDescription() : "";
+            source.setDescription(currentDesc + " [已清洗到新数据集 #" + target.getId() + "，表: " + targetTable + "]");
+            dataSetRepository.save(source);
+            return target;
+        });
+    }
+
+    /**
+     * 把清洗结果表登记为新数据集，字段元数据从源数据集复制（不含统计值）
+     */
+    private DataSet registerCleanedDataSet(DataSet source, CleaningTable created, String targetName, long rows) {
+        String name = targetName != null && !targetName.trim().isEmpty() ? targetName.trim() : created.getTableName();
+        DataSet target = dataSetRepository.save(DataSet.builder()
+                .name(name)
+                .description("由数据集 " + source.getName() + " #" + source.getId() + " 清洗生成")
+                .location(created.getTableName())
+                .format(source.getFormat() != null ? source.getFormat() : "TABLE")
+                .dataSourceId(created.getTarget().getDataSourceId())
+                .tableName(created.getTableName())
+                .rowCount(rows)
+                .build());
+        List<MetaData> copies = metaDataService.getMetaDataByDataSetId(source.getId()).stream()
+                .filter(m -> created.hasColumn(m.getFieldName()))
+                .map(m -> MetaData.builder()
+                        .dataSetId(target.getId())
+                        .fieldName(m.getFieldName())
+                        .fieldType(m.getFieldType())
+                        .description(m.getDescription())
+                        .isNullable(m.getIsNullable())
+                        .defaultValue(m.getDefaultValue())
+                        .build())
+                .collect(Collectors.toList());
+        metaDataRepository.saveAll(copies);
+        return target;
+    }
+
+    /**
+     * 按计划逐个阶段执行清洗步骤
+     */
+    private PipelineResult runStages(DataSet dataSet, CleaningTable table, List<CleaningStep> steps,
+                                     List<String> fields) {
+        Long dataSetId = dataSet.getId();
+        PipelineResult result = new PipelineResult();
+        for (List<CleaningStep> stage : FusedPipeline.plan(table, steps)) {
+            // 后台任务被取消时在阶段之间停止，已完成的阶段保留
+            if (CleaningContext.isCancelled()) {
+                throw new CleaningCancelledException("清洗流程已取消，已完成 " + result.getStages() + " 个阶段");
+            }
+            if (stage.size() > 1) {
+                try {
+                    // 表结构按当前状态重新读取，前面的步骤可能已经换过表
+                    CleaningTable current = resolveCleaningTable(dataSet, "清洗");
+                    CleaningTable working = TableSwap.createWorkingTable(current, false);
+                    List<StepOutcome> outcomes;
+                    try {
+                        outcomes = new FusedPipeline(current, stage, fields).run(working);
+                        publishWorkingTable(dataSet, current, working, outcomes.get(0).getRowsBefore(),
+                                outcomes.get(outcomes.size() - 1).getRowsAfter(), "清洗流程: " + stage);
+                    } catch (RuntimeException e) {
+                        TableSwap.dropIfExists(current, working.getTableName());
+                        throw e;
+                    }
+                    result.getSteps().addAll(outcomes);
+                    dataSet = dataSetService.getDataSetById(dataSetId);
+                    dataSet.setRowCount(outcomes.get(outcomes.size() - 1).getRowsAfter());
+                    dataSet = dataSetRepository.save(dataSet);
+                } catch (Exception e) {
+                    throw new RuntimeException("执行合并清洗步骤失败: " + e.getMessage(), e);
+                }
+            } else {
+                result.getSteps().add(runStepInPlace(dataSetId, stage.get(0)));
+            }
+            result.setStages(result.getStages() + 1);
+        }
+        return result;
+    }
+
+    /**
+     * 在原表上单独执行一个步骤，行数变化按数据集记录数计算
+     */
+    private StepOutcome runStepInPlace(Long dataSetId, CleaningStep step) {
+        StepOutcome outcome = new StepOutcome();
+        outcome.setStep(step.toString());
+        outcome.setMode(StepOutcome.MODE_IN_PLACE);
+        outcome.setRowsBefore(dataSetService.getDataSetById(dataSetId).getRowCount());
+        DataSet dataSet;
+        switch (step.getType()) {
+            case DEDUPLICATE:
+                dataSet = removeDuplicates(dataSetId, step.getFields());
+                break;
+            case FILTER:
+                dataSet = filterData(dataSetId, step.getCondition());
+                break;
+            case FILL_MISSING:
+                dataSet = fillMissingValues(dataSetId, step.getStrategy().getName());
+                break;
+            case OUTLIER:
+                dataSet = treatOutliers(dataSetId, step.getCondition());
+                break;
+            case NEAR_DEDUPLICATE:
+                dataSet = removeNearDuplicates(dataSetId, step.getCondition());
+                break;
+            default:
+                dataSet = formatData(dataSetId, step.getFields());
+                break;
+        }
+        outcome.setRowsAfter(outcome.getRowsBefore() != null ? dataSet.getRowCount() : null);
+        return outcome;
     }
 
     /**
@@ -660,75 +1034,17 @@ public class DataCleaningServiceImpl implements DataCleaningService {
         }
 
         // 5. 使用本地默认数据源执行去重
-        if (localJdbcTemplate == null) {
-            throw new RuntimeException("本地数据源未配置，无法执行去重操作");
-        }
-
         try {
-            // 检查表是否存在
-            String checkTableSql = "SELECT COUNT(*) as count FROM INFORMATION_SCHEMA.TABLES " +
-                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
-            List<Map<String, Object>> tableCheck = localJdbcTemplate.queryForList(checkTableSql, tableName);
-            if (tableCheck.isEmpty() || ((Number) tableCheck.get(0).get("count")).longValue() == 0) {
-                throw new RuntimeException("表不存在: " + tableName);
-            }
-
-            // 获取去重前的记录数
-            String countBeforeSql = "SELECT COUNT(*) as count FROM `" + tableName + "`";
-            Map<String, Object> countBefore = localJdbcTemplate.queryForMap(countBeforeSql);
-            Long countBeforeValue = ((Number) countBefore.get("count")).longValue();
-
-            // 构建去重字段列表（使用反引号包裹）
-            String fields = String.join(", ", duplicateFields.stream()
-                    .map(f -> "`" + f + "`")
-                    .collect(Collectors.toList()));
-
-            // 创建临时表存储去重后的数据
-            String tempTableName = tableName + "_dedup_" + System.currentTimeMillis();
-            
-            // 使用ROW_NUMBER()或GROUP BY去重，保留第一条记录
-            // 先获取所有列名
-            String getColumnsSql = "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS " +
-                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? ORDER BY ORDINAL_POSITION";
-            List<Map<String, Object>> columns = localJdbcTemplate.queryForList(getColumnsSql, tableName);
-            String allColumns = columns.stream()
-                    .map(col -> "`" + col.get("COLUMN_NAME") + "`")
-                    .collect(Collectors.joining(", "));
-
-            // 使用ROW_NUMBER()窗口函数去重（MySQL 8.0+支持）
-            // 如果MySQL版本较低，使用GROUP BY方式
-            String createTempTableSql = "CREATE TABLE `" + tempTableName + "` AS " +
-                    "SELECT " + allColumns + " FROM (" +
-                    "  SELECT *, ROW_NUMBER() OVER (PARTITION BY " + fields + " ORDER BY (SELECT NULL)) as rn " +
-                    "  FROM `" + tableName + "`" +
-                    ") t WHERE rn = 1";
-            
-            try {
-                localJdbcTemplate.execute(createTempTableSql);
-            } catch (Exception e) {
-                // 如果ROW_NUMBER()不支持，使用GROUP BY方式
-                createTempTableSql = "CREATE TABLE `" + tempTableName + "` AS " +
-                        "SELECT " + allColumns + " FROM `" + tableName + "` " +
-                        "GROUP BY " + fields;
-                localJdbcTemplate.execute(createTempTableSql);
-            }
-
-            // 删除原表数据
-            localJdbcTemplate.execute("DELETE FROM `" + tableName + "`");
-
-            // 将去重后的数据复制回原表
-            localJdbcTemplate.execute("INSERT INTO `" + tableName + "` SELECT " + allColumns + " FROM `" + tempTableName + "`");
-
-            // 删除临时表
-            localJdbcTemplate.execute("DROP TABLE `" + tempTableName + "`");
-
-            // 获取去重后的记录数
-            Map<String, Object> countAfter = localJdbcTemplate.queryForMap(countBeforeSql);
-            Long countAfterValue = ((Number) countAfter.get("count")).longValue();
-            Long removedCount = countBeforeValue - countAfterValue;
+            CleaningTable table = schemaCatalogService.getCleaningTable(null, tableName);
+            long start = System.currentTimeMillis();
+            DedupResult result = applyCleaning(dataSet, table, "去重: " + String.join(", ", duplicateFields),
+                    t -> deduplicate(t, duplicateFields), DedupResult::getDeleted);
+            long removedCount = result.getDeleted();
 
             // 更新数据集记录数
-            dataSet.setRowCount(countAfterValue);
+            updateRowCount(dataSet, table, removedCount);
+            recordRun(dataSet, table, CleaningRun.OPERATION_DEDUPLICATE, dataSet.getRowCount() + removedCount,
+                    removedCount, start);
 
             // 更新数据集描述，记录清洗操作
             String newDescription = (dataSet.getDescription() != null ? dataSet.getDescription() : "") +
@@ -744,6 +1060,172 @@ public class DataCleaningServiceImpl implements DataCleaningService {
         }
     }
 
+    /**
+     * 按表的条件选择去重方式
+     * 有单列主键且支持窗口函数时原地分批删除多余行；不支持窗口函数但有整数主键时在应用内流式哈希去重；
+     * 都不满足时复制去重后的数据到临时表再整表回写
+     */
+    private DedupResult deduplicate(CleaningTable table, List<String> duplicateFields) {
+        if (table.hasSingleColumnKey() && table.supportsWindowFunctions()) {
+            return new ChunkedDeduplicator(cleaningProperties.getBatchSize(), cleaningProperties.getPauseMillis())
+                    .run(table, duplicateFields);
+        }
+        if (table.hasIntegralKey()) {
+            return new HashDeduplicator(cleaningProperties.getBatchSize(), cleaningProperties.getPauseMillis(),
+                    cleaningProperties.getHashMemoryBytes(), Paths.get(cleaningProperties.getSpillDir()))
+                    .run(table, duplicateFields);
+        }
+        return copyDeduplicate(table, duplicateFields);
+    }
+
+    /**
+     * 通过临时表整表去重
+     * 没有单列主键的表无法定位单行，只能把去重后的数据复制到临时表，清空原表后写回
+     */
+    private DedupResult copyDeduplicate(CleaningTable table, List<String> duplicateFields) {
+        long start = System.currentTimeMillis();
+        JdbcTemplate jdbcTemplate = table.getJdbcTemplate();
+        String tableName = table.quotedName();
+
+        // 获取去重前的记录数
+        String countSql = "SELECT COUNT(*) FROM " + tableName;
+        Long countBeforeValue = jdbcTemplate.queryForObject(countSql, Long.class);
+
+        // 构建去重字段列表
+        List<String> keyColumns = duplicateFields.stream().map(table::column).collect(Collectors.toList());
+        String fields = keyColumns.stream().map(table::quote).collect(Collectors.joining(", "));
+        String allColumns = table.getColumns().stream().map(table::quote).collect(Collectors.joining(", "));
+
+        // 创建临时表存储去重后的数据
+        String tempTableName = table.quote(table.getTableName() + "_dedup_" + System.currentTimeMillis());
+        String createTempTableSql;
+        if (table.supportsWindowFunctions()) {
+            createTempTableSql = "CREATE TABLE " + tempTableName + " AS " +
+                    "SELECT " + allColumns + " FROM (" +
+                    "  SELECT t.*, ROW_NUMBER() OVER (PARTITION BY " + fields + " ORDER BY " + fields + ") rn " +
+                    "  FROM " + tableName + " t" +
+                    ") d WHERE rn = 1";
+        } else if (keyColumns.containsAll(table.getColumns())) {
+            // 按全部列去重时DISTINCT就是准确结果
+            createTempTableSql = "CREATE TABLE " + tempTableName + " AS SELECT DISTINCT " + allColumns
+                    + " FROM " + tableName;
+        } else {
+            // 对其余列取MIN()会把不同行的值拼成一行，宁可不做
+            throw new RuntimeException("表 " + table.getTableName()
+                    + " 没有整数类型的单列主键，且数据库不支持窗口函数，只能按全部列去重");
+        }
+        jdbcTemplate.execute(createTempTableSql);
+
+        // 删除原表数据，将去重后的数据复制回原表，两条语句在同一事务中，写回失败时原表数据回滚
+        try {
+            table.getTarget().getTransactionTemplate().executeWithoutResult(status -> {
+                jdbcTemplate.execute("DELETE FROM " + tableName);
+                jdbcTemplate.execute("INSERT INTO " + tableName + " (" + allColumns + ") SELECT " + allColumns
+                        + " FROM " + tempTableName);
+            });
+        } catch (RuntimeException e) {
+            // 失败时不删除临时表，其中保存着去重后的完整数据
+            throw new RuntimeException("去重结果写回原表失败，去重后的数据保留在 " + tempTableName + ": "
+                    + e.getMessage(), e);
+        }
+        // 写回成功后才删除临时表
+        jdbcTemplate.execute("DROP TABLE " + tempTableName);
+
+        Long countAfterValue = jdbcTemplate.queryForObject(countSql, Long.class);
+        DedupResult result = new DedupResult();
+        result.setMethod("COPY");
+        result.setDeleted(countBeforeValue - countAfterValue);
+        result.setBatches(1);
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 在数据表上执行清洗操作
+     * 执行期间持有表锁，表正在被其他清洗操作修改时立即失败；
+     * 开启写时复制时，先把原表复制到工作表，在工作表上执行，校验行数后换表，原表保留为历史版本；
+     * 执行或校验失败时删除工作表，原表不受影响
+     * @param action 清洗操作，参数为实际要修改的表
+     * @param removedRows 从操作结果中取出删除的行数，用于换表前校验
+     */
+    private <T> T applyCleaning(DataSet dataSet, CleaningTable table, String operation,
+                                Function<CleaningTable, T> action, ToLongFunction<T> removedRows) {
+        return tableLocks.withLock(table, lockHolder(operation), () -> {
+            if (!cleaningProperties.isCopyOnWrite()) {
+                return action.apply(table);
+            }
+            CleaningTable working = TableSwap.createWorkingTable(table, true);
+            try {
+                long previousRows = TableSwap.countRows(working);
+                T result = action.apply(working);
+                tableVersionService.publish(dataSet, table, working, previousRows,
+                        previousRows - removedRows.applyAsLong(result), operation);
+                return result;
+            } catch (RuntimeException e) {
+                TableSwap.dropIfExists(table, working.getTableName());
+                throw e;
+            }
+        });
+    }
+
+    private String lockHolder(String operation) {
+        return operation + "，线程 " + Thread.currentThread().getName();
+    }
+
+    /**
+     * 用已写好清洗结果的工作表替换原表
+     * 开启写时复制时原表保留为历史版本，否则换下后直接删除
+     */
+    private void publishWorkingTable(DataSet dataSet, CleaningTable table, CleaningTable working,
+                                     long previousRows, long expectedRows, String operation) {
+        if (cleaningProperties.isCopyOnWrite()) {
+            tableVersionService.publish(dataSet, table, working, previousRows, expectedRows, operation);
+            return;
+        }
+        String retired = TableSwap.retiredName(table.getTableName());
+        // 上次执行中断留下的旧表：原表仍在，说明它已不再需要
+        TableSwap.dropIfExists(table, retired);
+        try {
+            TableSwap.swap(table, working, expectedRows, retired);
+            TableSwap.dropIfExists(table, retired);
+        } finally {
+            schemaCatalogService.invalidate(table.getTarget().getDataSourceId(), table.getTableName());
+            schemaCatalogService.invalidate(table.getTarget().getDataSourceId(), working.getTableName());
+        }
+    }
+
+    /**
+     * 删除行后更新数据集记录数
+     * 已知原记录数时直接扣减，避免再扫描整表计数
+     */
+    private void updateRowCount(DataSet dataSet, CleaningTable table, long removedCount) {
+        if (dataSet.getRowCount() != null) {
+            dataSet.setRowCount(Math.max(0, dataSet.getRowCount() - removedCount));
+        } else {
+            dataSet.setRowCount(table.getJdbcTemplate().queryForObject(
+                    "SELECT COUNT(*) FROM " + table.quotedName(), Long.class));
+        }
+    }
+
+    /**
+     * 解析数据集对应的数据表
+     * 优先使用数据源和表名，如果没有则使用location字段对应的本地默认库中的表
+     */
+    private CleaningTable resolveCleaningTable(DataSet dataSet, String operation) {
+        if (dataSet.getDataSourceId() != null && dataSet.getTableName() != null) {
+            return schemaCatalogService.getCleaningTable(dataSet.getDataSourceId(), dataSet.getTableName());
+        }
+        if (dataSet.getLocation() != null) {
+            String tableName = parseTableNameFromLocation(dataSet.getLocation());
+            // 验证表名
+            if (!isValidTableName(tableName)) {
+                throw new IllegalArgumentException("表名包含非法字符，只允许字母、数字和下划线: " + tableName);
+            }
+            return schemaCatalogService.getCleaningTable(null, tableName);
+        }
+        throw new RuntimeException("数据集未配置数据源和表名，或location字段无效，无法执行" + operation + "操作");
+    }
+
     /**
      * 从location字段解析出表名
      * 支持格式：
@@ -774,98 +1256,4 @@ public class DataCleaningServiceImpl implements DataCleaningService {
     private boolean isValidTableName(String tableName) {
         return tableName != null && tableName.matches("^[a-zA-Z0-9_]+$");
     }
-
-    /**
-     * 处理过滤条件，自动为字段名添加反引号
-     * 如果用户输入的字段名没有反引号，自动添加
-     * 
-     * @param filterCondition 原始过滤条件
-     * @param tableName 表名
-     * @param jdbcTemplate JdbcTemplate用于获取表结构
-     * @return 处理后的过滤条件
-     */
-    private String processFilterCondition(String filterCondition, String tableName, JdbcTemplate jdbcTemplate) {
-        if (filterCondition == null || filterCondition.trim().isEmpty()) {
-            return filterCondition;
-        }
-        
-        try {
-            // 获取表的所有列名（保留原始大小写，同时建立小写映射）
-            String getColumnsSql = "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS " +
-                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
-            List<Map<String, Object>> columns = jdbcTemplate.queryForList(getColumnsSql, tableName);
-            Set<String> columnNames = new HashSet<>();
-            Map<String, String> columnNameMap = new java.util.HashMap<>(); // 小写 -> 原始大小写
-            
-            for (Map<String, Object> col : columns) {
-                String colName = col.get("COLUMN_NAME").toString();
-                columnNames.add(colName);
-                columnNames.add(colName.toLowerCase());
-                columnNames.add(colName.toUpperCase());
-                columnNameMap.put(colName.toLowerCase(), colName);
-            }
-            
-            // 处理过滤条件，为字段名添加反引号
-            String processed = filterCondition.trim();
-            
-            // 如果条件中已经包含反引号，可能用户已经手动添加了，直接返回
-            if (processed.contains("`")) {
-                return processed;
-            }
-            
-            // 使用正则表达式匹配字段名（单词边界）
-            // 匹配模式：字母或下划线开头，后跟字母、数字、下划线
-            java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("\\b([a-zA-Z_][a-zA-Z0-9_]*)\\b");
-            java.util.regex.Matcher matcher = pattern.matcher(processed);
-            
-            StringBuffer result = new StringBuffer();
-            Set<String> processedFields = new HashSet<>();
-            
-            while (matcher.find()) {
-                String fieldName = matcher.group(1);
-                String fieldNameLower = fieldName.toLowerCase();
-                
-                // 检查是否是表的列名（忽略SQL关键字）
-                boolean isColumn = columnNames.contains(fieldName) || columnNames.contains(fieldNameLower);
-                
-                if (isColumn && !isSqlKeyword(fieldNameLower)) {
-                    // 获取原始列名（保持原始大小写）
-                    String originalColName = columnNameMap.getOrDefault(fieldNameLower, fieldName);
-                    
-                    // 为字段名添加反引号
-                    if (!processedFields.contains(fieldName)) {
-                        matcher.appendReplacement(result, "`" + originalColName + "`");
-                        processedFields.add(fieldName);
-                    } else {
-                        matcher.appendReplacement(result, "`" + originalColName + "`");
-                    }
-                } else {
-                    matcher.appendReplacement(result, fieldName);
-                }
-            }
-            matcher.appendTail(result);
-            
-            return result.toString();
-            
-        } catch (Exception e) {
-            // 如果处理失败，尝试简单处理：为常见的字段名模式添加反引号
-            // 匹配 "字段名 操作符" 的模式，如 "value >", "value =", "value <" 等
-            String simpleProcessed = filterCondition.replaceAll("\\b(value|id|name|type|status|count|amount|price|date|time)\\b", "`$1`");
-            return simpleProcessed;
-        }
-    }
-
-    /**
-     * 检查是否是SQL关键字
-     */
-    private boolean isSqlKeyword(String word) {
-        Set<String> keywords = Set.of(
-            "select", "from", "where", "and", "or", "not", "in", "like", "between",
-            "is", "null", "true", "false", "as", "order", "by", "group", "having",
-            "count", "sum", "avg", "max", "min", "distinct", "case", "when", "then",
-            "else", "end", "if", "exists", "all", "any", "some", "union", "join",
-            "inner", "left", "right", "outer", "on", "limit", "offset", "top"
-        );
-        return keywords.contains(word.toLowerCase());
-    }
 }
@@ -1,5 +1,6 @@
 package com.example.datag.service.impl;
 
+import com.example.datag.cleaning.CleaningTable;
 import com.example.datag.entity.DataQualityRule;
 import com.example.datag.entity.DataQualityResult;
 import com.example.datag.entity.DataSet;
@@ -8,8 +9,8 @@ import com.example.datag.repository.DataQualityRuleRepository;
 import com.example.datag.repository.DataQualityResultRepository;
 import com.example.datag.service.DataQualityRuleService;
 import com.example.datag.service.DataSetService;
-import com.example.datag.service.DataSourceConnectionService;
 import com.example.datag.service.MetaDataService;
+import com.example.datag.service.SchemaCatalogService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -37,7 +38,7 @@ public class DataQualityRuleServiceImpl implements DataQualityRuleService {
     private final DataQualityResultRepository dataQualityResultRepository;
     private final DataSetService dataSetService;
     private final MetaDataService metaDataService;
-    private final DataSourceConnectionService dataSourceConnectionService;
+    private final SchemaCatalogService schemaCatalogService;
 
     /**
      * 创建数据质量规则
@@ -280,18 +281,21 @@ public class DataQualityRuleServiceImpl implements DataQualityRuleService {
                 return true;
             }
 
-            // 连接到实际数据库执行检查
-            JdbcTemplate jdbcTemplate = dataSourceConnectionService.createJdbcTemplate(dataSet.getDataSourceId());
-            String tableName = dataSet.getTableName();
-            String fieldName = rule.getFieldName();
+            // 连接到实际数据库执行检查，表名和字段名按缓存的表结构对应到真实名称
+            CleaningTable table = schemaCatalogService.getCleaningTable(dataSet.getDataSourceId(), dataSet.getTableName());
+            JdbcTemplate jdbcTemplate = table.getJdbcTemplate();
+            String tableName = table.quotedName();
+            String fieldName = table.column(rule.getFieldName());
+            String field = table.quote(fieldName);
 
-            // 检查字段为空的记录数
-            String sql = "SELECT COUNT(*) as null_count FROM `" + tableName + "` WHERE `" + fieldName + "` IS NULL OR `" + fieldName + "` = ''";
+            // 检查字段为空的记录数，只有字符串列把空字符串也算作空值（MySQL中数值与''比较时按0处理）
+            String sql = "SELECT COUNT(*) as null_count FROM " + tableName + " WHERE " + field + " IS NULL"
+                    + (table.isText(fieldName) ? " OR " + field + " = ''" : "");
             Map<String, Object> result = jdbcTemplate.queryForMap(sql);
             Long nullCount = ((Number) result.get("null_count")).longValue();
 
             // 获取总记录数
-            String countSql = "SELECT COUNT(*) as total FROM `" + tableName + "`";
+            String countSql = "SELECT COUNT(*) as total FROM " + tableName;
             Map<String, Object> countResult = jdbcTemplate.queryForMap(countSql);
             Long total = ((Number) countResult.get("total")).longValue();
 
@@ -314,12 +318,13 @@ public class DataQualityRuleServiceImpl implements DataQualityRuleService {
                 return true;
             }
 
-            JdbcTemplate jdbcTemplate = dataSourceConnectionService.createJdbcTemplate(dataSet.getDataSourceId());
-            String tableName = dataSet.getTableName();
-            String fieldName = rule.getFieldName();
+            CleaningTable table = schemaCatalogService.getCleaningTable(dataSet.getDataSourceId(), dataSet.getTableName());
+            JdbcTemplate jdbcTemplate = table.getJdbcTemplate();
+            String field = table.quote(table.column(rule.getFieldName()));
 
             // 检查重复值
-            String sql = "SELECT COUNT(*) as total, COUNT(DISTINCT `" + fieldName + "`) as distinct_count FROM `" + tableName + "`";
+            String sql = "SELECT COUNT(*) as total, COUNT(DISTINCT " + field + ") as distinct_count FROM "
+                    + table.quotedName();
             Map<String, Object> result = jdbcTemplate.queryForMap(sql);
             Long total = ((Number) result.get("total")).longValue();
             Long distinctCount = ((Number) result.get("distinct_count")).longValue();
@@ -354,14 +359,16 @@ public class DataQualityRuleServiceImpl implements DataQualityRuleService {
                 return true;
             }
 
-            JdbcTemplate jdbcTemplate = dataSourceConnectionService.createJdbcTemplate(dataSet.getDataSourceId());
-            String tableName = dataSet.getTableName();
+            CleaningTable table = schemaCatalogService.getCleaningTable(dataSet.getDataSourceId(), dataSet.getTableName());
+            JdbcTemplate jdbcTemplate = table.getJdbcTemplate();
             String fieldName = rule.getFieldName();
+            String field = table.quote(table.column(fieldName));
             String expression = rule.getRuleExpression();
 
             // 解析规则表达式，例如: "0 <= value <= 100" 或 "value > 0"
             // 这里简化处理，直接使用表达式作为WHERE条件
-            String sql = "SELECT COUNT(*) as invalid_count FROM `" + tableName + "` WHERE NOT (" + expression.replace(fieldName, "`" + fieldName + "`") + ")";
+            String sql = "SELECT COUNT(*) as invalid_count FROM " + table.quotedName() + " WHERE NOT ("
+                    + expression.replace(fieldName, field) + ")";
             Map<String, Object> result = jdbcTemplate.queryForMap(sql);
             Long invalidCount = ((Number) result.get("invalid_count")).longValue();
 
@@ -3,12 +3,23 @@ package com.example.datag.service.impl;
 import com.example.datag.dto.DataSetRequest;
 import com.example.datag.entity.DataSet;
 import com.example.datag.entity.DataSource;
+import com.example.datag.entity.MetaData;
+import com.example.datag.importer.ColumnProfiler;
+import com.example.datag.importer.HyperLogLog;
+import com.example.datag.importer.ImportTarget;
 import com.example.datag.repository.DataSetRepository;
+import com.example.datag.repository.MetaDataRepository;
 import com.example.datag.service.DataSetService;
+import com.example.datag.service.DataSourceConnectionService;
 import com.example.datag.service.DataSourceService;
+import com.example.datag.service.SchemaCatalogService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 数据集服务实现类
@@ -25,6 +36,9 @@ public class DataSetServiceImpl implements DataSetService {
 
     private final DataSetRepository dataSetRepository;
     private final DataSourceService dataSourceService;
+    private final MetaDataRepository metaDataRepository;
+    private final DataSourceConnectionService dataSourceConnectionService;
+    private final SchemaCatalogService schemaCatalogService;
 
     /**
      * 创建数据集
@@ -152,6 +166,112 @@ public class DataSetServiceImpl implements DataSetService {
         return dataSetRepository.save(dataSet);
     }
 
+    /**
+     * 登记导入后的数据表
+     *
+     * 工作流程：
+     * 1. 按表名和数据源查找数据集，不存在时创建（格式为TABLE，location为表名）
+     * 2. 新建的表直接使用本次导入的行数和文件大小，已有的表在原值上累加
+     * 3. 每个导入字段的元数据：新建的表覆盖统计，已有的表合并统计
+     *    （空值数相加、最小/最大值取极值、不同值估计器合并）
+     *
+     * @return 登记的数据集
+     */
+    @Override
+    public DataSet registerImportedTable(String tableName, Long dataSourceId, String sourceFileName, long rowsAdded,
+                                         long fileSize, boolean tableCreated, ColumnProfiler profiler) {
+        DataSet dataSet = dataSetRepository.findFirstByTableNameAndDataSourceId(tableName, dataSourceId)
+                .orElseGet(() -> DataSet.builder()
+                        .name(tableName)
+                        .description(sourceFileName != null
+                                ? "导入文件 " + sourceFileName + " 时自动登记" : "导入时自动登记")
+                        .location(tableName)
+                        .format("TABLE")
+                        .dataSourceId(dataSourceId)
+                        .tableName(tableName)
+                        .build());
+        boolean replace = tableCreated || dataSet.getId() == null;
+        if (tableCreated) {
+            // 导入时新建（或重建）了表，缓存的表结构作废
+            schemaCatalogService.invalidate(dataSourceId, tableName);
+        }
+
+        if (replace || dataSet.getRowCount() == null) {
+            // 已有的表之前没有登记行数时，统计一次当前行数
+            dataSet.setRowCount(tableCreated ? rowsAdded : countRows(tableName, dataSourceId));
+        } else {
+            dataSet.setRowCount(dataSet.getRowCount() + rowsAdded);
+        }
+        if (replace || dataSet.getFileSize() == null) {
+            dataSet.setFileSize(fileSize);
+        } else {
+            dataSet.setFileSize(dataSet.getFileSize() + fileSize);
+        }
+        dataSet = dataSetRepository.save(dataSet);
+
+        Map<String, MetaData> existing = metaDataRepository.findByDataSetId(dataSet.getId()).stream()
+                .collect(Collectors.toMap(m -> m.getFieldName().toLowerCase(), Function.identity(), (a, b) -> a));
+        List<MetaData> toSave = new ArrayList<>();
+        for (int i = 0; i < profiler.getColumns().size(); i++) {
+            String column = profiler.getColumns().get(i);
+            MetaData metaData = existing.get(column.toLowerCase());
+            boolean merge = !replace && metaData != null && metaData.getDistinctSketch() != null;
+            if (metaData == null) {
+                metaData = MetaData.builder()
+                        .dataSetId(dataSet.getId())
+                        .fieldName(column)
+                        .fieldType(profiler.getFieldType(i))
+                        .description("导入时自动登记")
+                        .isNullable(profiler.isNullable(i))
+                        .build();
+            }
+            applyStatistics(metaData, profiler, i, merge);
+            toSave.add(metaData);
+        }
+        metaDataRepository.saveAll(toSave);
+        return dataSet;
+    }
+
+    /**
+     * 写入单个字段的统计，merge为true时与已有统计合并
+     */
+    private void applyStatistics(MetaData metaData, ColumnProfiler profiler, int column, boolean merge) {
+        HyperLogLog sketch = HyperLogLog.fromBytes(profiler.getSketch(column).toBytes());
+        long nullCount = profiler.getNullCount(column);
+        Long min = profiler.getMin(column);
+        Long max = profiler.getMax(column);
+        if (merge) {
+            sketch.merge(HyperLogLog.fromBytes(metaData.getDistinctSketch()));
+            nullCount += metaData.getNullCount() != null ? metaData.getNullCount() : 0;
+            min = extreme(min, metaData.getMinValue(), true);
+            max = extreme(max, metaData.getMaxValue(), false);
+        }
+        metaData.setNullCount(nullCount);
+        metaData.setMinValue(min != null ? min.toString() : null);
+        metaData.setMaxValue(max != null ? max.toString() : null);
+        metaData.setDistinctSketch(sketch.toBytes());
+        metaData.setDistinctCount(sketch.estimate());
+    }
+
+    private Long extreme(Long current, String previous, boolean minimum) {
+        if (previous == null) {
+            return current;
+        }
+        long previousValue = Long.parseLong(previous);
+        if (current == null) {
+            return previousValue;
+        }
+        return minimum ? Math.min(current, previousValue) : Math.max(current, previousValue);
+    }
+
+    private long countRows(String tableName, Long dataSourceId) {
+        // 表在导入的目标库中，不一定是平台默认库
+        ImportTarget target = dataSourceConnectionService.getImportTarget(dataSourceId);
+        Long count = target.getJdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM " + target.getDialect().quote(tableName), Long.class);
+        return count != null ? count : 0;
+    }
+
     /**
      * 根据数据源类型确定数据格式
      * 辅助方法，用于确定导入数据的格式
@@ -1,26 +1,61 @@
 package com.example.datag.service.impl;
 
+import com.example.datag.config.ImportProperties;
 import com.example.datag.entity.DataSource;
+import com.example.datag.importer.ImportTarget;
+import com.example.datag.importer.SqlDialect;
 import com.example.datag.service.DataSourceConnectionService;
 import com.example.datag.service.DataSourceService;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 数据源连接服务实现类
  * 提供动态创建和管理数据库连接的功能
+ *
+ * 连接池按数据源ID缓存：每次调用都新建HikariDataSource会不断创建连接池且从不关闭，
+ * 导致目标库的连接被耗尽。数据源的连接配置变化时重建连接池，应用关闭时关闭所有连接池
+ *
+ * 被替换的旧连接池先停用：新的调用拿到新连接池，正在进行的导入和清洗借用着旧连接池，
+ * 最后一个借用者归还后才关闭，不会在批次之间被关掉。
+ * 预览、统计、血缘提取等短时查询只通过createJdbcTemplate取得缓存的连接池而不借用，
+ * 旧连接池停用后再保留一个宽限期（datag.import.retired-pool-grace-seconds），让这些查询在旧连接池上完成
  */
 @Service
 @RequiredArgsConstructor
 public class DataSourceConnectionServiceImpl implements DataSourceConnectionService {
 
     private final DataSourceService dataSourceService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ImportProperties importProperties;
+
+    private final Map<Long, PooledDataSource> pools = new ConcurrentHashMap<>();
+    private final Set<PooledDataSource> retiring = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService graceTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "datasource-pool-grace");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * 根据数据源配置创建JdbcTemplate
+     * 已保存的数据源复用缓存的连接池；未保存的数据源（没有ID）每次新建连接池，由调用方负责关闭
      * @param dataSource 数据源实体
      * @return JdbcTemplate实例
      */
@@ -29,26 +64,10 @@ public class DataSourceConnectionServiceImpl implements DataSourceConnectionServ
         if (dataSource == null) {
             throw new IllegalArgumentException("数据源不能为空");
         }
-
-        // 根据数据源类型创建不同的连接
-        String type = dataSource.getType().toUpperCase();
-        javax.sql.DataSource springDataSource;
-
-        switch (type) {
-            case "MYSQL":
-                springDataSource = createMySQLDataSource(dataSource);
-                break;
-            case "POSTGRESQL":
-                springDataSource = createPostgreSQLDataSource(dataSource);
-                break;
-            case "ORACLE":
-                springDataSource = createOracleDataSource(dataSource);
-                break;
-            default:
-                throw new UnsupportedOperationException("不支持的数据源类型: " + type);
+        if (dataSource.getId() == null) {
+            return new JdbcTemplate(createPool(dataSource));
         }
-
-        return new JdbcTemplate(springDataSource);
+        return getPool(dataSource).jdbcTemplate;
     }
 
     /**
@@ -58,33 +77,131 @@ public class DataSourceConnectionServiceImpl implements DataSourceConnectionServ
      */
     @Override
     public JdbcTemplate createJdbcTemplate(Long dataSourceId) {
-        DataSource dataSource = dataSourceService.getDataSourceById(dataSourceId);
-        if (dataSource == null) {
-            throw new RuntimeException("数据源不存在: " + dataSourceId);
+        return createJdbcTemplate(findDataSource(dataSourceId));
+    }
+
+    /**
+     * 获取导入目标库
+     * @param dataSourceId 数据源ID，为空时返回平台默认库
+     * @return 目标库的连接、方言和事务模板
+     */
+    @Override
+    public ImportTarget getImportTarget(Long dataSourceId) {
+        if (dataSourceId == null) {
+            return new ImportTarget(null, jdbcTemplate, SqlDialect.MYSQL, transactionTemplate);
+        }
+        DataSource dataSource = findDataSource(dataSourceId);
+        PooledDataSource pool = getPool(dataSource);
+        return new ImportTarget(dataSourceId, pool.jdbcTemplate, SqlDialect.fromDataSourceType(dataSource.getType()),
+                pool.transactionTemplate, pool::borrow);
+    }
+
+    /**
+     * 移除数据源的连接池，宽限期结束且借用者全部归还后关闭
+     * @param dataSourceId 数据源ID
+     */
+    @Override
+    public void evict(Long dataSourceId) {
+        PooledDataSource pool = pools.remove(dataSourceId);
+        if (pool != null) {
+            retire(pool);
         }
-        return createJdbcTemplate(dataSource);
     }
 
     /**
      * 测试数据源连接
+     * 使用临时连接池，测试完成后关闭，不影响缓存的连接池
      * @param dataSource 数据源实体
      * @return 连接是否成功
      */
     @Override
     public boolean testConnection(DataSource dataSource) {
-        try {
-            JdbcTemplate jdbcTemplate = createJdbcTemplate(dataSource);
-            jdbcTemplate.execute("SELECT 1");
+        try (HikariDataSource testDataSource = createPool(dataSource)) {
+            new JdbcTemplate(testDataSource).execute("SELECT 1");
             return true;
         } catch (Exception e) {
             return false;
         }
     }
 
+    /**
+     * 应用关闭时释放所有连接池
+     */
+    @PreDestroy
+    public void closeAll() {
+        graceTimer.shutdownNow();
+        pools.values().forEach(pool -> pool.dataSource.close());
+        pools.clear();
+        retiring.forEach(pool -> pool.dataSource.close());
+        retiring.clear();
+    }
+
+    private DataSource findDataSource(Long dataSourceId) {
+        DataSource dataSource = dataSourceService.getDataSourceById(dataSourceId);
+        if (dataSource == null) {
+            throw new RuntimeException("数据源不存在: " + dataSourceId);
+        }
+        return dataSource;
+    }
+
+    /**
+     * 获取缓存的连接池，连接配置变化时停用旧连接池并重建
+     */
+    private PooledDataSource getPool(DataSource dataSource) {
+        String fingerprint = fingerprint(dataSource);
+        return pools.compute(dataSource.getId(), (id, pool) -> {
+            if (pool != null) {
+                if (pool.fingerprint.equals(fingerprint)) {
+                    return pool;
+                }
+                retire(pool);
+            }
+            return new PooledDataSource(fingerprint, createPool(dataSource));
+        });
+    }
+
+    /**
+     * 停用连接池：宽限期结束后，借用者全部归还时关闭
+     */
+    private void retire(PooledDataSource pool) {
+        long graceSeconds = importProperties.getRetiredPoolGraceSeconds();
+        pool.retire(() -> retiring.remove(pool));
+        if (graceSeconds <= 0) {
+            pool.endGrace();
+            return;
+        }
+        retiring.add(pool);
+        graceTimer.schedule(pool::endGrace, graceSeconds, TimeUnit.SECONDS);
+    }
+
+    private String fingerprint(DataSource dataSource) {
+        return String.join("\n", Objects.toString(dataSource.getType()), Objects.toString(dataSource.getConnectionUrl()),
+                Objects.toString(dataSource.getUsername()), Objects.toString(dataSource.getPassword()));
+    }
+
+    /**
+     * 根据数据源类型创建连接池
+     */
+    private HikariDataSource createPool(DataSource dataSource) {
+        // 根据数据源类型创建不同的连接
+        String type = dataSource.getType().toUpperCase();
+        switch (type) {
+            case "MYSQL":
+                return createMySQLDataSource(dataSource);
+            case "POSTGRESQL":
+                return createPostgreSQLDataSource(dataSource);
+            case "ORACLE":
+                return createOracleDataSource(dataSource);
+            default:
+                throw new UnsupportedOperationException("不支持的数据源类型: " + type);
+        }
+    }
+
     /**
      * 创建MySQL数据源
+     * 开启批量语句改写，批量INSERT合并为多值INSERT发送
      */
-    private javax.sql.DataSource createMySQLDataSource(com.example.datag.entity.DataSource dataSource) {
+    private HikariDataSource createMySQLDataSource(com.example.datag.entity.DataSource dataSource) {
         HikariConfig config = new HikariConfig();
         config.setJdbcUrl(dataSource.getConnectionUrl());
         config.setUsername(dataSource.getUsername());
@@ -95,13 +212,16 @@ public class DataSourceConnectionServiceImpl implements DataSourceConnectionServ
         config.setConnectionTimeout(30000);
         config.setIdleTimeout(600000);
         config.setMaxLifetime(1800000);
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        config.setPoolName("datasource-" + dataSource.getId());
         return new HikariDataSource(config);
     }
 
     /**
      * 创建PostgreSQL数据源
+     * 开启批量INSERT改写为多值INSERT
      */
-    private javax.sql.DataSource createPostgreSQLDataSource(com.example.datag.entity.DataSource dataSource) {
+    private HikariDataSource createPostgreSQLDataSource(com.example.datag.entity.DataSource dataSource) {
         HikariConfig config = new HikariConfig();
         config.setJdbcUrl(dataSource.getConnectionUrl());
         config.setUsername(dataSource.getUsername());
@@ -109,13 +229,15 @@ public class DataSourceConnectionServiceImpl implements DataSourceConnectionServ
         config.setDriverClassName("org.postgresql.Driver");
         config.setMaximumPoolSize(5);
         config.setMinimumIdle(1);
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
+        config.setPoolName("datasource-" + dataSource.getId());
         return new HikariDataSource(config);
     }
 
     /**
      * 创建Oracle数据源
      */
-    private javax.sql.DataSource createOracleDataSource(com.example.datag.entity.DataSource dataSource) {
+    private HikariDataSource createOracleDataSource(com.example.datag.entity.DataSource dataSource) {
         HikariConfig config = new HikariConfig();
         config.setJdbcUrl(dataSource.getConnectionUrl());
         config.setUsername(dataSource.getUsername());
@@ -123,7 +245,71 @@ public class DataSourceConnectionServiceImpl implements DataSourceConnectionServ
         config.setDriverClassName("oracle.jdbc.OracleDriver");
         config.setMaximumPoolSize(5);
         config.setMinimumIdle(1);
+        config.setPoolName("datasource-" + dataSource.getId());
         return new HikariDataSource(config);
     }
-}
 
+    /**
+     * 缓存的连接池及其上的JdbcTemplate和事务模板
+     * 记录借用者个数，停用后在宽限期结束且借用者全部归还时关闭
+     */
+    private static class PooledDataSource {
+        private final String fingerprint;
+        private final HikariDataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate transactionTemplate;
+        private int borrowers;
+        private boolean retired;
+        private boolean graceOver;
+        private Runnable onClose = () -> { };
+
+        PooledDataSource(String fingerprint, HikariDataSource dataSource) {
+            this.fingerprint = fingerprint;
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        }
+
+        synchronized ImportTarget.Lease borrow() {
+            if (dataSource.isClosed()) {
+                throw new RuntimeException("数据源的连接配置已变化，连接池已关闭，请重试");
+            }
+            borrowers++;
+            AtomicBoolean returned = new AtomicBoolean();
+            return () -> {
+                if (returned.compareAndSet(false, true)) {
+                    giveBack();
+                }
+            };
+        }
+
+        private synchronized void giveBack() {
+            borrowers--;
+            closeIfIdle();
+        }
+
+        /**
+         * 停用：不再分配给新的调用，宽限期结束前不关闭
+         * @param onClose 关闭后的回调
+         */
+        synchronized void retire(Runnable onClose) {
+            retired = true;
+            this.onClose = onClose;
+        }
+
+        /**
+         * 宽限期结束，没有借用者时立即关闭，否则在最后一个借用者归还后关闭
+         */
+        synchronized void endGrace() {
+            graceOver = true;
+            closeIfIdle();
+        }
+
+        private void closeIfIdle() {
+            if (retired && graceOver && borrowers == 0 && !dataSource.isClosed()) {
+                dataSource.close();
+                onClose.run();
+            }
+        }
+    }
+}
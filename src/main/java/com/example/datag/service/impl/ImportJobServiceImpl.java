@@ -0,0 +1,756 @@
+package com.example.datag.service.impl;
+
+import com.example.datag.config.ImportProperties;
+import com.example.datag.entity.DataSet;
+import com.example.datag.entity.ImportJob;
+import com.example.datag.importer.ColumnProfiler;
+import com.example.datag.importer.Compression;
+import com.example.datag.importer.CsvImportEngine;
+import com.example.datag.importer.CsvLineParser;
+import com.example.datag.importer.ImportFileReader;
+import com.example.datag.importer.ImportTarget;
+import com.example.datag.importer.JsonColumnType;
+import com.example.datag.importer.JsonImportEngine;
+import com.example.datag.importer.JsonSchema;
+import com.example.datag.importer.JsonTableWriter;
+import com.example.datag.importer.LineSource;
+import com.example.datag.importer.MergeResult;
+import com.example.datag.importer.RejectSink;
+import com.example.datag.importer.SqlDialect;
+import com.example.datag.importer.TableBatchWriter;
+import com.example.datag.importer.TableMergeWriter;
+import com.example.datag.importer.XlsxImportEngine;
+import com.example.datag.repository.ImportJobRepository;
+import com.example.datag.service.DataSetService;
+import com.example.datag.service.DataSourceConnectionService;
+import com.example.datag.service.ImportJobService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 导入任务服务实现类
+ *
+ * 工作原理：
+ * 1. 上传的文件先写入暂存目录，创建PENDING状态的任务记录后立即返回
+ * 2. 后台线程从任务的检查点位置打开文件，按批解析和写入
+ * 3. 每批数据与任务检查点在同一个事务中提交，保证数据和检查点一致
+ * 4. 任务失败或取消后，从检查点记录的字节偏移量继续读取，已提交的数据不会重复写入
+ * 5. gzip、zstd和zip压缩文件边读边解压；zip中的多个CSV文件按顺序导入同一张表，
+ *    压缩文件恢复时跳过检查点之前已提交的行
+ * 6. 错误行写入每个任务单独的gzip文件，各错误类型的计数随检查点保存；
+ *    错误行比例超过阈值时任务失败
+ * 7. 合并导入按键列比对，只写入新增和变化的行，并统计新增、更新和未变化的行数
+ * 8. 导入过程中累计列统计，完成后自动登记数据集和字段元数据
+ * 9. JSON文件（NDJSON或对象数组）和Excel工作表从样本推断表结构，可导入到任意已登记的数据源；
+ *    NDJSON按字节范围并行导入，Excel按SAX事件流式读取，这两种格式不支持断点恢复
+ */
+@Service
+@RequiredArgsConstructor
+public class ImportJobServiceImpl implements ImportJobService {
+
+    private final ImportJobRepository importJobRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ImportProperties importProperties;
+    private final ThreadPoolTaskExecutor importTaskExecutor;
+    private final DataSetService dataSetService;
+    private final DataSourceConnectionService dataSourceConnectionService;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String FORMAT_JSON = "JSON";
+    private static final String FORMAT_XLSX = "XLSX";
+
+    // 正在排队或运行的任务的取消标志
+    private final Map<Long, AtomicBoolean> cancelFlags = new ConcurrentHashMap<>();
+
+    @Override
+    public ImportJob submitCsvImport(InputStream content, String fileName, String tableName, Long dataSourceId,
+                                     Double maxErrorRatio, List<String> keyColumns) {
+        Compression compression = Compression.fromFileName(fileName);
+        if (compression == null) {
+            throw new RuntimeException("不支持的文件类型，请上传 .csv、.csv.gz、.zip 或 .zst 文件");
+        }
+        if (maxErrorRatio != null && (maxErrorRatio < 0 || maxErrorRatio > 1)) {
+            throw new RuntimeException("错误行比例阈值必须在0到1之间");
+        }
+        boolean merge = keyColumns != null && !keyColumns.isEmpty();
+        if (merge && keyColumns.stream().anyMatch(k -> !k.matches("^[a-zA-Z0-9_]+$"))) {
+            throw new RuntimeException("键列名包含非法字符，只允许字母、数字和下划线");
+        }
+        ImportTarget target = dataSourceConnectionService.getImportTarget(dataSourceId);
+        if (merge && target.getDialect() != SqlDialect.MYSQL) {
+            throw new RuntimeException("合并导入目前只支持MySQL数据源");
+        }
+        Path stagingFile = stageUpload(content, compression.fileSuffix());
+
+        ImportJob job = ImportJob.builder()
+                .fileName(fileName)
+                .tableName(tableName)
+                .dataSourceId(dataSourceId)
+                .format("CSV")
+                .compression(compression.name())
+                .stagingPath(stagingFile.toString())
+                .status(ImportJob.STATUS_PENDING)
+                .totalBytes(stagingFile.toFile().length())
+                .bytesProcessed(0L)
+                .rowsProcessed(0L)
+                .committedEntry(0)
+                .committedOffset(0L)
+                .committedLine(0L)
+                .rowsRejected(0L)
+                .maxErrorRatio(maxErrorRatio)
+                .importMode(merge ? ImportJob.MODE_MERGE : ImportJob.MODE_APPEND)
+                .keyColumns(merge ? String.join(",", keyColumns) : null)
+                .rowsInserted(merge ? 0L : null)
+                .rowsUpdated(merge ? 0L : null)
+                .rowsUnchanged(merge ? 0L : null)
+                .build();
+        job = importJobRepository.save(job);
+        dispatch(job.getId());
+        return job;
+    }
+
+    @Override
+    public ImportJob submitJsonImport(InputStream content, String fileName, String tableName, Long dataSourceId,
+                                      Double maxErrorRatio) {
+        String lower = fileName != null ? fileName.toLowerCase() : "";
+        if (!lower.endsWith(".json") && !lower.endsWith(".ndjson") && !lower.endsWith(".jsonl")) {
+            throw new RuntimeException("不支持的文件类型，请上传 .json、.ndjson 或 .jsonl 文件");
+        }
+        return submitStructuredImport(content, fileName, tableName, dataSourceId, maxErrorRatio, FORMAT_JSON, null);
+    }
+
+    @Override
+    public ImportJob submitXlsxImport(InputStream content, String fileName, String tableName, Long dataSourceId,
+                                      Double maxErrorRatio, String sheetName) {
+        if (fileName == null || !fileName.toLowerCase().endsWith(".xlsx")) {
+            throw new RuntimeException("不支持的文件类型，请上传 .xlsx 文件");
+        }
+        return submitStructuredImport(content, fileName, tableName, dataSourceId, maxErrorRatio, FORMAT_XLSX,
+                sheetName);
+    }
+
+    /**
+     * 提交按样本推断表结构的导入任务（JSON、Excel）
+     */
+    private ImportJob submitStructuredImport(InputStream content, String fileName, String tableName,
+                                             Long dataSourceId, Double maxErrorRatio, String format,
+                                             String sheetName) {
+        if (maxErrorRatio != null && (maxErrorRatio < 0 || maxErrorRatio > 1)) {
+            throw new RuntimeException("错误行比例阈值必须在0到1之间");
+        }
+        // 提前检查目标数据源是否存在并可连接
+        dataSourceConnectionService.getImportTarget(dataSourceId);
+        Path stagingFile = stageUpload(content, FORMAT_XLSX.equals(format) ? ".xlsx" : ".json");
+
+        ImportJob job = ImportJob.builder()
+                .fileName(fileName)
+                .tableName(tableName)
+                .dataSourceId(dataSourceId)
+                .format(format)
+                .sheetName(sheetName)
+                .compression(Compression.NONE.name())
+                .stagingPath(stagingFile.toString())
+                .status(ImportJob.STATUS_PENDING)
+                .totalBytes(stagingFile.toFile().length())
+                .bytesProcessed(0L)
+                .rowsProcessed(0L)
+                .committedEntry(0)
+                .committedOffset(0L)
+                .committedLine(0L)
+                .rowsRejected(0L)
+                .maxErrorRatio(maxErrorRatio)
+                .importMode(ImportJob.MODE_APPEND)
+                .build();
+        job = importJobRepository.save(job);
+        dispatch(job.getId());
+        return job;
+    }
+
+    @Override
+    public ImportJob getJobById(Long id) {
+        return importJobRepository.findById(id).orElse(null);
+    }
+
+    @Override
+    public List<ImportJob> getAllJobs() {
+        return importJobRepository.findAllByOrderByCreatedAtDesc();
+    }
+
+    @Override
+    public ImportJob cancelJob(Long id) {
+        ImportJob job = importJobRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("导入任务不存在: " + id));
+
+        AtomicBoolean flag = cancelFlags.get(id);
+        if (flag != null) {
+            // 运行中的任务在下一批提交前停止，由执行线程更新最终状态
+            flag.set(true);
+        }
+        if (ImportJob.STATUS_PENDING.equals(job.getStatus())) {
+            job.setStatus(ImportJob.STATUS_CANCELLED);
+            job.setFinishedAt(LocalDateTime.now());
+            job = importJobRepository.save(job);
+        } else if (flag == null && ImportJob.STATUS_RUNNING.equals(job.getStatus())) {
+            throw new RuntimeException("任务不在当前服务实例中运行，无法取消: " + id);
+        } else if (!ImportJob.STATUS_RUNNING.equals(job.getStatus())) {
+            throw new RuntimeException("任务已结束，无法取消，当前状态: " + job.getStatus());
+        }
+        return job;
+    }
+
+    @Override
+    public ImportJob resumeJob(Long id) {
+        ImportJob job = importJobRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("导入任务不存在: " + id));
+
+        if (!ImportJob.STATUS_FAILED.equals(job.getStatus()) && !ImportJob.STATUS_CANCELLED.equals(job.getStatus())) {
+            throw new RuntimeException("只能恢复失败或已取消的任务，当前状态: " + job.getStatus());
+        }
+        if (FORMAT_JSON.equals(job.getFormat()) || FORMAT_XLSX.equals(job.getFormat())) {
+            // NDJSON由多个线程按字节范围并行写入，没有单一的检查点位置；Excel恢复时仍需从头解析工作表
+            throw new RuntimeException("JSON和Excel导入任务不支持断点恢复，请重新提交: " + id);
+        }
+        if (job.getStagingPath() == null || !Files.exists(Paths.get(job.getStagingPath()))) {
+            throw new RuntimeException("任务的暂存文件已不存在，无法恢复: " + id);
+        }
+        if (Boolean.FALSE.equals(job.getResumable())) {
+            throw new RuntimeException("任务最后一批数据是否已写入目标数据源无法确认，恢复会重复写入，"
+                    + "请清理目标表后重新提交: " + id);
+        }
+
+        job.setStatus(ImportJob.STATUS_PENDING);
+        job.setErrorMessage(null);
+        job.setFinishedAt(null);
+        job = importJobRepository.save(job);
+        dispatch(job.getId());
+        return job;
+    }
+
+    /**
+     * 服务启动时，将上次运行中断的任务标记为失败，便于通过恢复接口继续导入
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void markInterruptedJobs() {
+        List<ImportJob> interrupted = importJobRepository.findByStatusIn(
+                List.of(ImportJob.STATUS_PENDING, ImportJob.STATUS_RUNNING));
+        for (ImportJob job : interrupted) {
+            if (FORMAT_JSON.equals(job.getFormat()) || FORMAT_XLSX.equals(job.getFormat())) {
+                // 不支持断点恢复，暂存文件不再需要
+                job.setErrorMessage("服务重启导致任务中断，JSON和Excel导入任务不支持断点恢复，请重新提交");
+                if (job.getStagingPath() != null) {
+                    deleteStagedFile(Paths.get(job.getStagingPath()));
+                }
+            } else if (ImportJob.STATUS_RUNNING.equals(job.getStatus()) && job.getDataSourceId() != null
+                    && !ImportJob.MODE_MERGE.equals(job.getImportMode())) {
+                // 追加导入到其他数据源时，中断可能发生在一批数据提交之后、检查点保存之前
+                job.setResumable(false);
+                job.setErrorMessage("服务重启导致任务中断，目标为其他数据源的追加导入无法确认最后一批是否已写入，"
+                        + "不能断点恢复，请清理目标表后重新提交");
+            } else {
+                job.setErrorMessage("服务重启导致任务中断，可从最后一个检查点恢复");
+            }
+            job.setStatus(ImportJob.STATUS_FAILED);
+            job.setFinishedAt(LocalDateTime.now());
+        }
+        importJobRepository.saveAll(interrupted);
+    }
+
+    /**
+     * 提交任务到后台线程池
+     */
+    private void dispatch(Long jobId) {
+        cancelFlags.put(jobId, new AtomicBoolean(false));
+        try {
+            importTaskExecutor.execute(() -> runJob(jobId));
+        } catch (RuntimeException e) {
+            cancelFlags.remove(jobId);
+            importJobRepository.findById(jobId).ifPresent(job -> {
+                job.setStatus(ImportJob.STATUS_FAILED);
+                job.setErrorMessage("导入任务队列已满: " + e.getMessage());
+                importJobRepository.save(job);
+            });
+            throw new RuntimeException("导入任务队列已满，请稍后重试", e);
+        }
+    }
+
+    /**
+     * 执行导入任务
+     */
+    @SuppressWarnings("try") // lease只用于在任务执行期间借用连接池，不在代码块中引用
+    private void runJob(Long jobId) {
+        AtomicBoolean cancelled = cancelFlags.get(jobId);
+        ImportJob job = importJobRepository.findById(jobId).orElse(null);
+        if (job == null || cancelled == null || !ImportJob.STATUS_PENDING.equals(job.getStatus())) {
+            cancelFlags.remove(jobId);
+            return;
+        }
+
+        job.setStatus(ImportJob.STATUS_RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        job = importJobRepository.save(job);
+        if (FORMAT_JSON.equals(job.getFormat()) || FORMAT_XLSX.equals(job.getFormat())) {
+            runStructuredJob(job, cancelled);
+            return;
+        }
+
+        Compression compression = job.getCompression() != null
+                ? Compression.valueOf(job.getCompression()) : Compression.NONE;
+        Path rejectFile = Paths.get(importProperties.getStagingDir(), "rejects", "import-job-" + jobId + ".csv.gz");
+        Map<String, Long> rejectCounts = readRejectCounts(job);
+        boolean resuming = job.getCommittedLine() > 0 || !rejectCounts.isEmpty();
+        job.setRejectPath(rejectFile.toString());
+        job = importJobRepository.save(job);
+        ImportTarget target;
+        try {
+            target = dataSourceConnectionService.getImportTarget(job.getDataSourceId());
+        } catch (Exception e) {
+            markFailed(jobId, e);
+            cancelFlags.remove(jobId);
+            return;
+        }
+        JdbcTemplate targetJdbcTemplate = target.getJdbcTemplate();
+        // 追加导入到其他数据源时，一批数据已提交而检查点尚未保存的期间为true
+        AtomicBoolean batchInDoubt = new AtomicBoolean(false);
+        try (ImportTarget.Lease lease = target.lease();
+             ImportFileReader reader = new ImportFileReader(Paths.get(job.getStagingPath()),
+                compression, importProperties.getMmapThreshold());
+             RejectSink rejectSink = new RejectSink(rejectFile, rejectResumeLength(job, rejectFile, resuming),
+                     importProperties.getRejectQueueCapacity(), rejectCounts)) {
+            List<String> headers = job.getHeaderLine() != null ? CsvLineParser.parse(job.getHeaderLine()) : null;
+            int resumeEntry = job.getCommittedEntry() != null ? job.getCommittedEntry() : 0;
+            ImportProgress progress = new ImportProgress(job, rejectSink);
+            double maxErrorRatio = job.getMaxErrorRatio() != null
+                    ? job.getMaxErrorRatio() : importProperties.getMaxErrorRatio();
+            // 已读取的数据行 = 已写入的行 + 因列数不匹配跳过的行
+            long rowsSeen = job.getRowsProcessed() + rejectCounts.getOrDefault(RejectSink.COLUMN_COUNT_MISMATCH, 0L);
+            CsvImportEngine engine = new CsvImportEngine(importProperties.getBatchSize(), rejectSink,
+                    maxErrorRatio, importProperties.getErrorRatioMinRows(), rowsSeen);
+            boolean merge = ImportJob.MODE_MERGE.equals(job.getImportMode());
+            TableMergeWriter mergeWriter = null;
+
+            LineSource source;
+            while (!cancelled.get()
+                    && (source = reader.nextEntry(reader.isSeekable() ? job.getCommittedOffset() : 0)) != null) {
+                int entry = reader.getEntryIndex();
+                if (entry < resumeEntry) {
+                    // zip中已导入完成的文件，直接跳过
+                    continue;
+                }
+
+                long startLine;
+                if (entry == resumeEntry && job.getCommittedLine() > 0) {
+                    // 断点恢复：未压缩文件已按偏移量定位，压缩文件需要跳过已提交的行
+                    if (!reader.isSeekable()) {
+                        ImportFileReader.skipLines(source, job.getCommittedLine());
+                    }
+                    startLine = job.getCommittedLine();
+                } else {
+                    String headerLine = source.readLine();
+                    if (headerLine == null || headerLine.trim().isEmpty()) {
+                        if (headers == null && compression != Compression.ZIP) {
+                            throw new RuntimeException("CSV文件为空或格式错误");
+                        }
+                        continue;
+                    }
+                    List<String> entryHeaders = CsvLineParser.parse(headerLine);
+                    if (headers == null) {
+                        // 首个文件：记录表头并建表
+                        headers = entryHeaders;
+                        if (!merge) {
+                            // 合并导入由合并写入器建表（同时创建键列唯一索引）
+                            job.setTableCreated(new TableBatchWriter(targetJdbcTemplate, target.getDialect(),
+                                    job.getTableName(), headers).ensureTableExists());
+                        }
+                        job.setHeaderLine(headerLine);
+                    } else if (!headers.equals(entryHeaders)) {
+                        throw new RuntimeException("压缩包中的文件 " + reader.getEntryName() + " 的表头与第一个文件不一致");
+                    }
+                    job.setCommittedEntry(entry);
+                    job.setCommittedOffset(source.position());
+                    job.setBytesProcessed(source.position());
+                    job.setCommittedLine(1L);
+                    job = importJobRepository.save(job);
+                    progress.job = job;
+                    startLine = 1;
+                }
+
+                if (merge && mergeWriter == null) {
+                    // 恢复时重新扫描目标表，已提交的批次会被识别为已存在的键
+                    mergeWriter = new TableMergeWriter(targetJdbcTemplate, job.getTableName(), headers,
+                            CsvLineParser.parse(job.getKeyColumns()), importProperties.getMergeMaxIndexedRows());
+                    boolean created = mergeWriter.prepare();
+                    if (job.getTableCreated() == null) {
+                        job.setTableCreated(created);
+                    }
+                }
+                if (progress.profiler == null) {
+                    // 列统计随检查点保存，恢复后在已提交数据的统计上继续累计
+                    progress.profiler = job.getProfileState() != null
+                            ? ColumnProfiler.fromBytes(job.getProfileState())
+                            : new ColumnProfiler(headers.stream()
+                                    .filter(h -> !h.equalsIgnoreCase("id")).collect(Collectors.toList()));
+                    engine.setProfiler(progress.profiler);
+                }
+                TableBatchWriter writer = new TableBatchWriter(targetJdbcTemplate, target.getDialect(),
+                        job.getTableName(), headers);
+                TableMergeWriter batchMerger = mergeWriter;
+                engine.run(source, headers, startLine, (rows, endOffset, endLine) -> {
+                    if (target.isPrimary()) {
+                        // 数据和检查点在同一个事务中提交
+                        transactionTemplate.executeWithoutResult(status -> progress.checkpoint(rows.size(), entry,
+                                endOffset, endLine, writeBatch(writer, batchMerger, rows)));
+                    } else {
+                        // 目标为其他数据源时先提交数据再保存检查点，两次提交之间中断时这一批是否写入无法确认：
+                        // 合并导入恢复时重新合并这一批，结果相同；追加导入恢复会重复写入，因此不允许恢复
+                        MergeResult merged = target.getTransactionTemplate()
+                                .execute(status -> writeBatch(writer, batchMerger, rows));
+                        batchInDoubt.set(batchMerger == null);
+                        progress.checkpoint(rows.size(), entry, endOffset, endLine, merged);
+                        batchInDoubt.set(false);
+                    }
+                }, cancelled::get);
+                job = progress.job;
+            }
+            if (headers == null) {
+                throw new RuntimeException("压缩包中没有可导入的CSV文件");
+            }
+
+            job = progress.job;
+            if (cancelled.get()) {
+                // 取消时保留检查点上的计数，恢复后会重新读取检查点之后的行
+                job.setStatus(ImportJob.STATUS_CANCELLED);
+            } else {
+                progress.recordRejects();
+                job.setStatus(ImportJob.STATUS_COMPLETED);
+                job.setEtaSeconds(0L);
+                registerDataSet(job, progress.profiler);
+            }
+            job.setFinishedAt(LocalDateTime.now());
+            importJobRepository.save(job);
+
+            if (ImportJob.STATUS_COMPLETED.equals(job.getStatus())) {
+                Files.deleteIfExists(Paths.get(job.getStagingPath()));
+            }
+        } catch (Exception e) {
+            markFailed(jobId, e, !batchInDoubt.get());
+        } finally {
+            cancelFlags.remove(jobId);
+        }
+    }
+
+    /**
+     * 写入一批数据，合并导入时返回合并结果
+     */
+    private MergeResult writeBatch(TableBatchWriter writer, TableMergeWriter merger, List<Object[]> rows) {
+        if (merger != null) {
+            return merger.writeBatch(rows);
+        }
+        writer.writeBatch(rows);
+        return null;
+    }
+
+    /**
+     * 执行JSON或Excel导入任务
+     * 先读取样本推断表结构并建表，再流式导入；NDJSON文件按字节范围并行写入，Excel工作表按SAX事件逐行读取
+     */
+    private void runStructuredJob(ImportJob job, AtomicBoolean cancelled) {
+        Long jobId = job.getId();
+        Path file = Paths.get(job.getStagingPath());
+        Path rejectFile = Paths.get(importProperties.getStagingDir(), "rejects", "import-job-" + jobId + ".csv.gz");
+        job.setRejectPath(rejectFile.toString());
+        job = importJobRepository.save(job);
+
+        ImportTarget.Lease lease = null;
+        try (RejectSink rejectSink = new RejectSink(rejectFile, 0,
+                importProperties.getRejectQueueCapacity(), null)) {
+            boolean xlsx = FORMAT_XLSX.equals(job.getFormat());
+            JsonImportEngine.Format format = xlsx ? null : JsonImportEngine.detectFormat(file);
+            JsonSchema schema = xlsx
+                    ? XlsxImportEngine.inferSchema(file, job.getSheetName(), importProperties.getSchemaSampleSize())
+                    : JsonImportEngine.inferSchema(file, format, importProperties.getSchemaSampleSize(),
+                    importProperties.getMmapThreshold());
+            ImportTarget target = dataSourceConnectionService.getImportTarget(job.getDataSourceId());
+            lease = target.lease();
+            SqlDialect dialect = target.getDialect();
+            JsonTableWriter writer = new JsonTableWriter(target, job.getTableName(), schema.getColumns());
+            job.setTableCreated(writer.ensureTableExists());
+            job.setHeaderLine(truncate(String.join(",", schema.getColumnNames())));
+            job = importJobRepository.save(job);
+
+            ColumnProfiler profiler = new ColumnProfiler(schema.getColumnNames());
+            List<JsonColumnType> types = new ArrayList<>(schema.getColumns().values());
+            for (int i = 0; i < types.size(); i++) {
+                profiler.setFieldType(i, dialect.columnType(types.get(i)), true);
+            }
+
+            double maxErrorRatio = job.getMaxErrorRatio() != null
+                    ? job.getMaxErrorRatio() : importProperties.getMaxErrorRatio();
+            StructuredProgress progress = new StructuredProgress(job);
+            JsonImportEngine.BatchWriter batchWriter = (rows, bytesRead) -> {
+                writer.writeBatch(rows);
+                progress.update(rows.size(), bytesRead);
+            };
+            if (xlsx) {
+                new XlsxImportEngine(importProperties.getBatchSize(), rejectSink, maxErrorRatio,
+                        importProperties.getErrorRatioMinRows())
+                        .run(file, job.getSheetName(), schema, batchWriter, profiler, cancelled::get);
+            } else {
+                new JsonImportEngine(importProperties.getBatchSize(), importProperties.getJsonParallelism(),
+                        importProperties.getMmapThreshold(), rejectSink, maxErrorRatio,
+                        importProperties.getErrorRatioMinRows())
+                        .run(file, format, schema, batchWriter, profiler, cancelled::get);
+            }
+
+            job = progress.finish();
+            job.setRowsRejected(rejectSink.getTotal());
+            job.setRejectCounts(OBJECT_MAPPER.writeValueAsString(rejectSink.getCounts()));
+            if (cancelled.get()) {
+                job.setStatus(ImportJob.STATUS_CANCELLED);
+            } else {
+                job.setStatus(ImportJob.STATUS_COMPLETED);
+                job.setEtaSeconds(0L);
+                job.setBytesProcessed(job.getTotalBytes());
+                registerDataSet(job, profiler);
+            }
+            job.setFinishedAt(LocalDateTime.now());
+            importJobRepository.save(job);
+        } catch (Exception e) {
+            markFailed(jobId, e);
+        } finally {
+            if (lease != null) {
+                lease.close();
+            }
+            // JSON和Excel任务不支持断点恢复，完成、失败或取消后暂存文件都不再需要
+            deleteStagedFile(file);
+            cancelFlags.remove(jobId);
+        }
+    }
+
+    /**
+     * 保存上传文件到暂存目录
+     */
+    private Path stageUpload(InputStream content, String suffix) {
+        try {
+            Path stagingDir = Paths.get(importProperties.getStagingDir());
+            Files.createDirectories(stagingDir);
+            Path stagingFile = stagingDir.resolve(UUID.randomUUID() + suffix);
+            Files.copy(content, stagingFile, StandardCopyOption.REPLACE_EXISTING);
+            return stagingFile;
+        } catch (IOException e) {
+            throw new RuntimeException("保存上传文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 标记任务失败（重新读取最新检查点，避免覆盖已提交的进度）
+     */
+    private void markFailed(Long jobId, Exception e) {
+        markFailed(jobId, e, true);
+    }
+
+    /**
+     * @param resumable 是否可以断点恢复，最后一批是否已写入无法确认的追加导入为false
+     */
+    private void markFailed(Long jobId, Exception e, boolean resumable) {
+        importJobRepository.findById(jobId).ifPresent(failed -> {
+            failed.setStatus(ImportJob.STATUS_FAILED);
+            if (!resumable) {
+                failed.setResumable(false);
+            }
+            failed.setErrorMessage(truncate(resumable ? e.getMessage()
+                    : "最后一批数据已写入目标数据源但检查点未保存，任务不能断点恢复: " + e.getMessage()));
+            failed.setFinishedAt(LocalDateTime.now());
+            importJobRepository.save(failed);
+        });
+    }
+
+    /**
+     * 导入完成后登记数据集和字段统计
+     * 数据已经提交，登记失败时任务仍为完成状态，只记录错误信息
+     */
+    private void registerDataSet(ImportJob job, ColumnProfiler profiler) {
+        long rowsAdded = ImportJob.MODE_MERGE.equals(job.getImportMode())
+                ? job.getRowsInserted() : job.getRowsProcessed();
+        try {
+            DataSet dataSet = dataSetService.registerImportedTable(job.getTableName(), job.getDataSourceId(),
+                    job.getFileName(), rowsAdded, job.getTotalBytes() != null ? job.getTotalBytes() : 0,
+                    Boolean.TRUE.equals(job.getTableCreated()), profiler);
+            job.setDataSetId(dataSet.getId());
+        } catch (RuntimeException e) {
+            job.setErrorMessage(truncate("数据已导入，但登记数据集失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 删除暂存的上传文件，删除失败不影响任务状态
+     */
+    private void deleteStagedFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // 暂存目录中残留的文件可以手动清理
+        }
+    }
+
+    /**
+     * 断点恢复时错误行文件的截断长度：检查点记录的长度；没有记录长度的旧任务在文件末尾续写；新任务从头写
+     */
+    private long rejectResumeLength(ImportJob job, Path rejectFile, boolean resuming) throws IOException {
+        if (!resuming) {
+            return 0;
+        }
+        if (job.getRejectCommittedBytes() != null) {
+            return job.getRejectCommittedBytes();
+        }
+        return Files.exists(rejectFile) ? Files.size(rejectFile) : 0;
+    }
+
+    /**
+     * 读取检查点中保存的各错误类型计数
+     */
+    private Map<String, Long> readRejectCounts(ImportJob job) {
+        if (job.getRejectCounts() == null || job.getRejectCounts().isEmpty()) {
+            return new HashMap<>();
+        }
+        try {
+            return OBJECT_MAPPER.readValue(job.getRejectCounts(), new TypeReference<Map<String, Long>>() {});
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("任务的错误行计数格式错误: " + e.getMessage(), e);
+        }
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return "未知错误";
+        }
+        return message.length() > 2000 ? message.substring(0, 2000) : message;
+    }
+
+    /**
+     * JSON和Excel导入的进度：可能有多个线程同时写入，按时间间隔保存，不作为检查点
+     */
+    private class StructuredProgress {
+        private ImportJob job;
+        private final long startNanos = System.nanoTime();
+        private long rows;
+        private long bytes;
+        private long lastSaveNanos;
+
+        StructuredProgress(ImportJob job) {
+            this.job = job;
+        }
+
+        synchronized void update(int batchRows, long batchBytes) {
+            rows += batchRows;
+            bytes += batchBytes;
+            long now = System.nanoTime();
+            if (now - lastSaveNanos < 1_000_000_000L) {
+                return;
+            }
+            lastSaveNanos = now;
+            apply(now);
+            job = importJobRepository.save(job);
+        }
+
+        synchronized ImportJob finish() {
+            apply(System.nanoTime());
+            return job;
+        }
+
+        private void apply(long now) {
+            job.setRowsProcessed(rows);
+            job.setBytesProcessed(bytes);
+            double elapsedSeconds = (now - startNanos) / 1_000_000_000.0;
+            if (elapsedSeconds > 0) {
+                job.setRowsPerSecond(rows / elapsedSeconds);
+                double bytesPerSecond = bytes / elapsedSeconds;
+                if (bytesPerSecond > 0 && job.getTotalBytes() != null) {
+                    job.setEtaSeconds((long) Math.ceil(Math.max(0, job.getTotalBytes() - bytes) / bytesPerSecond));
+                }
+            }
+        }
+    }
+
+    /**
+     * 记录检查点并计算吞吐量和预计剩余时间
+     */
+    private class ImportProgress {
+        private ImportJob job;
+        private ColumnProfiler profiler;
+        private final RejectSink rejectSink;
+        private final long startNanos = System.nanoTime();
+        private final long startOffset;
+        private final long startRows;
+
+        ImportProgress(ImportJob job, RejectSink rejectSink) {
+            this.job = job;
+            this.rejectSink = rejectSink;
+            this.startOffset = job.getCommittedOffset();
+            this.startRows = job.getRowsProcessed();
+        }
+
+        void checkpoint(int batchRows, int entry, long endOffset, long endLine, MergeResult merged) {
+            job.setRowsProcessed(job.getRowsProcessed() + batchRows);
+            if (merged != null) {
+                job.setRowsInserted(job.getRowsInserted() + merged.getInserted());
+                job.setRowsUpdated(job.getRowsUpdated() + merged.getUpdated());
+                job.setRowsUnchanged(job.getRowsUnchanged() + merged.getUnchanged());
+            }
+            job.setCommittedEntry(entry);
+            job.setCommittedOffset(endOffset);
+            job.setBytesProcessed(endOffset);
+            job.setCommittedLine(endLine);
+            recordRejects();
+            if (profiler != null) {
+                job.setProfileState(profiler.toBytes());
+            }
+
+            double elapsedSeconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+            if (elapsedSeconds > 0) {
+                job.setRowsPerSecond((job.getRowsProcessed() - startRows) / elapsedSeconds);
+                double bytesPerSecond = (endOffset - startOffset) / elapsedSeconds;
+                if (bytesPerSecond > 0 && job.getTotalBytes() != null) {
+                    job.setEtaSeconds((long) Math.ceil(Math.max(0, job.getTotalBytes() - endOffset) / bytesPerSecond));
+                }
+            }
+            job = importJobRepository.save(job);
+        }
+
+        /**
+         * 将错误行计数写入任务（批次中的错误行都在批次结束行之前，计数与检查点一致）
+         */
+        void recordRejects() {
+            job.setRejectCommittedBytes(rejectSink.checkpoint());
+            job.setRowsRejected(rejectSink.getTotal());
+            try {
+                job.setRejectCounts(OBJECT_MAPPER.writeValueAsString(rejectSink.getCounts()));
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("序列化错误行计数失败: " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -1,13 +1,24 @@
 package com.example.datag.service.impl;
 
+import com.example.datag.config.ImportProperties;
 import com.example.datag.dto.MetaDataRequest;
 import com.example.datag.entity.DataSet;
 import com.example.datag.entity.MetaData;
+import com.example.datag.importer.JsonImportEngine;
+import com.example.datag.importer.JsonSchema;
+import com.example.datag.importer.TableSchema;
+import com.example.datag.importer.XlsxImportEngine;
 import com.example.datag.repository.MetaDataRepository;
 import com.example.datag.service.DataSetService;
 import com.example.datag.service.MetaDataService;
+import com.example.datag.service.SchemaCatalogService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -30,7 +41,8 @@ public class MetaDataServiceImpl implements MetaDataService {
     private final MetaDataRepository metaDataRepository;
     private final DataSetService dataSetService;
 
-    private final com.example.datag.service.DataSourceConnectionService dataSourceConnectionService;
+    private final SchemaCatalogService schemaCatalogService;
+    private final ImportProperties importProperties;
 
     /**
      * 创建元数据
@@ -171,6 +183,9 @@ public class MetaDataServiceImpl implements MetaDataService {
             case "JSON":
                 generatedMetaData = analyzeJsonStructure(dataSet);
                 break;
+            case "EXCEL":
+                generatedMetaData = analyzeExcelStructure(dataSet);
+                break;
             case "TABLE":
                 generatedMetaData = analyzeTableStructure(dataSet);
                 break;
@@ -231,6 +246,23 @@ public class MetaDataServiceImpl implements MetaDataService {
         );
     }
 
+    /**
+     * 分析Excel结构
+     * 流式读取第一个工作表的表头和前若干行，按单元格类型推断字段类型
+     * @param dataSet 数据集
+     * @return 元数据列表
+     */
+    private List<MetaData> analyzeExcelStructure(DataSet dataSet) {
+        JsonSchema schema;
+        try {
+            schema = XlsxImportEngine.inferSchema(Paths.get(dataSet.getLocation()), null,
+                    importProperties.getSchemaSampleSize());
+        } catch (IOException e) {
+            throw new RuntimeException("读取Excel文件失败: " + e.getMessage(), e);
+        }
+        return toMetaData(dataSet, schema);
+    }
+
     /**
      * 分析JSON结构
      * 解析JSON数据，提取字段信息
@@ -238,31 +270,30 @@ public class MetaDataServiceImpl implements MetaDataService {
      * @return 元数据列表
      */
     private List<MetaData> analyzeJsonStructure(DataSet dataSet) {
-        // 实际应用中需要解析JSON内容分析结构
-        // 这里模拟生成一些元数据
-        return List.of(
-                MetaData.builder()
-                        .dataSetId(dataSet.getId())
-                        .fieldName("id")
-                        .fieldType("INTEGER")
-                        .description("主键ID")
-                        .isNullable(false)
-                        .build(),
-                MetaData.builder()
-                        .dataSetId(dataSet.getId())
-                        .fieldName("name")
-                        .fieldType("STRING")
-                        .description("名称字段")
-                        .isNullable(true)
-                        .build(),
-                MetaData.builder()
-                        .dataSetId(dataSet.getId())
-                        .fieldName("properties")
-                        .fieldType("OBJECT")
-                        .description("属性对象")
-                        .isNullable(true)
-                        .build()
-        );
+        // 读取文件开头的若干条记录推断结构，嵌套对象展开为以下划线连接的字段
+        Path file = Paths.get(dataSet.getLocation());
+        JsonSchema schema;
+        try {
+            schema = JsonImportEngine.inferSchema(file, JsonImportEngine.detectFormat(file),
+                    importProperties.getSchemaSampleSize(), importProperties.getMmapThreshold());
+        } catch (IOException e) {
+            throw new RuntimeException("读取JSON文件失败: " + e.getMessage(), e);
+        }
+        return toMetaData(dataSet, schema);
+    }
+
+    /**
+     * 推断出的表结构转换为元数据，样本中缺失的字段可能为空
+     */
+    private List<MetaData> toMetaData(DataSet dataSet, JsonSchema schema) {
+        List<MetaData> result = new ArrayList<>();
+        schema.getColumns().forEach((name, type) -> result.add(MetaData.builder()
+                .dataSetId(dataSet.getId())
+                .fieldName(name)
+                .fieldType(type.name())
+                .isNullable(true)
+                .build()));
+        return result;
     }
 
     /**
@@ -277,32 +308,21 @@ public class MetaDataServiceImpl implements MetaDataService {
         }
 
         try {
-            // 1. 获取数据库连接工具
-            org.springframework.jdbc.core.JdbcTemplate jdbcTemplate =
-                    dataSourceConnectionService.createJdbcTemplate(dataSet.getDataSourceId());
+            // 1. 主动分析时先作废缓存，读取表的最新结构，其他服务随后也使用新结构
+            schemaCatalogService.invalidate(dataSet.getDataSourceId(), dataSet.getTableName());
+            TableSchema schema = schemaCatalogService.requireTable(dataSet.getDataSourceId(), dataSet.getTableName());
 
-            // 2. 查询真实的表结构 (DESCRIBE 语句)
-            String sql = "DESCRIBE `" + dataSet.getTableName() + "`";
-            List<java.util.Map<String, Object>> columns = jdbcTemplate.queryForList(sql);
-
-            // 3. 将查询结果转换为 MetaData 对象
+            // 2. 将列结构转换为 MetaData 对象
             List<MetaData> metaDataList = new java.util.ArrayList<>();
 
-            for (java.util.Map<String, Object> col : columns) {
-                // MySQL DESCRIBE 返回字段: Field, Type, Null, Key, Default, Extra
-                String fieldName = (String) col.get("Field");
-                String fieldType = (String) col.get("Type");
-                String nullStr = (String) col.get("Null");
-                Object defaultObj = col.get("Default");
-                String description = (String) col.get("Extra"); // 通常把 extra 信息(如 auto_increment) 放在描述里
-
+            for (TableSchema.Column column : schema.getColumns()) {
                 MetaData metaData = MetaData.builder()
                         .dataSetId(dataSet.getId())
-                        .fieldName(fieldName)
-                        .fieldType(fieldType)
-                        .description(description)
-                        .isNullable("YES".equalsIgnoreCase(nullStr))
-                        .defaultValue(defaultObj != null ? defaultObj.toString() : null)
+                        .fieldName(column.getName())
+                        .fieldType(column.getFullTypeName())
+                        .description(column.isAutoIncrement() ? "auto_increment" : "") // 自增等额外信息放在描述里
+                        .isNullable(column.isNullable())
+                        .defaultValue(column.getDefaultValue())
                         .build();
 
                 metaDataList.add(metaData);
@@ -0,0 +1,120 @@
+package com.example.datag.service.impl;
+
+import com.example.datag.cleaning.CleaningTable;
+import com.example.datag.config.CatalogProperties;
+import com.example.datag.importer.ImportTarget;
+import com.example.datag.importer.TableSchema;
+import com.example.datag.service.DataSourceConnectionService;
+import com.example.datag.service.SchemaCatalogService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 表结构缓存服务实现类
+ *
+ * 缓存键为"数据源:小写表名"，默认库的数据源部分为default。每个缓存项记录读取时使用的连接池，
+ * 数据源的连接配置修改后连接池会重建，旧连接池读取的缓存项随之失效，不需要数据源服务通知
+ *
+ * 只缓存存在的表，表不存在的结果不缓存，表创建后立即可见。
+ * 同一张表并发未命中时可能重复读取一次元数据，结果相同，不加锁等待
+ */
+@Service
+@RequiredArgsConstructor
+public class SchemaCatalogServiceImpl implements SchemaCatalogService {
+
+    private final DataSourceConnectionService dataSourceConnectionService;
+    private final CatalogProperties catalogProperties;
+
+    private final Map<String, CacheEntry<TableSchema>> tables = new ConcurrentHashMap<>();
+    private final Map<String, CacheEntry<List<String>>> tableLists = new ConcurrentHashMap<>();
+
+    @Override
+    public TableSchema getTable(Long dataSourceId, String tableName) {
+        ImportTarget target = dataSourceConnectionService.getImportTarget(dataSourceId);
+        return cached(tables, tableKey(dataSourceId, tableName), target,
+                () -> TableSchema.read(target.getJdbcTemplate(), tableName));
+    }
+
+    @Override
+    public TableSchema requireTable(Long dataSourceId, String tableName) {
+        TableSchema schema = getTable(dataSourceId, tableName);
+        if (schema == null) {
+            throw new RuntimeException("表不存在: " + tableName);
+        }
+        return schema;
+    }
+
+    @Override
+    public CleaningTable getCleaningTable(Long dataSourceId, String tableName) {
+        return CleaningTable.of(dataSourceConnectionService.getImportTarget(dataSourceId),
+                requireTable(dataSourceId, tableName));
+    }
+
+    @Override
+    public List<String> listTables(Long dataSourceId) {
+        ImportTarget target = dataSourceConnectionService.getImportTarget(dataSourceId);
+        return cached(tableLists, sourceKey(dataSourceId), target,
+                () -> TableSchema.listTables(target.getJdbcTemplate()));
+    }
+
+    @Override
+    public void invalidate(Long dataSourceId, String tableName) {
+        tables.remove(tableKey(dataSourceId, tableName));
+        tableLists.remove(sourceKey(dataSourceId));
+    }
+
+    @Override
+    public void invalidateAll(Long dataSourceId) {
+        String prefix = sourceKey(dataSourceId) + ":";
+        tables.keySet().removeIf(key -> key.startsWith(prefix));
+        tableLists.remove(sourceKey(dataSourceId));
+    }
+
+    /**
+     * 取未过期且来自当前连接池的缓存项，否则重新读取；读取结果为null时不缓存
+     */
+    private <T> T cached(Map<String, CacheEntry<T>> cache, String key, ImportTarget target, Supplier<T> loader) {
+        long ttlNanos = catalogProperties.getTtlSeconds() * 1_000_000_000L;
+        Object pool = target.getJdbcTemplate().getDataSource();
+        CacheEntry<T> entry = cache.get(key);
+        long now = System.nanoTime();
+        if (entry != null && entry.pool == pool && now - entry.loadedNanos < ttlNanos) {
+            return entry.value;
+        }
+        T value = loader.get();
+        if (value != null && ttlNanos > 0) {
+            cache.put(key, new CacheEntry<>(value, pool, now));
+        } else {
+            cache.remove(key);
+        }
+        return value;
+    }
+
+    private String sourceKey(Long dataSourceId) {
+        return dataSourceId == null ? "default" : dataSourceId.toString();
+    }
+
+    private String tableKey(Long dataSourceId, String tableName) {
+        return sourceKey(dataSourceId) + ":" + tableName.toLowerCase();
+    }
+
+    /**
+     * 缓存项
+     */
+    private static class CacheEntry<T> {
+        private final T value;
+        private final Object pool; // 读取时使用的连接池
+        private final long loadedNanos;
+
+        CacheEntry(T value, Object pool, long loadedNanos) {
+            this.value = value;
+            this.pool = pool;
+            this.loadedNanos = loadedNanos;
+        }
+    }
+}
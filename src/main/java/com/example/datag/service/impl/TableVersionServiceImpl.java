@@ -0,0 +1,203 @@
+package com.example.datag.service.impl;
+
+import com.example.datag.cleaning.CleaningTable;
+import com.example.datag.cleaning.TableLocks;
+import com.example.datag.cleaning.TableSwap;
+import com.example.datag.config.CleaningProperties;
+import com.example.datag.entity.CleaningJob;
+import com.example.datag.entity.DataSet;
+import com.example.datag.entity.TableVersion;
+import com.example.datag.importer.ImportTarget;
+import com.example.datag.importer.SqlDialect;
+import com.example.datag.repository.CleaningJobRepository;
+import com.example.datag.repository.DataSetRepository;
+import com.example.datag.repository.TableVersionRepository;
+import com.example.datag.service.DataSourceConnectionService;
+import com.example.datag.service.SchemaCatalogService;
+import com.example.datag.service.TableVersionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 数据表版本服务实现类
+ *
+ * 工作原理：
+ * 1. 写时复制清洗在工作表（原表名加__new）上执行，原表在此期间不变，读原表的查询看不到清洗到一半的数据
+ * 2. 清洗完成后校验工作表的行数，与清洗前行数减去删除行数不符时删除工作表，原表不受影响
+ * 3. 换表：MySQL用一条 RENAME TABLE a TO a__v3, a__new TO a 原子完成，原表成为第3个版本
+ * 4. 回滚同样是一次换名，当前表先保留为新版本，回滚后还可以再回到回滚前的状态。
+ *    回滚持有表的清洗锁，表上有排队或运行中的清洗任务时拒绝，避免换表覆盖清洗的结果
+ * 5. 后台定时删除每个数据集最近N个版本之外的版本表，以及超过保留时长的版本表
+ */
+@Service
+@RequiredArgsConstructor
+public class TableVersionServiceImpl implements TableVersionService {
+
+    private final TableVersionRepository tableVersionRepository;
+    private final DataSetRepository dataSetRepository;
+    private final DataSourceConnectionService dataSourceConnectionService;
+    private final CleaningProperties cleaningProperties;
+    private final SchemaCatalogService schemaCatalogService;
+    private final CleaningJobRepository cleaningJobRepository;
+    private final TableLocks tableLocks;
+
+    @Override
+    public TableVersion publish(DataSet dataSet, CleaningTable table, CleaningTable working, long previousRows,
+                                long expectedRows, String operation) {
+        int version = nextVersion(dataSet.getId());
+        String versionTable = TableSwap.versionName(table.getTableName(), version);
+        try {
+            TableSwap.swap(table, working, expectedRows, versionTable);
+        } finally {
+            // 换表失败时也可能已经改了部分表名，缓存的表结构一律作废
+            Long dataSourceId = table.getTarget().getDataSourceId();
+            schemaCatalogService.invalidate(dataSourceId, table.getTableName());
+            schemaCatalogService.invalidate(dataSourceId, working.getTableName());
+            schemaCatalogService.invalidate(dataSourceId, versionTable);
+        }
+
+        TableVersion tableVersion = TableVersion.builder()
+                .dataSetId(dataSet.getId())
+                .dataSourceId(table.getTarget().getDataSourceId())
+                .tableName(table.getTableName())
+                .versionTableName(versionTable)
+                .version(version)
+                .operation(truncate(operation))
+                .rowCount(previousRows)
+                .status(TableVersion.STATUS_RETAINED)
+                .build();
+        return tableVersionRepository.save(tableVersion);
+    }
+
+    @Override
+    public List<TableVersion> getVersions(Long dataSetId) {
+        return tableVersionRepository.findByDataSetIdOrderByVersionDesc(dataSetId);
+    }
+
+    @Override
+    public TableVersion rollback(Long versionId) {
+        TableVersion target = tableVersionRepository.findById(versionId)
+                .orElseThrow(() -> new RuntimeException("版本不存在: " + versionId));
+        if (!TableVersion.STATUS_RETAINED.equals(target.getStatus())) {
+            throw new RuntimeException("只能回滚到保留中的版本，当前状态: " + target.getStatus());
+        }
+        DataSet dataSet = dataSetRepository.findById(target.getDataSetId())
+                .orElseThrow(() -> new RuntimeException("数据集不存在: " + target.getDataSetId()));
+
+        CleaningTable table = schemaCatalogService.getCleaningTable(target.getDataSourceId(), target.getTableName());
+        CleaningTable restored = schemaCatalogService.getCleaningTable(target.getDataSourceId(),
+                target.getVersionTableName());
+        // 统计行数和换表都在表锁内进行，期间其他清洗操作不能修改这张表
+        // 版本状态也在表锁内重新检查和更新，清理历史版本时持有同一把锁，不会删除正在回滚的版本表
+        TableVersion archived = tableLocks.withLock(table, "回滚到版本 " + target.getVersion(), () -> {
+            checkNoActiveJobs(target);
+            checkRetained(target.getId());
+            long currentRows = TableSwap.countRows(table);
+            TableVersion published = publish(dataSet, table, restored, currentRows, target.getRowCount(),
+                    "回滚到版本 " + target.getVersion() + " 前的数据");
+            target.setStatus(TableVersion.STATUS_RESTORED);
+            tableVersionRepository.save(target);
+            return published;
+        });
+
+        dataSet.setRowCount(target.getRowCount());
+        String currentDesc = dataSet.getDescription() != null ? dataSet.getDescription() : "";
+        dataSet.setDescription(currentDesc + " [已回滚到版本 " + target.getVersion() + "，回滚前的数据保留为版本 "
+                + archived.getVersion() + "]");
+        dataSetRepository.save(dataSet);
+        return archived;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${datag.cleaning.version-cleanup-interval-millis:600000}")
+    public int cleanupExpiredVersions() {
+        LocalDateTime expiry = cleaningProperties.getVersionRetentionHours() > 0
+                ? LocalDateTime.now().minusHours(cleaningProperties.getVersionRetentionHours()) : null;
+        Map<Long, Integer> kept = new HashMap<>();
+        int dropped = 0;
+        for (TableVersion version : tableVersionRepository.findByStatusOrderByVersionDesc(TableVersion.STATUS_RETAINED)) {
+            int rank = kept.merge(version.getDataSetId(), 1, Integer::sum);
+            boolean expired = rank > cleaningProperties.getKeepVersions()
+                    || (expiry != null && version.getCreatedAt() != null && version.getCreatedAt().isBefore(expiry));
+            if (!expired) {
+                continue;
+            }
+            // 持有原表的清洗锁删除，避免与从该版本回滚的换表同时进行；表正忙时下次再清理
+            String lockKey = TableLocks.key(version.getDataSourceId(), version.getTableName());
+            if (!tableLocks.tryLock(lockKey, "清理历史版本 " + version.getVersionTableName(), 0)) {
+                continue;
+            }
+            try {
+                // 等锁期间版本可能已被回滚
+                if (!isRetained(version.getId())) {
+                    continue;
+                }
+                ImportTarget target = dataSourceConnectionService.getImportTarget(version.getDataSourceId());
+                if (SqlDialect.tableExists(target.getJdbcTemplate(), version.getVersionTableName())) {
+                    target.getJdbcTemplate().execute("DROP TABLE "
+                            + target.getDialect().quote(version.getVersionTableName()));
+                }
+                schemaCatalogService.invalidate(version.getDataSourceId(), version.getVersionTableName());
+                version.setStatus(TableVersion.STATUS_DROPPED);
+                tableVersionRepository.save(version);
+                dropped++;
+            } catch (Exception e) {
+                // 数据源暂时不可用时下次再清理
+                System.err.println("清理历史版本 " + version.getVersionTableName() + " 失败: " + e.getMessage());
+            } finally {
+                tableLocks.unlock(lockKey);
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * 表上有排队或运行中的清洗任务时拒绝回滚
+     * 排队的任务还没有取得表锁，回滚后再执行会在回滚后的数据上清洗，与提交任务时看到的数据不同
+     */
+    private void checkNoActiveJobs(TableVersion version) {
+        String key = TableLocks.key(version.getDataSourceId(), version.getTableName());
+        for (CleaningJob active : cleaningJobRepository.findByStatusIn(
+                List.of(CleaningJob.STATUS_PENDING, CleaningJob.STATUS_RUNNING))) {
+            if (active.getTableName() != null
+                    && key.equals(TableLocks.key(active.getDataSourceId(), active.getTableName()))) {
+                throw new RuntimeException("表 " + version.getTableName() + " 有未结束的清洗任务 #" + active.getId()
+                        + "（" + active.getStatus() + "），请等待其结束或取消后再回滚");
+            }
+        }
+    }
+
+    /**
+     * 版本是否仍为保留中（重新读取，不使用加锁前读到的状态）
+     */
+    private boolean isRetained(Long versionId) {
+        return tableVersionRepository.findById(versionId)
+                .map(v -> TableVersion.STATUS_RETAINED.equals(v.getStatus()))
+                .orElse(false);
+    }
+
+    private void checkRetained(Long versionId) {
+        if (!isRetained(versionId)) {
+            throw new RuntimeException("版本已被清理或回滚，无法回滚: " + versionId);
+        }
+    }
+
+    private int nextVersion(Long dataSetId) {
+        return tableVersionRepository.findTopByDataSetIdOrderByVersionDesc(dataSetId)
+                .map(v -> v.getVersion() + 1)
+                .orElse(1);
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.datag.cleaning;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 格式化规则的解析和逐值转换测试：严格的日期识别、替换文本预检、去空白和字段列表
+ */
+class FormatRuleTest {
+
+    @Test
+    void impossibleDatesAreLeftUnchanged() {
+        UnaryOperator<Object> format = FormatRule.parse("date_format").compile();
+        assertEquals("2023-02-31", format.apply("2023-02-31"));
+        assertEquals("2023/02/30", format.apply("2023/02/30"));
+        assertEquals("2023-02-29", format.apply("2023-02-29"));
+        assertEquals("2024-02-29", format.apply("2024/2/29"));
+        // 日月顺序不确定的格式不识别
+        assertEquals("01/02/2024", format.apply("01/02/2024"));
+    }
+
+    @Test
+    void recognizedDatesAreRewritten() {
+        UnaryOperator<Object> format = FormatRule.parse("date_format=yyyy-MM-dd HH:mm").compile();
+        assertEquals("2024-03-05 00:00", format.apply("2024.3.5"));
+        assertEquals("2024-03-05 00:00", format.apply("20240305"));
+        assertEquals("2024-03-05 00:00", format.apply("2024年3月5日"));
+        assertEquals("2024-03-05 07:08", format.apply(" 2024-3-5 7:8 "));
+        assertEquals("2024-03-05 07:08", format.apply("2024-03-05T07:08:09"));
+        assertEquals("2024-13-05", format.apply("2024-13-05"));
+        assertEquals(42, format.apply(42));
+    }
+
+    @Test
+    void replacementReferencingMissingGroupIsRejected() {
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> FormatRule.parse("replace=(\\d+)-x=>$2"));
+        assertTrue(e.getMessage().startsWith("替换文本无效"), e.getMessage());
+        assertThrows(RuntimeException.class, () -> FormatRule.parse("replace=(\\d+)=>${name}"));
+        assertThrows(RuntimeException.class, () -> FormatRule.parse("replace=(\\d+)=>$"));
+        assertThrows(RuntimeException.class, () -> FormatRule.parse("replace=([a-z]=>x"));
+        assertThrows(RuntimeException.class, () -> FormatRule.parse("replace=abc"));
+
+        UnaryOperator<Object> replace = FormatRule.parse("replace=(\\d+)-(\\d+)=>$2/$1").compile();
+        assertEquals("34/12 x", replace.apply("12-34 x"));
+        UnaryOperator<Object> named = FormatRule.parse("replace=(?<n>\\d+)=>[${n}]").compile();
+        assertEquals("a[1]b[22]", named.apply("a1b22"));
+    }
+
+    @Test
+    void trimRemovesOnlyEdgeSpaces() {
+        UnaryOperator<Object> trim = FormatRule.parse("trim").compile();
+        assertEquals("a  b", trim.apply("  a  b   "));
+        // 与SQL的TRIM一致，制表符和换行不去掉
+        assertEquals("\ta\n", trim.apply("\ta\n"));
+        assertEquals("\ta", trim.apply(" \ta "));
+        assertEquals("", trim.apply("   "));
+        assertNull(trim.apply(null));
+    }
+
+    @Test
+    void columnListIsParsedFromTheEnd() {
+        CleaningTable table = mock(CleaningTable.class);
+        when(table.column(anyString())).thenAnswer(invocation -> invocation.<String>getArgument(0).toUpperCase());
+        when(table.isText(anyString())).thenReturn(true);
+
+        FormatRule rule = FormatRule.parse(" upper@name|city ");
+        assertEquals(FormatRule.Type.UPPER, rule.getType());
+        assertEquals("upper@name|city", rule.toString());
+        assertEquals(List.of("NAME", "CITY"), rule.targetColumns(table));
+
+        // 参数中的@不是字段列表的开始，只有末尾的@字段才是
+        FormatRule replace = FormatRule.parse("replace=@+=>@@email");
+        assertEquals(List.of("EMAIL"), replace.targetColumns(table));
+        assertEquals("a@b", replace.compile().apply("a@@@b"));
+
+        FormatRule dates = FormatRule.parse("date_format=yyyy/MM/dd@created_at");
+        assertEquals(List.of("CREATED_AT"), dates.targetColumns(table));
+        assertEquals("2024/01/02", dates.compile().apply("2024-1-2"));
+    }
+
+    @Test
+    void columnOfWrongTypeIsRejected() {
+        CleaningTable table = mock(CleaningTable.class);
+        when(table.column("amount")).thenReturn("amount");
+        when(table.isText("amount")).thenReturn(false);
+        when(table.isNumeric("amount")).thenReturn(true);
+        when(table.isIntegral("amount")).thenReturn(false);
+
+        assertThrows(RuntimeException.class, () -> FormatRule.parse("trim@amount").targetColumns(table));
+        assertEquals(List.of("amount"), FormatRule.parse("number_format=1@amount").targetColumns(table));
+    }
+}
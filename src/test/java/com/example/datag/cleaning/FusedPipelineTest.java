@@ -0,0 +1,177 @@
+package com.example.datag.cleaning;
+
+import com.example.datag.importer.ImportTarget;
+import com.example.datag.importer.SqlDialect;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 清洗步骤的解析、合并阶段的划分和合并执行生成的SQL测试
+ */
+class FusedPipelineTest {
+
+    private static final Set<String> COLUMNS = Set.of("id", "amount", "email");
+
+    @Test
+    void filterSplitsOnFirstColonOnly() {
+        CleaningStep step = CleaningStep.parse(" Filter: note = 'a:b' AND amount > 0 ");
+        assertEquals(CleaningStep.Type.FILTER, step.getType());
+        assertEquals("note = 'a:b' AND amount > 0", step.getCondition());
+        assertEquals("filter:note = 'a:b' AND amount > 0", step.toString());
+
+        assertThrows(RuntimeException.class, () -> CleaningStep.parse("filter"));
+        assertThrows(RuntimeException.class, () -> CleaningStep.parse("filter:   "));
+        assertThrows(RuntimeException.class, () -> CleaningStep.parse("unknown:x"));
+    }
+
+    @Test
+    void deduplicateFieldsAcceptCommaAndSemicolon() {
+        CleaningStep step = CleaningStep.parse("deduplicate:a;b");
+        assertEquals(CleaningStep.Type.DEDUPLICATE, step.getType());
+        assertEquals(List.of("a", "b"), step.getFields());
+        assertEquals("deduplicate:a;b", step.toString());
+
+        assertEquals(List.of("a", "b"), CleaningStep.parse("deduplicate: a, b ;").getFields());
+        assertEquals(List.of(), CleaningStep.parse("deduplicate").getFields());
+        assertEquals("deduplicate", CleaningStep.parse("deduplicate").toString());
+    }
+
+    @Test
+    void fillStrategyDefaultsToMean() {
+        assertEquals(FillStrategy.MEDIAN, CleaningStep.parse("fillmissing:median").getStrategy());
+        assertEquals(FillStrategy.MEAN, CleaningStep.parse("fillmissing").getStrategy());
+        assertEquals("fillmissing:median", CleaningStep.parse("fillmissing:MEDIAN").toString());
+        assertThrows(RuntimeException.class, () -> CleaningStep.parse("fillmissing:average"));
+    }
+
+    @Test
+    void onlyRunsOfTwoOrMoreFusibleStepsAreFused() {
+        CleaningTable table = table(true, false);
+        List<List<String>> stages = plan(table, "filter:amount > 0", "deduplicate:email", "fillmissing:median",
+                "filter:amount < 100", "fillmissing:mean", "format:trim", "filter:email IS NOT NULL",
+                "fillmissing:zero", "deduplicate");
+        assertEquals(List.of(
+                List.of("filter:amount > 0", "deduplicate:email"),
+                List.of("fillmissing:median"),
+                List.of("filter:amount < 100", "fillmissing:mean"),
+                List.of("format:trim"),
+                List.of("filter:email IS NOT NULL", "fillmissing:zero", "deduplicate")), stages);
+
+        // 不支持窗口函数时去重不能合并，剩下的单个过滤原地执行
+        assertEquals(List.of(List.of("filter:amount > 0"), List.of("deduplicate:email")),
+                plan(table(false, false), "filter:amount > 0", "deduplicate:email"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void filterFlagKeepsRowsWhereConditionIsNull() {
+        CleaningTable table = table(true, false);
+        JdbcTemplate jdbcTemplate = table.getJdbcTemplate();
+        when(jdbcTemplate.query(anyString(), any(ResultSetExtractor.class))).thenReturn(new long[]{10, 8, 6});
+        CleaningTable working = mock(CleaningTable.class);
+        when(working.quotedName()).thenReturn("\"orders_work\"");
+
+        List<StepOutcome> outcomes = new FusedPipeline(table,
+                List.of(CleaningStep.parse("filter:amount > 0"), CleaningStep.parse("deduplicate:email")),
+                List.of()).run(working);
+
+        ArgumentCaptor<String> countSql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(countSql.capture(), any(ResultSetExtractor.class));
+        ArgumentCaptor<String> insertSql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).update(insertSql.capture());
+
+        // 条件为NULL时NOT (...)也为NULL，落到ELSE分支保留上一步的标记，与DELETE ... WHERE NOT (...)一致
+        String filterFlag = "CASE WHEN NOT (\"amount\" > 0) THEN 0 ELSE dg_keep_0 END AS dg_keep_1";
+        String dedupFlag = "CASE WHEN dg_keep_1 = 1 AND ROW_NUMBER() OVER (PARTITION BY dg_keep_1, \"email\" "
+                + "ORDER BY \"id\") = 1 THEN 1 ELSE 0 END AS dg_keep_2";
+        for (String sql : List.of(countSql.getValue(), insertSql.getValue())) {
+            assertTrue(sql.contains(filterFlag), sql);
+            assertTrue(sql.contains(dedupFlag), sql);
+            assertTrue(sql.contains("1 AS dg_keep_0 FROM \"orders\") s1"), sql);
+        }
+        assertTrue(countSql.getValue().startsWith("SELECT COUNT(*), SUM(dg_keep_1), SUM(dg_keep_2) FROM ("),
+                countSql.getValue());
+        assertTrue(insertSql.getValue().startsWith("INSERT INTO \"orders_work\" (\"id\", \"amount\", \"email\") "
+                + "SELECT \"id\", \"amount\", \"email\" FROM ("), insertSql.getValue());
+        assertTrue(insertSql.getValue().endsWith(") f WHERE dg_keep_2 = 1"), insertSql.getValue());
+
+        assertEquals(2, outcomes.size());
+        assertEquals(10L, outcomes.get(0).getRowsBefore());
+        assertEquals(8L, outcomes.get(0).getRowsAfter());
+        assertEquals(8L, outcomes.get(1).getRowsBefore());
+        assertEquals(6L, outcomes.get(1).getRowsAfter());
+        assertEquals(StepOutcome.MODE_FUSED, outcomes.get(1).getMode());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void mySqlLocksTheSourceRowsInTheInnermostRead() {
+        CleaningTable table = table(true, true);
+        when(table.getJdbcTemplate().query(anyString(), any(ResultSetExtractor.class)))
+                .thenReturn(new long[]{1, 1, 1});
+        CleaningTable working = mock(CleaningTable.class);
+        when(working.quotedName()).thenReturn("`orders_work`");
+
+        new FusedPipeline(table, List.of(CleaningStep.parse("filter:amount > 0"), CleaningStep.parse("deduplicate")
+                .withFields(List.of("email"))), List.of()).run(working);
+
+        ArgumentCaptor<String> insertSql = ArgumentCaptor.forClass(String.class);
+        verify(table.getJdbcTemplate()).update(insertSql.capture());
+        assertTrue(insertSql.getValue().contains("1 AS dg_keep_0 FROM `orders` LOCK IN SHARE MODE) s1"),
+                insertSql.getValue());
+    }
+
+    private static List<List<String>> plan(CleaningTable table, String... steps) {
+        List<CleaningStep> parsed = List.of(steps).stream().map(CleaningStep::parse).collect(Collectors.toList());
+        return FusedPipeline.plan(table, parsed).stream()
+                .map(stage -> stage.stream().map(CleaningStep::toString).collect(Collectors.toList()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 表orders(id, amount, email)，主键id；JdbcTemplate和事务管理器都是桩，只记录执行的SQL
+     */
+    private static CleaningTable table(boolean windowFunctions, boolean mySql) {
+        String q = mySql ? "`" : "\"";
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ImportTarget target = new ImportTarget(null, mock(JdbcTemplate.class),
+                mySql ? SqlDialect.MYSQL : SqlDialect.POSTGRESQL, new TransactionTemplate(transactionManager));
+
+        CleaningTable table = mock(CleaningTable.class);
+        when(table.getTarget()).thenReturn(target);
+        when(table.getJdbcTemplate()).thenReturn(target.getJdbcTemplate());
+        when(table.getDialect()).thenReturn(target.getDialect());
+        when(table.isMySql()).thenReturn(mySql);
+        when(table.supportsWindowFunctions()).thenReturn(windowFunctions);
+        when(table.getTableName()).thenReturn("orders");
+        when(table.quotedName()).thenReturn(q + "orders" + q);
+        when(table.getColumns()).thenReturn(List.of("id", "amount", "email"));
+        when(table.getPrimaryKey()).thenReturn(List.of("id"));
+        when(table.hasSingleColumnKey()).thenReturn(true);
+        when(table.getKeyColumn()).thenReturn("id");
+        when(table.quote(anyString())).thenAnswer(invocation -> q + invocation.getArgument(0) + q);
+        when(table.hasColumn(anyString()))
+                .thenAnswer(invocation -> COLUMNS.contains(invocation.<String>getArgument(0).toLowerCase()));
+        when(table.column(anyString())).thenAnswer(invocation -> invocation.<String>getArgument(0).toLowerCase());
+        return table;
+    }
+}
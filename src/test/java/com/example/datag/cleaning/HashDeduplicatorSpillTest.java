@@ -0,0 +1,134 @@
+package com.example.datag.cleaning;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 流式哈希去重的溢出与归并测试：指纹集合、外部排序和跨溢出文件的重复行
+ */
+class HashDeduplicatorSpillTest {
+
+    /**
+     * 16个槽位，装到12个就满
+     */
+    private static final long TINY_SET = 16 * 24;
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    void externalSorterMergesManyRuns() throws IOException {
+        Random random = new Random(7);
+        List<Long> expected = new ArrayList<>();
+        try (ExternalLongSorter sorter = new ExternalLongSorter(workDir, 0)) {
+            // 缓冲区最小为1024个，10000个值至少溢出9次，含大量重复值和负数
+            for (int i = 0; i < 10_000; i++) {
+                long value = random.nextInt(3_000) - 1_500;
+                expected.add(value);
+                sorter.add(value);
+            }
+            expected.sort(null);
+            List<Long> actual = new ArrayList<>();
+            sorter.forEachSorted(actual::add);
+            assertEquals(expected.size(), sorter.count());
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void fingerprintSetDetectsDuplicatesAndFills() {
+        FingerprintSet set = new FingerprintSet(TINY_SET);
+        assertTrue(set.add(1, 2, 10));
+        assertFalse(set.add(1, 2, 11));
+        // 全零指纹与空槽位区分开
+        assertTrue(set.add(0, 0, 12));
+        assertFalse(set.add(0, 0, 13));
+        // 重复的指纹查到的是先加入的行
+        assertEquals(10L, set.keyOf(1, 2));
+        assertEquals(12L, set.keyOf(0, 0));
+        assertNull(set.keyOf(3, 4));
+        for (int i = 0; !set.isFull(); i++) {
+            set.add(100 + i, i, 20 + i);
+        }
+        assertEquals(12, set.size());
+    }
+
+    @Test
+    void duplicatesStraddlingRunsKeepSmallestKey() throws IOException {
+        RowFingerprint fingerprint = new RowFingerprint();
+        FingerprintSet set = new FingerprintSet(TINY_SET);
+        List<Path> runs = new ArrayList<>();
+        Map<Integer, Long> firstKey = new HashMap<>();
+        Map<Long, Integer> valueOf = new HashMap<>();
+        TreeSet<Long> expected = new TreeSet<>();
+        TreeSet<Long> deletedInMemory = new TreeSet<>();
+
+        // 按主键顺序读取100行，值在30个之间循环，同一个值的行落在不同的溢出文件中
+        for (long key = 1; key <= 100; key++) {
+            int value = (int) ((key * 7) % 30);
+            valueOf.put(key, value);
+            fingerprint.compute(new Object[]{"v" + value, value});
+            if (firstKey.putIfAbsent(value, key) != null) {
+                expected.add(key);
+            }
+            if (!set.add(fingerprint.getHigh(), fingerprint.getLow(), key)) {
+                deletedInMemory.add(key);
+                // 同一溢出文件内，保留行是该指纹第一次出现的行（可能在更早的文件中，由归并处理）
+                assertTrue(set.keyOf(fingerprint.getHigh(), fingerprint.getLow()) < key);
+            } else if (set.isFull()) {
+                Path run = workDir.resolve("run-" + runs.size());
+                set.spill(run);
+                runs.add(run);
+            }
+        }
+        if (set.size() > 0) {
+            Path run = workDir.resolve("run-" + runs.size());
+            set.spill(run);
+            runs.add(run);
+        }
+        assertTrue(runs.size() > 2, "应产生多个溢出文件");
+
+        TreeSet<Long> deleted = new TreeSet<>(deletedInMemory);
+        try (ExternalPairSorter surplus = new ExternalPairSorter(workDir, 0)) {
+            HashDeduplicator.mergeRuns(runs, surplus);
+            surplus.forEachSorted((key, kept) -> {
+                assertTrue(deleted.add(key), "主键重复删除: " + key);
+                assertEquals(firstKey.get(valueOf.get(key)), kept);
+            });
+        }
+        assertEquals(expected, deleted);
+        for (long kept : firstKey.values()) {
+            assertFalse(deleted.contains(kept));
+        }
+    }
+
+    @Test
+    void fingerprintEncodingSeparatesValues() {
+        assertNotEquals(fingerprint("a", "bc"), fingerprint("ab", "c"));
+        assertNotEquals(fingerprint((Object) null), fingerprint(""));
+        assertEquals(fingerprint(new BigDecimal("1.50")), fingerprint(new BigDecimal("1.5")));
+        assertEquals(fingerprint(new BigDecimal("0.00")), fingerprint(BigDecimal.ZERO));
+    }
+
+    private static List<Long> fingerprint(Object... values) {
+        RowFingerprint fingerprint = new RowFingerprint();
+        fingerprint.compute(values);
+        return List.of(fingerprint.getHigh(), fingerprint.getLow());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.datag.cleaning;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 近似去重的LSH参数、外部排序和聚类测试
+ */
+class NearDuplicateDetectorTest {
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    void rowsPerBandForTypicalThresholds() {
+        assertEquals(3, NearDuplicateDetector.rowsPerBand(0.5));
+        assertEquals(4, NearDuplicateDetector.rowsPerBand(0.7));
+        assertEquals(6, NearDuplicateDetector.rowsPerBand(0.8));
+        assertEquals(7, NearDuplicateDetector.rowsPerBand(0.85));
+        assertEquals(8, NearDuplicateDetector.rowsPerBand(0.9));
+    }
+
+    @Test
+    void pairsAtThresholdAreLikelyCandidates() {
+        for (double threshold = 0.5; threshold <= 0.95; threshold += 0.05) {
+            int r = NearDuplicateDetector.rowsPerBand(threshold);
+            int b = 64 / r;
+            double atThreshold = 1 - Math.pow(1 - Math.pow(threshold, r), b);
+            double farBelow = 1 - Math.pow(1 - Math.pow(threshold - 0.3, r), b);
+            assertTrue(atThreshold >= 0.85, "阈值 " + threshold + " 处成为候选对的概率 " + atThreshold);
+            assertTrue(farBelow < atThreshold / 2, "阈值 " + threshold + " 以下0.3处成为候选对的概率 " + farBelow);
+        }
+    }
+
+    @Test
+    void pairSorterMergesManyRuns() throws IOException {
+        Random random = new Random(11);
+        List<long[]> expected = new ArrayList<>();
+        try (ExternalPairSorter sorter = new ExternalPairSorter(workDir, 0)) {
+            // 缓冲区最小为1024对，8000对至少溢出7次；第一个值重复很多，按第二个值排序
+            for (int i = 0; i < 8_000; i++) {
+                long first = random.nextInt(50) - 25;
+                long second = random.nextInt(1_000_000) - 500_000;
+                expected.add(new long[]{first, second});
+                sorter.add(first, second);
+            }
+            expected.sort(Comparator.<long[]>comparingLong(p -> p[0]).thenComparingLong(p -> p[1]));
+            List<long[]> actual = new ArrayList<>();
+            sorter.forEachSorted((first, second) -> actual.add(new long[]{first, second}));
+            assertEquals(expected.size(), sorter.count());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i)[0], actual.get(i)[0]);
+                assertEquals(expected.get(i)[1], actual.get(i)[1]);
+            }
+        }
+    }
+
+    @Test
+    void clustersAreIndependentOfPairOrder() {
+        // 两个簇{3, 5, 9, 12}和{7, 20}，1不在任何簇中
+        long[][] pairs = {{9, 12}, {5, 9}, {7, 20}, {3, 12}, {5, 12}};
+        Map<Long, Long> expected = new TreeMap<>(Map.of(3L, 3L, 5L, 3L, 9L, 3L, 12L, 3L, 7L, 7L, 20L, 7L));
+
+        Random random = new Random(5);
+        for (int attempt = 0; attempt < 20; attempt++) {
+            List<long[]> shuffled = new ArrayList<>(List.of(pairs));
+            Collections.shuffle(shuffled, random);
+            NearDuplicateDetector.Clusters clusters = new NearDuplicateDetector.Clusters();
+            for (long[] pair : shuffled) {
+                if (random.nextBoolean()) {
+                    clusters.union(pair[0], pair[1], 0.9);
+                } else {
+                    clusters.union(pair[1], pair[0], 0.9);
+                }
+            }
+            Map<Long, Long> roots = new TreeMap<>();
+            for (long key : expected.keySet()) {
+                roots.put(key, clusters.find(key));
+            }
+            assertEquals(expected, roots);
+            assertEquals(1L, clusters.find(1));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.datag.cleaning;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分位数草图和高频值草图在已知分布上的误差测试
+ */
+class StreamingSketchTest {
+
+    private static final int K = 400;
+
+    /**
+     * k=400时排名误差约0.5%，取4倍作为允许的排名误差
+     */
+    private static final double RANK_TOLERANCE = 0.02;
+
+    private static final double[] QUANTILES = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99};
+
+    @Test
+    void uniformQuantilesWithinRankError() {
+        int n = 200_000;
+        List<Double> values = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            values.add((double) i);
+        }
+        Collections.shuffle(values, new Random(1));
+        QuantileSketch sketch = new QuantileSketch(K);
+        values.forEach(sketch::update);
+
+        assertEquals(n, sketch.count());
+        double[] sorted = values.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        for (double q : QUANTILES) {
+            assertRankWithin(sorted, q, sketch.quantile(q));
+        }
+    }
+
+    @Test
+    void skewedQuantilesWithinRankError() {
+        // 对数正态分布，长尾上的分位数同样按排名计算误差
+        Random random = new Random(2);
+        double[] data = new double[150_000];
+        QuantileSketch sketch = new QuantileSketch(K);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = Math.exp(random.nextGaussian());
+            sketch.update(data[i]);
+        }
+        Arrays.sort(data);
+        for (double q : QUANTILES) {
+            assertRankWithin(data, q, sketch.quantile(q));
+        }
+    }
+
+    @Test
+    void mergeOrderDoesNotAffectAccuracy() {
+        Random random = new Random(3);
+        double[] data = new double[300_000];
+        QuantileSketch a = new QuantileSketch(K);
+        QuantileSketch b = new QuantileSketch(K);
+        QuantileSketch c = new QuantileSketch(K);
+        QuantileSketch a2 = new QuantileSketch(K);
+        QuantileSketch b2 = new QuantileSketch(K);
+        QuantileSketch c2 = new QuantileSketch(K);
+        for (int i = 0; i < data.length; i++) {
+            // 三个分区的分布不同，模拟按主键区间并行扫描
+            data[i] = i % 3 == 0 ? random.nextGaussian() : i % 3 == 1 ? 5 + random.nextDouble() : -i;
+            QuantileSketch target = i % 3 == 0 ? a : i % 3 == 1 ? b : c;
+            QuantileSketch copy = i % 3 == 0 ? a2 : i % 3 == 1 ? b2 : c2;
+            target.update(data[i]);
+            copy.update(data[i]);
+        }
+        Arrays.sort(data);
+
+        // (a + b) + c
+        a.merge(b);
+        a.merge(c);
+        // a + (b + c)
+        b2.merge(c2);
+        a2.merge(b2);
+
+        assertEquals(data.length, a.count());
+        assertEquals(data.length, a2.count());
+        for (double q : QUANTILES) {
+            assertRankWithin(data, q, a.quantile(q));
+            assertRankWithin(data, q, a2.quantile(q));
+        }
+    }
+
+    @Test
+    void emptySketchReturnsNaN() {
+        assertTrue(Double.isNaN(new QuantileSketch(K).quantile(0.5)));
+        assertNull(new HeavyHitters(8).mostFrequent());
+    }
+
+    @Test
+    void heavyHitterSurvivesEviction() {
+        // 众数占10%，其余值各出现一次，远多于计数器个数，计数器不断被替换
+        HeavyHitters sketch = new HeavyHitters(32);
+        Random random = new Random(4);
+        for (int i = 0; i < 100_000; i++) {
+            sketch.update(random.nextInt(10) == 0 ? "mode" : "v" + i);
+        }
+        assertEquals("mode", sketch.mostFrequent());
+    }
+
+    @Test
+    void heavyHitterFoundWhenArrivingLate() {
+        // 出现次数超过n/capacity的值一定被保留，即使全部出现在流的末尾
+        HeavyHitters sketch = new HeavyHitters(64);
+        int n = 64_000;
+        int late = n / 64 + 100;
+        for (int i = 0; i < n - late; i++) {
+            sketch.update(i % 5_000);
+        }
+        for (int i = 0; i < late; i++) {
+            sketch.update(-1);
+        }
+        assertEquals(-1, sketch.mostFrequent());
+    }
+
+    @Test
+    void heavyHittersExactWithinCapacity() {
+        HeavyHitters sketch = new HeavyHitters(16);
+        int[] counts = {5, 9, 3, 9, 12, 1};
+        for (int round = 0; round < 12; round++) {
+            for (int value = 0; value < counts.length; value++) {
+                if (round < counts[value]) {
+                    sketch.update(value);
+                }
+            }
+        }
+        assertEquals(4, sketch.mostFrequent());
+    }
+
+    private static void assertRankWithin(double[] sorted, double q, double estimate) {
+        int rank = lowerBound(sorted, estimate);
+        double error = Math.abs(rank / (double) sorted.length - q);
+        assertTrue(error <= RANK_TOLERANCE, "分位数 " + q + " 的估计值 " + estimate + " 排名误差 " + error);
+    }
+
+    private static int lowerBound(double[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
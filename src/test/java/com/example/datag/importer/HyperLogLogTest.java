@@ -0,0 +1,92 @@
+package com.example.datag.importer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HyperLogLog的误差和合并测试
+ */
+class HyperLogLogTest {
+
+    /**
+     * 标准误差约1.6%，取4倍标准误差作为允许的相对误差
+     */
+    private static final double TOLERANCE = 0.065;
+
+    @Test
+    void estimatesWithinErrorBound() {
+        for (int distinct : new int[]{100, 1_000, 10_000, 100_000, 1_000_000}) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (long i = 0; i < distinct; i++) {
+                sketch.add(i);
+            }
+            assertWithin(distinct, sketch.estimate());
+        }
+    }
+
+    @Test
+    void repeatedValuesDoNotChangeEstimate() {
+        HyperLogLog once = new HyperLogLog();
+        HyperLogLog repeated = new HyperLogLog();
+        for (long i = 0; i < 50_000; i++) {
+            once.add(i);
+            for (int r = 0; r < 3; r++) {
+                repeated.add(i);
+            }
+        }
+        assertEquals(once.estimate(), repeated.estimate());
+    }
+
+    @Test
+    void mergeEqualsSingleSketchOverUnion() {
+        HyperLogLog a = new HyperLogLog();
+        HyperLogLog b = new HyperLogLog();
+        HyperLogLog c = new HyperLogLog();
+        HyperLogLog all = new HyperLogLog();
+        // 三段有重叠，合并后的不同值个数为[0, 250000)
+        for (long i = 0; i < 100_000; i++) {
+            a.add(i);
+            all.add(i);
+        }
+        for (long i = 80_000; i < 180_000; i++) {
+            b.add(i);
+            all.add(i);
+        }
+        for (long i = 150_000; i < 250_000; i++) {
+            c.add(i);
+            all.add(i);
+        }
+
+        // (a ∪ b) ∪ c
+        HyperLogLog left = HyperLogLog.fromBytes(a.toBytes());
+        left.merge(b);
+        left.merge(c);
+        // a ∪ (b ∪ c)
+        HyperLogLog bc = HyperLogLog.fromBytes(b.toBytes());
+        bc.merge(c);
+        HyperLogLog right = HyperLogLog.fromBytes(a.toBytes());
+        right.merge(bc);
+
+        assertArrayEquals(all.toBytes(), left.toBytes());
+        assertArrayEquals(all.toBytes(), right.toBytes());
+        assertWithin(250_000, left.estimate());
+    }
+
+    @Test
+    void serializationRoundTrip() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long i = 0; i < 12_345; i++) {
+            sketch.add(i * 31);
+        }
+        HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+        assertEquals(sketch.estimate(), restored.estimate());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        double error = Math.abs(actual - expected) / (double) expected;
+        assertTrue(error <= TOLERANCE, "期望约 " + expected + "，估计为 " + actual + "，相对误差 " + error);
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.datag.importer;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 合并导入的方式选择和统计测试
+ * 目标库是桩：JdbcTemplate按SQL返回预设的表、索引和行，执行的写入语句只记录不执行
+ */
+class TableMergeWriterTest {
+
+    private static final List<String> HEADERS = List.of("k", "v");
+    private static final String UPDATE_BY_ID = "UPDATE `t` SET `v` = ? WHERE id = ?";
+    private static final String UPDATE_BY_KEY = "UPDATE `t` SET `v` = ? WHERE `k` = ?";
+
+    @Test
+    void uniqueIndexOnKeyColumnsSelectsStagingMerge() throws SQLException {
+        JdbcTemplate jdbcTemplate = target(new Object[][]{{"PRIMARY", "id"}, {"uk_k", "K"}});
+        TableMergeWriter writer = new TableMergeWriter(jdbcTemplate, "t", HEADERS, List.of("k"), 100);
+
+        assertFalse(writer.prepare());
+        assertTrue(writer.isUsingUniqueIndex());
+        verify(jdbcTemplate, never()).queryForObject(contains("INFORMATION_SCHEMA.COLUMNS"), eq(Integer.class), any());
+        verify(jdbcTemplate, never()).getDataSource();
+    }
+
+    @Test
+    void uniqueIndexOnOtherColumnsSelectsKeyIndex() throws SQLException {
+        // 唯一索引(k, v)比键列多一列，不能用来判断键是否存在
+        JdbcTemplate jdbcTemplate = target(new Object[][]{{"PRIMARY", "id"}, {"uk_kv", "k"}, {"uk_kv", "v"}},
+                new Object[]{1L, 1, 10});
+        TableMergeWriter writer = new TableMergeWriter(jdbcTemplate, "t", HEADERS, List.of("k"), 100);
+
+        writer.prepare();
+        assertFalse(writer.isUsingUniqueIndex());
+        verify(jdbcTemplate).getDataSource();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void duplicateKeysInBatchCountAsUpdatedOnStagingMerge() throws SQLException {
+        JdbcTemplate jdbcTemplate = target(new Object[][]{{"uk_k", "k"}});
+        when(jdbcTemplate.queryForMap(anyString())).thenReturn(Map.of("inserted", 2L, "updated", 0L));
+        TableMergeWriter writer = new TableMergeWriter(jdbcTemplate, "t", HEADERS, List.of("k"), 100);
+        writer.prepare();
+
+        MergeResult result = writer.writeBatch(rows(new Object[]{1, 10}, new Object[]{1, 11}, new Object[]{2, 20}));
+
+        assertEquals(2, result.getInserted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(0, result.getUnchanged());
+        // 临时表只写入去重后的行，同一键保留最后一行
+        ArgumentCaptor<List<Object[]>> staged = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("`tmp_merge_t`"), staged.capture());
+        assertEquals(2, staged.getValue().size());
+        assertArrayEquals(new Object[]{1, 11}, staged.getValue().get(0));
+        assertArrayEquals(new Object[]{2, 20}, staged.getValue().get(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void keyIndexCountsInsertedUpdatedAndUnchanged() throws SQLException {
+        JdbcTemplate jdbcTemplate = target(new Object[][]{{"PRIMARY", "id"}},
+                new Object[]{100L, 1, 10},
+                new Object[]{101L, 2, 20},
+                new Object[]{102L, 2, 20},
+                new Object[]{103L, null, 5},
+                new Object[]{104L, 3, null});
+        TableMergeWriter writer = new TableMergeWriter(jdbcTemplate, "t", HEADERS, List.of("k"), 100);
+        writer.prepare();
+
+        // 1不变；2在目标表中有两行，一起按id更新；3的NULL与导入的0不同；4是新键，批内重复计为一次更新
+        MergeResult first = writer.writeBatch(rows(new Object[]{1, 10}, new Object[]{2, 21}, new Object[]{3, 0},
+                new Object[]{4, 40}, new Object[]{4, 41}));
+        assertEquals(1, first.getInserted());
+        assertEquals(3, first.getUpdated());
+        assertEquals(1, first.getUnchanged());
+
+        ArgumentCaptor<List<Object[]>> byId = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(UPDATE_BY_ID), byId.capture());
+        assertEquals(3, byId.getValue().size());
+        assertArrayEquals(new Object[]{21, 101L}, byId.getValue().get(0));
+        assertArrayEquals(new Object[]{21, 102L}, byId.getValue().get(1));
+        assertArrayEquals(new Object[]{0, 104L}, byId.getValue().get(2));
+
+        // 本次导入插入的行id未知，再变化时按键列更新
+        MergeResult second = writer.writeBatch(rows(new Object[]{4, 42}, new Object[]{5, 50}));
+        assertEquals(1, second.getInserted());
+        assertEquals(1, second.getUpdated());
+        assertEquals(0, second.getUnchanged());
+        ArgumentCaptor<List<Object[]>> byKey = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(UPDATE_BY_KEY), byKey.capture());
+        assertEquals(1, byKey.getValue().size());
+        assertArrayEquals(new Object[]{42, 4}, byKey.getValue().get(0));
+
+        MergeResult third = writer.writeBatch(rows(new Object[]{4, 42}, new Object[]{1, 10}));
+        assertEquals(0, third.getInserted());
+        assertEquals(0, third.getUpdated());
+        assertEquals(2, third.getUnchanged());
+
+        ArgumentCaptor<List<Object[]>> inserts = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("INSERT INTO"), inserts.capture());
+        assertArrayEquals(new Object[]{4, 41}, inserts.getAllValues().get(0).get(0));
+        assertArrayEquals(new Object[]{5, 50}, inserts.getAllValues().get(1).get(0));
+    }
+
+    @Test
+    void keyIndexRefusesTablesOverRowCap() throws SQLException {
+        JdbcTemplate jdbcTemplate = target(new Object[0][],
+                new Object[]{1L, 1, 10}, new Object[]{2L, 2, 20}, new Object[]{3L, 3, 30});
+        TableMergeWriter writer = new TableMergeWriter(jdbcTemplate, "t", HEADERS, List.of("k"), 2);
+
+        RuntimeException e = assertThrows(RuntimeException.class, writer::prepare);
+        assertTrue(e.getMessage().contains("唯一索引"), e.getMessage());
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return List.of(rows);
+    }
+
+    /**
+     * 已存在的目标表t(id, k, v)
+     * @param uniqueIndexColumns 唯一索引的(索引名, 列名)
+     * @param tableRows 扫描目标表时返回的(id, k, v)
+     */
+    private static JdbcTemplate target(Object[][] uniqueIndexColumns, Object[]... tableRows) throws SQLException {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(contains("INFORMATION_SCHEMA.TABLES"), eq(Integer.class), eq("t")))
+                .thenReturn(1);
+        when(jdbcTemplate.queryForObject(contains("INFORMATION_SCHEMA.COLUMNS"), eq(Integer.class), eq("t")))
+                .thenReturn(1);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            ResultSet rs = resultSet(uniqueIndexColumns);
+            while (rs.next()) {
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(contains("INFORMATION_SCHEMA.STATISTICS"), any(RowCallbackHandler.class), eq("t"));
+
+        // 扫描目标表用的是同一数据源上新建的流式JdbcTemplate
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        when(jdbcTemplate.getDataSource()).thenReturn(dataSource);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(startsWith("SELECT id, `k`, `v` FROM `t`")))
+                .thenAnswer(invocation -> resultSet(tableRows));
+        return jdbcTemplate;
+    }
+
+    /**
+     * 按行数组逐行返回的结果集，列号从1开始
+     */
+    private static ResultSet resultSet(Object[][] rows) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        int[] cursor = {-1};
+        boolean[] wasNull = {false};
+        when(rs.next()).thenAnswer(invocation -> ++cursor[0] < rows.length);
+        when(rs.wasNull()).thenAnswer(invocation -> wasNull[0]);
+        when(rs.getString(anyInt())).thenAnswer(invocation -> {
+            Object value = rows[cursor[0]][invocation.<Integer>getArgument(0) - 1];
+            wasNull[0] = value == null;
+            return value == null ? null : value.toString();
+        });
+        when(rs.getInt(anyInt())).thenAnswer(invocation -> {
+            Object value = rows[cursor[0]][invocation.<Integer>getArgument(0) - 1];
+            wasNull[0] = value == null;
+            return value == null ? 0 : ((Number) value).intValue();
+        });
+        when(rs.getLong(anyInt())).thenAnswer(invocation -> {
+            Object value = rows[cursor[0]][invocation.<Integer>getArgument(0) - 1];
+            wasNull[0] = value == null;
+            return value == null ? 0L : ((Number) value).longValue();
+        });
+        return rs;
+    }
+}